@@ -0,0 +1,123 @@
+package allaboutecm.dataaccess.neo4j;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * createOrUpdate, load and loadAll of albums against the embedded impermanent store, holding the
+ * given number of albums. The albums created by an iteration are deleted after it, so every
+ * iteration writes to a store of the same size. createAll reports the time per album, so it
+ * compares directly with create.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class Neo4jDAOBenchmark {
+    private static final int BATCH = 100;
+
+    @Param({"1000", "10000"})
+    public int albums;
+
+    private SessionFactory sessionFactory;
+    private Session session;
+    private Neo4jDAO dao;
+    private List<Long> ids;
+    private Album updated;
+    private Random random;
+    private int created;
+
+    @Setup
+    public void setUp() {
+        // Impermanent embedded store
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        session = sessionFactory.openSession();
+        dao = new Neo4jDAO(session);
+
+        List<Album> stored = Lists.newArrayListWithCapacity(albums);
+        for (int i = 0; i < albums; i++) {
+            Album album = new Album(1970 + i % 50, "ECM " + (1000 + i), "Album " + i);
+            album.setFeaturedMusicians(Lists.newArrayList(new Musician("Musician " + letters(i % 500))));
+            stored.add(album);
+        }
+        dao.createOrUpdateAll(stored);
+        ids = Lists.newArrayListWithCapacity(albums);
+        stored.forEach(album -> ids.add(album.getId()));
+        updated = stored.get(0);
+        random = new Random(albums);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteCreatedAlbums() {
+        session.query("MATCH (a:Album) WHERE a.recordNumber STARTS WITH 'BENCH ' DETACH DELETE a",
+                Collections.emptyMap());
+        session.clear();
+        created = 0;
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.purgeDatabase();
+        session.clear();
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public Album create() {
+        int n = created++;
+        return dao.createOrUpdate(new Album(1970 + n % 50, "BENCH " + n, "Created " + n));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Collection<Album> createAll() {
+        List<Album> batch = Lists.newArrayListWithCapacity(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            int n = created++;
+            batch.add(new Album(1970 + n % 50, "BENCH " + n, "Created " + n));
+        }
+        return dao.createOrUpdateAll(batch);
+    }
+
+    @Benchmark
+    public Album update() {
+        updated.setUnitsSold(random.nextInt(1000000));
+        return dao.createOrUpdate(updated);
+    }
+
+    @Benchmark
+    public Album load() {
+        return dao.load(Album.class, ids.get(random.nextInt(ids.size())));
+    }
+
+    @Benchmark
+    public Collection<Album> loadAll() {
+        return dao.loadAll(Album.class);
+    }
+
+    /**
+     * Musician names have to be letters only.
+     */
+    private static String letters(int n) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return letters.toString();
+    }
+}
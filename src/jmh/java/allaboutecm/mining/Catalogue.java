@@ -0,0 +1,104 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.model.*;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A synthetic catalogue for the miner benchmarks: albums released from 1970 to 2019, each featuring
+ * one to four of albums / 10 musicians, with sales and up to three ratings, and the instruments
+ * every musician plays. The same size and seed give the same catalogue.
+ */
+final class Catalogue {
+    private static final int BATCH_SIZE = 1000;
+
+    final List<Album> albums;
+    final List<Musician> musicians;
+    final List<MusicianInstrument> musicianInstruments;
+    // The albums of each musician, set on the musicians when saved.
+    private final List<Set<Album>> albumsOf;
+
+    private Catalogue(List<Album> albums, List<Musician> musicians, List<MusicianInstrument> musicianInstruments,
+                      List<Set<Album>> albumsOf) {
+        this.albums = albums;
+        this.musicians = musicians;
+        this.musicianInstruments = musicianInstruments;
+        this.albumsOf = albumsOf;
+    }
+
+    static Catalogue generate(int size, long seed) {
+        Random random = new Random(seed);
+        List<MusicalInstrument> instruments = Lists.newArrayList();
+        for (int i = 0; i < 20; i++) {
+            instruments.add(new MusicalInstrument("Instrument" + letters(i)));
+        }
+        List<Musician> musicians = Lists.newArrayList();
+        List<Set<Album>> albumsOf = Lists.newArrayList();
+        for (int i = 0; i < Math.max(1, size / 10); i++) {
+            musicians.add(new Musician("Musician " + letters(i)));
+            albumsOf.add(Sets.newLinkedHashSet());
+        }
+
+        List<Album> albums = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            Album album = new Album(1970 + random.nextInt(50), "ECM " + (1000 + i), "Album " + letters(i));
+            album.setUnitsSold(random.nextInt(100000));
+            List<Musician> featured = Lists.newArrayList();
+            for (int j = 1 + random.nextInt(4); j > 0; j--) {
+                int musician = random.nextInt(musicians.size());
+                if (!featured.contains(musicians.get(musician))) {
+                    featured.add(musicians.get(musician));
+                    albumsOf.get(musician).add(album);
+                }
+            }
+            album.setFeaturedMusicians(featured);
+            Set<Rating> ratings = Sets.newHashSet();
+            for (int j = random.nextInt(4); j > 0; j--) {
+                ratings.add(new Rating(1 + random.nextInt(10), "Comment", "Source " + letters(j)));
+            }
+            album.setRatings(ratings);
+            albums.add(album);
+        }
+
+        List<MusicianInstrument> musicianInstruments = Lists.newArrayList();
+        for (int i = 0; i < musicians.size(); i++) {
+            Set<MusicalInstrument> played = Sets.newHashSet();
+            for (int j = 1 + random.nextInt(3); j > 0; j--) {
+                played.add(instruments.get(random.nextInt(instruments.size())));
+            }
+            musicianInstruments.add(new MusicianInstrument(musicians.get(i), played));
+        }
+        return new Catalogue(albums, musicians, musicianInstruments, albumsOf);
+    }
+
+    void saveTo(DAO dao) {
+        // The instruments first: Neo4jDAO looks them up by their musician, which it cannot pass as a
+        // query parameter once the musician has albums referring back to it.
+        dao.createOrUpdateAll(musicianInstruments, BATCH_SIZE);
+        dao.createOrUpdateAll(albums, BATCH_SIZE);
+        for (int i = 0; i < musicians.size(); i++) {
+            if (!albumsOf.get(i).isEmpty()) {
+                musicians.get(i).setAlbums(albumsOf.get(i));
+            }
+        }
+        dao.createOrUpdateAll(musicians, BATCH_SIZE);
+    }
+
+    /**
+     * Names have to be letters only.
+     */
+    static String letters(int n) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return letters.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.model.Entity;
+import com.google.common.collect.Lists;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the entities in lists, so the miners can be measured with the in-memory backend without
+ * the cost of a store.
+ */
+final class CatalogueDAO implements DAO {
+    private final Map<Class<?>, List<Entity>> entities = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        for (Entity entity : entitiesOf(clazz)) {
+            if (id.equals(entity.getId())) {
+                return clazz.cast(entity);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        if (null == entity.getId()) {
+            entity.setId(nextId.incrementAndGet());
+            entitiesOf(entity.getClass()).add(entity);
+        }
+        return entity;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        entities.forEach(this::createOrUpdate);
+        return entities;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities, int batchSize) {
+        return createOrUpdateAll(entities);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return (List<T>) Lists.newArrayList(entitiesOf(clazz));
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        entitiesOf(entity.getClass()).remove(entity);
+    }
+
+    private List<Entity> entitiesOf(Class<?> clazz) {
+        return entities.computeIfAbsent(clazz, key -> Lists.newArrayList());
+    }
+}
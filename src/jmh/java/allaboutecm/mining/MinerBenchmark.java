@@ -0,0 +1,117 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every public method of ECMMusicianMiner and ECMAlbumMiner over synthetic catalogues, with the
+ * rankings computed in the embedded impermanent store (cypher) or in memory over a DAO holding the
+ * catalogue in lists (memory). The catalogue is saved through the DAO, so setting up the larger
+ * store catalogues can take hours; pick the sizes with e.g. -p albums=10000 when that is not wanted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class MinerBenchmark {
+    private static final int K = 10;
+    private static final long SEED = 5171;
+
+    @Param({"10000", "100000", "1000000"})
+    public int albums;
+
+    @Param({"cypher", "memory"})
+    public String backend;
+
+    private SessionFactory sessionFactory;
+    private Session session;
+    private ECMMusicianMiner musicianMiner;
+    private ECMAlbumMiner albumMiner;
+    private Album query;
+
+    @Setup
+    public void setUp() {
+        DAO dao;
+        if ("cypher".equals(backend)) {
+            // Impermanent embedded store
+            Configuration configuration = new Configuration.Builder().build();
+            sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+            session = sessionFactory.openSession();
+            dao = new Neo4jDAO(session);
+        } else {
+            dao = new CatalogueDAO();
+        }
+        Catalogue catalogue = Catalogue.generate(albums, SEED);
+        catalogue.saveTo(dao);
+
+        musicianMiner = new ECMMusicianMiner(dao);
+        albumMiner = new ECMAlbumMiner(dao);
+        query = catalogue.albums.get(0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (null != sessionFactory) {
+            session.purgeDatabase();
+            session.clear();
+            sessionFactory.close();
+        }
+    }
+
+    @Benchmark
+    public List<Musician> mostProlificMusicians() {
+        return musicianMiner.mostProlificMusicians(K, 1980, 1999);
+    }
+
+    @Benchmark
+    public List<Musician> mostTalentedMusicians() {
+        return musicianMiner.mostTalentedMusicians(K);
+    }
+
+    @Benchmark
+    public List<Musician> mostSocialMusicians() {
+        return musicianMiner.mostSocialMusicians(K);
+    }
+
+    @Benchmark
+    public List<Integer> busiestYears() {
+        return musicianMiner.busiestYears(K);
+    }
+
+    @Benchmark
+    public List<Album> bestSellingAlbums() {
+        return albumMiner.bestSellingAlbums(K);
+    }
+
+    @Benchmark
+    public List<Album> highestRatedAlbums() {
+        return albumMiner.highestRatedAlbums(K);
+    }
+
+    @Benchmark
+    public List<Album> mostSimilarAlbums() {
+        return albumMiner.mostSimilarAlbums(K, query);
+    }
+
+    @Benchmark
+    public List<Album> approximateMostSimilarAlbums() {
+        return albumMiner.approximateMostSimilarAlbums(K, query);
+    }
+
+    @Benchmark
+    public Map<Album, List<Album>> relatedAlbums() {
+        return albumMiner.relatedAlbums(K);
+    }
+}
@@ -0,0 +1,74 @@
+package allaboutecm.mining;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Compares the bounded-heap top-k selection with the full sort the miners used before, over n
+ * counted keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TopKBenchmark {
+    private static final int K = 10;
+
+    @Param({"1000000", "2000000", "5000000"})
+    public int n;
+
+    private Map<Integer, Integer> counts;
+
+    @Setup
+    public void setUp() {
+        counts = new HashMap<>(n * 2);
+        Random random = new Random(n);
+        for (int i = 0; i < n; i++) {
+            counts.put(i, random.nextInt(1000));
+        }
+    }
+
+    @Benchmark
+    public List<Integer> sortMapByValue() {
+        List<Integer> top = new ArrayList<>(K);
+        for (Integer key : sortMapByValue(counts).keySet()) {
+            if (top.size() == K)
+                break;
+            top.add(key);
+        }
+        return top;
+    }
+
+    @Benchmark
+    public List<Integer> intTopK() {
+        return select(counts, K, Rankings.YEARS_ASCENDING);
+    }
+
+    /**
+     * The k keys with the highest counts, best first, ties ordered by tieBreak.
+     */
+    private static <K> List<K> select(Map<K, Integer> counts, int k, Comparator<? super K> tieBreak) {
+        IntTopK<K> topK = new IntTopK<>(k, tieBreak);
+        counts.forEach(topK::offer);
+        return topK.toList();
+    }
+
+    /**
+     * The ranking the miners used before TopK.
+     */
+    private static <K, V extends Comparable<? super V>> LinkedHashMap<K, V> sortMapByValue(Map<K, V> map) {
+        return map
+                .entrySet()
+                .stream()
+                .sorted(Collections.reverseOrder(Map.Entry.<K, V>comparingByValue()))
+                .collect(
+                        toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e2,
+                                LinkedHashMap::new));
+    }
+}
@@ -0,0 +1,100 @@
+package allaboutecm.model;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The constructors and the validating setters of the model, which every save and load goes
+ * through.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelBenchmark {
+    private Album album;
+    private Musician musician;
+    private Rating rating;
+    private List<Musician> featuredMusicians;
+    private Set<Rating> ratings;
+
+    @Setup
+    public void setUp() {
+        album = new Album(1975, "ECM 1064", "The Koln Concert");
+        musician = new Musician("Keith Jarrett");
+        rating = new Rating(8, "Great", "Allmusic");
+        featuredMusicians = Lists.newArrayList(new Musician("Keith Jarrett"), new Musician("Jan Garbarek"),
+                new Musician("Palle Danielsson"), new Musician("Jon Christensen"));
+        ratings = Sets.newHashSet(new Rating(10, "Great", "Allmusic"), new Rating(8, "Good", "Rolling Stone"));
+    }
+
+    @Benchmark
+    public Album newAlbum() {
+        return new Album(1975, "ECM 1064", "The Koln Concert");
+    }
+
+    @Benchmark
+    public Musician newMusician() {
+        return new Musician("Keith Jarrett");
+    }
+
+    @Benchmark
+    public Rating newRating() {
+        return new Rating(8, "Great", "Allmusic");
+    }
+
+    @Benchmark
+    public Album setRecordNumber() {
+        album.setRecordNumber("ECM 1050");
+        return album;
+    }
+
+    @Benchmark
+    public Album setAlbumName() {
+        album.setAlbumName("Belonging");
+        return album;
+    }
+
+    @Benchmark
+    public Album setReleaseYear() {
+        album.setReleaseYear(1974);
+        return album;
+    }
+
+    @Benchmark
+    public Album setUnitsSold() {
+        album.setUnitsSold(20000);
+        return album;
+    }
+
+    @Benchmark
+    public Album setFeaturedMusicians() {
+        album.setFeaturedMusicians(featuredMusicians);
+        return album;
+    }
+
+    @Benchmark
+    public Album setRatings() {
+        album.setRatings(ratings);
+        return album;
+    }
+
+    @Benchmark
+    public Musician setName() {
+        musician.setName("Jan Garbarek");
+        return musician;
+    }
+
+    @Benchmark
+    public Rating setScore() {
+        rating.setScore(9);
+        return rating;
+    }
+}
@@ -0,0 +1,96 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Rating;
+
+import java.util.Objects;
+
+/**
+ * The numbers of one album the miners rank by. Read as a flat row, so no Album is mapped and
+ * none of its relationships or its URL are loaded.
+ */
+public final class AlbumStats {
+    private final Long id;
+    private final int releaseYear;
+    private final int unitsSold;
+    private final long ratingSum;
+    private final int ratingCount;
+
+    public AlbumStats(Long id, int releaseYear, int unitsSold, long ratingSum, int ratingCount) {
+        if (ratingCount < 0) {
+            throw new IllegalArgumentException("Rating count cannot be less than 0");
+        }
+        this.id = id;
+        this.releaseYear = releaseYear;
+        this.unitsSold = unitsSold;
+        this.ratingSum = ratingSum;
+        this.ratingCount = ratingCount;
+    }
+
+    /**
+     * The stats of an album already in memory.
+     */
+    public static AlbumStats of(Album album) {
+        long ratingSum = 0;
+        int ratingCount = 0;
+        if (null != album.getRatings()) {
+            for (Rating rating : album.getRatings()) {
+                if (null != rating) {
+                    ratingSum += rating.getScore();
+                    ratingCount++;
+                }
+            }
+        }
+        return new AlbumStats(album.getId(), album.getReleaseYear(), album.getUnitsSold(), ratingSum, ratingCount);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public int getReleaseYear() {
+        return releaseYear;
+    }
+
+    public int getUnitsSold() {
+        return unitsSold;
+    }
+
+    public long getRatingSum() {
+        return ratingSum;
+    }
+
+    public int getRatingCount() {
+        return ratingCount;
+    }
+
+    /**
+     * The average rating score, or 0 if the album has no ratings.
+     */
+    public double getAverageRating() {
+        return ratingCount == 0 ? 0 : (double) ratingSum / ratingCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AlbumStats that = (AlbumStats) o;
+        return releaseYear == that.releaseYear &&
+                unitsSold == that.unitsSold &&
+                ratingSum == that.ratingSum &&
+                ratingCount == that.ratingCount &&
+                Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, releaseYear, unitsSold, ratingSum, ratingCount);
+    }
+
+    @Override
+    public String toString() {
+        return "AlbumStats{id=" + id + ", releaseYear=" + releaseYear + ", unitsSold=" + unitsSold
+                + ", ratingSum=" + ratingSum + ", ratingCount=" + ratingCount + "}";
+    }
+}
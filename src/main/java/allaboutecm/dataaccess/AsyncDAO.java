@@ -0,0 +1,26 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Entity;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The DAO operations as non-blocking calls. Each returns at once with a future that completes
+ * with the result of the corresponding {@link DAO} method, or exceptionally with what it threw.
+ */
+public interface AsyncDAO extends AutoCloseable {
+    <T extends Entity> CompletableFuture<T> loadAsync(Class<T> clazz, Long id);
+
+    <T extends Entity> CompletableFuture<T> createOrUpdateAsync(T entity);
+
+    <T extends Entity> CompletableFuture<Collection<T>> loadAllAsync(Class<T> clazz);
+
+    <T extends Entity> CompletableFuture<Void> deleteAsync(T entity);
+
+    /**
+     * Stops accepting operations. Operations already accepted still complete.
+     */
+    @Override
+    void close();
+}
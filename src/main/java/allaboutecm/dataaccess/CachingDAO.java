@@ -0,0 +1,354 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Entity;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Serves repeated loads of the same entity from memory. Wraps another DAO and keeps, per entity
+ * class, an LRU cache of the entities loaded by id. Entries expire a fixed time after they were
+ * loaded; saving or deleting an entity through this DAO invalidates its entry, so the next load
+ * reads it from the wrapped DAO again. Loaded entities embed the entities they are related to, so
+ * the write also drops the cached entities embedding the written one, and those it embeds: saving
+ * a Musician drops the cached Albums featuring it, and saving an Album drops its cached Musicians.
+ * <p>
+ * Only load is cached. Entities written through another DAO are seen once their entries expire.
+ * Every load of a cached entity returns the same instance, so a caller changing it changes what
+ * the others load, until it is saved through this DAO or its entry expires.
+ */
+public class CachingDAO implements DAO {
+    public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+    public static final long DEFAULT_EXPIRE_AFTER_SECONDS = 600;
+
+    private final DAO delegate;
+    private final long maximumSize;
+    private final long expireAfterNanos;
+    private final Ticker ticker;
+    private final ConcurrentMap<Class<?>, Cache<Long, Entity>> caches = new ConcurrentHashMap<>();
+    // The fields of each class holding related entities, directly or in a collection or array.
+    private final ConcurrentMap<Class<?>, List<Field>> relatedFields = new ConcurrentHashMap<>();
+    // The cached entities embedding each entity, as a related entity of theirs.
+    private final ConcurrentMap<EntityKey, Set<EntityKey>> embeddedIn = new ConcurrentHashMap<>();
+    private final AtomicLong writes = new AtomicLong();
+
+    public CachingDAO(DAO delegate) {
+        this(delegate, DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRE_AFTER_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param maximumSize the number of entities cached per entity class, least recently used evicted first.
+     * @param expireAfter how long after loading an entity it is read again from the delegate.
+     */
+    public CachingDAO(DAO delegate, long maximumSize, long expireAfter, TimeUnit unit) {
+        this(delegate, maximumSize, expireAfter, unit, Ticker.systemTicker());
+    }
+
+    CachingDAO(DAO delegate, long maximumSize, long expireAfter, TimeUnit unit, Ticker ticker) {
+        notNull(delegate);
+        notNull(unit);
+        notNull(ticker);
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size cannot be less than 1");
+        }
+        if (expireAfter < 1) {
+            throw new IllegalArgumentException("Expire after cannot be less than 1");
+        }
+        this.delegate = delegate;
+        this.maximumSize = maximumSize;
+        this.expireAfterNanos = unit.toNanos(expireAfter);
+        this.ticker = ticker;
+    }
+
+    /**
+     * Returns the DAO this one caches loads of.
+     */
+    public DAO getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        notNull(clazz);
+        notNull(id);
+        Cache<Long, Entity> cache = cacheOf(clazz);
+        Entity cached = cache.getIfPresent(id);
+        if (null != cached) {
+            return clazz.cast(cached);
+        }
+
+        // Loaded outside the cache, so exceptions of the delegate reach the caller unwrapped.
+        long version = writes.get();
+        T entity = delegate.load(clazz, id);
+        if (null != entity) {
+            cache.put(id, entity);
+            EntityKey key = new EntityKey(clazz, id);
+            for (EntityKey related : relatedKeysOf(entity)) {
+                embeddedIn.computeIfAbsent(related, k -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+            // A write during the load may have invalidated the entry before the stale entity was put.
+            if (writes.get() != version) {
+                cache.invalidate(id);
+            }
+        }
+        return entity;
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        T saved = delegate.createOrUpdate(entity);
+        invalidate(entity);
+        return saved;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        Collection<T> saved = delegate.createOrUpdateAll(entities);
+        entities.forEach(this::invalidate);
+        return saved;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities, int batchSize) {
+        Collection<T> saved = delegate.createOrUpdateAll(entities, batchSize);
+        entities.forEach(this::invalidate);
+        return saved;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return delegate.loadAll(clazz);
+    }
+
+    @Override
+    public <T extends Entity> void forEachPage(Class<T> clazz, int pageSize, Consumer<? super List<T>> consumer) {
+        delegate.forEachPage(clazz, pageSize, consumer);
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz) {
+        return delegate.stream(clazz);
+    }
+
+    @Override
+    public void forEachAlbumStats(Consumer<? super AlbumStats> action) {
+        delegate.forEachAlbumStats(action);
+    }
+
+    @Override
+    public void forEachMusicianStats(Consumer<? super MusicianStats> action) {
+        delegate.forEachMusicianStats(action);
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        try {
+            delegate.delete(entity);
+        } finally {
+            invalidate(entity);
+        }
+    }
+
+    /**
+     * Drops every cached entity.
+     */
+    public void invalidateAll() {
+        caches.values().forEach(Cache::invalidateAll);
+    }
+
+    /**
+     * Returns the hit, miss and eviction counts of the cache of the entity class.
+     */
+    public CacheStats getStats(Class<? extends Entity> clazz) {
+        notNull(clazz);
+        Cache<Long, Entity> cache = caches.get(clazz);
+        return null == cache ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+    }
+
+    /**
+     * Returns the hit, miss and eviction counts of all entity classes together.
+     */
+    public CacheStats getStats() {
+        CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+        for (Cache<Long, Entity> cache : caches.values()) {
+            stats = stats.plus(cache.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the number of entities of the class currently cached.
+     */
+    public long size(Class<? extends Entity> clazz) {
+        notNull(clazz);
+        Cache<Long, Entity> cache = caches.get(clazz);
+        return null == cache ? 0 : cache.size();
+    }
+
+    private void invalidate(Entity entity) {
+        writes.incrementAndGet();
+        if (null == entity) {
+            return;
+        }
+        if (null != entity.getId()) {
+            EntityKey key = new EntityKey(entity.getClass(), entity.getId());
+            invalidate(key);
+            Set<EntityKey> embedding = embeddedIn.get(key);
+            if (null != embedding) {
+                embedding.forEach(this::invalidate);
+            }
+        }
+        relatedKeysOf(entity).forEach(this::invalidate);
+    }
+
+    private void invalidate(EntityKey key) {
+        Cache<Long, Entity> cache = caches.get(key.clazz);
+        if (null != cache) {
+            cache.invalidate(key.id);
+        }
+    }
+
+    /**
+     * Forgets what an entity no longer cached embeds.
+     */
+    private void forget(Class<?> clazz, Long id, Entity entity) {
+        EntityKey key = new EntityKey(clazz, id);
+        for (EntityKey related : relatedKeysOf(entity)) {
+            embeddedIn.computeIfPresent(related, (k, embedding) -> {
+                embedding.remove(key);
+                return embedding.isEmpty() ? null : embedding;
+            });
+        }
+    }
+
+    /**
+     * The keys of the saved entities the entity holds in its fields.
+     */
+    private List<EntityKey> relatedKeysOf(Entity entity) {
+        List<EntityKey> keys = new ArrayList<>();
+        for (Field field : relatedFieldsOf(entity.getClass())) {
+            try {
+                addKeys(field.get(entity), keys);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return keys;
+    }
+
+    private static void addKeys(Object value, List<EntityKey> keys) {
+        if (value instanceof Entity) {
+            Entity entity = (Entity) value;
+            if (null != entity.getId()) {
+                keys.add(new EntityKey(entity.getClass(), entity.getId()));
+            }
+        } else if (value instanceof Iterable) {
+            for (Object element : (Iterable<?>) value) {
+                addKeys(element, keys);
+            }
+        } else if (value instanceof Object[]) {
+            for (Object element : (Object[]) value) {
+                addKeys(element, keys);
+            }
+        }
+    }
+
+    private List<Field> relatedFieldsOf(Class<?> clazz) {
+        return relatedFields.computeIfAbsent(clazz, c -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> declaring = c; null != declaring; declaring = declaring.getSuperclass()) {
+                for (Field field : declaring.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && holdsEntities(field.getGenericType())) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields;
+        });
+    }
+
+    private static boolean holdsEntities(Type type) {
+        if (type instanceof Class) {
+            Class<?> clazz = (Class<?>) type;
+            return clazz.isArray() ? holdsEntities(clazz.getComponentType()) : Entity.class.isAssignableFrom(clazz);
+        }
+        if (type instanceof ParameterizedType) {
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                if (holdsEntities(argument)) {
+                    return true;
+                }
+            }
+        } else if (type instanceof GenericArrayType) {
+            return holdsEntities(((GenericArrayType) type).getGenericComponentType());
+        } else if (type instanceof WildcardType) {
+            for (Type bound : ((WildcardType) type).getUpperBounds()) {
+                if (holdsEntities(bound)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Cache<Long, Entity> cacheOf(Class<?> clazz) {
+        return caches.computeIfAbsent(clazz, c -> CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterNanos, TimeUnit.NANOSECONDS)
+                .ticker(ticker)
+                .recordStats()
+                .removalListener((RemovalNotification<Long, Entity> removed) -> {
+                    // A replaced entity may embed less than its replacement; it only costs an extra invalidation.
+                    if (removed.getCause() != RemovalCause.REPLACED) {
+                        forget(c, removed.getKey(), removed.getValue());
+                    }
+                })
+                .build());
+    }
+
+    private static final class EntityKey {
+        private final Class<?> clazz;
+        private final Long id;
+
+        private EntityKey(Class<?> clazz, Long id) {
+            this.clazz = clazz;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            EntityKey that = (EntityKey) o;
+            return clazz == that.clazz && id.equals(that.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(clazz, id);
+        }
+    }
+}
@@ -1,15 +1,87 @@
 package allaboutecm.dataaccess;
 
-import allaboutecm.model.Entity;
+import allaboutecm.model.*;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.notNull;
 
 public interface DAO {
     <T extends Entity> T load(Class<T> clazz, Long id);
 
     <T extends Entity> T createOrUpdate(T entity);
 
+    /**
+     * Creates or updates all the entities, saving them in batches of a default size.
+     */
+    <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities);
+
+    /**
+     * Creates or updates all the entities, saving each batch of batchSize entities in a single transaction.
+     */
+    <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities, int batchSize);
+
     <T extends Entity> Collection<T> loadAll(Class<T> clazz);
 
+    /**
+     * Passes every entity of the class to the consumer, in pages of at most pageSize entities. A
+     * DAO that can should read one page at a time, so a scan needs memory for a page rather than
+     * for all the entities; this default splits up what loadAll returns.
+     */
+    default <T extends Entity> void forEachPage(Class<T> clazz, int pageSize, Consumer<? super List<T>> consumer) {
+        notNull(clazz);
+        notNull(consumer);
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size cannot be less than 1");
+        }
+        for (List<T> page : Iterables.partition(loadAll(clazz), pageSize)) {
+            consumer.accept(page);
+        }
+    }
+
+    /**
+     * Every entity of the class, read lazily where the DAO supports it, as by forEachPage.
+     */
+    default <T extends Entity> Stream<T> stream(Class<T> clazz) {
+        notNull(clazz);
+        return loadAll(clazz).stream();
+    }
+
+    /**
+     * Passes the {@link AlbumStats} of every album to the action. A DAO that can should read them
+     * as rows without mapping the albums; this default computes them from loadAll.
+     */
+    default void forEachAlbumStats(Consumer<? super AlbumStats> action) {
+        notNull(action);
+        loadAll(Album.class).forEach(album -> action.accept(AlbumStats.of(album)));
+    }
+
+    /**
+     * Passes the {@link MusicianStats} of every musician to the action. A DAO that can should read
+     * them as rows without mapping any entity; this default computes them from loadAll.
+     */
+    default void forEachMusicianStats(Consumer<? super MusicianStats> action) {
+        notNull(action);
+        Map<Musician, Set<MusicalInstrument>> instruments = Maps.newHashMap();
+        for (MusicianInstrument musicianInstrument : loadAll(MusicianInstrument.class)) {
+            if (null != musicianInstrument.getMusician() && null != musicianInstrument.getMusicalInstruments()) {
+                instruments.computeIfAbsent(musicianInstrument.getMusician(), musician -> Sets.newHashSet())
+                        .addAll(musicianInstrument.getMusicalInstruments());
+            }
+        }
+        for (Musician musician : loadAll(Musician.class)) {
+            Set<MusicalInstrument> played = instruments.get(musician);
+            action.accept(new MusicianStats(musician.getId(), musician.getName(), null == played ? 0 : played.size()));
+        }
+    }
+
     <T extends Entity> void delete(T entity);
-}
\ No newline at end of file
+}
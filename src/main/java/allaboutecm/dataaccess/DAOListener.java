@@ -0,0 +1,19 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.model.Entity;
+
+/**
+ * Notified by a DAO after it has saved or deleted an entity, so e.g. an index over the entities
+ * can be kept up to date without reloading them.
+ */
+public interface DAOListener {
+    /**
+     * Called after the entity has been created or updated; its id is set.
+     */
+    void saved(Entity entity);
+
+    /**
+     * Called after the entity has been deleted.
+     */
+    void deleted(Entity entity);
+}
@@ -0,0 +1,132 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.metrics.MetricsRegistry;
+import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
+import allaboutecm.model.Musician;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Records every call to another DAO in a {@link MetricsRegistry}: how long it took, how many
+ * entities or rows it returned or wrote, and whether it threw, per operation and entity class.
+ * The operations are named after the DAO methods, e.g. "load" and "createOrUpdateAll".
+ * <p>
+ * A stream is recorded when it is closed, from when it was opened, with the entities read from it;
+ * a stream never closed is not recorded.
+ */
+public class MetricsDAO implements DAO {
+    private final DAO delegate;
+    private final MetricsRegistry metrics;
+
+    public MetricsDAO(DAO delegate, MetricsRegistry metrics) {
+        notNull(delegate);
+        notNull(metrics);
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the DAO this one records calls to.
+     */
+    public DAO getDelegate() {
+        return delegate;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public <T extends Entity> T load(Class<T> clazz, Long id) {
+        return timed("load", clazz, () -> delegate.load(clazz, id), entity -> null == entity ? 0 : 1);
+    }
+
+    @Override
+    public <T extends Entity> T createOrUpdate(T entity) {
+        return timed("createOrUpdate", null == entity ? null : entity.getClass(),
+                () -> delegate.createOrUpdate(entity), saved -> 1);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        return timed("createOrUpdateAll", MetricsRegistry.classOf(entities), () -> delegate.createOrUpdateAll(entities),
+                Collection::size);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities, int batchSize) {
+        return timed("createOrUpdateAll", MetricsRegistry.classOf(entities), () -> delegate.createOrUpdateAll(entities, batchSize),
+                Collection::size);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
+        return timed("loadAll", clazz, () -> delegate.loadAll(clazz), Collection::size);
+    }
+
+    @Override
+    public <T extends Entity> void forEachPage(Class<T> clazz, int pageSize, Consumer<? super List<T>> consumer) {
+        AtomicLong rows = new AtomicLong();
+        timed("forEachPage", clazz, () -> {
+            delegate.forEachPage(clazz, pageSize, page -> {
+                rows.addAndGet(page.size());
+                consumer.accept(page);
+            });
+            return rows;
+        }, AtomicLong::get);
+    }
+
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz) {
+        long start = System.nanoTime();
+        AtomicLong rows = new AtomicLong();
+        return delegate.stream(clazz)
+                .peek(entity -> rows.incrementAndGet())
+                .onClose(() -> metrics.record("stream", clazz, System.nanoTime() - start, rows.get(), false));
+    }
+
+    @Override
+    public void forEachAlbumStats(Consumer<? super AlbumStats> action) {
+        AtomicLong rows = new AtomicLong();
+        timed("forEachAlbumStats", Album.class, () -> {
+            delegate.forEachAlbumStats(stats -> {
+                rows.incrementAndGet();
+                action.accept(stats);
+            });
+            return rows;
+        }, AtomicLong::get);
+    }
+
+    @Override
+    public void forEachMusicianStats(Consumer<? super MusicianStats> action) {
+        AtomicLong rows = new AtomicLong();
+        timed("forEachMusicianStats", Musician.class, () -> {
+            delegate.forEachMusicianStats(stats -> {
+                rows.incrementAndGet();
+                action.accept(stats);
+            });
+            return rows;
+        }, AtomicLong::get);
+    }
+
+    @Override
+    public <T extends Entity> void delete(T entity) {
+        timed("delete", null == entity ? null : entity.getClass(), () -> {
+            delegate.delete(entity);
+            return entity;
+        }, deleted -> 1);
+    }
+
+    private <R> R timed(String operation, Class<?> clazz, Supplier<R> call, ToLongFunction<? super R> rows) {
+        return metrics.time(operation, clazz, call, rows);
+    }
+}
@@ -0,0 +1,54 @@
+package allaboutecm.dataaccess;
+
+import java.util.Objects;
+
+/**
+ * The name of one musician and the number of different instruments they play across all albums.
+ * Read as a flat row, so no Musician, MusicianInstrument or MusicalInstrument is mapped.
+ */
+public final class MusicianStats {
+    private final Long id;
+    private final String name;
+    private final int instrumentCount;
+
+    public MusicianStats(Long id, String name, int instrumentCount) {
+        if (instrumentCount < 0) {
+            throw new IllegalArgumentException("Instrument count cannot be less than 0");
+        }
+        this.id = id;
+        this.name = name;
+        this.instrumentCount = instrumentCount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getInstrumentCount() {
+        return instrumentCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MusicianStats that = (MusicianStats) o;
+        return instrumentCount == that.instrumentCount &&
+                Objects.equals(id, that.id) &&
+                Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name, instrumentCount);
+    }
+
+    @Override
+    public String toString() {
+        return "MusicianStats{id=" + id + ", name='" + name + "', instrumentCount=" + instrumentCount + "}";
+    }
+}
@@ -0,0 +1,149 @@
+package allaboutecm.dataaccess.neo4j;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.PrimitiveSink;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Bloom filter over the natural keys of the stored entities of one class. If the filter has
+ * not seen a key, no node has it, so createOrUpdate can skip looking it up. A key it has seen
+ * may still be absent (a false positive, or a deleted node), and is looked up as before.
+ * <p>
+ * When the filter holds as many keys as it was sized for, a filter twice the size with half the
+ * false positive probability is added, so the combined probability stays below twice the
+ * configured one however many keys are added.
+ */
+public final class KeyFilter {
+    public static final double DEFAULT_FPP = 0.01;
+    static final long MIN_EXPECTED_KEYS = 1024;
+
+    private final List<BloomFilter<Object[]>> filters = Lists.newArrayList();
+    private long capacity;
+    private double fpp;
+
+    private final AtomicLong skippedLookups = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    /**
+     * @param expectedKeys the number of keys the first filter is sized for.
+     * @param fpp          the false positive probability of the first filter.
+     */
+    KeyFilter(long expectedKeys, double fpp) {
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("False positive probability must be between 0 and 1");
+        }
+        this.capacity = Math.max(MIN_EXPECTED_KEYS, expectedKeys);
+        this.fpp = fpp;
+        filters.add(BloomFilter.create(KeyFunnel.INSTANCE, capacity, fpp));
+    }
+
+    synchronized void put(Object[] keyValues) {
+        BloomFilter<Object[]> current = filters.get(filters.size() - 1);
+        if (current.approximateElementCount() >= capacity) {
+            capacity *= 2;
+            fpp /= 2;
+            current = BloomFilter.create(KeyFunnel.INSTANCE, capacity, fpp);
+            filters.add(current);
+        }
+        current.put(keyValues);
+    }
+
+    synchronized boolean mightContain(Object[] keyValues) {
+        for (BloomFilter<Object[]> filter : filters) {
+            if (filter.mightContain(keyValues)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void recordSkippedLookup() {
+        skippedLookups.incrementAndGet();
+    }
+
+    /**
+     * Records that keys the filter might contain were looked up and how many of them were found.
+     */
+    void recordLookups(int looked, int found) {
+        lookups.addAndGet(looked);
+        falsePositives.addAndGet(looked - found);
+    }
+
+    /**
+     * The number of keys not looked up because the filter had not seen them.
+     */
+    public long getSkippedLookups() {
+        return skippedLookups.get();
+    }
+
+    /**
+     * The number of keys looked up because the filter might have seen them.
+     */
+    public long getLookups() {
+        return lookups.get();
+    }
+
+    /**
+     * The number of keys looked up but not found.
+     */
+    public long getFalsePositives() {
+        return falsePositives.get();
+    }
+
+    /**
+     * The observed false positive rate: of the keys that were not stored, the fraction the filter
+     * did not rule out. Includes keys of deleted nodes, which the filter cannot forget.
+     */
+    public double getFalsePositiveRate() {
+        long negatives = skippedLookups.get() + falsePositives.get();
+        return negatives == 0 ? 0 : (double) falsePositives.get() / negatives;
+    }
+
+    /**
+     * The false positive probability the filters currently expect from the keys they hold.
+     */
+    public synchronized double getExpectedFpp() {
+        double allNegative = 1;
+        for (BloomFilter<Object[]> filter : filters) {
+            allNegative *= 1 - filter.expectedFpp();
+        }
+        return 1 - allNegative;
+    }
+
+    /**
+     * Approximately the number of distinct keys put into the filter.
+     */
+    public synchronized long getApproximateKeyCount() {
+        long count = 0;
+        for (BloomFilter<Object[]> filter : filters) {
+            count += filter.approximateElementCount();
+        }
+        return count;
+    }
+
+    /**
+     * Funnels key values so a value read back from the database hashes like the entity's own: all
+     * numbers as longs (Neo4j returns int properties as Long), everything else as its string.
+     */
+    private enum KeyFunnel implements Funnel<Object[]> {
+        INSTANCE;
+
+        @Override
+        public void funnel(Object[] keyValues, PrimitiveSink into) {
+            for (Object value : keyValues) {
+                if (value instanceof Number) {
+                    into.putByte((byte) 1).putLong(((Number) value).longValue());
+                } else {
+                    String string = String.valueOf(value);
+                    into.putByte((byte) 2).putInt(string.length()).putString(string, StandardCharsets.UTF_8);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package allaboutecm.dataaccess.neo4j;
+
+import allaboutecm.model.*;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The properties that identify an entity of a given class in the graph, i.e. the same
+ * properties Neo4jDAO filters on when it looks for an existing node in createOrUpdate.
+ * <p>
+ * Only classes whose identity is made of scalar node properties have a natural key.
+ * Concert and MusicianInstrument are still matched by Neo4jDAO.findExistingEntity.
+ * Neo4jDAO creates a schema index over every natural key when it is constructed.
+ */
+public final class NaturalKey<T extends Entity> {
+    private static final Map<Class<? extends Entity>, NaturalKey<? extends Entity>> KEYS = Maps.newLinkedHashMap();
+
+    static {
+        register(Album.class, album -> new Object[]{album.getAlbumName(), album.getRecordNumber(), album.getReleaseYear()},
+                "albumName", "recordNumber", "releaseYear");
+        register(Musician.class, musician -> new Object[]{musician.getName()}, "name");
+        register(MusicalInstrument.class, instrument -> new Object[]{instrument.getName()}, "name");
+        register(MusicianGroup.class, group -> new Object[]{group.getGroupName()}, "groupName");
+        register(Track.class, track -> new Object[]{track.getTitle(), track.getDuration()}, "title", "duration");
+        register(Rating.class, rating -> new Object[]{rating.getScore(), rating.getComment(), rating.getSource()},
+                "score", "comment", "source");
+    }
+
+    private final Class<T> clazz;
+    private final List<String> properties;
+    private final Function<T, Object[]> values;
+
+    private NaturalKey(Class<T> clazz, Function<T, Object[]> values, String... properties) {
+        this.clazz = clazz;
+        this.values = values;
+        this.properties = ImmutableList.copyOf(properties);
+    }
+
+    private static <T extends Entity> void register(Class<T> clazz, Function<T, Object[]> values, String... properties) {
+        KEYS.put(clazz, new NaturalKey<>(clazz, values, properties));
+    }
+
+    /**
+     * Returns the natural key of the given class, or null if the class does not have one.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Entity> NaturalKey<T> of(Class<T> clazz) {
+        return (NaturalKey<T>) KEYS.get(clazz);
+    }
+
+    public static Collection<NaturalKey<? extends Entity>> all() {
+        return Collections.unmodifiableCollection(KEYS.values());
+    }
+
+    public Class<T> getEntityClass() {
+        return clazz;
+    }
+
+    public String getLabel() {
+        return clazz.getSimpleName();
+    }
+
+    public List<String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * The key values of the entity, in the same order as {@link #getProperties()}.
+     */
+    public Object[] valuesOf(T entity) {
+        return values.apply(entity);
+    }
+
+    /**
+     * A key with a null value can never match a stored node, as the equality in the lookup is never true.
+     */
+    public boolean isComplete(Object[] keyValues) {
+        for (Object value : keyValues) {
+            if (null == value) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cypher that creates a (composite, if the key has several properties) index over the key.
+     */
+    String createIndexStatement() {
+        StringBuilder statement = new StringBuilder("CREATE INDEX ON :`").append(getLabel()).append("`(");
+        for (int i = 0; i < properties.size(); i++) {
+            statement.append(i == 0 ? "" : ", ").append('`').append(properties.get(i)).append('`');
+        }
+        return statement.append(')').toString();
+    }
+
+    /**
+     * Cypher that matches a list of key rows in one round-trip. Every row in $rows carries the key
+     * properties plus an "index" that is returned alongside the id of the matching node.
+     */
+    String batchLookupQuery() {
+        StringBuilder query = new StringBuilder("UNWIND $rows AS row MATCH (n:`").append(getLabel()).append("`) WHERE ");
+        for (int i = 0; i < properties.size(); i++) {
+            String property = properties.get(i);
+            query.append(i == 0 ? "" : " AND ")
+                    .append("n.`").append(property).append("` = row.`").append(property).append('`');
+        }
+        return query.append(" RETURN row.index AS index, min(id(n)) AS id").toString();
+    }
+
+    /**
+     * Cypher that counts the nodes of the class.
+     */
+    String countQuery() {
+        return "MATCH (n:`" + getLabel() + "`) RETURN count(n) AS count";
+    }
+
+    /**
+     * Cypher that returns the key of every node of the class, one column per property in the order
+     * of {@link #getProperties()}.
+     */
+    String keysQuery() {
+        StringBuilder query = new StringBuilder("MATCH (n:`").append(getLabel()).append("`) RETURN ");
+        for (int i = 0; i < properties.size(); i++) {
+            String property = properties.get(i);
+            query.append(i == 0 ? "" : ", ").append("n.`").append(property).append("` AS `").append(property).append('`');
+        }
+        return query.toString();
+    }
+}
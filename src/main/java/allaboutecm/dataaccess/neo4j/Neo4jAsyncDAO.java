@@ -0,0 +1,141 @@
+package allaboutecm.dataaccess.neo4j;
+
+import allaboutecm.dataaccess.AsyncDAO;
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.model.Entity;
+import com.google.common.base.Throwables;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.Collection;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Runs DAO operations on a fixed number of worker threads. A session is not thread-safe, so the
+ * workers share one Neo4jDAO over a {@link ThreadSessionProvider}: every worker opens its own
+ * session from the session factory and keeps it for its lifetime.
+ * <p>
+ * Operations wait in a bounded queue for a free worker. When the queue is full, the calling thread
+ * blocks until there is room, so callers cannot pile up more work than the workers get through.
+ */
+public class Neo4jAsyncDAO implements AsyncDAO {
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+    private final Neo4jDAO dao;
+
+    /**
+     * @param threads       the number of worker threads, and so of sessions.
+     * @param queueCapacity the number of operations that can wait for a worker before callers block.
+     */
+    public Neo4jAsyncDAO(SessionFactory sessionFactory, int threads, int queueCapacity) {
+        notNull(sessionFactory);
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads cannot be less than 1");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity cannot be less than 1");
+        }
+        String namePrefix = "neo4j-async-dao-" + POOL_NUMBER.incrementAndGet() + "-";
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                Neo4jAsyncDAO::waitForRoom);
+
+        // The DAO creates its indexes with the session of the thread creating it, so let that be a worker.
+        ThreadSessionProvider sessions = new ThreadSessionProvider(sessionFactory);
+        try {
+            this.dao = executor.submit(() -> new Neo4jDAO(sessions)).get();
+        } catch (ExecutionException e) {
+            executor.shutdown();
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException("Could not create the DAO", e.getCause());
+        } catch (InterruptedException e) {
+            executor.shutdown();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while creating the DAO", e);
+        }
+    }
+
+    @Override
+    public <T extends Entity> CompletableFuture<T> loadAsync(Class<T> clazz, Long id) {
+        return submit(dao -> dao.load(clazz, id));
+    }
+
+    @Override
+    public <T extends Entity> CompletableFuture<T> createOrUpdateAsync(T entity) {
+        return submit(dao -> dao.createOrUpdate(entity));
+    }
+
+    @Override
+    public <T extends Entity> CompletableFuture<Collection<T>> loadAllAsync(Class<T> clazz) {
+        return submit(dao -> dao.loadAll(clazz));
+    }
+
+    @Override
+    public <T extends Entity> CompletableFuture<Void> deleteAsync(T entity) {
+        return submit(dao -> {
+            dao.delete(entity);
+            return null;
+        });
+    }
+
+    /**
+     * Runs any operation on the workers' DAO, e.g. a miner over it, and completes with its result.
+     * Blocks while the queue is full. Once the DAO is closed, or if the caller is interrupted while
+     * blocked, the future fails with a RejectedExecutionException instead.
+     */
+    public <R> CompletableFuture<R> submit(Function<? super DAO, R> operation) {
+        notNull(operation);
+        try {
+            return CompletableFuture.supplyAsync(() -> operation.apply(dao), executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<R> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+
+    /**
+     * Returns the number of operations waiting for a worker.
+     */
+    public int getQueuedOperations() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Returns whether every accepted operation has completed, waiting up to the timeout after close.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    private static void waitForRoom(Runnable operation, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("The DAO is closed");
+        }
+        try {
+            executor.getQueue().put(operation);
+            // Closed while waiting: the workers may have gone, so the operation would never run.
+            if (executor.isShutdown() && executor.getQueue().remove(operation)) {
+                throw new RejectedExecutionException("The DAO is closed");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room in the queue", e);
+        }
+    }
+}
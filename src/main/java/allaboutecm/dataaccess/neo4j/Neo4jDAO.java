@@ -1,120 +1,601 @@
 package allaboutecm.dataaccess.neo4j;
 
+import allaboutecm.dataaccess.AlbumStats;
 import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.dataaccess.MusicianStats;
+import allaboutecm.metrics.MetricsRegistry;
 import allaboutecm.model.*;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Streams;
 import org.neo4j.driver.v1.exceptions.NoSuchRecordException;
 import org.neo4j.ogm.cypher.Filter;
 import org.neo4j.ogm.cypher.Filters;
+import org.neo4j.ogm.metadata.FieldInfo;
+import org.neo4j.ogm.session.Neo4jSession;
 import org.neo4j.ogm.session.Session;
 import org.neo4j.ogm.transaction.Transaction;
 
-import java.util.Collection;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
 
+import static org.apache.commons.lang3.Validate.notNull;
 import static org.neo4j.ogm.cypher.ComparisonOperator.EQUALS;
 
 public class Neo4jDAO implements DAO {
     private static final int DEPTH_LIST = 0;
     private static final int DEPTH_ENTITY = 1;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+    /**
+     * The phases of the writes and reads recorded in the registry set with
+     * {@link #setMetrics(MetricsRegistry)}: looking up which entities already exist, saving them in
+     * the transaction, committing it, and mapping loaded nodes to entities.
+     */
+    public static final String FIND_EXISTING_OPERATION = "neo4j.findExisting";
+    public static final String SAVE_OPERATION = "neo4j.save";
+    public static final String COMMIT_OPERATION = "neo4j.commit";
+    public static final String HYDRATE_OPERATION = "neo4j.hydrate";
+    /**
+     * Indexes the miners rank on, so e.g. the best-selling albums are read from the index in order
+     * instead of sorting every album.
+     */
+    private static final String[] RANKING_INDEXES = {"CREATE INDEX ON :`Album`(`unitsSold`)"};
+    // Projections read a page of rows per query, seeking past the last id of the page before.
+    private static final String ALBUM_STATS = "MATCH (a:Album) WHERE ID(a) > $after "
+            + "WITH a ORDER BY ID(a) LIMIT $limit "
+            + "OPTIONAL MATCH (a)-[:rating]->(r:Rating) "
+            + "RETURN ID(a) AS id, coalesce(a.releaseYear, 0) AS releaseYear, coalesce(a.unitsSold, 0) AS unitsSold, "
+            + "coalesce(sum(r.score), 0) AS ratingSum, count(r) AS ratingCount ORDER BY id";
+    private static final String MUSICIAN_STATS = "MATCH (m:Musician) WHERE ID(m) > $after "
+            + "WITH m ORDER BY ID(m) LIMIT $limit "
+            + "OPTIONAL MATCH (m)<-[:musician]-(:MusicianInstrument)-[:musicalInstruments]->(i:MusicalInstrument) "
+            + "RETURN ID(m) AS id, m.name AS name, count(DISTINCT i) AS instrumentCount ORDER BY id";
 
-    private Session session;
+    private final SessionProvider sessions;
+    private final List<DAOListener> listeners = new CopyOnWriteArrayList<>();
+    // Key filters by entity class; empty unless enabled.
+    private final Map<Class<? extends Entity>, KeyFilter> keyFilters = Maps.newHashMap();
+    private volatile MetricsRegistry metrics = MetricsRegistry.noop();
+    // Null unless slow operations are logged.
+    private volatile SlowQueryLog slowQueryLog;
 
     public Neo4jDAO(Session session) {
-        this.session = session;
+        this(SessionProvider.of(session));
+    }
+
+    /**
+     * A DAO that takes a session from the provider for every operation, so it can be shared by
+     * threads if the provider gives each its own session.
+     */
+    public Neo4jDAO(SessionProvider sessions) {
+        this(sessions, false);
+    }
+
+    /**
+     * @param filterKeys whether to keep a {@link KeyFilter} per entity class with a natural key, so
+     *                   createOrUpdate skips looking up entities that are certainly new. Only enable
+     *                   this if every write to the database goes through this DAO: a node another
+     *                   session or DAO creates is not in the filter, and saving an entity with its
+     *                   key through this DAO would create a second node. Needs a Neo4jSession, whose
+     *                   mapping metadata tells which entities are saved along with another.
+     */
+    public Neo4jDAO(Session session, boolean filterKeys) {
+        this(SessionProvider.of(session), filterKeys);
+    }
+
+    public Neo4jDAO(SessionProvider sessions, boolean filterKeys) {
+        notNull(sessions);
+        this.sessions = sessions;
+        Session session = sessions.acquire();
+        try {
+            createNaturalKeyIndexes(session);
+            createRankingIndexes(session);
+            if (filterKeys) {
+                if (!(session instanceof Neo4jSession)) {
+                    throw new IllegalArgumentException("Key filters need a Neo4jSession");
+                }
+                createKeyFilters(session);
+            }
+        } finally {
+            sessions.release(session);
+        }
     }
 
     @Override
     public <T extends Entity> T load(Class<T> clazz, Long id) {
-        // Throw exception if node doesn't exist
-        if (session.load(clazz, id, DEPTH_ENTITY) == null) {
-            throw new NoSuchRecordException(("That " + clazz.toString() + " does not exist in the database."));
+        Session session = sessions.acquire();
+        try {
+            T entity = logIfSlow("load", clazz, null, Collections.singletonMap("id", id),
+                    () -> session.load(clazz, id, DEPTH_ENTITY), loaded -> 1);
+            // Throw exception if node doesn't exist
+            if (null == entity) {
+                throw new NoSuchRecordException(("That " + clazz.toString() + " does not exist in the database."));
+            }
+            return entity;
+        } finally {
+            sessions.release(session);
         }
-        return session.load(clazz, id, DEPTH_ENTITY);
     }
 
     @Override
     public <T extends Entity> T createOrUpdate(T entity) {
-        Class clazz = entity.getClass();
+        Session session = sessions.acquire();
+        try {
+            resolveExistingIds(session, Collections.singletonList(entity));
+
+            Class<?> clazz = entity.getClass();
+            try (Transaction tx = session.beginTransaction()) {
+                metrics.time(SAVE_OPERATION, clazz, () -> {
+                    session.save(entity, DEPTH_ENTITY);
+                    return entity;
+                }, saved -> 1);
+                metrics.time(COMMIT_OPERATION, clazz, () -> logIfSlow("commit", clazz, null, null, () -> {
+                    tx.commit();
+                    return entity;
+                }, committed -> 1), committed -> 1);
+            }
+
+            filterKeysSavedWith(session, entity);
+        } finally {
+            sessions.release(session);
+        }
+        notifySaved(entity);
+        return entity;
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities) {
+        return createOrUpdateAll(entities, DEFAULT_BATCH_SIZE);
+    }
 
-        T existingEntity = findExistingEntity(entity, clazz);
-        if (null != existingEntity) {
-            entity.setId(existingEntity.getId());
+    @Override
+    public <T extends Entity> Collection<T> createOrUpdateAll(Collection<T> entities, int batchSize) {
+        notNull(entities);
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size cannot be less than 1");
         }
 
-        Transaction tx = session.beginTransaction();
-        session.save(entity, DEPTH_ENTITY);
-        tx.commit();
+        for (List<T> batch : Iterables.partition(entities, batchSize)) {
+            Session session = sessions.acquire();
+            try {
+                Map<T, T> earlierDuplicates = resolveExistingIds(session, batch);
+                Class<?> clazz = MetricsRegistry.classOf(batch);
+                try (Transaction tx = session.beginTransaction()) {
+                    metrics.time(SAVE_OPERATION, clazz, () -> {
+                        for (T entity : batch) {
+                            // An entity repeating the natural key of an earlier one in the batch updates that node.
+                            T earlier = earlierDuplicates.get(entity);
+                            if (null != earlier) {
+                                entity.setId(earlier.getId());
+                            }
+                            session.save(entity, DEPTH_ENTITY);
+                        }
+                        return batch;
+                    }, List::size);
+                    metrics.time(COMMIT_OPERATION, clazz, () -> logIfSlow("commit", clazz, null, null, () -> {
+                        tx.commit();
+                        return batch;
+                    }, List::size), List::size);
+                }
+                batch.forEach(entity -> filterKeysSavedWith(session, entity));
+            } finally {
+                sessions.release(session);
+            }
+            batch.forEach(this::notifySaved);
+        }
 
-        return entity;
+        return entities;
     }
 
     @Override
     public <T extends Entity> Collection<T> loadAll(Class<T> clazz) {
-        return session.loadAll(clazz, DEPTH_LIST);
+        Session session = sessions.acquire();
+        try {
+            return metrics.time(HYDRATE_OPERATION, clazz, () -> logIfSlow("loadAll", clazz, null, null,
+                    () -> session.loadAll(clazz, DEPTH_LIST), Collection::size), Collection::size);
+        } finally {
+            sessions.release(session);
+        }
+    }
+
+    /**
+     * Passes the entities of the class to the consumer a page at a time, in id order. Every page is
+     * a query seeking past the last id of the page before, so late pages cost no more than early
+     * ones, and the entities a page maps into the session are detached again, so the session does
+     * not grow with the scan. Entities saved or deleted during the scan may or may not be seen.
+     */
+    @Override
+    public <T extends Entity> void forEachPage(Class<T> clazz, int pageSize, Consumer<? super List<T>> consumer) {
+        notNull(consumer);
+        pages(clazz, pageSize).forEachRemaining(consumer);
+    }
+
+    /**
+     * Every entity of the class in id order, read a page of {@link #DEFAULT_PAGE_SIZE} at a time as
+     * the stream is consumed.
+     */
+    @Override
+    public <T extends Entity> Stream<T> stream(Class<T> clazz) {
+        return Streams.stream(pages(clazz, DEFAULT_PAGE_SIZE)).flatMap(List::stream);
+    }
+
+    /**
+     * Reads the stats a page of {@link #DEFAULT_PAGE_SIZE} albums at a time, in id order, as rows of
+     * numbers; no Album is mapped.
+     */
+    @Override
+    public void forEachAlbumStats(Consumer<? super AlbumStats> action) {
+        notNull(action);
+        forEachRow("forEachAlbumStats", Album.class, ALBUM_STATS, row -> action.accept(new AlbumStats(((Number) row.get("id")).longValue(),
+                ((Number) row.get("releaseYear")).intValue(), ((Number) row.get("unitsSold")).intValue(),
+                ((Number) row.get("ratingSum")).longValue(), ((Number) row.get("ratingCount")).intValue())));
+    }
+
+    /**
+     * Reads the stats a page of {@link #DEFAULT_PAGE_SIZE} musicians at a time, in id order, as rows;
+     * no entity is mapped.
+     */
+    @Override
+    public void forEachMusicianStats(Consumer<? super MusicianStats> action) {
+        notNull(action);
+        forEachRow("forEachMusicianStats", Musician.class, MUSICIAN_STATS, row -> action.accept(new MusicianStats(((Number) row.get("id")).longValue(),
+                (String) row.get("name"), ((Number) row.get("instrumentCount")).intValue())));
     }
 
     @Override
     public <T extends Entity> void delete(T entity) {
         Class clazz = entity.getClass();
-        Object loadedEntity = session.load(clazz, entity.getId());
+        Session session = sessions.acquire();
+        try {
+            Object loadedEntity = session.load(clazz, entity.getId());
 
-        // Throw exception if node doesn't exist.
-        if (null == loadedEntity) {
-            throw new NoSuchRecordException("No matching " + clazz.toString() + " found in database.");
-        } else {
+            // Throw exception if node doesn't exist.
+            if (null == loadedEntity) {
+                throw new NoSuchRecordException("No matching " + clazz.toString() + " found in database.");
+            }
             session.delete(entity);
+        } finally {
+            sessions.release(session);
         }
+        listeners.forEach(listener -> listener.deleted(entity));
     }
 
-    private <T extends Entity> T findExistingEntity(Entity entity, Class clazz) {
+    /**
+     * Registers a listener to be notified after every entity this DAO saves or deletes. Writes made
+     * through another session or DAO are not seen.
+     */
+    public void addListener(DAOListener listener) {
+        notNull(listener);
+        listeners.add(listener);
+    }
+
+    public void removeListener(DAOListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Records the phases of the reads and writes of this DAO that a {@link allaboutecm.dataaccess.MetricsDAO}
+     * wrapping it cannot see, e.g. {@link #COMMIT_OPERATION}, in the registry. Records nothing by default.
+     */
+    public void setMetrics(MetricsRegistry metrics) {
+        notNull(metrics);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Logs the queries and commits of this DAO that are slower than the threshold of the log, see
+     * {@link SlowQueryLog}; null stops logging them. Nothing is logged by default.
+     */
+    public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    /**
+     * Returns the key filter of the entity class, or null if keys are not filtered for the class.
+     */
+    public KeyFilter getKeyFilter(Class<? extends Entity> clazz) {
+        return keyFilters.get(clazz);
+    }
+
+    /**
+     * Runs a read-only Cypher query and returns its rows. Node columns are mapped to entities, so
+     * callers can aggregate in the database and fetch only the entities they rank.
+     */
+    public Iterable<Map<String, Object>> query(String cypher, Map<String, ?> parameters) {
+        notNull(cypher);
+        notNull(parameters);
+        Session session = sessions.acquire();
+        try {
+            return logIfSlow("query", null, cypher, parameters,
+                    () -> session.query(cypher, parameters, true).queryResults(), Neo4jDAO::sizeOf);
+        } finally {
+            sessions.release(session);
+        }
+    }
+
+    private <T extends Entity> Iterator<List<T>> pages(Class<T> clazz, int pageSize) {
+        notNull(clazz);
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size cannot be less than 1");
+        }
+        String cypher = "MATCH (n:`" + clazz.getSimpleName() + "`) WHERE ID(n) > $after "
+                + "RETURN ID(n) ORDER BY ID(n) LIMIT " + pageSize;
+        return new AbstractIterator<List<T>>() {
+            private long after = -1;
+
+            @Override
+            protected List<T> computeNext() {
+                List<T> page = loadPage(clazz, cypher, after);
+                if (page.isEmpty()) {
+                    return endOfData();
+                }
+                after = page.get(page.size() - 1).getId();
+                return page;
+            }
+        };
+    }
+
+    /**
+     * Runs a query returning an id column in ascending order, a page at a time, passing every row
+     * to the action. The query seeks past $after and returns at most $limit rows.
+     */
+    private void forEachRow(String operation, Class<?> clazz, String cypher, Consumer<Map<String, Object>> action) {
+        Map<String, Object> parameters = Maps.newHashMap();
+        parameters.put("after", -1L);
+        parameters.put("limit", DEFAULT_PAGE_SIZE);
+        while (true) {
+            List<Map<String, Object>> rows;
+            Session session = sessions.acquire();
+            try {
+                rows = logIfSlow(operation, clazz, cypher, parameters,
+                        () -> Lists.newArrayList(session.query(cypher, parameters, true).queryResults()), List::size);
+            } finally {
+                sessions.release(session);
+            }
+            if (rows.isEmpty()) {
+                return;
+            }
+            rows.forEach(action);
+            parameters.put("after", ((Number) rows.get(rows.size() - 1).get("id")).longValue());
+        }
+    }
+
+    private <T extends Entity> List<T> loadPage(Class<T> clazz, String cypher, long after) {
+        Session session = sessions.acquire();
+        try {
+            Map<String, Object> parameters = Collections.singletonMap("after", after);
+            List<Long> ids = logIfSlow("loadPage", clazz, cypher, parameters,
+                    () -> Lists.newArrayList(session.query(Long.class, cypher, parameters)), List::size);
+            if (ids.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            // Entities the session already mapped stay mapped, so callers holding them are not affected.
+            Set<Long> mapped = Sets.newHashSet();
+            if (session instanceof Neo4jSession) {
+                for (Long id : ids) {
+                    if (null != ((Neo4jSession) session).context().getNodeEntity(id))
+                        mapped.add(id);
+                }
+            }
+            List<T> page = Lists.newArrayList(metrics.time(HYDRATE_OPERATION, clazz, () -> logIfSlow("loadPage", clazz,
+                    null, Collections.singletonMap("ids", ids), () -> session.loadAll(clazz, ids, DEPTH_LIST),
+                    Collection::size), Collection::size));
+            page.sort(Comparator.comparing(Entity::getId));
+            for (T entity : page) {
+                if (!mapped.contains(entity.getId()))
+                    session.detachNodeEntity(entity.getId());
+            }
+            return page;
+        } finally {
+            sessions.release(session);
+        }
+    }
+
+    private <R> R logIfSlow(String operation, Class<?> clazz, String cypher, Map<String, ?> parameters,
+                            Supplier<R> call, ToLongFunction<? super R> rows) {
+        SlowQueryLog log = slowQueryLog;
+        return null == log ? call.get() : log.time(operation, clazz, cypher, parameters, call, rows);
+    }
+
+    private static long sizeOf(Iterable<?> rows) {
+        return rows instanceof Collection ? ((Collection<?>) rows).size() : 0;
+    }
+
+    private void notifySaved(Entity entity) {
+        listeners.forEach(listener -> listener.saved(entity));
+    }
+
+    /**
+     * Creates a schema index over the natural key of every entity class that has one, so that the
+     * lookups in resolveExistingIds are index seeks rather than label scans. Creating an index that
+     * already exists is a no-op.
+     * <p>
+     * These are plain indexes rather than unique constraints: saving an entity at depth 1 also saves
+     * the new entities it refers to without looking them up first, which a constraint would reject.
+     */
+    private void createNaturalKeyIndexes(Session session) {
+        for (NaturalKey<? extends Entity> naturalKey : NaturalKey.all()) {
+            session.query(naturalKey.createIndexStatement(), Collections.emptyMap());
+        }
+    }
+
+    /**
+     * Creates a key filter per natural key, sized for twice the nodes there are now and holding
+     * their keys.
+     */
+    private void createKeyFilters(Session session) {
+        for (NaturalKey<? extends Entity> naturalKey : NaturalKey.all()) {
+            Map<String, Object> count = session.query(naturalKey.countQuery(), Collections.emptyMap()).queryResults()
+                    .iterator().next();
+            KeyFilter filter = new KeyFilter(2 * ((Number) count.get("count")).longValue(), KeyFilter.DEFAULT_FPP);
+            for (Map<String, Object> row : session.query(naturalKey.keysQuery(), Collections.emptyMap()).queryResults()) {
+                Object[] keyValues = new Object[naturalKey.getProperties().size()];
+                for (int i = 0; i < keyValues.length; i++) {
+                    keyValues[i] = row.get(naturalKey.getProperties().get(i));
+                }
+                if (naturalKey.isComplete(keyValues)) {
+                    filter.put(keyValues);
+                }
+            }
+            keyFilters.put(naturalKey.getEntityClass(), filter);
+        }
+    }
+
+    /**
+     * Puts the keys of a saved entity, and of the entities saved along with it at depth 1, into
+     * their key filters.
+     */
+    private void filterKeysSavedWith(Session session, Entity entity) {
+        if (keyFilters.isEmpty()) {
+            return;
+        }
+        filterKey(entity);
+        for (FieldInfo field : ((Neo4jSession) session).metaData().classInfo(entity).relationshipFields()) {
+            Object related = field.read(entity);
+            if (related instanceof Iterable) {
+                for (Object relatedEntity : (Iterable<?>) related) {
+                    filterKey(relatedEntity);
+                }
+            } else {
+                filterKey(related);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void filterKey(Object entity) {
+        KeyFilter filter = null == entity ? null : keyFilters.get(entity.getClass());
+        if (null != filter) {
+            NaturalKey<Entity> naturalKey = (NaturalKey<Entity>) NaturalKey.of(((Entity) entity).getClass());
+            Object[] keyValues = naturalKey.valuesOf((Entity) entity);
+            if (naturalKey.isComplete(keyValues)) {
+                filter.put(keyValues);
+            }
+        }
+    }
+
+    private void createRankingIndexes(Session session) {
+        for (String statement : RANKING_INDEXES) {
+            session.query(statement, Collections.emptyMap());
+        }
+    }
+
+    /**
+     * Sets the id of every entity in the batch that already exists in the database, using one
+     * lookup query per entity class. Returns, by identity, the entities that repeat the natural
+     * key of an earlier entity in the batch, mapped to that earlier entity.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Entity> Map<T, T> resolveExistingIds(Session session, List<T> batch) {
+        Map<Class<? extends Entity>, List<T>> batchByClass = Maps.newLinkedHashMap();
+        for (T entity : batch) {
+            notNull(entity);
+            batchByClass.computeIfAbsent(entity.getClass(), clazz -> Lists.newArrayList()).add(entity);
+        }
+
+        Map<T, T> duplicates = Maps.newIdentityHashMap();
+        for (Map.Entry<Class<? extends Entity>, List<T>> entry : batchByClass.entrySet()) {
+            NaturalKey<T> naturalKey = (NaturalKey<T>) NaturalKey.of(entry.getKey());
+            if (null == naturalKey) {
+                metrics.time(FIND_EXISTING_OPERATION, entry.getKey(), () -> {
+                    for (T entity : entry.getValue()) {
+                        T existingEntity = findExistingEntity(session, entity, entry.getKey());
+                        if (null != existingEntity) {
+                            entity.setId(existingEntity.getId());
+                        }
+                    }
+                    return entry.getValue();
+                }, List::size);
+            } else {
+                duplicates.putAll(metrics.time(FIND_EXISTING_OPERATION, entry.getKey(),
+                        () -> resolveExistingIds(session, naturalKey, entry.getValue()), found -> entry.getValue().size()));
+            }
+        }
+        return duplicates;
+    }
+
+    private <T extends Entity> Map<T, T> resolveExistingIds(Session session, NaturalKey<T> naturalKey, List<T> entities) {
+        Map<T, T> duplicates = Maps.newIdentityHashMap();
+        Map<List<Object>, T> firstByKey = Maps.newHashMap();
+        List<Map<String, Object>> rows = Lists.newArrayList();
+        KeyFilter filter = keyFilters.get(naturalKey.getEntityClass());
+
+        for (int i = 0; i < entities.size(); i++) {
+            T entity = entities.get(i);
+            Object[] keyValues = naturalKey.valuesOf(entity);
+            if (!naturalKey.isComplete(keyValues)) {
+                continue;
+            }
+            T first = firstByKey.putIfAbsent(Arrays.asList(keyValues), entity);
+            if (null != first) {
+                duplicates.put(entity, first);
+                continue;
+            }
+            if (null != filter && !filter.mightContain(keyValues)) {
+                filter.recordSkippedLookup();
+                continue;
+            }
+
+            Map<String, Object> row = Maps.newHashMap();
+            row.put("index", i);
+            for (int p = 0; p < keyValues.length; p++) {
+                row.put(naturalKey.getProperties().get(p), keyValues[p]);
+            }
+            rows.add(row);
+        }
+
+        if (!rows.isEmpty()) {
+            Map<String, Object> parameters = Maps.newHashMap();
+            parameters.put("rows", rows);
+            int found = 0;
+            Iterable<Map<String, Object>> matches = logIfSlow("findExistingEntity", naturalKey.getEntityClass(),
+                    naturalKey.batchLookupQuery(), parameters,
+                    () -> session.query(naturalKey.batchLookupQuery(), parameters).queryResults(), Neo4jDAO::sizeOf);
+            for (Map<String, Object> match : matches) {
+                T entity = entities.get(((Number) match.get("index")).intValue());
+                entity.setId(((Number) match.get("id")).longValue());
+                found++;
+            }
+            if (null != filter) {
+                filter.recordLookups(rows.size(), found);
+            }
+        }
+        return duplicates;
+    }
+
+    private <T extends Entity> T findExistingEntity(Session session, Entity entity, Class clazz) {
         Filters filters = new Filters();
         Collection<? extends Entity> collection;
-        if (clazz.equals(Album.class)) {
-            // Album
-            Album album = (Album) entity;
-            filters.add(new Filter("albumName", EQUALS, album.getAlbumName())
-                    .and(new Filter("recordNumber", EQUALS, album.getRecordNumber()))
-                    .and(new Filter("releaseYear", EQUALS, album.getReleaseYear())));
-            collection = session.loadAll(Album.class, filters);
-        } else if (clazz.equals(Musician.class)) {
-            // Musician
-            Musician musician = (Musician) entity;
-            filters.add(new Filter("name", EQUALS, musician.getName()));
-            collection = session.loadAll(Musician.class, filters);
-        } else if (clazz.equals(MusicalInstrument.class)) {
-            // MusicalInstrument
-            MusicalInstrument musicalInstrument = (MusicalInstrument) entity;
-            filters.add(new Filter("name", EQUALS, musicalInstrument.getName()));
-            collection = session.loadAll(MusicalInstrument.class, filters);
-        } else if (clazz.equals(MusicianInstrument.class)) {
+        if (clazz.equals(MusicianInstrument.class)) {
             // MusicianInstrument
             MusicianInstrument musicianInstrument = (MusicianInstrument) entity;
             filters.add(new Filter("musician", EQUALS, musicianInstrument.getMusician()))
                     .and(new Filter("musicalInstruments", EQUALS, musicianInstrument.getMusicalInstruments()));
-            collection = session.loadAll(MusicianInstrument.class, filters);
-        } else if (clazz.equals(Concert.class)) {
+            Map<String, Object> filtered = Maps.newLinkedHashMap();
+            filtered.put("musician", musicianInstrument.getMusician());
+            filtered.put("musicalInstruments", musicianInstrument.getMusicalInstruments());
+            collection = logIfSlow("findExistingEntity", clazz, null, filtered,
+                    () -> session.loadAll(MusicianInstrument.class, filters), Collection::size);
+        } else {
             // Concert
             Concert concert = (Concert) entity;
             filters.add(new Filter("concertDate", EQUALS, concert.getConcertDate()))
                     .and(new Filter("concertVenue", EQUALS, concert.getVenue()));
-            collection = session.loadAll(Concert.class, filters);
-        } else if (clazz.equals(MusicianGroup.class)) {
-            // MusicianGroup
-            MusicianGroup mg = (MusicianGroup) entity;
-            filters.add(new Filter("groupName", EQUALS, mg.getGroupName()));
-            collection = session.loadAll(MusicianGroup.class, filters);
-        } else if (clazz.equals(Track.class)) {
-            // Track
-            Track track = (Track) entity;
-            filters.add(new Filter("title", EQUALS, track.getTitle()))
-                    .and(new Filter("duration", EQUALS, track.getDuration()));
-            collection = session.loadAll(Track.class, filters);
-        } else {
-            // Rating
-            Rating rating = (Rating) entity;
-            filters.add(new Filter("score", EQUALS, rating.getScore()))
-                    .and(new Filter("comment", EQUALS, rating.getComment()))
-                    .and(new Filter("source", EQUALS, rating.getSource()));
-            collection = session.loadAll(Rating.class, filters);
+            Map<String, Object> filtered = Maps.newLinkedHashMap();
+            filtered.put("concertDate", concert.getConcertDate());
+            filtered.put("concertVenue", concert.getVenue());
+            collection = logIfSlow("findExistingEntity", clazz, null, filtered,
+                    () -> session.loadAll(Concert.class, filters), Collection::size);
         }
 
         Entity existingEntity = null;
@@ -126,4 +607,4 @@ public class Neo4jDAO implements DAO {
     }
 
 
-}
\ No newline at end of file
+}
\ No newline at end of file
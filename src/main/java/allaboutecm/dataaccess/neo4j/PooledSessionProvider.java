@@ -0,0 +1,274 @@
+package allaboutecm.dataaccess.neo4j;
+
+import com.google.common.base.Ticker;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Lends sessions from a bounded pool, so a single Neo4jDAO can be shared by any number of threads
+ * while at most a fixed number of sessions are in use. A thread acquiring a session while all of
+ * them are leased waits for one to be released.
+ * <p>
+ * Released sessions are cleared, so the pool does not keep an identity map warm across leases: the
+ * OGM does not remap an entity its session already holds, so a warm session would go on serving
+ * what it first read, whoever has written since, and a write through another DAO or session cannot
+ * be seen to clear it. What the pool saves is opening a session per operation, and it bounds how
+ * many are open. Within an operation the session's identity map works as usual. The most recently
+ * released session is lent first, keeping a few sessions in use rather than every one
+ * occasionally. A session idle for longer than the idle timeout is dropped, and a session leased for longer than the leak threshold
+ * is logged as a leak, once per lease, with the thread that acquired it. Where it was acquired is
+ * logged too if leaks are traced, see {@link #setTraceLeaks(boolean)}.
+ */
+public class PooledSessionProvider implements SessionProvider, AutoCloseable {
+    public static final int DEFAULT_MAXIMUM_SESSIONS = 16;
+    public static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 300;
+    public static final long DEFAULT_LEAK_THRESHOLD_SECONDS = 60;
+
+    private static Logger logger = LoggerFactory.getLogger(PooledSessionProvider.class);
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final SessionFactory sessionFactory;
+    private final long idleTimeoutNanos;
+    private final long leakThresholdNanos;
+    private final Ticker ticker;
+    private final Semaphore permits;
+    // Idle sessions, most recently released first.
+    private final Deque<IdleSession> idle = new ConcurrentLinkedDeque<>();
+    private final Map<Session, Lease> leases = new ConcurrentHashMap<>();
+
+    private final AtomicLong openedSessions = new AtomicLong();
+    private final AtomicLong evictedSessions = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+
+    private ScheduledExecutorService housekeeping;
+    private volatile boolean closed;
+    private volatile boolean traceLeaks;
+
+    public PooledSessionProvider(SessionFactory sessionFactory) {
+        this(sessionFactory, DEFAULT_MAXIMUM_SESSIONS, DEFAULT_IDLE_TIMEOUT_SECONDS, DEFAULT_LEAK_THRESHOLD_SECONDS,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param maximumSessions the number of sessions that can be leased at once.
+     * @param idleTimeout     how long a released session is kept for reuse.
+     * @param leakThreshold   how long a session can be leased before it is logged as a leak.
+     */
+    public PooledSessionProvider(SessionFactory sessionFactory, int maximumSessions, long idleTimeout,
+                                 long leakThreshold, TimeUnit unit) {
+        this(sessionFactory, maximumSessions, idleTimeout, leakThreshold, unit, Ticker.systemTicker());
+
+        long periodNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(100), Math.min(idleTimeoutNanos, leakThresholdNanos) / 2);
+        String name = "neo4j-session-pool-" + POOL_NUMBER.incrementAndGet();
+        housekeeping = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeping.scheduleWithFixedDelay(() -> {
+            evictIdleSessions();
+            detectLeaks();
+        }, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * A pool without the housekeeping thread; idle sessions are then only evicted on acquire.
+     */
+    PooledSessionProvider(SessionFactory sessionFactory, int maximumSessions, long idleTimeout,
+                          long leakThreshold, TimeUnit unit, Ticker ticker) {
+        notNull(sessionFactory);
+        notNull(unit);
+        notNull(ticker);
+        if (maximumSessions < 1) {
+            throw new IllegalArgumentException("Maximum sessions cannot be less than 1");
+        }
+        if (idleTimeout < 1) {
+            throw new IllegalArgumentException("Idle timeout cannot be less than 1");
+        }
+        if (leakThreshold < 1) {
+            throw new IllegalArgumentException("Leak threshold cannot be less than 1");
+        }
+        this.sessionFactory = sessionFactory;
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.leakThresholdNanos = unit.toNanos(leakThreshold);
+        this.ticker = ticker;
+        this.permits = new Semaphore(maximumSessions, true);
+    }
+
+    /**
+     * Returns an idle session, or a new one if none is idle, waiting while the maximum number of
+     * sessions are leased.
+     */
+    @Override
+    public Session acquire() {
+        if (closed) {
+            throw new IllegalStateException("The session pool is closed");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a session", e);
+        }
+
+        Session session;
+        try {
+            evictIdleSessions();
+            IdleSession idleSession = idle.pollFirst();
+            if (null != idleSession) {
+                session = idleSession.session;
+            } else {
+                session = sessionFactory.openSession();
+                openedSessions.incrementAndGet();
+            }
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        leases.put(session, new Lease(ticker.read(), traceLeaks ? new Exception("Session acquired here") : null));
+        return session;
+    }
+
+    @Override
+    public void release(Session session) {
+        notNull(session);
+        Lease lease = leases.remove(session);
+        if (null == lease) {
+            throw new IllegalArgumentException("That session is not leased from this pool");
+        }
+        if (lease.reported) {
+            logger.info("Session reported as leaked by {} was released after {} ms.", lease.thread,
+                    TimeUnit.NANOSECONDS.toMillis(ticker.read() - lease.acquiredAt));
+        }
+        session.clear();
+        if (!closed) {
+            idle.offerFirst(new IdleSession(session, ticker.read()));
+        }
+        permits.release();
+    }
+
+    /**
+     * Drops the sessions idle for longer than the idle timeout, and returns how many.
+     */
+    public int evictIdleSessions() {
+        long now = ticker.read();
+        int evicted = 0;
+        // The deque is in release order, so the longest idle sessions are at its end.
+        for (IdleSession idleSession = idle.peekLast();
+             null != idleSession && now - idleSession.releasedAt >= idleTimeoutNanos;
+             idleSession = idle.peekLast()) {
+            if (idle.removeLastOccurrence(idleSession)) {
+                evicted++;
+            }
+        }
+        evictedSessions.addAndGet(evicted);
+        return evicted;
+    }
+
+    /**
+     * Logs every session leased for longer than the leak threshold and not yet reported, with the
+     * thread that acquired it and, if leaks are traced, its stack, and returns how many.
+     */
+    public int detectLeaks() {
+        long now = ticker.read();
+        int detected = 0;
+        for (Lease lease : leases.values()) {
+            if (!lease.reported && now - lease.acquiredAt >= leakThresholdNanos) {
+                lease.reported = true;
+                detected++;
+                String message = "Session leased by " + lease.thread + " for "
+                        + TimeUnit.NANOSECONDS.toMillis(now - lease.acquiredAt) + " ms may have leaked.";
+                if (null == lease.acquiredBy) {
+                    logger.warn(message);
+                } else {
+                    logger.warn(message, lease.acquiredBy);
+                }
+            }
+        }
+        leaks.addAndGet(detected);
+        return detected;
+    }
+
+    /**
+     * Records the stack of the thread acquiring each session from now on, so a leak is logged with
+     * where it was acquired. Off by default: filling in the stack costs more than the rest of the lease.
+     */
+    public void setTraceLeaks(boolean traceLeaks) {
+        this.traceLeaks = traceLeaks;
+    }
+
+    public boolean isTraceLeaks() {
+        return traceLeaks;
+    }
+
+    /**
+     * Returns the number of sessions opened, including those since evicted.
+     */
+    public long getOpenedSessions() {
+        return openedSessions.get();
+    }
+
+    public long getEvictedSessions() {
+        return evictedSessions.get();
+    }
+
+    /**
+     * Returns the number of leases reported as leaks.
+     */
+    public long getLeaks() {
+        return leaks.get();
+    }
+
+    public int getIdleSessions() {
+        return idle.size();
+    }
+
+    public int getLeasedSessions() {
+        return leases.size();
+    }
+
+    /**
+     * Stops lending sessions and drops the idle ones. Leased sessions are dropped when released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (null != housekeeping) {
+            housekeeping.shutdown();
+        }
+        idle.clear();
+    }
+
+    private static final class IdleSession {
+        private final Session session;
+        private final long releasedAt;
+
+        private IdleSession(Session session, long releasedAt) {
+            this.session = session;
+            this.releasedAt = releasedAt;
+        }
+    }
+
+    private static final class Lease {
+        private final long acquiredAt;
+        private final String thread = Thread.currentThread().getName();
+        // Null unless leaks are traced.
+        private final Exception acquiredBy;
+        private volatile boolean reported;
+
+        private Lease(long acquiredAt, Exception acquiredBy) {
+            this.acquiredAt = acquiredAt;
+            this.acquiredBy = acquiredBy;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package allaboutecm.dataaccess.neo4j;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.Map;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Tells how the database runs a Cypher query, for the {@link SlowQueryLog} to log along with a
+ * slow query.
+ */
+public interface QueryPlanner {
+    /**
+     * Returns the plan of the query with the parameters, as the database describes it.
+     */
+    String plan(String cypher, Map<String, ?> parameters);
+
+    /**
+     * A planner asking the database of an embedded session factory to EXPLAIN the query. The query
+     * is planned but not run again, so the plan has the estimated rows of every operator rather
+     * than the actual ones, and a slow query, or one that writes, costs only its planning.
+     *
+     * @throws IllegalArgumentException if the factory is not embedded.
+     */
+    static QueryPlanner explaining(SessionFactory sessionFactory) {
+        notNull(sessionFactory);
+        GraphDatabaseService database;
+        try {
+            database = sessionFactory.unwrap(GraphDatabaseService.class);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Query plans need an embedded database", e);
+        }
+        if (null == database) {
+            throw new IllegalArgumentException("Query plans need an embedded database");
+        }
+        return (cypher, parameters) -> {
+            try (Transaction tx = database.beginTx()) {
+                @SuppressWarnings("unchecked")
+                Result result = database.execute("EXPLAIN " + cypher, (Map<String, Object>) parameters);
+                String plan = result.getExecutionPlanDescription().toString();
+                result.close();
+                tx.failure();
+                return plan;
+            }
+        };
+    }
+}
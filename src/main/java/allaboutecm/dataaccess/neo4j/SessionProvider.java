@@ -0,0 +1,39 @@
+package allaboutecm.dataaccess.neo4j;
+
+import org.neo4j.ogm.session.Session;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Where a {@link Neo4jDAO} gets the session for an operation. The DAO acquires a session at the
+ * start of every operation and releases it at the end, so a provider that never hands the same
+ * session to two threads at once lets one DAO serve many threads.
+ */
+public interface SessionProvider {
+    /**
+     * Returns a session for the calling thread to use until it releases it.
+     */
+    Session acquire();
+
+    /**
+     * Hands back a session acquired from this provider.
+     */
+    void release(Session session);
+
+    /**
+     * A provider of the one session. Like the session, it is for a single thread.
+     */
+    static SessionProvider of(Session session) {
+        notNull(session);
+        return new SessionProvider() {
+            @Override
+            public Session acquire() {
+                return session;
+            }
+
+            @Override
+            public void release(Session released) {
+            }
+        };
+    }
+}
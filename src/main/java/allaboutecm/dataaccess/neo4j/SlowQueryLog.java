@@ -0,0 +1,200 @@
+package allaboutecm.dataaccess.neo4j;
+
+import allaboutecm.model.Entity;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Iterables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Logs the operations of a {@link Neo4jDAO} that take longer than a threshold, with the Cypher
+ * they ran and its parameters, the entity class, the time taken and the rows returned. Queries the
+ * OGM generates, e.g. the filtered lookups of entities without a natural key, are logged with
+ * their filters instead of Cypher. If a {@link QueryPlanner} is given, the plan of every slow
+ * Cypher query logged is logged with it.
+ * <p>
+ * At most maxPerSecond operations are logged per second; the others are counted and reported with
+ * the next line logged, so a database slowing down every query cannot make logging the bottleneck.
+ * Lines are logged as warnings of the allaboutecm.dataaccess.neo4j.SlowQueryLog logger.
+ */
+public class SlowQueryLog {
+    public static final int DEFAULT_MAX_PER_SECOND = 10;
+
+    private static final int MAX_VALUE_LENGTH = 200;
+    private static final int MAX_ELEMENTS = 10;
+    private static Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private final long thresholdNanos;
+    private final int maxPerSecond;
+    private final QueryPlanner planner;
+    private final Ticker ticker;
+    private final Consumer<String> sink;
+
+    private final AtomicLong slow = new AtomicLong();
+    private final AtomicLong logged = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    // Suppressed since the last line logged, reported by the next.
+    private final AtomicLong unreported = new AtomicLong();
+    private final AtomicLong windowStart;
+    private final AtomicLong loggedInWindow = new AtomicLong();
+
+    public SlowQueryLog(long threshold, TimeUnit unit) {
+        this(threshold, unit, DEFAULT_MAX_PER_SECOND, null);
+    }
+
+    /**
+     * @param threshold    how long an operation takes at least to be logged.
+     * @param maxPerSecond the number of operations logged per second at most.
+     * @param planner      the planner of the Cypher queries logged, or null to log no plans.
+     */
+    public SlowQueryLog(long threshold, TimeUnit unit, int maxPerSecond, QueryPlanner planner) {
+        this(threshold, unit, maxPerSecond, planner, Ticker.systemTicker(), line -> logger.warn(line));
+    }
+
+    SlowQueryLog(long threshold, TimeUnit unit, int maxPerSecond, QueryPlanner planner, Ticker ticker,
+                 Consumer<String> sink) {
+        notNull(unit);
+        notNull(ticker);
+        notNull(sink);
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold cannot be less than 0");
+        }
+        if (maxPerSecond < 1) {
+            throw new IllegalArgumentException("Max per second cannot be less than 1");
+        }
+        this.thresholdNanos = unit.toNanos(threshold);
+        this.maxPerSecond = maxPerSecond;
+        this.planner = planner;
+        this.ticker = ticker;
+        this.sink = sink;
+        this.windowStart = new AtomicLong(ticker.read());
+    }
+
+    /**
+     * Runs the call and logs it if it takes longer than the threshold, with the rows counted from
+     * its result. A call that throws is not logged. Returns what the call returns.
+     *
+     * @param cypher     the query the call runs, or null if the OGM generates it.
+     * @param parameters its parameters, or the filters of the generated query, or null if it has none.
+     */
+    <R> R time(String operation, Class<?> entityClass, String cypher, Map<String, ?> parameters,
+               Supplier<R> call, ToLongFunction<? super R> rows) {
+        long start = ticker.read();
+        R result = call.get();
+        long elapsed = ticker.read() - start;
+        if (elapsed >= thresholdNanos) {
+            slow(operation, entityClass, cypher, parameters, elapsed, null == result ? 0 : rows.applyAsLong(result));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of operations that took longer than the threshold, logged or not.
+     */
+    public long getSlowCount() {
+        return slow.get();
+    }
+
+    public long getLoggedCount() {
+        return logged.get();
+    }
+
+    /**
+     * Returns the number of slow operations not logged because of the rate limit.
+     */
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    private void slow(String operation, Class<?> entityClass, String cypher, Map<String, ?> parameters,
+                      long elapsedNanos, long rows) {
+        slow.incrementAndGet();
+        if (!acquire()) {
+            suppressed.incrementAndGet();
+            unreported.incrementAndGet();
+            return;
+        }
+        logged.incrementAndGet();
+
+        StringBuilder line = new StringBuilder(String.format("Slow %s on %s: %.3fms, %d rows", operation,
+                null == entityClass ? "*" : entityClass.getSimpleName(), elapsedNanos / 1e6, rows));
+        long notLogged = unreported.getAndSet(0);
+        if (notLogged > 0) {
+            line.append(" (").append(notLogged).append(" more slow operations not logged)");
+        }
+        if (null == cypher) {
+            line.append("\n  generated by the OGM");
+            if (null != parameters && !parameters.isEmpty()) {
+                line.append(", filtered by ").append(describe(parameters));
+            }
+        } else {
+            line.append("\n  cypher: ").append(cypher).append("\n  parameters: ").append(describe(parameters));
+            if (null != planner) {
+                try {
+                    line.append("\n  plan:\n").append(planner.plan(cypher, parameters));
+                } catch (RuntimeException e) {
+                    line.append("\n  plan unavailable: ").append(e.getMessage());
+                }
+            }
+        }
+        sink.accept(line.toString());
+    }
+
+    /**
+     * Takes one of the lines of the current second, starting a new second if this one is over.
+     */
+    private boolean acquire() {
+        long now = ticker.read();
+        long start = windowStart.get();
+        if (now - start >= TimeUnit.SECONDS.toNanos(1) && windowStart.compareAndSet(start, now)) {
+            loggedInWindow.set(0);
+        }
+        return loggedInWindow.incrementAndGet() <= maxPerSecond;
+    }
+
+    /**
+     * A short form of the value: entities by class and id, collections and maps by their first
+     * elements, and anything else cut to a couple of hundred characters.
+     */
+    static String describe(Object value) {
+        if (value instanceof Entity) {
+            Entity entity = (Entity) value;
+            return entity.getClass().getSimpleName() + "#" + (null == entity.getId() ? "new" : entity.getId());
+        }
+        if (value instanceof Map) {
+            StringJoiner joiner = new StringJoiner(", ", "{", "}");
+            int shown = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (shown++ == MAX_ELEMENTS) {
+                    joiner.add("... " + ((Map<?, ?>) value).size() + " in all");
+                    break;
+                }
+                joiner.add(entry.getKey() + "=" + describe(entry.getValue()));
+            }
+            return joiner.toString();
+        }
+        if (value instanceof Collection) {
+            StringJoiner joiner = new StringJoiner(", ", "[", "]");
+            for (Object element : Iterables.limit((Collection<?>) value, MAX_ELEMENTS)) {
+                joiner.add(describe(element));
+            }
+            if (((Collection<?>) value).size() > MAX_ELEMENTS) {
+                joiner.add("... " + ((Collection<?>) value).size() + " in all");
+            }
+            return joiner.toString();
+        }
+        String text = String.valueOf(value);
+        return text.length() > MAX_VALUE_LENGTH ? text.substring(0, MAX_VALUE_LENGTH) + "..." : text;
+    }
+}
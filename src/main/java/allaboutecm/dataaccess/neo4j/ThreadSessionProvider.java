@@ -0,0 +1,46 @@
+package allaboutecm.dataaccess.neo4j;
+
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Gives every thread its own session, opened on its first operation and kept for the life of the
+ * thread. The session is cleared after every operation, so the thread reads what other sessions
+ * have written since, and its identity map does not grow with every entity it has touched. Suits
+ * a fixed set of long-lived threads, such as a thread pool. With a thread per task every task
+ * opens a session, and a {@link PooledSessionProvider} is the better fit.
+ */
+public class ThreadSessionProvider implements SessionProvider {
+    private final ThreadLocal<Session> sessions;
+    private final AtomicLong openedSessions = new AtomicLong();
+
+    public ThreadSessionProvider(SessionFactory sessionFactory) {
+        notNull(sessionFactory);
+        this.sessions = ThreadLocal.withInitial(() -> {
+            openedSessions.incrementAndGet();
+            return sessionFactory.openSession();
+        });
+    }
+
+    @Override
+    public Session acquire() {
+        return sessions.get();
+    }
+
+    @Override
+    public void release(Session session) {
+        // The session stays with its thread, without the entities of the operation.
+        session.clear();
+    }
+
+    /**
+     * Returns the number of sessions opened, one per thread that has run an operation.
+     */
+    public long getOpenedSessions() {
+        return openedSessions.get();
+    }
+}
@@ -0,0 +1,117 @@
+package allaboutecm.ingest;
+
+import allaboutecm.model.*;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * The CSV files of a catalogue dump. Every file has a header row with the columns listed here;
+ * empty optional columns are left unset. Each row is turned into an entity through the model
+ * constructors and setters, so a row that breaks a model rule is rejected with the same
+ * IllegalArgumentException or NullPointerException the model throws.
+ */
+public enum CatalogueFile {
+    ALBUMS("recordNumber", "albumName", "releaseYear", "genre", "format", "unitsSold", "albumURL") {
+        @Override
+        public Album toEntity(CSVRecord record) {
+            String recordNumber = record.get("recordNumber");
+            String albumName = record.get("albumName");
+            int releaseYear = Integer.parseInt(record.get("releaseYear"));
+
+            Album album = new Album(releaseYear, recordNumber, albumName);
+            album.setRecordNumber(recordNumber);
+            album.setAlbumName(albumName);
+            album.setReleaseYear(releaseYear);
+            if (isSet(record, "genre")) {
+                album.setGenre(record.get("genre"));
+            }
+            if (isSet(record, "format")) {
+                album.setFormat(record.get("format"));
+            }
+            if (isSet(record, "unitsSold")) {
+                album.setUnitsSold(Integer.parseInt(record.get("unitsSold")));
+            }
+            if (isSet(record, "albumURL")) {
+                album.setAlbumURL(toURL(record.get("albumURL")));
+            }
+            return album;
+        }
+    },
+    MUSICIANS("name", "musicianURL", "musicianWikipediaURL", "biography") {
+        @Override
+        public Musician toEntity(CSVRecord record) {
+            Musician musician = new Musician(record.get("name"));
+            if (isSet(record, "musicianURL")) {
+                musician.setMusicianUrl(toURL(record.get("musicianURL")));
+            }
+            if (isSet(record, "musicianWikipediaURL")) {
+                musician.setMusicianWikipediaURL(toURL(record.get("musicianWikipediaURL")));
+            }
+            if (isSet(record, "biography")) {
+                musician.setMusicianBiography(record.get("biography"));
+            }
+            return musician;
+        }
+    },
+    TRACKS("trackNumber", "title", "duration", "composers") {
+        @Override
+        public Track toEntity(CSVRecord record) {
+            Track track = new Track(Integer.parseInt(record.get("trackNumber")),
+                    record.get("title"),
+                    Long.parseLong(record.get("duration")));
+            if (isSet(record, "composers")) {
+                track.setComposers(record.get("composers").split(COMPOSER_SEPARATOR));
+            }
+            return track;
+        }
+    },
+    RATINGS("score", "comment", "source") {
+        @Override
+        public Rating toEntity(CSVRecord record) {
+            Rating rating = new Rating();
+            rating.setScore(Integer.parseInt(record.get("score")));
+            rating.setComment(record.get("comment"));
+            rating.setSource(record.get("source"));
+            return rating;
+        }
+    };
+
+    /**
+     * Track composers are stored in a single column, separated by semicolons.
+     */
+    public static final String COMPOSER_SEPARATOR = ";";
+
+    private final String[] headers;
+
+    CatalogueFile(String... headers) {
+        this.headers = headers;
+    }
+
+    public String[] getHeaders() {
+        return headers.clone();
+    }
+
+    /**
+     * The format the file is read with: RFC 4180, with the header row naming the columns in any order.
+     */
+    public CSVFormat getFormat() {
+        return CSVFormat.DEFAULT.withFirstRecordAsHeader();
+    }
+
+    public abstract Entity toEntity(CSVRecord record);
+
+    private static boolean isSet(CSVRecord record, String column) {
+        return record.isSet(column) && !record.get(column).trim().isEmpty();
+    }
+
+    private static URL toURL(String value) {
+        try {
+            return new URL(value);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Cannot convert string to URL:" + value);
+        }
+    }
+}
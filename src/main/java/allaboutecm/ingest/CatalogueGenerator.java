@@ -0,0 +1,352 @@
+package allaboutecm.ingest;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.model.*;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Generates a synthetic catalogue for load and scale tests: musicians, the instruments they play,
+ * their concerts, and albums with featured musicians, tracks, ratings and, for some, a group.
+ * Every entity is built through the model constructors and setters, so it passes the same
+ * validation as entities read from a catalogue dump. The same arguments and seed always give the
+ * same catalogue.
+ * <p>
+ * Musicians are featured on albums by a power law: the number of musicians featured on k albums
+ * falls as k ^ -albumsPerMusicianExponent, so most musicians are on a few albums and a few on very
+ * many. The number of ratings of an album falls the same way, as (k + 1) ^ -ratingsPerAlbumExponent.
+ * <p>
+ * Albums are generated one at a time and passed on, so only the musicians, their instruments and
+ * concerts are held in memory however many albums are generated. Musicians are linked to their
+ * albums through the albums' featured musicians, as in the catalogue files; their album sets are
+ * left empty.
+ */
+public class CatalogueGenerator {
+    public static final double DEFAULT_ALBUMS_PER_MUSICIAN_EXPONENT = 2.5;
+    public static final double DEFAULT_RATINGS_PER_ALBUM_EXPONENT = 2.0;
+    public static final int DEFAULT_ALBUMS_PER_MUSICIAN = 3;
+    public static final int MAXIMUM_RATINGS_PER_ALBUM = 100;
+    private static Logger logger = LoggerFactory.getLogger(CatalogueGenerator.class);
+
+    private static final int FIRST_YEAR = 1970;
+    private static final int LAST_YEAR = 2019;
+    private static final int MAXIMUM_FEATURED_MUSICIANS = 4;
+    private static final String[] FIRST_NAMES = {"Keith", "Jan", "Gary", "Jack", "Charlie", "Paul", "Ralph", "Egberto",
+            "Dino", "Anouar", "Tomasz", "Nik", "Avishai", "Vijay", "Tigran", "Meredith", "Carla", "Marilyn", "Kim",
+            "Arve", "Bobo", "Eberhard", "John", "Pat", "Dave", "Chick", "Terje", "Jon", "Palle", "Enrico"};
+    private static final String[] LAST_NAMES = {"Jarrett", "Garbarek", "Peacock", "Dejohnette", "Haden", "Bley",
+            "Towner", "Gismonti", "Saluzzi", "Brahem", "Stanko", "Baertsch", "Cohen", "Iyer", "Hamasyan", "Monk",
+            "Mazzoli", "Crispell", "Kashkashian", "Henriksen", "Stenson", "Weber", "Abercrombie", "Metheny",
+            "Holland", "Corea", "Rypdal", "Christensen", "Danielsson", "Rava"};
+    private static final String[] SYLLABLES = {"ba", "ko", "ri", "sen", "ta", "mo", "lu", "ne", "vi", "dar", "el",
+            "gu", "ha", "ji", "ka", "lo", "ma", "no", "pe", "ru"};
+    private static final String[] WORDS = {"Morning", "Song", "Concert", "Dream", "Light", "Water", "Silent", "River",
+            "Night", "Blue", "Journey", "Mountain", "Return", "Elegy", "Dance", "Sky", "Garden", "Shadow", "Voice",
+            "North", "Stone", "Winter", "Circle", "Path", "Fire", "Open", "Distant", "Hymn", "Wind", "Island"};
+    private static final String[] INSTRUMENTS = {"Piano", "Saxophone", "Guitar", "Bass", "Drums", "Trumpet", "Violin",
+            "Cello", "Clarinet", "Flute", "Oud", "Bandoneon", "Percussion", "Vibraphone", "Organ", "Viola", "Trombone",
+            "Tuba", "Harp", "Accordion"};
+    private static final String[] GENRES = {"Jazz", "Contemporary", "World", "Classical", "Improvisation"};
+    private static final String[] GROUP_KINDS = {"Trio", "Quartet", "Quintet", "Ensemble", "Group"};
+    private static final String[] SOURCES = {"Allmusic", "DownBeat", "Jazzwise", "The Guardian", "Pitchfork",
+            "All About Jazz", "JazzTimes", "Stereophile"};
+    private static final String[] VENUES = {"Village Vanguard", "Blue Note", "Philharmonie", "Royal Festival Hall",
+            "Opera House", "Jazzhaus", "Teatro Colon", "Carnegie Hall"};
+    private static final String[][] CITIES = {{"New York", "United States"}, {"Berlin", "Germany"},
+            {"London", "United Kingdom"}, {"Oslo", "Norway"}, {"Paris", "France"}, {"Buenos Aires", "Argentina"},
+            {"Tokyo", "Japan"}, {"Melbourne", "Australia"}, {"Munich", "Germany"}, {"Rio de Janeiro", "Brazil"}};
+    // Concerts are dated after 2100, as the model only accepts future concerts.
+    private static final long FIRST_CONCERT_DAY = 47482;
+
+    private final int albums;
+    private final int musicians;
+    private final long seed;
+    private final double albumsPerMusicianExponent;
+    private final double ratingsPerAlbumExponent;
+
+    /**
+     * A catalogue of the given number of albums, with a musician for every
+     * {@link #DEFAULT_ALBUMS_PER_MUSICIAN} albums and the default exponents.
+     */
+    public CatalogueGenerator(int albums, long seed) {
+        this(albums, Math.max(1, albums / DEFAULT_ALBUMS_PER_MUSICIAN), seed, DEFAULT_ALBUMS_PER_MUSICIAN_EXPONENT,
+                DEFAULT_RATINGS_PER_ALBUM_EXPONENT);
+    }
+
+    /**
+     * @param albumsPerMusicianExponent how fast the number of musicians featured on k albums falls with k; greater than 1.
+     * @param ratingsPerAlbumExponent   how fast the number of albums with k ratings falls with k; greater than 0.
+     */
+    public CatalogueGenerator(int albums, int musicians, long seed, double albumsPerMusicianExponent,
+                              double ratingsPerAlbumExponent) {
+        if (albums < 0) {
+            throw new IllegalArgumentException("Albums cannot be less than 0");
+        }
+        if (musicians < 1) {
+            throw new IllegalArgumentException("Musicians cannot be less than 1");
+        }
+        if (!(albumsPerMusicianExponent > 1)) {
+            throw new IllegalArgumentException("Albums per musician exponent must be greater than 1");
+        }
+        if (!(ratingsPerAlbumExponent > 0)) {
+            throw new IllegalArgumentException("Ratings per album exponent must be greater than 0");
+        }
+        this.albums = albums;
+        this.musicians = musicians;
+        this.seed = seed;
+        this.albumsPerMusicianExponent = albumsPerMusicianExponent;
+        this.ratingsPerAlbumExponent = ratingsPerAlbumExponent;
+    }
+
+    /**
+     * Passes every entity of the catalogue to the sink: the musicians, then a MusicianInstrument per
+     * musician, the concerts, and last the albums. Albums carry their tracks, ratings and group, which
+     * are not passed on their own, and the MusicianInstruments of their featured musicians.
+     */
+    public void generate(Consumer<? super Entity> sink) {
+        notNull(sink);
+        Random random = new Random(seed);
+
+        List<Musician> musicianList = Lists.newArrayListWithCapacity(musicians);
+        for (int i = 0; i < musicians; i++) {
+            Musician musician = new Musician(musicianName(i));
+            musicianList.add(musician);
+            sink.accept(musician);
+        }
+
+        List<MusicalInstrument> instruments = Lists.newArrayList();
+        for (String name : INSTRUMENTS) {
+            instruments.add(new MusicalInstrument(name));
+        }
+        Map<Musician, MusicianInstrument> played = Maps.newHashMapWithExpectedSize(musicians);
+        for (Musician musician : musicianList) {
+            Set<MusicalInstrument> musicalInstruments = Sets.newHashSet();
+            for (int n = 1 + random.nextInt(3); n > 0; n--) {
+                musicalInstruments.add(instruments.get(random.nextInt(instruments.size())));
+            }
+            MusicianInstrument musicianInstrument = new MusicianInstrument(musician, musicalInstruments);
+            played.put(musician, musicianInstrument);
+            sink.accept(musicianInstrument);
+        }
+
+        // A musician's rank decides how many albums and concerts feature it. A rank-frequency
+        // exponent of 1 / (exponent - 1) gives k ^ -exponent musicians with k albums.
+        PowerLaw featured = new PowerLaw(musicians, 1 / (albumsPerMusicianExponent - 1));
+        for (int i = 0; i < musicians / 10; i++) {
+            sink.accept(concert(random, featured, musicianList));
+        }
+
+        PowerLaw ratings = new PowerLaw(MAXIMUM_RATINGS_PER_ALBUM + 1, ratingsPerAlbumExponent);
+        for (int i = 0; i < albums; i++) {
+            sink.accept(album(i, random, featured, ratings, musicianList, played));
+        }
+    }
+
+    /**
+     * Saves the catalogue through the DAO in batches of batchSize entities of one class.
+     */
+    public void saveTo(DAO dao, int batchSize) {
+        notNull(dao);
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size cannot be less than 1");
+        }
+        List<Entity> batch = Lists.newArrayListWithCapacity(batchSize);
+        long start = System.nanoTime();
+        long[] saved = new long[1];
+        generate(entity -> {
+            if (batch.size() == batchSize || (!batch.isEmpty() && batch.get(0).getClass() != entity.getClass())) {
+                dao.createOrUpdateAll(batch, batchSize);
+                saved[0] += batch.size();
+                batch.clear();
+            }
+            batch.add(entity);
+        });
+        if (!batch.isEmpty()) {
+            dao.createOrUpdateAll(batch, batchSize);
+            saved[0] += batch.size();
+        }
+        logger.info("Generated catalogue of {} entities saved in {} ms.", saved[0], (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * Writes the catalogue as the {@link CatalogueFile} and {@link CatalogueLinkFile} CSV files, named
+     * after the file in lower case (e.g. albums.csv), into the directory, which is created if
+     * needed. The catalogue files have no columns for concerts, instruments or groups, so those
+     * are not written.
+     */
+    public void writeCsv(Path directory) {
+        notNull(directory);
+        Map<Enum<?>, CSVPrinter> printers = Maps.newLinkedHashMap();
+        try {
+            Files.createDirectories(directory);
+            for (CatalogueFile file : CatalogueFile.values()) {
+                printers.put(file, printer(directory, file, file.getHeaders()));
+            }
+            for (CatalogueLinkFile file : CatalogueLinkFile.values()) {
+                printers.put(file, printer(directory, file, file.getHeaders()));
+            }
+
+            generate(entity -> {
+                try {
+                    if (entity instanceof Musician) {
+                        printers.get(CatalogueFile.MUSICIANS).printRecord(((Musician) entity).getName(), "", "", "");
+                    } else if (entity instanceof Album) {
+                        print(printers, (Album) entity);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write catalogue to " + directory, e);
+        } finally {
+            for (CSVPrinter printer : printers.values()) {
+                try {
+                    printer.close();
+                } catch (IOException e) {
+                    logger.warn("Cannot close catalogue file: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static CSVPrinter printer(Path directory, Enum<?> file, String[] headers) throws IOException {
+        Path path = directory.resolve(file.name().toLowerCase(Locale.ROOT) + ".csv");
+        return CSVFormat.DEFAULT.withHeader(headers).print(Files.newBufferedWriter(path, StandardCharsets.UTF_8));
+    }
+
+    private static void print(Map<Enum<?>, CSVPrinter> printers, Album album) throws IOException {
+        Object[] albumKey = {album.getRecordNumber(), album.getAlbumName(), album.getReleaseYear()};
+        printers.get(CatalogueFile.ALBUMS).printRecord(album.getRecordNumber(), album.getAlbumName(),
+                album.getReleaseYear(), album.getGenre(), album.getFormat(), album.getUnitsSold(), "");
+        for (Musician musician : album.getFeaturedMusicians()) {
+            printers.get(CatalogueLinkFile.ALBUM_MUSICIANS).printRecord(concat(albumKey, musician.getName()));
+        }
+        for (Track track : album.getTracks()) {
+            printers.get(CatalogueFile.TRACKS).printRecord(track.getTrackNumber(), track.getTitle(), track.getDuration(),
+                    String.join(CatalogueFile.COMPOSER_SEPARATOR, track.getComposers()));
+            printers.get(CatalogueLinkFile.ALBUM_TRACKS).printRecord(concat(albumKey, track.getTitle(), track.getDuration()));
+        }
+        for (Rating rating : album.getRatings()) {
+            printers.get(CatalogueFile.RATINGS).printRecord(rating.getScore(), rating.getComment(), rating.getSource());
+            printers.get(CatalogueLinkFile.ALBUM_RATINGS).printRecord(
+                    concat(albumKey, rating.getScore(), rating.getComment(), rating.getSource()));
+        }
+    }
+
+    private static Object[] concat(Object[] first, Object... second) {
+        Object[] values = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, values, first.length, second.length);
+        return values;
+    }
+
+    private Album album(int i, Random random, PowerLaw featured, PowerLaw ratings, List<Musician> musicianList,
+                        Map<Musician, MusicianInstrument> played) {
+        String recordNumber = "ECM " + (1000 + i);
+        String albumName = words(random, 1 + random.nextInt(3));
+        int releaseYear = FIRST_YEAR + random.nextInt(LAST_YEAR - FIRST_YEAR + 1);
+        Album album = new Album(releaseYear, recordNumber, albumName);
+        album.setGenre(GENRES[random.nextInt(GENRES.length)]);
+        album.setFormat(AlbumFormat.values()[random.nextInt(AlbumFormat.values().length)].name());
+        // Sales are heavy-tailed too: most albums sell a few thousand copies, a few millions.
+        album.setUnitsSold((int) Math.min(10000000, 1000 / Math.pow(1 - random.nextDouble(), 1 / 1.2)));
+
+        List<Musician> featuredMusicians = Lists.newArrayList();
+        for (int n = 1 + random.nextInt(MAXIMUM_FEATURED_MUSICIANS); n > 0; n--) {
+            Musician musician = musicianList.get(featured.sample(random));
+            if (!featuredMusicians.contains(musician)) {
+                featuredMusicians.add(musician);
+            }
+        }
+        album.setFeaturedMusicians(featuredMusicians);
+        Set<MusicianInstrument> instruments = Sets.newHashSet();
+        featuredMusicians.forEach(musician -> instruments.add(played.get(musician)));
+        album.setInstruments(instruments);
+        if (featuredMusicians.size() >= 2 && random.nextInt(3) == 0) {
+            MusicianGroup group = new MusicianGroup(lastName(featuredMusicians.get(0)) + " "
+                    + GROUP_KINDS[random.nextInt(GROUP_KINDS.length)]);
+            group.setGroupMusicians(Sets.newHashSet(featuredMusicians));
+            album.setMusicianGroup(group);
+        }
+
+        Set<Track> tracks = Sets.newHashSet();
+        String[] composers = {featuredMusicians.get(0).getName()};
+        for (int trackNumber = 1, n = 4 + random.nextInt(9); trackNumber <= n; trackNumber++) {
+            Track track = new Track(trackNumber, words(random, 1 + random.nextInt(2)), 120 + random.nextInt(1080));
+            track.setComposers(composers);
+            tracks.add(track);
+        }
+        album.setTracks(tracks);
+
+        Set<Rating> albumRatings = Sets.newHashSet();
+        for (int n = ratings.sample(random); n > 0; n--) {
+            // Ratings are told apart by their comment, so each album's are its own.
+            String source = SOURCES[random.nextInt(SOURCES.length)];
+            albumRatings.add(new Rating(random.nextInt(11), "Review of " + recordNumber + " " + n, source));
+        }
+        album.setRatings(albumRatings);
+        return album;
+    }
+
+    private static Concert concert(Random random, PowerLaw featured, List<Musician> musicianList) {
+        Concert concert = new Concert();
+        concert.setConcertDate(new Date(TimeUnit.DAYS.toMillis(FIRST_CONCERT_DAY + random.nextInt(3650))));
+        Set<Musician> performers = Sets.newHashSet();
+        for (int n = 1 + random.nextInt(5); n > 0; n--) {
+            performers.add(musicianList.get(featured.sample(random)));
+        }
+        concert.setConcertPerformers(performers);
+        concert.setVenue(VENUES[random.nextInt(VENUES.length)]);
+        String[] city = CITIES[random.nextInt(CITIES.length)];
+        concert.setCity(city[0]);
+        concert.setCountry(city[1]);
+        return concert;
+    }
+
+    /**
+     * A formatted name unique to the index: a first name, and a last name followed, once the
+     * combinations run out, by a hyphenated made-up one.
+     */
+    static String musicianName(int i) {
+        int n = i / FIRST_NAMES.length;
+        String lastName = LAST_NAMES[n % LAST_NAMES.length];
+        n /= LAST_NAMES.length;
+        if (n > 0) {
+            StringBuilder madeUp = new StringBuilder();
+            for (; n > 0; n /= SYLLABLES.length) {
+                madeUp.append(SYLLABLES[n % SYLLABLES.length]);
+            }
+            lastName += "-" + Character.toUpperCase(madeUp.charAt(0)) + madeUp.substring(1);
+        }
+        return FIRST_NAMES[i % FIRST_NAMES.length] + " " + lastName;
+    }
+
+    private static String lastName(Musician musician) {
+        return musician.getName().substring(musician.getName().indexOf(' ') + 1);
+    }
+
+    private static String words(Random random, int n) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            words.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return words.toString();
+    }
+}
@@ -0,0 +1,109 @@
+package allaboutecm.ingest;
+
+import allaboutecm.model.*;
+import com.google.common.collect.Lists;
+import com.google.common.collect.ObjectArrays;
+import com.google.common.collect.Sets;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The CSV files of a catalogue dump that link albums to the musicians, tracks and ratings of the
+ * other files. An album is referred to by its recordNumber, albumName and releaseYear, the other
+ * end by the columns that identify it in its own file. Both ends are built through the model, so
+ * a link refers to the same node the entity would be saved as (e.g. musician names are formatted
+ * the same way).
+ * <p>
+ * Links are read by {@link OfflineStoreImporter} and {@link CsvImporter}; each one becomes the
+ * relationship that saving the album would create.
+ */
+public enum CatalogueLinkFile {
+    ALBUM_MUSICIANS("featuredMusicians", Musician.class, "musician") {
+        @Override
+        public Musician toEnd(CSVRecord record) {
+            return new Musician(record.get("musician"));
+        }
+
+        @Override
+        public void link(Album album, Entity end) {
+            List<Musician> musicians = null == album.getFeaturedMusicians()
+                    ? Lists.newArrayList() : Lists.newArrayList(album.getFeaturedMusicians());
+            if (!musicians.contains(end)) {
+                musicians.add((Musician) end);
+            }
+            album.setFeaturedMusicians(musicians);
+        }
+    },
+    ALBUM_TRACKS("tracks", Track.class, "title", "duration") {
+        @Override
+        public Track toEnd(CSVRecord record) {
+            Track track = new Track();
+            track.setTitle(record.get("title"));
+            track.setDuration(Long.parseLong(record.get("duration")));
+            return track;
+        }
+
+        @Override
+        public void link(Album album, Entity end) {
+            Set<Track> tracks = null == album.getTracks() ? Sets.newHashSet() : Sets.newHashSet(album.getTracks());
+            tracks.add((Track) end);
+            album.setTracks(tracks);
+        }
+    },
+    ALBUM_RATINGS("rating", Rating.class, "score", "comment", "source") {
+        @Override
+        public Rating toEnd(CSVRecord record) {
+            return new Rating(Integer.parseInt(record.get("score")), record.get("comment"), record.get("source"));
+        }
+
+        @Override
+        public void link(Album album, Entity end) {
+            Set<Rating> ratings = null == album.getRatings() ? Sets.newHashSet() : Sets.newHashSet(album.getRatings());
+            ratings.add((Rating) end);
+            album.setRatings(ratings);
+        }
+    };
+
+    private final String type;
+    private final Class<? extends Entity> endClass;
+    private final String[] headers;
+
+    CatalogueLinkFile(String type, Class<? extends Entity> endClass, String... endHeaders) {
+        this.type = type;
+        this.endClass = endClass;
+        this.headers = ObjectArrays.concat(new String[]{"recordNumber", "albumName", "releaseYear"}, endHeaders, String.class);
+    }
+
+    /**
+     * The relationship type Album uses for this link.
+     */
+    public String getType() {
+        return type;
+    }
+
+    public Class<? extends Entity> getEndClass() {
+        return endClass;
+    }
+
+    public String[] getHeaders() {
+        return headers.clone();
+    }
+
+    public CSVFormat getFormat() {
+        return CSVFormat.DEFAULT.withFirstRecordAsHeader();
+    }
+
+    public Album toStart(CSVRecord record) {
+        return new Album(Integer.parseInt(record.get("releaseYear")), record.get("recordNumber"), record.get("albumName"));
+    }
+
+    public abstract Entity toEnd(CSVRecord record);
+
+    /**
+     * Adds end to the album, so that saving the album creates the link.
+     */
+    public abstract void link(Album album, Entity end);
+}
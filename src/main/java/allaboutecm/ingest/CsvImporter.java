@@ -0,0 +1,208 @@
+package allaboutecm.ingest;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.neo4j.NaturalKey;
+import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Streams catalogue CSV files into the database.
+ * <p>
+ * Rows are parsed one at a time on the calling thread and grouped into batches, which a single
+ * writer thread saves with {@link DAO#createOrUpdateAll(java.util.Collection, int)}. At most
+ * pipelineDepth batches wait for the writer, so memory use is bounded by
+ * batchSize * (pipelineDepth + 1) entities however large the file is. The DAO must not be used by
+ * other threads while an import is running.
+ * <p>
+ * Link files are read after the catalogue files they refer to. Both ends of a link are looked up
+ * by their {@link NaturalKey} among the stored entities, which are all held while the file is
+ * read, and each album that gained links is saved once at the end.
+ */
+public class CsvImporter {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_PIPELINE_DEPTH = 2;
+    private static Logger logger = LoggerFactory.getLogger(CsvImporter.class);
+
+    private final DAO dao;
+    private final int batchSize;
+    private final int pipelineDepth;
+
+    public CsvImporter(DAO dao) {
+        this(dao, DEFAULT_BATCH_SIZE, DEFAULT_PIPELINE_DEPTH);
+    }
+
+    public CsvImporter(DAO dao, int batchSize, int pipelineDepth) {
+        notNull(dao);
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size cannot be less than 1");
+        }
+        if (pipelineDepth < 1) {
+            throw new IllegalArgumentException("Pipeline depth cannot be less than 1");
+        }
+        this.dao = dao;
+        this.batchSize = batchSize;
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    /**
+     * Imports every row of the file read from reader, which is closed afterwards. Rows the model
+     * rejects are logged and counted in the report; a database failure aborts the import.
+     */
+    public ImportReport importFile(CatalogueFile file, Reader reader) {
+        notNull(file);
+        notNull(reader);
+
+        long start = System.nanoTime();
+        long rowsRead = 0;
+        long rowsRejected = 0;
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        Deque<Future<?>> pendingBatches = new ArrayDeque<>();
+
+        try (CSVParser parser = file.getFormat().parse(reader)) {
+            List<Entity> batch = Lists.newArrayListWithCapacity(batchSize);
+            for (CSVRecord record : parser) {
+                rowsRead++;
+                try {
+                    batch.add(file.toEntity(record));
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    rowsRejected++;
+                    logger.warn("Rejected {} row {}: {}", file, record.getRecordNumber(), e.getMessage());
+                }
+
+                if (batch.size() == batchSize) {
+                    submit(writer, pendingBatches, batch);
+                    batch = Lists.newArrayListWithCapacity(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(writer, pendingBatches, batch);
+            }
+            while (!pendingBatches.isEmpty()) {
+                await(pendingBatches.poll());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + file, e);
+        } finally {
+            writer.shutdownNow();
+        }
+
+        ImportReport report = new ImportReport(file.toString(), rowsRead, rowsRejected, System.nanoTime() - start);
+        logger.info(report.toString());
+        return report;
+    }
+
+    /**
+     * Links the stored albums to the stored entities named by every row of the link file read from
+     * reader, which is closed afterwards. Rows the model rejects and rows naming an album or an end
+     * that is not stored are logged and counted in the report. Links already stored are kept.
+     */
+    public ImportReport importLinks(CatalogueLinkFile file, Reader reader) {
+        notNull(file);
+        notNull(reader);
+
+        long start = System.nanoTime();
+        long rowsRead = 0;
+        long rowsRejected = 0;
+        Map<List<Object>, Album> albums = storedByKey(Album.class);
+        Map<List<Object>, ? extends Entity> ends = storedByKey(file.getEndClass());
+        Set<Album> linkedAlbums = Sets.newLinkedHashSet();
+
+        try (CSVParser parser = file.getFormat().parse(reader)) {
+            for (CSVRecord record : parser) {
+                rowsRead++;
+                try {
+                    Album album = albums.get(keyOf(file.toStart(record)));
+                    Entity end = ends.get(keyOf(file.toEnd(record)));
+                    if (null == album || null == end) {
+                        rowsRejected++;
+                        logger.warn("Rejected {} row {}: no such {}", file, record.getRecordNumber(),
+                                null == album ? Album.class.getSimpleName() : file.getEndClass().getSimpleName());
+                        continue;
+                    }
+                    file.link(album, end);
+                    linkedAlbums.add(album);
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    rowsRejected++;
+                    logger.warn("Rejected {} row {}: {}", file, record.getRecordNumber(), e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + file, e);
+        }
+
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        Deque<Future<?>> pendingBatches = new ArrayDeque<>();
+        try {
+            for (List<Album> batch : Iterables.partition(linkedAlbums, batchSize)) {
+                submit(writer, pendingBatches, batch);
+            }
+            while (!pendingBatches.isEmpty()) {
+                await(pendingBatches.poll());
+            }
+        } finally {
+            writer.shutdownNow();
+        }
+
+        ImportReport report = new ImportReport(file.toString(), rowsRead, rowsRejected, System.nanoTime() - start);
+        logger.info(report.toString());
+        return report;
+    }
+
+    private <T extends Entity> Map<List<Object>, T> storedByKey(Class<T> clazz) {
+        Map<List<Object>, T> stored = Maps.newHashMap();
+        dao.stream(clazz).forEach(entity -> stored.putIfAbsent(keyOf(entity), entity));
+        return stored;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Entity> List<Object> keyOf(T entity) {
+        NaturalKey<T> key = NaturalKey.of((Class<T>) entity.getClass());
+        return Arrays.asList(key.valuesOf(entity));
+    }
+
+    private void submit(ExecutorService writer, Deque<Future<?>> pendingBatches, List<? extends Entity> batch) {
+        // Wait for the oldest batch once the pipeline is full, so the parser never runs too far ahead.
+        if (pendingBatches.size() >= pipelineDepth) {
+            await(pendingBatches.poll());
+        }
+        pendingBatches.add(writer.submit(() -> dao.createOrUpdateAll(batch, batchSize)));
+    }
+
+    private void await(Future<?> pendingBatch) {
+        try {
+            pendingBatch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a batch to be saved", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Cannot save batch", e.getCause());
+        }
+    }
+}
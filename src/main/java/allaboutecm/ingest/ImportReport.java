@@ -0,0 +1,53 @@
+package allaboutecm.ingest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of importing one catalogue file.
+ */
+public class ImportReport {
+    private final String source;
+    private final long rowsRead;
+    private final long rowsRejected;
+    private final long elapsedNanos;
+
+    public ImportReport(String source, long rowsRead, long rowsRejected, long elapsedNanos) {
+        this.source = source;
+        this.rowsRead = rowsRead;
+        this.rowsRejected = rowsRejected;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public long getRowsImported() {
+        return rowsRead - rowsRejected;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * Imported rows per second of wall-clock time, including the time spent waiting on the database.
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : getRowsImported() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d rows imported, %d rejected in %d ms (%.0f rows/s)",
+                source, getRowsImported(), rowsRejected, getElapsedMillis(), getRowsPerSecond());
+    }
+}
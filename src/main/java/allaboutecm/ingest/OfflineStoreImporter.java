@@ -0,0 +1,217 @@
+package allaboutecm.ingest;
+
+import allaboutecm.dataaccess.neo4j.NaturalKey;
+import allaboutecm.model.*;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.neo4j.tooling.ImportTool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Builds a new embedded store from catalogue CSV files without going through the OGM session,
+ * for the first load of an empty environment.
+ * <p>
+ * Catalogue and link files are first staged: every row is checked through the model exactly as
+ * {@link CsvImporter} does and written to a node or relationship file in the import tool format.
+ * Nodes are identified by their {@link NaturalKey}, so rows with the same key as an earlier row
+ * are dropped (the first one wins) and links resolve to the node the DAO would have matched.
+ * {@link #createStore()} then writes the store files directly with the Neo4j import tool.
+ * <p>
+ * The store directory must not exist yet. Once created, open it with an embedded SessionFactory
+ * and a Neo4jDAO, which adds the natural key indexes, and continue with CsvImporter for updates.
+ */
+public class OfflineStoreImporter {
+    private static final String KEY_SEPARATOR = "\u001F";
+    private static Logger logger = LoggerFactory.getLogger(OfflineStoreImporter.class);
+
+    private final Path stagingDirectory;
+    private final Path storeDirectory;
+    private final List<Path> nodeFiles = Lists.newArrayList();
+    private final List<Path> relationshipFiles = Lists.newArrayList();
+
+    public OfflineStoreImporter(Path stagingDirectory, Path storeDirectory) {
+        notNull(stagingDirectory);
+        notNull(storeDirectory);
+        if (Files.exists(storeDirectory)) {
+            throw new IllegalArgumentException("Store directory already exists: " + storeDirectory);
+        }
+        this.stagingDirectory = stagingDirectory;
+        this.storeDirectory = storeDirectory;
+    }
+
+    /**
+     * Converts the catalogue file read from reader, which is closed afterwards, into a node file.
+     * Rows the model rejects are logged and counted in the report.
+     */
+    public ImportReport stageNodes(CatalogueFile file, Reader reader) {
+        notNull(file);
+        notNull(reader);
+
+        Path nodeFile = stagingFile("nodes", file);
+        ImportReport report = stage(file.toString(), file.getFormat(), reader, nodeFile, nodeHeader(file),
+                record -> nodeRow(file.toEntity(record)));
+        nodeFiles.add(nodeFile);
+        return report;
+    }
+
+    /**
+     * Converts the link file read from reader, which is closed afterwards, into a relationship file.
+     * Rows the model rejects are logged and counted in the report; links to nodes that were never
+     * staged are only dropped by {@link #createStore()}, which lists them in its bad entries log.
+     */
+    public ImportReport stageLinks(CatalogueLinkFile file, Reader reader) {
+        notNull(file);
+        notNull(reader);
+
+        Path relationshipFile = stagingFile("relationships", file);
+        String[] header = {
+                ":START_ID(" + Album.class.getSimpleName() + ")",
+                ":END_ID(" + file.getEndClass().getSimpleName() + ")",
+                ":TYPE"};
+        ImportReport report = stage(file.toString(), file.getFormat(), reader, relationshipFile, header,
+                record -> new Object[]{keyOf(file.toStart(record)), keyOf(file.toEnd(record)), file.getType()});
+        relationshipFiles.add(relationshipFile);
+        return report;
+    }
+
+    /**
+     * Writes a new store into the store directory from every file staged so far.
+     */
+    public void createStore() {
+        List<String> arguments = Lists.newArrayList(
+                "--into", storeDirectory.toString(),
+                "--id-type", "STRING",
+                "--array-delimiter", CatalogueFile.COMPOSER_SEPARATOR,
+                "--multiline-fields", "true",
+                "--skip-duplicate-nodes", "true",
+                "--skip-bad-relationships", "true",
+                "--bad-tolerance", String.valueOf(Long.MAX_VALUE),
+                "--report-file", stagingDirectory.resolve("import.report").toString());
+        for (Path nodeFile : nodeFiles) {
+            arguments.add("--nodes");
+            arguments.add(nodeFile.toString());
+        }
+        for (Path relationshipFile : relationshipFiles) {
+            arguments.add("--relationships");
+            arguments.add(relationshipFile.toString());
+        }
+
+        long start = System.nanoTime();
+        try {
+            ImportTool.main(arguments.toArray(new String[0]), false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create store in " + storeDirectory, e);
+        }
+        logger.info("Created store in {} from {} node and {} relationship files in {} ms", storeDirectory,
+                nodeFiles.size(), relationshipFiles.size(), (System.nanoTime() - start) / 1000000);
+    }
+
+    private ImportReport stage(String source, CSVFormat format, Reader reader, Path target, String[] header,
+                               RowConverter converter) {
+        long start = System.nanoTime();
+        long rowsRead = 0;
+        long rowsRejected = 0;
+
+        try (CSVParser parser = format.parse(reader);
+             Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8);
+             CSVPrinter printer = CSVFormat.DEFAULT.withHeader(header).print(writer)) {
+            for (CSVRecord record : parser) {
+                rowsRead++;
+                Object[] row;
+                try {
+                    row = converter.convert(record);
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    rowsRejected++;
+                    logger.warn("Rejected {} row {}: {}", source, record.getRecordNumber(), e.getMessage());
+                    continue;
+                }
+                printer.printRecord(row);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot stage " + source, e);
+        }
+
+        ImportReport report = new ImportReport(source, rowsRead, rowsRejected, System.nanoTime() - start);
+        logger.info(report.toString());
+        return report;
+    }
+
+    private Path stagingFile(String kind, Enum<?> file) {
+        int index = nodeFiles.size() + relationshipFiles.size();
+        return stagingDirectory.resolve(String.format("%s-%d-%s.csv", kind, index, file.name().toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * The node file columns, named after the properties the model maps the fields to.
+     */
+    private static String[] nodeHeader(CatalogueFile file) {
+        switch (file) {
+            case ALBUMS:
+                return new String[]{":ID(Album)", ":LABEL", "albumName", "recordNumber", "releaseYear:int",
+                        "genre", "format", "unitsSold:int", "albumURL"};
+            case MUSICIANS:
+                return new String[]{":ID(Musician)", ":LABEL", "name", "musicianURL", "musicianWikipediaURL",
+                        "musicianBiography"};
+            case TRACKS:
+                return new String[]{":ID(Track)", ":LABEL", "title", "trackNumber:int", "duration:long",
+                        "composers:string[]"};
+            case RATINGS:
+                return new String[]{":ID(Rating)", ":LABEL", "score:int", "comment", "source"};
+            default:
+                throw new IllegalArgumentException("Unsupported catalogue file: " + file);
+        }
+    }
+
+    private static Object[] nodeRow(Entity entity) {
+        String label = entity.getClass().getSimpleName();
+        if (entity instanceof Album) {
+            Album album = (Album) entity;
+            return new Object[]{keyOf(album), label, album.getAlbumName(), album.getRecordNumber(),
+                    album.getReleaseYear(), album.getGenre(), album.getFormat(), album.getUnitsSold(),
+                    album.getAlbumURL()};
+        } else if (entity instanceof Musician) {
+            Musician musician = (Musician) entity;
+            return new Object[]{keyOf(musician), label, musician.getName(), musician.getMusicianUrl(),
+                    musician.getMusicianWikipediaURL(), musician.getMusicianBiography()};
+        } else if (entity instanceof Track) {
+            Track track = (Track) entity;
+            String[] composers = track.getComposers();
+            return new Object[]{keyOf(track), label, track.getTitle(), track.getTrackNumber(), track.getDuration(),
+                    null == composers ? null : String.join(CatalogueFile.COMPOSER_SEPARATOR, composers)};
+        } else if (entity instanceof Rating) {
+            Rating rating = (Rating) entity;
+            return new Object[]{keyOf(rating), label, rating.getScore(), rating.getComment(), rating.getSource()};
+        }
+        throw new IllegalArgumentException("Unsupported entity: " + label);
+    }
+
+    /**
+     * The node id in the import files: the natural key values of the entity, in key order.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Entity> String keyOf(T entity) {
+        NaturalKey<T> key = NaturalKey.of((Class<T>) entity.getClass());
+        return Joiner.on(KEY_SEPARATOR).useForNull("").join(key.valuesOf(entity));
+    }
+
+    private interface RowConverter {
+        Object[] convert(CSVRecord record);
+    }
+}
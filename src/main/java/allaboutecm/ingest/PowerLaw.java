@@ -0,0 +1,30 @@
+package allaboutecm.ingest;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws ranks 0 to n - 1 with probability proportional to (rank + 1) ^ -exponent, by binary search
+ * over the cumulative weights, so a draw costs O(log n) whatever the exponent.
+ */
+final class PowerLaw {
+    private final double[] cumulative;
+
+    PowerLaw(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("N cannot be less than 1");
+        }
+        cumulative = new double[n];
+        double total = 0;
+        for (int rank = 0; rank < n; rank++) {
+            total += Math.pow(rank + 1, -exponent);
+            cumulative[rank] = total;
+        }
+    }
+
+    int sample(Random random) {
+        double u = random.nextDouble() * cumulative[cumulative.length - 1];
+        int rank = Arrays.binarySearch(cumulative, u);
+        return Math.min(rank < 0 ? -rank - 1 : rank + 1, cumulative.length - 1);
+    }
+}
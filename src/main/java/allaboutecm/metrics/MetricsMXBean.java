@@ -0,0 +1,21 @@
+package allaboutecm.metrics;
+
+import java.util.List;
+
+/**
+ * The management interface of an {@link InProcessMetricsRegistry}, so the recorded operations can
+ * be read from JConsole, VisualVM or any other JMX client.
+ */
+public interface MetricsMXBean {
+    /**
+     * Returns the stats of every operation recorded, by operation and then entity class.
+     */
+    List<OperationStats> getOperations();
+
+    long getErrorCount();
+
+    /**
+     * Forgets everything recorded, and restarts the throughput window.
+     */
+    void reset();
+}
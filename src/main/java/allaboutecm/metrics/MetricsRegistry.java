@@ -0,0 +1,64 @@
+package allaboutecm.metrics;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Where instrumented code reports the operations it runs. An operation is named, e.g. "load", and
+ * recorded per entity class, with how long it took, how many rows it returned or wrote, and
+ * whether it failed. Implementations must be safe to call from any number of threads and cheap
+ * enough for hot paths.
+ */
+public interface MetricsRegistry {
+    /**
+     * Records one call of the operation.
+     *
+     * @param entityClass  the class of the entities the operation ran on, or null if it ran on none or several.
+     * @param elapsedNanos how long the call took.
+     * @param rows         the number of entities or rows it returned or wrote.
+     * @param failed       whether it threw.
+     */
+    void record(String operation, Class<?> entityClass, long elapsedNanos, long rows, boolean failed);
+
+    /**
+     * Runs the call and records it as the operation, with the rows counted from its result, or as
+     * failed if it throws. Returns what the call returns.
+     */
+    default <R> R time(String operation, Class<?> entityClass, Supplier<R> call, ToLongFunction<? super R> rows) {
+        long start = System.nanoTime();
+        R result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            record(operation, entityClass, System.nanoTime() - start, 0, true);
+            throw e;
+        }
+        record(operation, entityClass, System.nanoTime() - start, null == result ? 0 : rows.applyAsLong(result), false);
+        return result;
+    }
+
+    /**
+     * A registry that records nothing, for code that is not being measured.
+     */
+    static MetricsRegistry noop() {
+        return NoopMetricsRegistry.INSTANCE;
+    }
+
+    /**
+     * Returns the class of all the objects, to record an operation on several entities under, or
+     * null if they are of several classes or there are none.
+     */
+    static Class<?> classOf(Collection<?> objects) {
+        Class<?> clazz = null;
+        if (null != objects) {
+            for (Object object : objects) {
+                if (null == object || (null != clazz && clazz != object.getClass())) {
+                    return null;
+                }
+                clazz = object.getClass();
+            }
+        }
+        return clazz;
+    }
+}
@@ -0,0 +1,99 @@
+package allaboutecm.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * What an {@link InProcessMetricsRegistry} recorded for one operation on one entity class, at the
+ * time it was read. Latencies are in milliseconds.
+ */
+public final class OperationStats {
+    private final String operation;
+    private final String entityClass;
+    private final long count;
+    private final long errorCount;
+    private final long rows;
+    private final double throughput;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double p999Millis;
+    private final double maxMillis;
+
+    @ConstructorProperties({"operation", "entityClass", "count", "errorCount", "rows", "throughput",
+            "meanMillis", "p50Millis", "p99Millis", "p999Millis", "maxMillis"})
+    public OperationStats(String operation, String entityClass, long count, long errorCount, long rows,
+                          double throughput, double meanMillis, double p50Millis, double p99Millis,
+                          double p999Millis, double maxMillis) {
+        this.operation = operation;
+        this.entityClass = entityClass;
+        this.count = count;
+        this.errorCount = errorCount;
+        this.rows = rows;
+        this.throughput = throughput;
+        this.meanMillis = meanMillis;
+        this.p50Millis = p50Millis;
+        this.p99Millis = p99Millis;
+        this.p999Millis = p999Millis;
+        this.maxMillis = maxMillis;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Returns the simple name of the entity class, or "*" for operations recorded without one.
+     */
+    public String getEntityClass() {
+        return entityClass;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Returns the number of entities or rows returned or written by all the calls.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of calls per second since the registry was created or reset.
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public double getP999Millis() {
+        return p999Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s: count=%d errors=%d rows=%d throughput=%.1f/s mean=%.3fms p50=%.3fms " +
+                        "p99=%.3fms p99.9=%.3fms max=%.3fms", operation, entityClass, count, errorCount, rows,
+                throughput, meanMillis, p50Millis, p99Millis, p999Millis, maxMillis);
+    }
+}
@@ -0,0 +1,188 @@
+package allaboutecm.mining;
+
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The bounded heap behind the top-k selectors. The heap keeps the k best items offered so far with
+ * the worst of them at the root, so each offer costs O(log k) and nothing is allocated once the
+ * heap has grown to k. Subclasses keep the scores in a parallel array and compare them.
+ * <p>
+ * An item ranks above another if its score is higher; equal scores are ordered by the tie-break
+ * comparator, then by the order the items were offered in (earlier first). With a tie-break that
+ * tells all items apart, the selection does not depend on the order they are offered in.
+ */
+abstract class AbstractTopK<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int k;
+    private final Comparator<? super T> tieBreak;
+    private Object[] items;
+    private long[] sequence;
+    private int size;
+    private long offered;
+
+    AbstractTopK(int k, Comparator<? super T> tieBreak) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k cannot be less than 1");
+        }
+        this.k = k;
+        this.tieBreak = tieBreak;
+        int capacity = initialCapacity(k);
+        this.items = new Object[capacity];
+        this.sequence = new long[capacity];
+    }
+
+    /**
+     * k is often a generous upper bound, so the heap only grows towards it as items arrive.
+     */
+    static int initialCapacity(int k) {
+        return Math.min(k, INITIAL_CAPACITY);
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The selected items, best first.
+     */
+    public List<T> toList() {
+        Integer[] slots = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = i;
+        }
+        Arrays.sort(slots, (a, b) -> compareSlots(b, a));
+        List<T> result = Lists.newArrayListWithCapacity(size);
+        for (Integer slot : slots) {
+            result.add(itemAt(slot));
+        }
+        return result;
+    }
+
+    /**
+     * Positive if the score in slot a is higher than the score in slot b.
+     */
+    abstract int compareScores(int a, int b);
+
+    abstract void swapScores(int a, int b);
+
+    abstract void growScores(int capacity);
+
+    final boolean isFull() {
+        return size == k;
+    }
+
+    /**
+     * Whether an item scoring the same as the root ranks above it. The item is offered after the
+     * root, so it only does if the tie-break puts it first.
+     */
+    final boolean winsTieWithRoot(T item) {
+        return compareItems(item, itemAt(0)) < 0;
+    }
+
+    /**
+     * Puts the item into the heap, replacing the root if the heap is full, and returns its slot.
+     * The caller must store the score in that slot and then call {@link #restore(int)}.
+     */
+    final int insert(T item) {
+        int slot;
+        if (isFull()) {
+            slot = 0;
+        } else {
+            if (size == items.length) {
+                grow();
+            }
+            slot = size++;
+        }
+        items[slot] = item;
+        sequence[slot] = offered++;
+        return slot;
+    }
+
+    final void skip() {
+        offered++;
+    }
+
+    final void restore(int slot) {
+        siftUp(siftDown(slot));
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min(k, items.length * 2L);
+        items = Arrays.copyOf(items, capacity);
+        sequence = Arrays.copyOf(sequence, capacity);
+        growScores(capacity);
+    }
+
+    /**
+     * Positive if slot a ranks above slot b.
+     */
+    private int compareSlots(int a, int b) {
+        int comparison = compareScores(a, b);
+        if (comparison != 0) {
+            return comparison;
+        }
+        comparison = compareItems(itemAt(b), itemAt(a));
+        if (comparison != 0) {
+            return comparison;
+        }
+        return Long.compare(sequence[b], sequence[a]);
+    }
+
+    private int compareItems(T a, T b) {
+        return null == tieBreak ? 0 : tieBreak.compare(a, b);
+    }
+
+    @SuppressWarnings("unchecked")
+    final T itemAt(int slot) {
+        return (T) items[slot];
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (compareSlots(slot, parent) >= 0) {
+                return;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private int siftDown(int slot) {
+        while (true) {
+            int worst = slot;
+            int left = 2 * slot + 1;
+            int right = left + 1;
+            if (left < size && compareSlots(left, worst) < 0) {
+                worst = left;
+            }
+            if (right < size && compareSlots(right, worst) < 0) {
+                worst = right;
+            }
+            if (worst == slot) {
+                return slot;
+            }
+            swap(slot, worst);
+            slot = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        Object item = items[a];
+        items[a] = items[b];
+        items[b] = item;
+        long order = sequence[a];
+        sequence[a] = sequence[b];
+        sequence[b] = order;
+        swapScores(a, b);
+    }
+}
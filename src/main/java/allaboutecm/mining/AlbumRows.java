@@ -0,0 +1,97 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.lang.reflect.Array;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads the albums of a Neo4jDAO a page at a time along with a row of what they are linked to, for
+ * the indexes and backends that load every album on first use. Pages are loaded at depth 0, so the
+ * relationships of an album come from its row, a projection run for the ids of the page, rather
+ * than from whichever session saved the album.
+ */
+final class AlbumRows {
+    private AlbumRows() {
+    }
+
+    /**
+     * Passes every album and its row to the action. The projection follows
+     * "MATCH (a:Album) WHERE ID(a) IN $ids" and returns one row per album, with its id in the id
+     * column. Reading counts as {@link MiningPhase#FETCH} and the action as {@link MiningPhase#COMPUTE}.
+     */
+    static void forEach(Neo4jDAO dao, String projection, BiConsumer<? super Album, ? super Map<String, Object>> action) {
+        String cypher = "MATCH (a:Album) WHERE ID(a) IN $ids " + projection;
+        MiningProfiler.enter(MiningPhase.FETCH);
+        dao.forEachPage(Album.class, Neo4jDAO.DEFAULT_PAGE_SIZE, page -> {
+            List<Long> ids = Lists.newArrayListWithCapacity(page.size());
+            page.forEach(album -> ids.add(album.getId()));
+            Map<Long, Map<String, Object>> rows = Maps.newHashMapWithExpectedSize(page.size());
+            for (Map<String, Object> row : dao.query(cypher, Collections.singletonMap("ids", ids))) {
+                rows.put(((Number) row.get("id")).longValue(), row);
+            }
+            MiningProfiler.enter(MiningPhase.COMPUTE);
+            for (Album album : page) {
+                action.accept(album, rows.getOrDefault(album.getId(), Collections.emptyMap()));
+            }
+            MiningProfiler.enter(MiningPhase.FETCH);
+        });
+        MiningProfiler.enter(MiningPhase.COMPUTE);
+    }
+
+    /**
+     * Every musician of the DAO by id, read a page at a time.
+     */
+    static Map<Long, Musician> musiciansById(Neo4jDAO dao) {
+        Map<Long, Musician> musicians = Maps.newHashMap();
+        MiningProfiler.enter(MiningPhase.FETCH);
+        dao.forEachPage(Musician.class, Neo4jDAO.DEFAULT_PAGE_SIZE,
+                page -> page.forEach(musician -> musicians.put(musician.getId(), musician)));
+        MiningProfiler.enter(MiningPhase.COMPUTE);
+        return musicians;
+    }
+
+    /**
+     * The musicians with the ids in a collected column, skipping ids not in the map.
+     */
+    static List<Musician> musicians(Object ids, Map<Long, Musician> musiciansById) {
+        List<Musician> musicians = Lists.newArrayList();
+        for (Object id : values(ids)) {
+            Musician musician = musiciansById.get(((Number) id).longValue());
+            if (null != musician)
+                musicians.add(musician);
+        }
+        return musicians;
+    }
+
+    /**
+     * The non-null values of a collected column, which the driver may return as a list or an
+     * array, or of a nested list or array in it.
+     */
+    static List<Object> values(Object column) {
+        List<Object> values = Lists.newArrayList();
+        addValues(column, values);
+        return values;
+    }
+
+    private static void addValues(Object column, List<Object> values) {
+        if (column instanceof Iterable) {
+            for (Object value : (Iterable<?>) column) {
+                addValues(value, values);
+            }
+        } else if (null != column && column.getClass().isArray()) {
+            for (int i = 0; i < Array.getLength(column); i++) {
+                addValues(Array.get(column, i), values);
+            }
+        } else if (null != column) {
+            values.add(column);
+        }
+    }
+}
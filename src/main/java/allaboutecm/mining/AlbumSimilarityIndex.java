@@ -0,0 +1,273 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
+import allaboutecm.model.Musician;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Inverted index from album features (featured musicians, words of the musician group name and
+ * words of the album name) to the albums that have them. The albums most similar to a given one
+ * are found by walking only the postings of its own features, scoring each album reached by the
+ * weighted number of features it shares, and keeping the k best.
+ * <p>
+ * An index created with {@link #listeningTo(Neo4jDAO)} loads the albums on first use and then
+ * follows every album saved or deleted through that DAO. The features of the loaded albums are read
+ * as rows, so they are indexed in full whichever session saved them.
+ */
+public class AlbumSimilarityIndex implements DAOListener {
+    static final int MUSICIAN_WEIGHT = 4;
+    static final int GROUP_WEIGHT = 2;
+    static final int NAME_WEIGHT = 1;
+
+    /**
+     * Words too common in album and group names to make two albums similar.
+     */
+    private static final Set<String> STOP_WORDS = ImmutableSet.of("a", "an", "and", "at", "for", "in", "of", "on",
+            "the", "to");
+    private static final String FEATURES = "OPTIONAL MATCH (a)-[:featuredMusicians]->(m:Musician) "
+            + "WITH a, collect(ID(m)) AS musicians "
+            + "OPTIONAL MATCH (a)-[:musicianGroup]->(g:MusicianGroup) "
+            + "RETURN ID(a) AS id, musicians, head(collect(g.groupName)) AS groupName";
+
+    // Indexed albums by id, or by the album itself while it has none.
+    private final Map<Object, Album> albums = Maps.newHashMap();
+    // Postings and features hold albums by identity, as an album changed in place no longer hashes as it did.
+    private final Map<Album, Features> features = new IdentityHashMap<>();
+    private final Map<Musician, Set<Album>> byMusician = Maps.newHashMap();
+    private final Map<String, Set<Album>> byGroupWord = Maps.newHashMap();
+    private final Map<String, Set<Album>> byNameWord = Maps.newHashMap();
+
+    // Queries share the read lock; updates and the first load take the write lock.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // The DAO to load the albums from on first use; null once they are loaded.
+    private volatile Neo4jDAO source;
+
+    public AlbumSimilarityIndex() {
+    }
+
+    private AlbumSimilarityIndex(Neo4jDAO source) {
+        this.source = source;
+    }
+
+    /**
+     * An index over the given albums.
+     */
+    public static AlbumSimilarityIndex of(Collection<Album> albums) {
+        notNull(albums);
+        AlbumSimilarityIndex index = new AlbumSimilarityIndex();
+        albums.forEach(index::add);
+        return index;
+    }
+
+    /**
+     * An index over the albums in the DAO, loaded on first use and kept up to date with the albums
+     * saved and deleted through the DAO afterwards.
+     */
+    public static AlbumSimilarityIndex listeningTo(Neo4jDAO dao) {
+        notNull(dao);
+        AlbumSimilarityIndex index = new AlbumSimilarityIndex(dao);
+        dao.addListener(index);
+        return index;
+    }
+
+    /**
+     * Adds the album, replacing what was indexed for the album with the same id, or for an equal
+     * album if it has no id.
+     */
+    public void add(Album album) {
+        notNull(album);
+        add(album, Features.of(album));
+    }
+
+    private void add(Album album, Features albumFeatures) {
+        lock.writeLock().lock();
+        try {
+            remove(album);
+
+            albums.put(key(album), album);
+            features.put(album, albumFeatures);
+            albumFeatures.musicians.forEach(musician -> post(byMusician, musician, album));
+            albumFeatures.groupWords.forEach(word -> post(byGroupWord, word, album));
+            albumFeatures.nameWords.forEach(word -> post(byNameWord, word, album));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Album album) {
+        notNull(album);
+        lock.writeLock().lock();
+        try {
+            Album indexed = albums.remove(key(album));
+            if (null != indexed) {
+                Features albumFeatures = features.remove(indexed);
+                albumFeatures.musicians.forEach(musician -> unpost(byMusician, musician, indexed));
+                albumFeatures.groupWords.forEach(word -> unpost(byGroupWord, word, indexed));
+                albumFeatures.nameWords.forEach(word -> unpost(byNameWord, word, indexed));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The k indexed albums sharing the most weighted features with the album, most similar first,
+     * ties in album name order. Albums sharing no feature are not returned, nor is the album itself.
+     */
+    public List<Album> mostSimilar(Album album, int k) {
+        notNull(album);
+        load();
+        lock.readLock().lock();
+        try {
+            Features query = Features.of(album);
+            ObjectIntCounter<Album> scores = new ObjectIntCounter<>();
+            query.musicians.forEach(musician -> score(scores, byMusician.get(musician), MUSICIAN_WEIGHT));
+            query.groupWords.forEach(word -> score(scores, byGroupWord.get(word), GROUP_WEIGHT));
+            query.nameWords.forEach(word -> score(scores, byNameWord.get(word), NAME_WEIGHT));
+
+            MiningProfiler.enter(MiningPhase.RANK);
+            IntTopK<Album> mostSimilar = new IntTopK<>(k, Rankings.ALBUMS_BY_NAME);
+            scores.forEach((candidate, score) -> {
+                if (!candidate.equals(album))
+                    mostSimilar.offer(candidate, score);
+            });
+            return mostSimilar.toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        load();
+        lock.readLock().lock();
+        try {
+            return albums.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void saved(Entity entity) {
+        lock.writeLock().lock();
+        try {
+            // Until the albums are loaded, a saved album is picked up by the load.
+            if (null == source && entity instanceof Album) {
+                add((Album) entity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleted(Entity entity) {
+        lock.writeLock().lock();
+        try {
+            if (null != source) {
+                return;
+            }
+            if (entity instanceof Album) {
+                remove((Album) entity);
+            } else if (entity instanceof Musician) {
+                Set<Album> featuring = byMusician.remove(entity);
+                if (null != featuring) {
+                    featuring.forEach(album -> features.get(album).musicians.remove(entity));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void load() {
+        if (null != source) {
+            lock.writeLock().lock();
+            try {
+                if (null != source) {
+                    Neo4jDAO dao = source;
+                    source = null;
+                    Map<Long, Musician> musicians = AlbumRows.musiciansById(dao);
+                    AlbumRows.forEach(dao, FEATURES, (album, row) -> add(album, new Features(
+                            Sets.newHashSet(AlbumRows.musicians(row.get("musicians"), musicians)),
+                            words((String) row.get("groupName")), words(album.getAlbumName()))));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static Object key(Album album) {
+        return null == album.getId() ? album : album.getId();
+    }
+
+    private static <F> void post(Map<F, Set<Album>> postings, F feature, Album album) {
+        postings.computeIfAbsent(feature, f -> Sets.newIdentityHashSet()).add(album);
+    }
+
+    private static <F> void unpost(Map<F, Set<Album>> postings, F feature, Album album) {
+        Set<Album> albums = postings.get(feature);
+        if (null != albums && albums.remove(album) && albums.isEmpty()) {
+            postings.remove(feature);
+        }
+    }
+
+    private static void score(ObjectIntCounter<Album> scores, Set<Album> albums, int weight) {
+        if (null != albums) {
+            albums.forEach(album -> scores.add(album, weight));
+        }
+    }
+
+    /**
+     * The lower-case words of the text, without stop words.
+     */
+    static Set<String> words(String text) {
+        Set<String> words = Sets.newHashSet();
+        if (null != text) {
+            for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                if (!word.isEmpty() && !STOP_WORDS.contains(word))
+                    words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * The features of an album when it was indexed, so they can be unposted after the album changes.
+     */
+    private static final class Features {
+        private final Set<Musician> musicians;
+        private final Set<String> groupWords;
+        private final Set<String> nameWords;
+
+        private Features(Set<Musician> musicians, Set<String> groupWords, Set<String> nameWords) {
+            this.musicians = musicians;
+            this.groupWords = groupWords;
+            this.nameWords = nameWords;
+        }
+
+        private static Features of(Album album) {
+            Set<Musician> musicians = Sets.newHashSet();
+            if (null != album.getFeaturedMusicians()) {
+                for (Musician musician : album.getFeaturedMusicians()) {
+                    if (null != musician)
+                        musicians.add(musician);
+                }
+            }
+            String groupName = null == album.getMusicianGroup() ? null : album.getMusicianGroup().getGroupName();
+            return new Features(musicians, words(groupName), words(album.getAlbumName()));
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.*;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Serves repeated rankings with the same arguments from memory. Wraps another backend and keeps
+ * the result of each ranking, keyed by the ranking and its arguments, in an LRU cache.
+ * <p>
+ * Results are invalidated by generation rather than by expiry: every entity class has a
+ * generation, advanced whenever an entity of that class is saved or deleted, and a result is
+ * served only while the generations of the classes its ranking reads are those it was computed
+ * at. A write therefore costs one increment, however many results it makes stale. A backend
+ * created with {@link #listeningTo(Neo4jDAO, MiningBackend)} follows the writes through that DAO;
+ * writes through another DAO or session are not seen. Closing it stops it listening and drops the
+ * cached results.
+ * <p>
+ * Concurrent requests for a ranking that is not cached are computed once: the first runs the
+ * query and the others wait for its result.
+ */
+public class CachingMiningBackend implements MiningBackend, DAOListener {
+    public static final long DEFAULT_MAXIMUM_SIZE = 1000;
+
+    private static final Set<Class<?>> PROLIFIC_DEPENDS_ON = ImmutableSet.of(Musician.class, Album.class);
+    private static final Set<Class<?>> TALENTED_DEPENDS_ON = ImmutableSet.of(MusicianInstrument.class,
+            Musician.class, MusicalInstrument.class);
+    private static final Set<Class<?>> SOCIAL_DEPENDS_ON = ImmutableSet.of(Album.class, Musician.class);
+    private static final Set<Class<?>> YEARS_DEPENDS_ON = ImmutableSet.of(Album.class);
+    private static final Set<Class<?>> SALES_DEPENDS_ON = ImmutableSet.of(Album.class);
+    private static final Set<Class<?>> RATINGS_DEPENDS_ON = ImmutableSet.of(Album.class, Rating.class);
+
+    private final MiningBackend delegate;
+    private final Cache<List<Object>, Memo> results;
+    private final ConcurrentMap<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+    // Advanced by invalidateAll, and part of the generation of every ranking.
+    private final AtomicLong allGeneration = new AtomicLong();
+    // The DAO this cache listens to, until it is closed.
+    private volatile Neo4jDAO listened;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+
+    public CachingMiningBackend(MiningBackend delegate) {
+        this(delegate, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * @param maximumSize the number of results cached, least recently used evicted first.
+     */
+    public CachingMiningBackend(MiningBackend delegate, long maximumSize) {
+        notNull(delegate);
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size cannot be less than 1");
+        }
+        this.delegate = delegate;
+        this.results = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+    }
+
+    /**
+     * A cache over the backend, invalidated by the entities saved and deleted through the DAO.
+     */
+    public static CachingMiningBackend listeningTo(Neo4jDAO dao, MiningBackend delegate) {
+        notNull(dao);
+        CachingMiningBackend backend = new CachingMiningBackend(delegate);
+        backend.listened = dao;
+        dao.addListener(backend);
+        return backend;
+    }
+
+    @Override
+    public List<Musician> mostProlificMusicians(int k, int startYear, int endYear) {
+        return memoize(PROLIFIC_DEPENDS_ON, () -> delegate.mostProlificMusicians(k, startYear, endYear),
+                "mostProlificMusicians", k, startYear, endYear);
+    }
+
+    @Override
+    public List<Musician> mostTalentedMusicians(int k) {
+        return memoize(TALENTED_DEPENDS_ON, () -> delegate.mostTalentedMusicians(k), "mostTalentedMusicians", k);
+    }
+
+    @Override
+    public List<Musician> mostSocialMusicians(int k) {
+        return memoize(SOCIAL_DEPENDS_ON, () -> delegate.mostSocialMusicians(k), "mostSocialMusicians", k);
+    }
+
+    @Override
+    public List<Integer> busiestYears(int k) {
+        return memoize(YEARS_DEPENDS_ON, () -> delegate.busiestYears(k), "busiestYears", k);
+    }
+
+    @Override
+    public List<Album> bestSellingAlbums(int k) {
+        return memoize(SALES_DEPENDS_ON, () -> delegate.bestSellingAlbums(k), "bestSellingAlbums", k);
+    }
+
+    @Override
+    public List<Album> highestRatedAlbums(int k) {
+        return memoize(RATINGS_DEPENDS_ON, () -> delegate.highestRatedAlbums(k), "highestRatedAlbums", k);
+    }
+
+    @Override
+    public void saved(Entity entity) {
+        invalidate(entity.getClass());
+    }
+
+    @Override
+    public void deleted(Entity entity) {
+        invalidate(entity.getClass());
+    }
+
+    /**
+     * Makes stale every result of a ranking that reads entities of the class.
+     */
+    public void invalidate(Class<? extends Entity> clazz) {
+        notNull(clazz);
+        generations.computeIfAbsent(clazz, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Makes every cached result stale.
+     */
+    public void invalidateAll() {
+        allGeneration.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+        Neo4jDAO dao = listened;
+        listened = null;
+        if (null != dao) {
+            dao.removeListener(this);
+        }
+        results.invalidateAll();
+    }
+
+    /**
+     * Returns the number of requests served from a computed result.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of requests that ran the query of the wrapped backend.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of requests that waited for the same query started by another request.
+     */
+    public long getDeduplicatedCount() {
+        return deduplicated.get();
+    }
+
+    /**
+     * Returns the number of results found stale and computed again.
+     */
+    public long getStaleCount() {
+        return stale.get();
+    }
+
+    public long getEvictionCount() {
+        return results.stats().evictionCount();
+    }
+
+    /**
+     * Returns the share of requests not running a query, or 1 if there were no requests.
+     */
+    public double getHitRate() {
+        long served = hits.get() + deduplicated.get();
+        long requests = served + misses.get();
+        return requests == 0 ? 1.0 : (double) served / requests;
+    }
+
+    public long size() {
+        return results.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> memoize(Set<Class<?>> dependsOn, Supplier<List<T>> query, Object... key) {
+        List<Object> cacheKey = ImmutableList.copyOf(key);
+        // Read before the query, so a write during the query leaves the result stale.
+        long generation = generationOf(dependsOn);
+        CompletableFuture<List<?>> computing = new CompletableFuture<>();
+        Memo memo = results.asMap().compute(cacheKey, (ignored, cached) -> {
+            if (null != cached && cached.generation >= generation && !cached.result.isCompletedExceptionally()) {
+                return cached;
+            }
+            if (null != cached) {
+                stale.incrementAndGet();
+            }
+            return new Memo(generation, computing);
+        });
+
+        if (memo.result != computing) {
+            (memo.result.isDone() ? hits : deduplicated).incrementAndGet();
+            return Lists.newArrayList((List<T>) join(memo.result));
+        }
+
+        misses.incrementAndGet();
+        List<T> result;
+        try {
+            result = Collections.unmodifiableList(Lists.newArrayList(query.get()));
+        } catch (RuntimeException | Error e) {
+            results.asMap().remove(cacheKey, memo);
+            computing.completeExceptionally(e);
+            throw e;
+        }
+        computing.complete(result);
+        // A copy, so a caller changing the list does not change the cached result.
+        return Lists.newArrayList(result);
+    }
+
+    private long generationOf(Set<Class<?>> dependsOn) {
+        // Generations only grow, so their sum changes whenever one of them does.
+        long generation = allGeneration.get();
+        for (Class<?> clazz : dependsOn) {
+            AtomicLong classGeneration = generations.get(clazz);
+            if (null != classGeneration) {
+                generation += classGeneration.get();
+            }
+        }
+        return generation;
+    }
+
+    private static List<?> join(CompletableFuture<List<?>> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            // Rethrow what the query threw, as the request that ran it does.
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class Memo {
+        private final long generation;
+        private final CompletableFuture<List<?>> result;
+
+        private Memo(long generation, CompletableFuture<List<?>> result) {
+            this.generation = generation;
+            this.result = result;
+        }
+    }
+}
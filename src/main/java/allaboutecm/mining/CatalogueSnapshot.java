@@ -0,0 +1,265 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.*;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.lang.reflect.Array;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * The catalogue as the miners read it, in dense columns: albums and musicians are numbered from 0,
+ * their numbers and scores are held in int arrays indexed by those numbers, and the links between
+ * them in CSR form, an offsets array pointing into one array of all the links. A scan over a
+ * column reads contiguous memory rather than chasing references through the entity graph.
+ * <p>
+ * <ul>
+ * <li>albums: releaseYear, unitsSold and albumName; featured musicians and rating scores per album.</li>
+ * <li>musicians: name and the number of instruments played; the release years of the albums
+ * they are linked to.</li>
+ * </ul>
+ * A snapshot is read once and does not change. It is read from the rows of a Neo4jDAO without
+ * mapping entities, keeping node ids, and only the albums and musicians a ranking returns are
+ * loaded; from any other DAO it is read from the entities of loadAll, which it keeps.
+ */
+public final class CatalogueSnapshot {
+    private static final int PAGE_SIZE = Neo4jDAO.DEFAULT_PAGE_SIZE;
+    private static final String MUSICIANS = "MATCH (m:Musician) WHERE ID(m) > $after "
+            + "WITH m ORDER BY ID(m) LIMIT $limit "
+            + "OPTIONAL MATCH (m)-[:albums]->(a:Album) "
+            + "WITH m, [album IN collect(DISTINCT a) | coalesce(album.releaseYear, 0)] AS years "
+            + "OPTIONAL MATCH (m)<-[:musician]-(:MusicianInstrument)-[:musicalInstruments]->(i:MusicalInstrument) "
+            + "RETURN ID(m) AS id, m.name AS name, years, count(DISTINCT i) AS instruments ORDER BY id";
+    private static final String ALBUMS = "MATCH (a:Album) WHERE ID(a) > $after "
+            + "WITH a ORDER BY ID(a) LIMIT $limit "
+            + "OPTIONAL MATCH (a)-[:featuredMusicians]->(m:Musician) "
+            + "WITH a, collect(ID(m)) AS musicians "
+            + "OPTIONAL MATCH (a)-[:rating]->(r:Rating) "
+            + "RETURN ID(a) AS id, a.albumName AS name, coalesce(a.releaseYear, 0) AS releaseYear, "
+            + "coalesce(a.unitsSold, 0) AS unitsSold, musicians, [rating IN collect(r) | coalesce(rating.score, 0)] AS scores ORDER BY id";
+
+    // Albums
+    final int albumCount;
+    final String[] albumNames;
+    final int[] releaseYears;
+    final int[] unitsSold;
+    // The musicians featured on album a are featuredMusicians[featuredOffsets[a] .. featuredOffsets[a + 1]).
+    final int[] featuredOffsets;
+    final int[] featuredMusicians;
+    final int[] ratingOffsets;
+    final int[] ratingScores;
+
+    // Musicians
+    final int musicianCount;
+    final String[] musicianNames;
+    final int[] instrumentCounts;
+    // The release years of the albums of musician m, one per album.
+    final int[] albumYearOffsets;
+    final int[] albumYears;
+
+    private final IntFunction<Album> albums;
+    private final IntFunction<Musician> musicians;
+
+    private CatalogueSnapshot(Builder builder, IntFunction<Album> albums, IntFunction<Musician> musicians) {
+        this.albumCount = builder.albumNames.size();
+        this.albumNames = builder.albumNames.toArray(new String[0]);
+        this.releaseYears = builder.releaseYears.toArray();
+        this.unitsSold = builder.unitsSold.toArray();
+        this.featuredOffsets = builder.featuredOffsets.toArray();
+        this.featuredMusicians = builder.featuredMusicians.toArray();
+        this.ratingOffsets = builder.ratingOffsets.toArray();
+        this.ratingScores = builder.ratingScores.toArray();
+        this.musicianCount = builder.musicianNames.size();
+        this.musicianNames = builder.musicianNames.toArray(new String[0]);
+        this.instrumentCounts = builder.instrumentCounts.toArray();
+        this.albumYearOffsets = builder.albumYearOffsets.toArray();
+        this.albumYears = builder.albumYears.toArray();
+        this.albums = albums;
+        this.musicians = musicians;
+    }
+
+    /**
+     * Reads a snapshot of the catalogue in the DAO.
+     */
+    public static CatalogueSnapshot of(DAO dao) {
+        notNull(dao);
+        MiningProfiler.enter(MiningPhase.FETCH);
+        Neo4jDAO neo4jDAO = MiningBackend.neo4jDAOOf(dao);
+        CatalogueSnapshot snapshot = null != neo4jDAO ? ofRows(neo4jDAO) : ofEntities(dao);
+        MiningProfiler.enter(MiningPhase.COMPUTE);
+        return snapshot;
+    }
+
+    public int getAlbumCount() {
+        return albumCount;
+    }
+
+    public int getMusicianCount() {
+        return musicianCount;
+    }
+
+    /**
+     * Returns the album numbered a, loading it if the snapshot was read from rows.
+     */
+    Album album(int a) {
+        return albums.apply(a);
+    }
+
+    Musician musician(int m) {
+        return musicians.apply(m);
+    }
+
+    private static CatalogueSnapshot ofEntities(DAO dao) {
+        Builder builder = new Builder();
+        List<Album> albumList = Lists.newArrayList();
+        List<Musician> musicianList = Lists.newArrayList();
+        Map<Musician, Integer> musicianNumbers = Maps.newHashMap();
+        List<List<Integer>> albumYearLists = Lists.newArrayList();
+        List<Set<MusicalInstrument>> instrumentSets = Lists.newArrayList();
+        ToIntFunction<Musician> register = musician -> musicianNumbers.computeIfAbsent(musician, added -> {
+            musicianList.add(added);
+            albumYearLists.add(Lists.newArrayList());
+            instrumentSets.add(Sets.newHashSet());
+            return musicianList.size() - 1;
+        });
+
+        for (Musician musician : dao.loadAll(Musician.class)) {
+            int m = register.applyAsInt(musician);
+            if (null != musician.getAlbums()) {
+                for (Album album : musician.getAlbums()) {
+                    if (null != album)
+                        albumYearLists.get(m).add(album.getReleaseYear());
+                }
+            }
+        }
+        for (MusicianInstrument musicianInstrument : dao.loadAll(MusicianInstrument.class)) {
+            if (null != musicianInstrument.getMusician() && null != musicianInstrument.getMusicalInstruments()) {
+                instrumentSets.get(register.applyAsInt(musicianInstrument.getMusician()))
+                        .addAll(musicianInstrument.getMusicalInstruments());
+            }
+        }
+        for (Album album : dao.loadAll(Album.class)) {
+            albumList.add(album);
+            builder.albumNames.add(album.getAlbumName());
+            builder.releaseYears.add(album.getReleaseYear());
+            builder.unitsSold.add(album.getUnitsSold());
+            if (null != album.getFeaturedMusicians()) {
+                for (Musician musician : album.getFeaturedMusicians()) {
+                    if (null != musician)
+                        builder.featuredMusicians.add(register.applyAsInt(musician));
+                }
+            }
+            builder.featuredOffsets.add(builder.featuredMusicians.size());
+            if (null != album.getRatings()) {
+                for (Rating rating : album.getRatings()) {
+                    if (null != rating)
+                        builder.ratingScores.add(rating.getScore());
+                }
+            }
+            builder.ratingOffsets.add(builder.ratingScores.size());
+        }
+
+        for (int m = 0; m < musicianList.size(); m++) {
+            builder.musicianNames.add(musicianList.get(m).getName());
+            builder.instrumentCounts.add(instrumentSets.get(m).size());
+            albumYearLists.get(m).forEach(builder.albumYears::add);
+            builder.albumYearOffsets.add(builder.albumYears.size());
+        }
+        return new CatalogueSnapshot(builder, albumList::get, musicianList::get);
+    }
+
+    private static CatalogueSnapshot ofRows(Neo4jDAO dao) {
+        Builder builder = new Builder();
+        // Musicians first, so the featured musicians of an album can be numbered by binary search.
+        List<Long> musicianIds = Lists.newArrayList();
+        forEachRow(dao, MUSICIANS, row -> {
+            musicianIds.add(((Number) row.get("id")).longValue());
+            builder.musicianNames.add((String) row.get("name"));
+            builder.instrumentCounts.add(((Number) row.get("instruments")).intValue());
+            forEachNumber(row.get("years"), builder.albumYears::add);
+            builder.albumYearOffsets.add(builder.albumYears.size());
+        });
+        long[] musicianNodes = musicianIds.stream().mapToLong(Long::longValue).toArray();
+
+        List<Long> albumIds = Lists.newArrayList();
+        forEachRow(dao, ALBUMS, row -> {
+            albumIds.add(((Number) row.get("id")).longValue());
+            builder.albumNames.add((String) row.get("name"));
+            builder.releaseYears.add(((Number) row.get("releaseYear")).intValue());
+            builder.unitsSold.add(((Number) row.get("unitsSold")).intValue());
+            forEachNumber(row.get("musicians"), id -> {
+                int m = Arrays.binarySearch(musicianNodes, id);
+                if (m >= 0)
+                    builder.featuredMusicians.add(m);
+            });
+            builder.featuredOffsets.add(builder.featuredMusicians.size());
+            forEachNumber(row.get("scores"), builder.ratingScores::add);
+            builder.ratingOffsets.add(builder.ratingScores.size());
+        });
+        long[] albumNodes = albumIds.stream().mapToLong(Long::longValue).toArray();
+
+        return new CatalogueSnapshot(builder, a -> dao.load(Album.class, albumNodes[a]),
+                m -> dao.load(Musician.class, musicianNodes[m]));
+    }
+
+    private static void forEachRow(Neo4jDAO dao, String cypher, Consumer<Map<String, Object>> action) {
+        Map<String, Object> parameters = Maps.newHashMap();
+        parameters.put("after", -1L);
+        parameters.put("limit", PAGE_SIZE);
+        while (true) {
+            List<Map<String, Object>> rows = Lists.newArrayList(dao.query(cypher, parameters));
+            if (rows.isEmpty()) {
+                return;
+            }
+            rows.forEach(action);
+            parameters.put("after", ((Number) rows.get(rows.size() - 1).get("id")).longValue());
+        }
+    }
+
+    /**
+     * Passes every number of a collected list, which the driver may return as a list or an array.
+     */
+    private static void forEachNumber(Object values, IntConsumer action) {
+        if (values instanceof Iterable) {
+            for (Object value : (Iterable<?>) values) {
+                if (null != value)
+                    action.accept(((Number) value).intValue());
+            }
+        } else if (null != values && values.getClass().isArray()) {
+            for (int i = 0; i < Array.getLength(values); i++) {
+                Object value = Array.get(values, i);
+                if (null != value)
+                    action.accept(((Number) value).intValue());
+            }
+        }
+    }
+
+    private static final class Builder {
+        private final List<String> albumNames = Lists.newArrayList();
+        private final IntColumn releaseYears = new IntColumn();
+        private final IntColumn unitsSold = new IntColumn();
+        private final IntColumn featuredOffsets = startedOffsets();
+        private final IntColumn featuredMusicians = new IntColumn();
+        private final IntColumn ratingOffsets = startedOffsets();
+        private final IntColumn ratingScores = new IntColumn();
+        private final List<String> musicianNames = Lists.newArrayList();
+        private final IntColumn instrumentCounts = new IntColumn();
+        private final IntColumn albumYearOffsets = startedOffsets();
+        private final IntColumn albumYears = new IntColumn();
+
+        private static IntColumn startedOffsets() {
+            IntColumn offsets = new IntColumn();
+            offsets.add(0);
+            return offsets;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Computes the rankings inside the database, so only the top k rows are sent back and mapped,
+ * whatever the size of the catalogue. Ties are broken by musician name, year or album name,
+ * ascending, so the same graph always gives the same ranking.
+ * <p>
+ * The exception is bestSellingAlbums, which reads the unitsSold index in descending order and stops
+ * after k albums; a second sort key would make the database sort every album with sales instead.
+ * Albums with the same sales are returned in index order.
+ */
+public class CypherMiningBackend implements MiningBackend {
+    private static final String MOST_PROLIFIC_MUSICIANS = "MATCH (m:Musician)-[:albums]->(a:Album) "
+            + "WHERE ($startYear <= 0 OR a.releaseYear >= $startYear) AND ($endYear <= 0 OR a.releaseYear <= $endYear) "
+            + "WITH m, count(DISTINCT a) AS albums "
+            + "RETURN m AS musician ORDER BY albums DESC, m.name LIMIT $k";
+    private static final String MOST_TALENTED_MUSICIANS = "MATCH (m:Musician)<-[:musician]-(:MusicianInstrument)"
+            + "-[:musicalInstruments]->(i:MusicalInstrument) "
+            + "WITH m, count(DISTINCT i) AS instruments "
+            + "RETURN m AS musician ORDER BY instruments DESC, m.name LIMIT $k";
+    private static final String MOST_SOCIAL_MUSICIANS = "MATCH (a:Album)-[:featuredMusicians]->(m:Musician) "
+            + "WITH m, count(a) AS albums "
+            + "RETURN m AS musician ORDER BY albums DESC, m.name LIMIT $k";
+    private static final String BUSIEST_YEARS = "MATCH (a:Album) WHERE a.releaseYear <> 0 "
+            + "WITH a.releaseYear AS year, count(a) AS albums "
+            + "RETURN year ORDER BY albums DESC, year LIMIT $k";
+    private static final String BEST_SELLING_ALBUMS = "MATCH (a:Album) WHERE a.unitsSold > 0 "
+            + "RETURN a AS album ORDER BY a.unitsSold DESC LIMIT $k";
+    private static final String HIGHEST_RATED_ALBUMS = "MATCH (a:Album)-[:rating]->(r:Rating) "
+            + "WITH a, avg(r.score) AS score "
+            + "RETURN a AS album ORDER BY score DESC, a.albumName LIMIT $k";
+
+    private final Neo4jDAO dao;
+
+    public CypherMiningBackend(Neo4jDAO dao) {
+        notNull(dao);
+        this.dao = dao;
+    }
+
+    @Override
+    public List<Musician> mostProlificMusicians(int k, int startYear, int endYear) {
+        // No album is in the period when both years are 0, as in the in-memory ranking.
+        if (startYear == 0 && endYear == 0) {
+            return Lists.newArrayList();
+        }
+        Map<String, Object> parameters = parameters(k);
+        parameters.put("startYear", startYear);
+        parameters.put("endYear", endYear);
+        return column(MOST_PROLIFIC_MUSICIANS, parameters, "musician");
+    }
+
+    @Override
+    public List<Musician> mostTalentedMusicians(int k) {
+        return column(MOST_TALENTED_MUSICIANS, parameters(k), "musician");
+    }
+
+    @Override
+    public List<Musician> mostSocialMusicians(int k) {
+        return column(MOST_SOCIAL_MUSICIANS, parameters(k), "musician");
+    }
+
+    @Override
+    public List<Integer> busiestYears(int k) {
+        List<Number> years = column(BUSIEST_YEARS, parameters(k), "year");
+        List<Integer> result = Lists.newArrayListWithCapacity(years.size());
+        years.forEach(year -> result.add(year.intValue()));
+        return result;
+    }
+
+    @Override
+    public List<Album> bestSellingAlbums(int k) {
+        return column(BEST_SELLING_ALBUMS, parameters(k), "album");
+    }
+
+    @Override
+    public List<Album> highestRatedAlbums(int k) {
+        return column(HIGHEST_RATED_ALBUMS, parameters(k), "album");
+    }
+
+    private static Map<String, Object> parameters(int k) {
+        Map<String, Object> parameters = Maps.newHashMap();
+        parameters.put("k", k);
+        return parameters;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> column(String cypher, Map<String, Object> parameters, String column) {
+        // The database counts and ranks, so the whole query is spent fetching.
+        MiningProfiler.enter(MiningPhase.FETCH);
+        List<T> values = Lists.newArrayList();
+        for (Map<String, Object> row : dao.query(cypher, parameters)) {
+            values.add((T) row.get(column));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,59 @@
+package allaboutecm.mining;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Selects the k items with the highest double scores, e.g. averages, without boxing the scores.
+ * Scores are compared with {@link Double#compare(double, double)}, so NaN ranks above everything.
+ */
+public class DoubleTopK<T> extends AbstractTopK<T> {
+    private double[] scores;
+
+    public DoubleTopK(int k) {
+        this(k, null);
+    }
+
+    /**
+     * @param tieBreak orders items with the same score, first ranked highest; null keeps the order
+     *                 the items are offered in.
+     */
+    public DoubleTopK(int k, Comparator<? super T> tieBreak) {
+        super(k, tieBreak);
+        scores = new double[initialCapacity(k)];
+    }
+
+    /**
+     * Offers an item. Returns whether it is among the k best so far.
+     */
+    public boolean offer(T item, double score) {
+        if (isFull()) {
+            int comparison = Double.compare(score, scores[0]);
+            if (comparison < 0 || (comparison == 0 && !winsTieWithRoot(item))) {
+                skip();
+                return false;
+            }
+        }
+        int slot = insert(item);
+        scores[slot] = score;
+        restore(slot);
+        return true;
+    }
+
+    @Override
+    int compareScores(int a, int b) {
+        return Double.compare(scores[a], scores[b]);
+    }
+
+    @Override
+    void swapScores(int a, int b) {
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    @Override
+    void growScores(int capacity) {
+        scores = Arrays.copyOf(scores, capacity);
+    }
+}
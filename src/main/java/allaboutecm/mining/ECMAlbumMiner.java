@@ -1,27 +1,61 @@
 package allaboutecm.mining;
 
 import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
 import allaboutecm.model.Album;
-import allaboutecm.model.MusicianGroup;
-import allaboutecm.model.Rating;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
-import static java.util.stream.Collectors.toMap;
 import static org.apache.commons.lang3.Validate.notNull;
 
-public class ECMAlbumMiner {
+/**
+ * Similarity queries over a Neo4jDAO are answered from indexes created on the first such query,
+ * which then follow the albums saved and deleted through the DAO. Close the miner to stop them.
+ */
+public class ECMAlbumMiner implements AutoCloseable {
     public static final java.lang.String K_ERROR_MSG = "k cannot be less than 1";
+    public static final String BANDS_ERROR_MSG = "Bands cannot be less than 1";
+    public static final String ROWS_ERROR_MSG = "Rows cannot be less than 1";
     private static Logger logger = LoggerFactory.getLogger(ECMMusicianMiner.class);
     private final DAO dao;
+    private final MiningBackend backend;
+    // Null if the DAO cannot notify, so each similarity query indexes anew.
+    private final Neo4jDAO neo4jDAO;
+    private final int bands;
+    private final int rows;
+    private final MiningProfiler profiler = new MiningProfiler();
+
+    // Listening to neo4jDAO once created, until the miner is closed.
+    private final Lock indexes = new ReentrantLock();
+    private AlbumSimilarityIndex similarityIndex;
+    private MinHashAlbumIndex approximateIndex;
+    private boolean closed;
 
     public ECMAlbumMiner(DAO dao) {
+        this(dao, MiningBackend.forDao(dao));
+    }
+
+    public ECMAlbumMiner(DAO dao, MiningBackend backend) {
+        this(dao, backend, MinHashAlbumIndex.DEFAULT_BANDS, MinHashAlbumIndex.DEFAULT_ROWS);
+    }
+
+    /**
+     * @param bands the number of LSH bands of the approximate similarity queries; more find more similar albums.
+     * @param rows  the number of rows per band; more compare fewer dissimilar albums. See {@link MinHashAlbumIndex}.
+     */
+    public ECMAlbumMiner(DAO dao, MiningBackend backend, int bands, int rows) {
+        notNull(backend);
+        validateArgument(bands < 1, BANDS_ERROR_MSG);
+        validateArgument(rows < 1, ROWS_ERROR_MSG);
         this.dao = dao;
+        this.backend = backend;
+        this.bands = bands;
+        this.rows = rows;
+        this.neo4jDAO = MiningBackend.neo4jDAOOf(dao);
     }
 
     /**
@@ -33,23 +67,13 @@ public class ECMAlbumMiner {
 
     public List<Album> bestSellingAlbums(int k) {
         validateArgument(k < 1, K_ERROR_MSG);
-        Collection<Album> albums = dao.loadAll(Album.class);
-        if (albums.isEmpty())
-            return Lists.newArrayList();
-
-        //sort album descending by Units Sold
-        return albums
-                .stream()
-                .filter(album -> album.getUnitsSold() > 0)
-                .sorted(Comparator.comparing(Album::getUnitsSold).reversed())
-                .limit(k)
-                .collect(Collectors.toList());
+        return profiler.profile("bestSellingAlbums", () -> backend.bestSellingAlbums(k));
     }
 
     /**
-     * Most similar albums to a give album. The similarity can be defined in a variety of ways.
-     * For example, it can be defined over the musicians in albums, the similarity between names
-     * of the albums & tracks, etc.
+     * Most similar albums to a give album. Albums are similar if they share featured musicians, or
+     * words of the musician group or album names; the more they share, the more similar they are,
+     * with a shared musician weighing most. See {@link AlbumSimilarityIndex}.
      *
      * @Param k the number of albums to be returned.
      * @Param album
@@ -58,26 +82,34 @@ public class ECMAlbumMiner {
     public List<Album> mostSimilarAlbums(int k, Album album) {
         notNull(album);
         validateArgument(k < 1, K_ERROR_MSG);
-        Collection<Album> albums = dao.loadAll(Album.class);
-        if (albums.isEmpty())
-            return Lists.newArrayList();
+        return profiler.profile("mostSimilarAlbums", () -> similarityIndex().mostSimilar(album, k));
+    }
 
-        List<Album> similarAlbum = Lists.newArrayList();
-        for (Album albumDB : albums) {
+    /**
+     * Approximately the most similar albums to a given album, by the estimated Jaccard similarity of
+     * their musicians, instruments, track composers and name shingles. Albums whose signatures
+     * share no LSH band with the album's are not considered, so some similar albums may be missed.
+     *
+     * @Param k the number of albums to be returned.
+     * @Param album
+     */
 
-            boolean similar = isSimilarName(albumDB.getAlbumName(), album.getAlbumName())
-                    || isSimilarMusicians(album, albumDB)
-                    || isSimilarGroupName(albumDB.getMusicianGroup(), album.getMusicianGroup());
+    public List<Album> approximateMostSimilarAlbums(int k, Album album) {
+        notNull(album);
+        validateArgument(k < 1, K_ERROR_MSG);
+        return profiler.profile("approximateMostSimilarAlbums", () -> approximateIndex().mostSimilar(album, k));
+    }
 
-            if (similar) {
-                similarAlbum.add(albumDB);
-            }
-        }
+    /**
+     * The approximately most similar albums of every album, as by approximateMostSimilarAlbums, in
+     * time near-linear in the number of albums. Meant for precomputing related albums.
+     *
+     * @Param k the number of albums to be returned per album.
+     */
 
-        return similarAlbum.stream()
-                            .sorted(Comparator.comparing(Album::getAlbumName))
-                            .limit(k)
-                            .collect(Collectors.toList());
+    public Map<Album, List<Album>> relatedAlbums(int k) {
+        validateArgument(k < 1, K_ERROR_MSG);
+        return profiler.profile("relatedAlbums", () -> approximateIndex().neighbours(k));
     }
 
     /**
@@ -89,44 +121,83 @@ public class ECMAlbumMiner {
 
     public List<Album> highestRatedAlbums(int k) {
         validateArgument(k < 1, K_ERROR_MSG);
-        Collection<Album> albums = dao.loadAll(Album.class);
-        if (albums.isEmpty())
-            return Lists.newArrayList();
-
-        Map<Album, Double> ratedAlbumMap = Maps.newHashMap();
-        for (Album albumDB : albums) {
-            if(albumDB.getRatings() == null || albumDB.getRatings().isEmpty())
-                continue;
-            double averageRatingScore = albumDB.getRatings()
-                    .stream()
-                    .mapToInt(Rating::getScore)
-                    .average()
-                    .getAsDouble();
-            ratedAlbumMap.put(albumDB, averageRatingScore);
+        return profiler.profile("highestRatedAlbums", () -> backend.highestRatedAlbums(k));
+    }
+
+    /**
+     * Registers a listener to be notified of the profile of every query this miner answers, see
+     * {@link MiningProfile}. Queries are only profiled while a listener is registered.
+     */
+    public void addListener(MiningListener listener) {
+        profiler.addListener(listener);
+    }
+
+    public void removeListener(MiningListener listener) {
+        profiler.removeListener(listener);
+    }
+
+    /**
+     * Stops the similarity indexes of this miner following the DAO and drops them. Similarity
+     * queries over a Neo4jDAO cannot be answered afterwards; the rankings still can.
+     */
+    @Override
+    public void close() {
+        indexes.lock();
+        try {
+            closed = true;
+            if (null != similarityIndex) {
+                neo4jDAO.removeListener(similarityIndex);
+                similarityIndex = null;
+            }
+            if (null != approximateIndex) {
+                neo4jDAO.removeListener(approximateIndex);
+                approximateIndex = null;
+            }
+        } finally {
+            indexes.unlock();
         }
-        Map<Album, Double> sortedRatedAlbumMap = sortMapByValue(ratedAlbumMap);
-        return sortedRatedAlbumMap.keySet().stream().limit(k).collect(Collectors.toList());
     }
 
-    private boolean isSimilarMusicians(Album album, Album albumDB) {
-        if ((albumDB.getFeaturedMusicians() == null) || (album.getFeaturedMusicians() == null)){
-            return false;
-        } else {
-            return albumDB.getFeaturedMusicians().stream().anyMatch(musician -> album.getFeaturedMusicians().contains(musician))
-                    || album.getFeaturedMusicians().stream().anyMatch(musician -> albumDB.getFeaturedMusicians().contains(musician));
+    private AlbumSimilarityIndex similarityIndex() {
+        if (null == neo4jDAO) {
+            AlbumSimilarityIndex index = new AlbumSimilarityIndex();
+            MiningBackend.forEach(dao, Album.class, index::add);
+            return index;
+        }
+        indexes.lock();
+        try {
+            checkOpen();
+            if (null == similarityIndex) {
+                similarityIndex = AlbumSimilarityIndex.listeningTo(neo4jDAO);
+            }
+            return similarityIndex;
+        } finally {
+            indexes.unlock();
         }
     }
 
-    private boolean isSimilarGroupName(MusicianGroup musicianGroupDB, MusicianGroup musicianGroup) {
-        return musicianGroupDB != null
-                && musicianGroup != null
-                && isSimilarName(musicianGroupDB.getGroupName(), musicianGroup.getGroupName());
+    private MinHashAlbumIndex approximateIndex() {
+        if (null == neo4jDAO) {
+            MinHashAlbumIndex index = new MinHashAlbumIndex(bands, rows, MinHashAlbumIndex.DEFAULT_SEED);
+            MiningBackend.forEach(dao, Album.class, index::add);
+            return index;
+        }
+        indexes.lock();
+        try {
+            checkOpen();
+            if (null == approximateIndex) {
+                approximateIndex = MinHashAlbumIndex.listeningTo(neo4jDAO, bands, rows, MinHashAlbumIndex.DEFAULT_SEED);
+            }
+            return approximateIndex;
+        } finally {
+            indexes.unlock();
+        }
     }
 
-    private boolean isSimilarName(String nameDB, String name) {
-        return nameDB != null
-                && name != null
-                && (name.contains(nameDB) || nameDB.contains(name));
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The miner is closed");
+        }
     }
 
     private void validateArgument(boolean condition, String msg) {
@@ -135,17 +206,4 @@ public class ECMAlbumMiner {
             throw new IllegalArgumentException(msg);
         }
     }
-
-    private static <K,V extends Comparable<? super V>> LinkedHashMap<K, V> sortMapByValue(Map<K, V> map) {
-        //reference:
-        // https://www.javacodegeeks.com/2017/09/java-8-sorting-hashmap-values-ascending-descending-order.html
-        //sort descending order by values
-        return map
-                .entrySet()
-                .stream()
-                .sorted(Collections.reverseOrder(Map.Entry.<K, V>comparingByValue()))
-                .collect(
-                        toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e2,
-                                LinkedHashMap::new));
-    }
 }
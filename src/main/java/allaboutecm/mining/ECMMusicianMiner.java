@@ -2,27 +2,27 @@ package allaboutecm.mining;
 
 
 import allaboutecm.dataaccess.DAO;
-import allaboutecm.model.Album;
 import allaboutecm.model.Musician;
-import allaboutecm.model.MusicianInstrument;
-import com.google.common.collect.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.List;
 
-import static java.util.stream.Collectors.toMap;
-import static org.apache.commons.lang3.Validate.notEmpty;
 import static org.apache.commons.lang3.Validate.notNull;
 
 public class ECMMusicianMiner {
     public static final java.lang.String K_ERROR_MSG = "k cannot be less than 1";
     private static Logger logger = LoggerFactory.getLogger(ECMMusicianMiner.class);
-    private final DAO dao;
+    private final MiningBackend backend;
+    private final MiningProfiler profiler = new MiningProfiler();
 
     public ECMMusicianMiner(DAO dao) {
-        this.dao = dao;
+        this(dao, MiningBackend.forDao(dao));
+    }
+
+    public ECMMusicianMiner(DAO dao, MiningBackend backend) {
+        notNull(backend);
+        this.backend = backend;
     }
 
     /**
@@ -36,53 +36,17 @@ public class ECMMusicianMiner {
         validateArgument(k < 1, K_ERROR_MSG);
         validateArgument(startYear > endYear && startYear > 0 && endYear > 0,
                             "Start Year cannot  be greater than End Year");
-        Collection<Musician> musicians = dao.loadAll(Musician.class);
-
-        if (musicians.isEmpty())
-            return Lists.newArrayList();
-
-        Map<Musician, Integer> musicianAndNoOfAlbumsMap = new HashMap<>();
-        musicians.forEach(musician ->{
-            List<Album> filteredAlbum =  musician.getAlbums()
-                    .stream()
-                    .filter(album -> !((startYear > 0 && album.getReleaseYear() < startYear)
-                            || (endYear > 0 && album.getReleaseYear() > endYear)
-                            ||(endYear == 0 && startYear == 0)))
-                    .collect(Collectors.toList());
-
-            if (!filteredAlbum.isEmpty())
-                musicianAndNoOfAlbumsMap.put(musician, filteredAlbum.size());
-        });
-
-        Map<Musician, Integer> sortedByNoOfAlbumsMap = sortMapByValue(musicianAndNoOfAlbumsMap);
-        //https://www.leveluplunch.com/java/examples/limit-or-take-first-elements-from-list/
-        return sortedByNoOfAlbumsMap.keySet().stream().limit(k).collect(Collectors.toList());
+        return profiler.profile("mostProlificMusicians", () -> backend.mostProlificMusicians(k, startYear, endYear));
     }
 
     /**
-     * Most talented musicians by the number of different musical instruments they play
+     * Most talented musicians by the number of different musical instruments they play, on any album
      *
      * @Param k the number of musicians to be returned.
      */
     public List<Musician> mostTalentedMusicians(int k) {
         validateArgument(k < 1, K_ERROR_MSG);
-        Collection<MusicianInstrument> musicianInstruments = dao.loadAll(MusicianInstrument.class);
-        if(musicianInstruments.isEmpty())
-            return Lists.newArrayList();
-
-        Map<Musician, Integer> musicianAndNoOfInstrumentMap = new HashMap<>();
-        musicianInstruments.forEach(musicianInstrument -> {
-                    if (musicianInstrument.getMusicalInstruments() != null
-                        && !musicianInstrument.getMusicalInstruments().isEmpty()) {
-                            musicianAndNoOfInstrumentMap.put(musicianInstrument.getMusician(),
-                                    musicianInstrument.getMusicalInstruments().size());
-                    }
-
-                }
-        );
-
-        Map<Musician, Integer> sortedByNoOfMusicalsMap = sortMapByValue(musicianAndNoOfInstrumentMap);
-        return sortedByNoOfMusicalsMap.keySet().stream().limit(k).collect(Collectors.toList());
+        return profiler.profile("mostTalentedMusicians", () -> backend.mostTalentedMusicians(k));
     }
 
     /**
@@ -93,27 +57,7 @@ public class ECMMusicianMiner {
 
     public List<Musician> mostSocialMusicians(int k) {
         validateArgument(k < 1, K_ERROR_MSG);
-        Collection<Album> albums = dao.loadAll(Album.class);
-        if(albums.isEmpty())
-            return Lists.newArrayList();
-
-        Map<Musician, Integer> musicianAndNoOfCollaborationMap = new HashMap<>();
-        albums.forEach(album ->{
-            if (album.getFeaturedMusicians() != null){
-                List<Musician> featuredMusicians = album.getFeaturedMusicians().stream().collect(Collectors.toList());
-                featuredMusicians.forEach(musician -> {
-                    if(musicianAndNoOfCollaborationMap.containsKey(musician)){
-                        int collaborationCount = musicianAndNoOfCollaborationMap.get(musician);
-                        musicianAndNoOfCollaborationMap.replace(musician, collaborationCount, collaborationCount+1);
-                    }else{
-                        musicianAndNoOfCollaborationMap.put(musician, 1);
-                    }
-                });
-            }
-        });
-
-        Map<Musician, Integer> sortedByNoOfCollaborationMap = sortMapByValue(musicianAndNoOfCollaborationMap);
-        return sortedByNoOfCollaborationMap.keySet().stream().limit(k).collect(Collectors.toList());
+        return profiler.profile("mostSocialMusicians", () -> backend.mostSocialMusicians(k));
     }
 
     /**
@@ -124,22 +68,19 @@ public class ECMMusicianMiner {
 
     public List<Integer> busiestYears(int k) {
         validateArgument(k < 1, K_ERROR_MSG);
-        Collection<Album> albums = dao.loadAll(Album.class);
-        if(albums.isEmpty())
-            return Lists.newArrayList();
-
-        Map<Integer,Integer> yearsMap = new HashMap<>();
-        albums.forEach(album -> {
-            int releasedYear = album.getReleaseYear();
-            if (yearsMap.containsKey(releasedYear)){
-                int albumCount = yearsMap.get(releasedYear);
-                yearsMap.replace(releasedYear, albumCount, albumCount+1);
-            }else if (releasedYear != 0){
-                yearsMap.put(releasedYear,1);
-            }
-        });
-        Map<Integer, Integer> sortedByNoOfAlbumMap = sortMapByValue(yearsMap);
-        return sortedByNoOfAlbumMap.keySet().stream().limit(k).collect(Collectors.toList());
+        return profiler.profile("busiestYears", () -> backend.busiestYears(k));
+    }
+
+    /**
+     * Registers a listener to be notified of the profile of every query this miner answers, see
+     * {@link MiningProfile}. Queries are only profiled while a listener is registered.
+     */
+    public void addListener(MiningListener listener) {
+        profiler.addListener(listener);
+    }
+
+    public void removeListener(MiningListener listener) {
+        profiler.removeListener(listener);
     }
 
 
@@ -150,17 +91,4 @@ public class ECMMusicianMiner {
         }
     }
 
-    private static <K,V extends Comparable<? super V>> LinkedHashMap<K, V> sortMapByValue(Map<K, V> map) {
-        //reference:
-        // https://www.javacodegeeks.com/2017/09/java-8-sorting-hashmap-values-ascending-descending-order.html
-        //sort descending order by values
-        return map
-                .entrySet()
-                .stream()
-                .sorted(Collections.reverseOrder(Map.Entry.<K, V>comparingByValue()))
-                .collect(
-                        toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e2,
-                                LinkedHashMap::new));
-    }
-
-}
\ No newline at end of file
+}
\ No newline at end of file
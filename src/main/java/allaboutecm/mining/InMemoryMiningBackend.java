@@ -0,0 +1,112 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.model.*;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Computes the rankings in the JVM, passing over every entity of the DAO once. Used when the DAO
+ * cannot run queries, e.g. a test double.
+ */
+public class InMemoryMiningBackend implements MiningBackend {
+    private final DAO dao;
+
+    public InMemoryMiningBackend(DAO dao) {
+        this.dao = dao;
+    }
+
+    @Override
+    public List<Musician> mostProlificMusicians(int k, int startYear, int endYear) {
+        IntTopK<Musician> mostProlific = new IntTopK<>(k, Rankings.MUSICIANS_BY_NAME);
+        MiningBackend.forEach(dao, Musician.class, musician ->{
+            List<Album> filteredAlbum =  musician.getAlbums()
+                    .stream()
+                    .filter(album -> !((startYear > 0 && album.getReleaseYear() < startYear)
+                            || (endYear > 0 && album.getReleaseYear() > endYear)
+                            ||(endYear == 0 && startYear == 0)))
+                    .collect(Collectors.toList());
+
+            if (!filteredAlbum.isEmpty())
+                mostProlific.offer(musician, filteredAlbum.size());
+        });
+
+        MiningProfiler.enter(MiningPhase.RANK);
+        return mostProlific.toList();
+    }
+
+    @Override
+    public List<Musician> mostTalentedMusicians(int k) {
+        Map<Musician, Set<MusicalInstrument>> instruments = Maps.newHashMap();
+        MiningBackend.forEach(dao, MusicianInstrument.class, musicianInstrument -> {
+            if (musicianInstrument.getMusician() != null && musicianInstrument.getMusicalInstruments() != null
+                    && !musicianInstrument.getMusicalInstruments().isEmpty()) {
+                instruments.computeIfAbsent(musicianInstrument.getMusician(), musician -> Sets.newHashSet())
+                        .addAll(musicianInstrument.getMusicalInstruments());
+            }
+        });
+
+        MiningProfiler.enter(MiningPhase.RANK);
+        IntTopK<Musician> mostTalented = new IntTopK<>(k, Rankings.MUSICIANS_BY_NAME);
+        instruments.forEach((musician, played) -> mostTalented.offer(musician, played.size()));
+        return mostTalented.toList();
+    }
+
+    @Override
+    public List<Musician> mostSocialMusicians(int k) {
+        ObjectIntCounter<Musician> collaborations = new ObjectIntCounter<>();
+        MiningBackend.forEach(dao, Album.class, album ->{
+            if (album.getFeaturedMusicians() != null){
+                for (Musician musician : album.getFeaturedMusicians())
+                    collaborations.increment(musician);
+            }
+        });
+
+        MiningProfiler.enter(MiningPhase.RANK);
+        return collaborations.top(k, Rankings.MUSICIANS_BY_NAME);
+    }
+
+    @Override
+    public List<Integer> busiestYears(int k) {
+        YearCounter years = new YearCounter();
+        MiningBackend.forEachAlbumStats(dao, album -> {
+            int releasedYear = album.getReleaseYear();
+            if (releasedYear != 0)
+                years.increment(releasedYear);
+        });
+        MiningProfiler.enter(MiningPhase.RANK);
+        return years.top(k);
+    }
+
+    @Override
+    public List<Album> bestSellingAlbums(int k) {
+        //rank album descending by Units Sold, albums with the same sales in the order loaded
+        TopK<Album> bestSelling = new TopK<>(k, Comparator.comparing(Album::getUnitsSold).reversed());
+        MiningBackend.forEach(dao, Album.class, album -> {
+            if (album.getUnitsSold() > 0)
+                bestSelling.offer(album);
+        });
+        MiningProfiler.enter(MiningPhase.RANK);
+        return bestSelling.toList();
+    }
+
+    @Override
+    public List<Album> highestRatedAlbums(int k) {
+        DoubleTopK<Album> highestRated = new DoubleTopK<>(k, Rankings.ALBUMS_BY_NAME);
+        MiningBackend.forEach(dao, Album.class, albumDB -> {
+            if(albumDB.getRatings() == null || albumDB.getRatings().isEmpty())
+                return;
+            double averageRatingScore = albumDB.getRatings()
+                    .stream()
+                    .mapToInt(Rating::getScore)
+                    .average()
+                    .getAsDouble();
+            highestRated.offer(albumDB, averageRatingScore);
+        });
+        MiningProfiler.enter(MiningPhase.RANK);
+        return highestRated.toList();
+    }
+}
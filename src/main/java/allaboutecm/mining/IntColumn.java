@@ -0,0 +1,26 @@
+package allaboutecm.mining;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of ints, for building the columns of a {@link CatalogueSnapshot} without boxing.
+ */
+final class IntColumn {
+    private int[] values = new int[16];
+    private int size;
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,111 @@
+package allaboutecm.mining;
+
+import java.util.List;
+
+/**
+ * Counts per int key in an open-addressing table of primitive keys and counts, so counting never
+ * boxes or allocates once the table has grown to the number of keys. Counts only go up: a key is
+ * present once it has been counted.
+ */
+public class IntIntCounter {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    public IntIntCounter() {
+        keys = new int[INITIAL_CAPACITY];
+        counts = new int[INITIAL_CAPACITY];
+    }
+
+    public void increment(int key) {
+        add(key, 1);
+    }
+
+    /**
+     * Adds delta to the count of the key.
+     */
+    public void add(int key, int delta) {
+        if (delta < 1) {
+            throw new IllegalArgumentException("Delta cannot be less than 1");
+        }
+        int slot = indexOf(key);
+        while (counts[slot] != 0 && keys[slot] != key) {
+            slot = next(slot);
+        }
+        if (counts[slot] == 0) {
+            // Keep the table at most half full, so probe sequences stay short.
+            if (size + 1 > keys.length >> 1) {
+                grow();
+                add(key, delta);
+                return;
+            }
+            keys[slot] = key;
+            size++;
+        }
+        counts[slot] += delta;
+    }
+
+    /**
+     * Returns the count of the key, or 0 if it was never counted.
+     */
+    public int get(int key) {
+        for (int slot = indexOf(key); counts[slot] != 0; slot = next(slot)) {
+            if (keys[slot] == key) {
+                return counts[slot];
+            }
+        }
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(IntIntConsumer action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (counts[slot] != 0) {
+                action.accept(keys[slot], counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * The k keys with the highest counts, best first, ties ordered by tieBreak.
+     */
+    public List<Integer> top(int k, IntIntTopK.IntComparator tieBreak) {
+        IntIntTopK topK = new IntIntTopK(k, tieBreak);
+        forEach(topK::offer);
+        return topK.toList();
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length << 1];
+        counts = new int[oldKeys.length << 1];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCounts[i] != 0) {
+                int slot = indexOf(oldKeys[i]);
+                while (counts[slot] != 0) {
+                    slot = next(slot);
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private int indexOf(int key) {
+        return ObjectIntCounter.mix(key) & (keys.length - 1);
+    }
+
+    private int next(int slot) {
+        return (slot + 1) & (keys.length - 1);
+    }
+
+    public interface IntIntConsumer {
+        void accept(int key, int count);
+    }
+}
@@ -0,0 +1,162 @@
+package allaboutecm.mining;
+
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Selects the k int keys with the highest int scores, e.g. years by album count, keeping keys and
+ * scores in primitive arrays so neither is boxed while offering. Keys rank as the items of the
+ * other selectors do (see {@link AbstractTopK}): higher scores first, equal scores ordered by the
+ * tie-break, then by the order the keys were offered in.
+ */
+public class IntIntTopK {
+    private final int k;
+    private final IntComparator tieBreak;
+    private int[] keys;
+    private int[] scores;
+    private long[] sequence;
+    private int size;
+    private long offered;
+
+    public IntIntTopK(int k) {
+        this(k, null);
+    }
+
+    /**
+     * @param tieBreak orders keys with the same score, first ranked highest; null keeps the order
+     *                 the keys are offered in.
+     */
+    public IntIntTopK(int k, IntComparator tieBreak) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k cannot be less than 1");
+        }
+        this.k = k;
+        this.tieBreak = tieBreak;
+        int capacity = AbstractTopK.initialCapacity(k);
+        keys = new int[capacity];
+        scores = new int[capacity];
+        sequence = new long[capacity];
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Offers a key. Returns whether it is among the k best so far.
+     */
+    public boolean offer(int key, int score) {
+        if (size == k && (score < scores[0] || (score == scores[0] && compareKeys(key, keys[0]) >= 0))) {
+            offered++;
+            return false;
+        }
+        int slot;
+        if (size == k) {
+            slot = 0;
+        } else {
+            if (size == keys.length) {
+                grow();
+            }
+            slot = size++;
+        }
+        keys[slot] = key;
+        scores[slot] = score;
+        sequence[slot] = offered++;
+        siftUp(siftDown(slot));
+        return true;
+    }
+
+    /**
+     * The selected keys, best first.
+     */
+    public List<Integer> toList() {
+        Integer[] slots = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = i;
+        }
+        Arrays.sort(slots, (a, b) -> compareSlots(b, a));
+        List<Integer> result = Lists.newArrayListWithCapacity(size);
+        for (Integer slot : slots) {
+            result.add(keys[slot]);
+        }
+        return result;
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min(k, keys.length * 2L);
+        keys = Arrays.copyOf(keys, capacity);
+        scores = Arrays.copyOf(scores, capacity);
+        sequence = Arrays.copyOf(sequence, capacity);
+    }
+
+    /**
+     * Positive if slot a ranks above slot b.
+     */
+    private int compareSlots(int a, int b) {
+        int comparison = Integer.compare(scores[a], scores[b]);
+        if (comparison != 0) {
+            return comparison;
+        }
+        comparison = compareKeys(keys[b], keys[a]);
+        if (comparison != 0) {
+            return comparison;
+        }
+        return Long.compare(sequence[b], sequence[a]);
+    }
+
+    private int compareKeys(int a, int b) {
+        return null == tieBreak ? 0 : tieBreak.compare(a, b);
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (compareSlots(slot, parent) >= 0) {
+                return;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private int siftDown(int slot) {
+        while (true) {
+            int worst = slot;
+            int left = 2 * slot + 1;
+            int right = left + 1;
+            if (left < size && compareSlots(left, worst) < 0) {
+                worst = left;
+            }
+            if (right < size && compareSlots(right, worst) < 0) {
+                worst = right;
+            }
+            if (worst == slot) {
+                return slot;
+            }
+            swap(slot, worst);
+            slot = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        long order = sequence[a];
+        sequence[a] = sequence[b];
+        sequence[b] = order;
+    }
+
+    public interface IntComparator {
+        int compare(int a, int b);
+    }
+}
@@ -0,0 +1,55 @@
+package allaboutecm.mining;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Selects the k items with the highest int scores, e.g. counts, without boxing the scores.
+ */
+public class IntTopK<T> extends AbstractTopK<T> {
+    private int[] scores;
+
+    public IntTopK(int k) {
+        this(k, null);
+    }
+
+    /**
+     * @param tieBreak orders items with the same score, first ranked highest; null keeps the order
+     *                 the items are offered in.
+     */
+    public IntTopK(int k, Comparator<? super T> tieBreak) {
+        super(k, tieBreak);
+        scores = new int[initialCapacity(k)];
+    }
+
+    /**
+     * Offers an item. Returns whether it is among the k best so far.
+     */
+    public boolean offer(T item, int score) {
+        if (isFull() && (score < scores[0] || (score == scores[0] && !winsTieWithRoot(item)))) {
+            skip();
+            return false;
+        }
+        int slot = insert(item);
+        scores[slot] = score;
+        restore(slot);
+        return true;
+    }
+
+    @Override
+    int compareScores(int a, int b) {
+        return Integer.compare(scores[a], scores[b]);
+    }
+
+    @Override
+    void swapScores(int a, int b) {
+        int score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    @Override
+    void growScores(int capacity) {
+        scores = Arrays.copyOf(scores, capacity);
+    }
+}
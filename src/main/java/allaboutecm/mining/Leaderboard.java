@@ -0,0 +1,106 @@
+package allaboutecm.mining;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.*;
+
+/**
+ * Items ranked by a score that changes over time, highest first. A score update costs O(log n)
+ * and reading the top k costs O(k), however many updates came before. Items with equal scores are
+ * ordered by the tie-break, then by when they were first put.
+ */
+final class Leaderboard<T> {
+    private final Map<T, Entry<T>> entries;
+    private final NavigableSet<Entry<T>> ranked;
+    private long sequence;
+
+    /**
+     * @param tieBreak   orders items with the same score, first ranked highest; null keeps the order they were put in.
+     * @param byIdentity whether items are told apart by identity rather than equals, e.g. entities that change in place.
+     */
+    Leaderboard(Comparator<? super T> tieBreak, boolean byIdentity) {
+        this.entries = byIdentity ? new IdentityHashMap<>() : Maps.newHashMap();
+        Comparator<Entry<T>> order = (entry, other) -> Double.compare(other.score, entry.score);
+        if (null != tieBreak) {
+            order = order.thenComparing(entry -> entry.item, tieBreak);
+        }
+        this.ranked = new TreeSet<>(order.thenComparingLong(entry -> entry.sequence));
+    }
+
+    /**
+     * Sets the score of the item, adding it if it is not ranked.
+     */
+    void put(T item, double score) {
+        Entry<T> entry = entries.get(item);
+        long entrySequence = sequence;
+        if (null != entry) {
+            ranked.remove(entry);
+            entrySequence = entry.sequence;
+        } else {
+            sequence++;
+        }
+        entry = new Entry<>(item, score, entrySequence);
+        entries.put(item, entry);
+        ranked.add(entry);
+    }
+
+    /**
+     * Adds the delta to the score of the item, counting an unranked item as 0. An item whose score
+     * becomes 0 is removed, so counts can be kept by adding and subtracting 1.
+     */
+    void add(T item, double delta) {
+        double score = score(item) + delta;
+        if (score == 0) {
+            remove(item);
+        } else {
+            put(item, score);
+        }
+    }
+
+    void remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (null != entry) {
+            ranked.remove(entry);
+        }
+    }
+
+    /**
+     * The score of the item, or 0 if it is not ranked.
+     */
+    double score(T item) {
+        Entry<T> entry = entries.get(item);
+        return null == entry ? 0 : entry.score;
+    }
+
+    boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * The k items with the highest scores, highest first.
+     */
+    List<T> top(int k) {
+        List<T> top = Lists.newArrayListWithCapacity(Math.min(k, ranked.size()));
+        for (Iterator<Entry<T>> iterator = ranked.iterator(); iterator.hasNext() && top.size() < k; ) {
+            top.add(iterator.next().item);
+        }
+        return top;
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final double score;
+        private final long sequence;
+
+        private Entry(T item, double score, long sequence) {
+            this.item = item;
+            this.score = score;
+            this.sequence = sequence;
+        }
+    }
+}
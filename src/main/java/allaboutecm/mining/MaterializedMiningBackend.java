@@ -0,0 +1,272 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.AlbumStats;
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Keeps the aggregates behind busiestYears, mostSocialMusicians, bestSellingAlbums and
+ * highestRatedAlbums up to date as albums are saved and deleted, so each of those rankings is read
+ * in O(k) instead of being computed over the catalogue. Album counts per year, featured album
+ * counts per musician, and the sales and average rating of every album are held in
+ * {@link Leaderboard}s. mostProlificMusicians, whose years vary per query, and
+ * mostTalentedMusicians go to the fallback backend.
+ * <p>
+ * A backend created with {@link #listeningTo(Neo4jDAO)} loads the albums on first use, with their
+ * featured musicians and ratings read as rows, and then follows every album saved or deleted
+ * through that DAO. Albums written after that through another DAO or session, and ratings or
+ * musicians saved apart from their album, are not seen until the album is saved again. Closing
+ * the backend stops it following the DAO.
+ * <p>
+ * Ties are broken as by the other backends: years ascending, musicians and rated albums by name,
+ * and albums with the same sales in the order they were added.
+ */
+public class MaterializedMiningBackend implements MiningBackend, DAOListener {
+    // The featured musicians and ratings of the albums of a page, which are loaded at depth 0.
+    private static final String CONTRIBUTIONS = "OPTIONAL MATCH (a)-[:featuredMusicians]->(m:Musician) "
+            + "WITH a, collect(ID(m)) AS musicians OPTIONAL MATCH (a)-[:rating]->(r:Rating) "
+            + "RETURN ID(a) AS id, musicians, coalesce(sum(r.score), 0) AS ratingSum, count(r) AS ratingCount";
+
+    private final MiningBackend fallback;
+
+    // Indexed albums by id, or by the album itself while it has none.
+    private final Map<Object, Album> albums = Maps.newHashMap();
+    // What each album contributed when it was added, so it can be taken back after the album changes.
+    private final Map<Album, Contribution> contributions = new IdentityHashMap<>();
+    private final Leaderboard<Integer> years = new Leaderboard<>(Rankings.YEARS_ASCENDING, false);
+    private final Leaderboard<Musician> featured = new Leaderboard<>(Rankings.MUSICIANS_BY_NAME, false);
+    private final Leaderboard<Album> sales = new Leaderboard<>(null, true);
+    private final Leaderboard<Album> ratings = new Leaderboard<>(Rankings.ALBUMS_BY_NAME, true);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // The DAO to load the albums from on first use; null once they are loaded.
+    private volatile Neo4jDAO source;
+    // The DAO this backend listens to, until it is closed.
+    private volatile Neo4jDAO listened;
+
+    /**
+     * An empty backend; albums are added with {@link #add(Album)}.
+     */
+    public MaterializedMiningBackend(MiningBackend fallback) {
+        notNull(fallback);
+        this.fallback = fallback;
+    }
+
+    /**
+     * A backend over the albums in the DAO, loaded on first use and kept up to date with the albums
+     * saved and deleted through the DAO afterwards. Falls back to querying the database.
+     */
+    public static MaterializedMiningBackend listeningTo(Neo4jDAO dao) {
+        notNull(dao);
+        MaterializedMiningBackend backend = new MaterializedMiningBackend(new CypherMiningBackend(dao));
+        backend.source = dao;
+        backend.listened = dao;
+        dao.addListener(backend);
+        return backend;
+    }
+
+    /**
+     * Adds the album, replacing what was added for the album with the same id, or for an equal
+     * album if it has no id.
+     */
+    public void add(Album album) {
+        notNull(album);
+        add(album, Contribution.of(album));
+    }
+
+    private void add(Album album, Contribution contribution) {
+        lock.writeLock().lock();
+        try {
+            remove(album);
+
+            albums.put(key(album), album);
+            contributions.put(album, contribution);
+            if (contribution.releaseYear != 0)
+                years.add(contribution.releaseYear, 1);
+            contribution.featuredMusicians.forEach(musician -> featured.add(musician, 1));
+            if (contribution.stats.getUnitsSold() > 0)
+                sales.put(album, contribution.stats.getUnitsSold());
+            if (contribution.stats.getRatingCount() > 0)
+                ratings.put(album, contribution.stats.getAverageRating());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Album album) {
+        notNull(album);
+        lock.writeLock().lock();
+        try {
+            Album added = albums.remove(key(album));
+            if (null != added) {
+                Contribution contribution = contributions.remove(added);
+                if (contribution.releaseYear != 0)
+                    years.add(contribution.releaseYear, -1);
+                contribution.featuredMusicians.forEach(musician -> featured.add(musician, -1));
+                sales.remove(added);
+                ratings.remove(added);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Musician> mostProlificMusicians(int k, int startYear, int endYear) {
+        return fallback.mostProlificMusicians(k, startYear, endYear);
+    }
+
+    @Override
+    public List<Musician> mostTalentedMusicians(int k) {
+        return fallback.mostTalentedMusicians(k);
+    }
+
+    @Override
+    public List<Musician> mostSocialMusicians(int k) {
+        return top(featured, k);
+    }
+
+    @Override
+    public List<Integer> busiestYears(int k) {
+        return top(years, k);
+    }
+
+    @Override
+    public List<Album> bestSellingAlbums(int k) {
+        return top(sales, k);
+    }
+
+    @Override
+    public List<Album> highestRatedAlbums(int k) {
+        return top(ratings, k);
+    }
+
+    public int size() {
+        load();
+        lock.readLock().lock();
+        try {
+            return albums.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void saved(Entity entity) {
+        lock.writeLock().lock();
+        try {
+            // Until the albums are loaded, saves and deletes are picked up by the load.
+            if (null == source && entity instanceof Album) {
+                add((Album) entity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleted(Entity entity) {
+        lock.writeLock().lock();
+        try {
+            if (null != source) {
+                return;
+            }
+            if (entity instanceof Album) {
+                remove((Album) entity);
+            } else if (entity instanceof Musician) {
+                featured.remove((Musician) entity);
+                contributions.values().forEach(contribution -> contribution.featuredMusicians.removeIf(entity::equals));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (null != listened) {
+                listened.removeListener(this);
+                listened = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <T> List<T> top(Leaderboard<T> leaderboard, int k) {
+        load();
+        MiningProfiler.enter(MiningPhase.RANK);
+        lock.readLock().lock();
+        try {
+            return leaderboard.top(k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void load() {
+        if (null != source) {
+            lock.writeLock().lock();
+            try {
+                if (null != source) {
+                    Neo4jDAO dao = source;
+                    source = null;
+                    Map<Long, Musician> musiciansById = AlbumRows.musiciansById(dao);
+                    AlbumRows.forEach(dao, CONTRIBUTIONS, (album, row) -> add(album, Contribution.of(album, row, musiciansById)));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static Object key(Album album) {
+        return null == album.getId() ? album : album.getId();
+    }
+
+    /**
+     * The values of an album when it was added.
+     */
+    private static final class Contribution {
+        private final int releaseYear;
+        private final List<Musician> featuredMusicians;
+        private final AlbumStats stats;
+
+        private Contribution(int releaseYear, List<Musician> featuredMusicians, AlbumStats stats) {
+            this.releaseYear = releaseYear;
+            this.featuredMusicians = featuredMusicians;
+            this.stats = stats;
+        }
+
+        private static Contribution of(Album album) {
+            List<Musician> featuredMusicians = Lists.newArrayList();
+            if (null != album.getFeaturedMusicians()) {
+                for (Musician musician : album.getFeaturedMusicians()) {
+                    if (null != musician)
+                        featuredMusicians.add(musician);
+                }
+            }
+            return new Contribution(album.getReleaseYear(), featuredMusicians, AlbumStats.of(album));
+        }
+
+        private static Contribution of(Album album, Map<String, Object> row, Map<Long, Musician> musiciansById) {
+            long ratingSum = ((Number) row.getOrDefault("ratingSum", 0)).longValue();
+            int ratingCount = ((Number) row.getOrDefault("ratingCount", 0)).intValue();
+            return new Contribution(album.getReleaseYear(), AlbumRows.musicians(row.get("musicians"), musiciansById),
+                    new AlbumStats(album.getId(), album.getReleaseYear(), album.getUnitsSold(), ratingSum, ratingCount));
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.*;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Approximate album similarity by MinHash and locality-sensitive hashing. Every album gets a
+ * signature of bands * rows MinHash values over its features: featured musicians, instruments
+ * played, track composers and three-letter shingles of its name. The fraction of equal values in
+ * two signatures estimates the Jaccard similarity of the two feature sets.
+ * <p>
+ * Signatures are cut into bands of rows values, and albums whose signatures agree on a whole band
+ * share a bucket. Only albums sharing a bucket are compared, so finding the neighbours of every
+ * album takes time near-linear in the number of albums. Two albums of Jaccard similarity s share a
+ * bucket with probability 1 - (1 - s^rows)^bands: more bands find more of the similar albums (recall),
+ * more rows compare fewer dissimilar ones (precision). The similarity at which that probability
+ * crosses one half is about (1 / bands)^(1 / rows).
+ * <p>
+ * Like {@link AlbumSimilarityIndex}, an index created with {@link #listeningTo(Neo4jDAO, int, int, long)}
+ * loads the albums on first use, reading their features as rows, and then follows the albums saved
+ * or deleted through that DAO.
+ */
+public class MinHashAlbumIndex implements DAOListener {
+    public static final int DEFAULT_BANDS = 16;
+    public static final int DEFAULT_ROWS = 4;
+    public static final long DEFAULT_SEED = 1969;
+    static final int SHINGLE_LENGTH = 3;
+
+    private static final HashFunction FEATURE_HASH = Hashing.murmur3_128();
+    private static final String FEATURES = "OPTIONAL MATCH (a)-[:featuredMusicians]->(m:Musician) "
+            + "WITH a, collect(m.name) AS musicians "
+            + "OPTIONAL MATCH (a)-[:instruments]->(:MusicianInstrument)-[:musicalInstruments]->(i:MusicalInstrument) "
+            + "WITH a, musicians, collect(i.name) AS instruments "
+            + "OPTIONAL MATCH (a)-[:tracks]->(t:Track) "
+            + "RETURN ID(a) AS id, musicians, instruments, collect(t.composers) AS composers";
+
+    private final int bands;
+    private final int rows;
+    private final long[] hashSeeds;
+
+    // Indexed albums by id, or by the album itself while it has none.
+    private final Map<Object, Album> albums = Maps.newHashMap();
+    // Signatures and buckets hold albums by identity, as an album changed in place no longer hashes as it did.
+    private final Map<Album, int[]> signatures = new IdentityHashMap<>();
+    private final List<Map<Long, Set<Album>>> buckets;
+
+    // Read lock for queries, write lock for updates and the first load.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // The DAO to load the albums from on first use; null once they are loaded.
+    private volatile Neo4jDAO source;
+
+    public MinHashAlbumIndex() {
+        this(DEFAULT_BANDS, DEFAULT_ROWS, DEFAULT_SEED);
+    }
+
+    /**
+     * @param bands the number of bands; more bands raise recall.
+     * @param rows  the number of signature values per band; more rows raise precision.
+     * @param seed  seeds the MinHash functions, so signatures are reproducible.
+     */
+    public MinHashAlbumIndex(int bands, int rows, long seed) {
+        if (bands < 1) {
+            throw new IllegalArgumentException("Bands cannot be less than 1");
+        }
+        if (rows < 1) {
+            throw new IllegalArgumentException("Rows cannot be less than 1");
+        }
+        this.bands = bands;
+        this.rows = rows;
+
+        Random random = new Random(seed);
+        hashSeeds = new long[bands * rows];
+        for (int i = 0; i < hashSeeds.length; i++) {
+            hashSeeds[i] = random.nextLong();
+        }
+        buckets = new ArrayList<>(bands);
+        for (int band = 0; band < bands; band++) {
+            buckets.add(Maps.newHashMap());
+        }
+    }
+
+    /**
+     * An index over the given albums.
+     */
+    public static MinHashAlbumIndex of(Collection<Album> albums, int bands, int rows, long seed) {
+        notNull(albums);
+        MinHashAlbumIndex index = new MinHashAlbumIndex(bands, rows, seed);
+        albums.forEach(index::add);
+        return index;
+    }
+
+    /**
+     * An index over the albums in the DAO, loaded on first use and kept up to date with the albums
+     * saved and deleted through the DAO afterwards.
+     */
+    public static MinHashAlbumIndex listeningTo(Neo4jDAO dao, int bands, int rows, long seed) {
+        notNull(dao);
+        MinHashAlbumIndex index = new MinHashAlbumIndex(bands, rows, seed);
+        index.source = dao;
+        dao.addListener(index);
+        return index;
+    }
+
+    public int getBands() {
+        return bands;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Adds the album, replacing what was indexed for the album with the same id, or for an equal
+     * album if it has no id.
+     */
+    public void add(Album album) {
+        notNull(album);
+        add(album, signature(album));
+    }
+
+    private void add(Album album, int[] signature) {
+        lock.writeLock().lock();
+        try {
+            remove(album);
+
+            albums.put(key(album), album);
+            signatures.put(album, signature);
+            if (null != signature) {
+                for (int band = 0; band < bands; band++) {
+                    buckets.get(band).computeIfAbsent(bandKey(signature, band), key -> Sets.newIdentityHashSet()).add(album);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Album album) {
+        notNull(album);
+        lock.writeLock().lock();
+        try {
+            Album indexed = albums.remove(key(album));
+            if (null != indexed) {
+                int[] signature = signatures.remove(indexed);
+                if (null != signature) {
+                    for (int band = 0; band < bands; band++) {
+                        Map<Long, Set<Album>> bandBuckets = buckets.get(band);
+                        long bandKey = bandKey(signature, band);
+                        Set<Album> bucket = bandBuckets.get(bandKey);
+                        if (bucket.remove(indexed) && bucket.isEmpty()) {
+                            bandBuckets.remove(bandKey);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Estimates the Jaccard similarity of the features of the two albums.
+     */
+    public double similarity(Album album, Album other) {
+        notNull(album);
+        notNull(other);
+        return similarity(signature(album), signature(other));
+    }
+
+    /**
+     * The k indexed albums sharing a bucket with the album that have the highest estimated
+     * similarity, most similar first, ties in album name order. The album itself is not returned.
+     */
+    public List<Album> mostSimilar(Album album, int k) {
+        notNull(album);
+        load();
+        lock.readLock().lock();
+        try {
+            return mostSimilar(album, signature(album), k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The k most similar albums of every indexed album, as by {@link #mostSimilar(Album, int)}.
+     * Albums without features, or without any album sharing a bucket, map to an empty list.
+     */
+    public Map<Album, List<Album>> neighbours(int k) {
+        load();
+        lock.readLock().lock();
+        try {
+            Map<Album, List<Album>> neighbours = new IdentityHashMap<>(albums.size());
+            signatures.forEach((album, signature) -> neighbours.put(album, mostSimilar(album, signature, k)));
+            return neighbours;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        load();
+        lock.readLock().lock();
+        try {
+            return albums.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void saved(Entity entity) {
+        lock.writeLock().lock();
+        try {
+            // Until the albums are loaded, a saved album is picked up by the load.
+            if (null == source && entity instanceof Album) {
+                add((Album) entity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleted(Entity entity) {
+        lock.writeLock().lock();
+        try {
+            if (null == source && entity instanceof Album) {
+                remove((Album) entity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Album> mostSimilar(Album album, int[] signature, int k) {
+        DoubleTopK<Album> mostSimilar = new DoubleTopK<>(k, Rankings.ALBUMS_BY_NAME);
+        if (null == signature) {
+            return mostSimilar.toList();
+        }
+
+        Set<Album> candidates = Sets.newIdentityHashSet();
+        for (int band = 0; band < bands; band++) {
+            Set<Album> bucket = buckets.get(band).get(bandKey(signature, band));
+            if (null != bucket) {
+                candidates.addAll(bucket);
+            }
+        }
+        for (Album candidate : candidates) {
+            if (candidate != album && !candidate.equals(album)) {
+                mostSimilar.offer(candidate, similarity(signature, signatures.get(candidate)));
+            }
+        }
+        return mostSimilar.toList();
+    }
+
+    private void load() {
+        if (null != source) {
+            lock.writeLock().lock();
+            try {
+                if (null != source) {
+                    Neo4jDAO dao = source;
+                    source = null;
+                    AlbumRows.forEach(dao, FEATURES, (album, row) -> add(album, signature(features(
+                            AlbumRows.values(row.get("musicians")), AlbumRows.values(row.get("instruments")),
+                            AlbumRows.values(row.get("composers")), album.getAlbumName()))));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * The MinHash signature of the features of the album, or null if it has none.
+     */
+    int[] signature(Album album) {
+        return signature(features(album));
+    }
+
+    private int[] signature(Set<String> features) {
+        if (features.isEmpty()) {
+            return null;
+        }
+
+        int[] signature = new int[hashSeeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (String feature : features) {
+            long hash = FEATURE_HASH.hashString(feature, StandardCharsets.UTF_8).asLong();
+            for (int i = 0; i < hashSeeds.length; i++) {
+                signature[i] = Math.min(signature[i], (int) (mix(hash ^ hashSeeds[i]) >>> 33));
+            }
+        }
+        return signature;
+    }
+
+    private static double similarity(int[] signature, int[] other) {
+        if (null == signature || null == other) {
+            return 0;
+        }
+        int equal = 0;
+        for (int i = 0; i < signature.length; i++) {
+            if (signature[i] == other[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / signature.length;
+    }
+
+    private long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            key = key * 0x9E3779B97F4A7C15L + signature[i];
+        }
+        return mix(key);
+    }
+
+    private static Object key(Album album) {
+        return null == album.getId() ? album : album.getId();
+    }
+
+    /**
+     * The features of the album, each prefixed with its kind so e.g. a musician and a composer of
+     * the same name are different features.
+     */
+    static Set<String> features(Album album) {
+        List<Object> musicians = Lists.newArrayList();
+        if (null != album.getFeaturedMusicians()) {
+            for (Musician musician : album.getFeaturedMusicians()) {
+                if (null != musician)
+                    musicians.add(musician.getName());
+            }
+        }
+        List<Object> instruments = Lists.newArrayList();
+        if (null != album.getInstruments()) {
+            for (MusicianInstrument musicianInstrument : album.getInstruments()) {
+                if (null == musicianInstrument || null == musicianInstrument.getMusicalInstruments())
+                    continue;
+                for (MusicalInstrument instrument : musicianInstrument.getMusicalInstruments()) {
+                    if (null != instrument)
+                        instruments.add(instrument.getName());
+                }
+            }
+        }
+        List<Object> composers = Lists.newArrayList();
+        if (null != album.getTracks()) {
+            for (Track track : album.getTracks()) {
+                if (null != track && null != track.getComposers())
+                    composers.addAll(Arrays.asList(track.getComposers()));
+            }
+        }
+        return features(musicians, instruments, composers, album.getAlbumName());
+    }
+
+    /**
+     * The features of an album with the given names of musicians, instruments and composers, null
+     * names skipped, and the given album name.
+     */
+    private static Set<String> features(Collection<?> musicians, Collection<?> instruments, Collection<?> composers,
+                                        String albumName) {
+        Set<String> features = Sets.newHashSet();
+        addFeatures(features, "musician:", musicians);
+        addFeatures(features, "instrument:", instruments);
+        addFeatures(features, "composer:", composers);
+        if (null != albumName) {
+            String name = albumName.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+            if (!name.isEmpty() && name.length() <= SHINGLE_LENGTH) {
+                features.add("name:" + name);
+            }
+            for (int i = 0; i + SHINGLE_LENGTH <= name.length(); i++) {
+                features.add("name:" + name.substring(i, i + SHINGLE_LENGTH));
+            }
+        }
+        return features;
+    }
+
+    private static void addFeatures(Set<String> features, String kind, Collection<?> names) {
+        for (Object name : names) {
+            if (null != name)
+                features.add(kind + name);
+        }
+    }
+
+    /**
+     * The SplitMix64 finalizer, so every bit of the result depends on every bit of the input.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,152 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.AlbumStats;
+import allaboutecm.dataaccess.CachingDAO;
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.MetricsDAO;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
+import allaboutecm.model.Musician;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Computes the aggregations behind the miner rankings. The miners validate their arguments and
+ * delegate here, so every backend can assume k is at least 1.
+ */
+public interface MiningBackend extends AutoCloseable {
+    /**
+     * @see ECMMusicianMiner#mostProlificMusicians(int, int, int)
+     */
+    List<Musician> mostProlificMusicians(int k, int startYear, int endYear);
+
+    /**
+     * @see ECMMusicianMiner#mostTalentedMusicians(int)
+     */
+    List<Musician> mostTalentedMusicians(int k);
+
+    /**
+     * @see ECMMusicianMiner#mostSocialMusicians(int)
+     */
+    List<Musician> mostSocialMusicians(int k);
+
+    /**
+     * @see ECMMusicianMiner#busiestYears(int)
+     */
+    List<Integer> busiestYears(int k);
+
+    /**
+     * @see ECMAlbumMiner#bestSellingAlbums(int)
+     */
+    List<Album> bestSellingAlbums(int k);
+
+    /**
+     * @see ECMAlbumMiner#highestRatedAlbums(int)
+     */
+    List<Album> highestRatedAlbums(int k);
+
+    /**
+     * Stops the backend following the writes through its DAO. Backends that do not listen to a DAO
+     * have nothing to stop.
+     */
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Returns the backend the miners use for the given DAO: queries run inside the database for a
+     * Neo4jDAO and in memory over dao.loadAll otherwise.
+     */
+    static MiningBackend forDao(DAO dao) {
+        Neo4jDAO neo4jDAO = neo4jDAOOf(dao);
+        if (null != neo4jDAO) {
+            return new CypherMiningBackend(neo4jDAO);
+        }
+        return new InMemoryMiningBackend(dao);
+    }
+
+    /**
+     * Returns a backend keeping the album rankings up to date with the writes through the DAO, see
+     * {@link MaterializedMiningBackend}, for a Neo4jDAO, and {@link #forDao(DAO)} otherwise. Shared
+     * by the miners over the same DAO, it answers those rankings without scanning the catalogue.
+     * Close it once done with, so the DAO drops it.
+     */
+    static MiningBackend materializedForDao(DAO dao) {
+        Neo4jDAO neo4jDAO = neo4jDAOOf(dao);
+        if (null != neo4jDAO) {
+            return MaterializedMiningBackend.listeningTo(neo4jDAO);
+        }
+        return forDao(dao);
+    }
+
+    /**
+     * Returns {@link #forDao(DAO)} behind a result cache invalidated by the writes through the DAO,
+     * see {@link CachingMiningBackend}, for a Neo4jDAO. Any other DAO cannot tell about its writes,
+     * so its backend is returned uncached. Close it once done with, so the DAO drops it.
+     */
+    static MiningBackend cachedForDao(DAO dao) {
+        Neo4jDAO neo4jDAO = neo4jDAOOf(dao);
+        if (null != neo4jDAO) {
+            return CachingMiningBackend.listeningTo(neo4jDAO, forDao(dao));
+        }
+        return forDao(dao);
+    }
+
+    /**
+     * Returns the Neo4jDAO the DAO reads from and writes to, looking through a {@link CachingDAO}
+     * or {@link MetricsDAO}, or null if there is none. Queries and write notifications can go to it directly.
+     */
+    static Neo4jDAO neo4jDAOOf(DAO dao) {
+        if (dao instanceof CachingDAO) {
+            return neo4jDAOOf(((CachingDAO) dao).getDelegate());
+        }
+        if (dao instanceof MetricsDAO) {
+            return neo4jDAOOf(((MetricsDAO) dao).getDelegate());
+        }
+        return dao instanceof Neo4jDAO ? (Neo4jDAO) dao : null;
+    }
+
+    /**
+     * Passes every entity of the class to the action. Reads a page at a time from a Neo4jDAO, so a
+     * scan holds one page rather than every entity, and goes over dao.loadAll for any other DAO.
+     * Reading counts as {@link MiningPhase#FETCH} and the action as {@link MiningPhase#COMPUTE}.
+     */
+    static <T extends Entity> void forEach(DAO dao, Class<T> clazz, Consumer<? super T> action) {
+        Neo4jDAO neo4jDAO = neo4jDAOOf(dao);
+        MiningProfiler.enter(MiningPhase.FETCH);
+        if (null != neo4jDAO) {
+            neo4jDAO.forEachPage(clazz, Neo4jDAO.DEFAULT_PAGE_SIZE, page -> {
+                MiningProfiler.enter(MiningPhase.COMPUTE);
+                page.forEach(action);
+                MiningProfiler.enter(MiningPhase.FETCH);
+            });
+        } else {
+            Collection<T> entities = dao.loadAll(clazz);
+            MiningProfiler.enter(MiningPhase.COMPUTE);
+            entities.forEach(action);
+        }
+        MiningProfiler.enter(MiningPhase.COMPUTE);
+    }
+
+    /**
+     * Passes the stats of every album to the action. Reads them as rows from a Neo4jDAO, without
+     * mapping any album, and computes them from dao.loadAll for any other DAO.
+     * Reading counts as {@link MiningPhase#FETCH}, and so does the action for a Neo4jDAO, which passes
+     * each row on as it reads it.
+     */
+    static void forEachAlbumStats(DAO dao, Consumer<? super AlbumStats> action) {
+        Neo4jDAO neo4jDAO = neo4jDAOOf(dao);
+        MiningProfiler.enter(MiningPhase.FETCH);
+        if (null != neo4jDAO) {
+            neo4jDAO.forEachAlbumStats(action);
+        } else {
+            Collection<Album> albums = dao.loadAll(Album.class);
+            MiningProfiler.enter(MiningPhase.COMPUTE);
+            albums.forEach(album -> action.accept(AlbumStats.of(album)));
+        }
+        MiningProfiler.enter(MiningPhase.COMPUTE);
+    }
+}
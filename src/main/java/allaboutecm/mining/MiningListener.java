@@ -0,0 +1,32 @@
+package allaboutecm.mining;
+
+import allaboutecm.metrics.MetricsRegistry;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Notified after every query a miner it is added to answers, on the thread that ran the query.
+ * Listeners should return quickly, as the query returns only after they do.
+ */
+public interface MiningListener {
+    void queried(MiningProfile profile);
+
+    /**
+     * A listener recording every query in the registry, as the operation "mining.query" and each
+     * phase it spent time in as "mining.query.phase", e.g. "mining.busiestYears.fetch", with the
+     * rows the query returned.
+     */
+    static MiningListener recordingTo(MetricsRegistry metrics) {
+        notNull(metrics);
+        return profile -> {
+            String operation = "mining." + profile.getQuery();
+            metrics.record(operation, null, profile.getElapsedNanos(), profile.getRows(), profile.isFailed());
+            for (MiningPhase phase : MiningPhase.values()) {
+                long nanos = profile.getNanos(phase);
+                if (nanos > 0) {
+                    metrics.record(operation + "." + phase.name().toLowerCase(), null, nanos, 0, false);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package allaboutecm.mining;
+
+/**
+ * The phases a miner query spends its time in, as recorded in a {@link MiningProfile}.
+ */
+public enum MiningPhase {
+    /**
+     * Reading entities or rows from the DAO, including queries the database ranks itself.
+     */
+    FETCH,
+    /**
+     * Counting and scoring what was read.
+     */
+    COMPUTE,
+    /**
+     * Picking the top k of the scores.
+     */
+    RANK
+}
@@ -0,0 +1,72 @@
+package allaboutecm.mining;
+
+/**
+ * How one miner query spent its time: how long it took in all and in each {@link MiningPhase},
+ * how many bytes the thread running it allocated, and how many rows it returned.
+ */
+public final class MiningProfile {
+    /**
+     * The allocated bytes of a query run where the JVM cannot measure them.
+     */
+    public static final long UNKNOWN = -1;
+
+    private final String query;
+    private final long elapsedNanos;
+    private final long[] phaseNanos;
+    private final long allocatedBytes;
+    private final int rows;
+    private final boolean failed;
+
+    MiningProfile(String query, long elapsedNanos, long[] phaseNanos, long allocatedBytes, int rows, boolean failed) {
+        this.query = query;
+        this.elapsedNanos = elapsedNanos;
+        this.phaseNanos = phaseNanos.clone();
+        this.allocatedBytes = allocatedBytes;
+        this.rows = rows;
+        this.failed = failed;
+    }
+
+    /**
+     * Returns the name of the miner method, e.g. "mostSimilarAlbums".
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the time spent in the phase. The phases add up to the elapsed time.
+     */
+    public long getNanos(MiningPhase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Returns the bytes allocated by the thread running the query, or {@link #UNKNOWN}. Work done
+     * for the query on other threads is not counted.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Returns the number of albums, musicians or years returned, or 0 if the query failed.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %.3fms (fetch %.3fms, compute %.3fms, rank %.3fms), %d bytes, %d rows%s", query,
+                elapsedNanos / 1e6, getNanos(MiningPhase.FETCH) / 1e6, getNanos(MiningPhase.COMPUTE) / 1e6,
+                getNanos(MiningPhase.RANK) / 1e6, allocatedBytes, rows, failed ? ", failed" : "");
+    }
+}
@@ -0,0 +1,133 @@
+package allaboutecm.mining;
+
+import com.google.common.base.Ticker;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Times the queries of a miner for its {@link MiningListener}s. While a query runs, the backends
+ * and indexes it calls mark the phase they enter with {@link #enter(MiningPhase)}; the time up to
+ * the next mark is counted to that phase. A query starts in {@link MiningPhase#COMPUTE}.
+ * <p>
+ * The phase of a query is held per thread, so marks cost a thread-local read when nothing is
+ * profiled, and queries without listeners are not profiled at all. A query run while another is
+ * profiled on the same thread, e.g. by a backend calling a miner, counts towards the outer one.
+ */
+final class MiningProfiler {
+    private static final ThreadLocal<Active> ACTIVE = new ThreadLocal<>();
+    // Null where the JVM cannot tell the bytes a thread allocated.
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationsBean();
+
+    private final List<MiningListener> listeners = new CopyOnWriteArrayList<>();
+    private final Ticker ticker;
+
+    MiningProfiler() {
+        this(Ticker.systemTicker());
+    }
+
+    MiningProfiler(Ticker ticker) {
+        notNull(ticker);
+        this.ticker = ticker;
+    }
+
+    void addListener(MiningListener listener) {
+        notNull(listener);
+        listeners.add(listener);
+    }
+
+    void removeListener(MiningListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Runs the query, and passes its profile to the listeners once it has returned or thrown.
+     */
+    <T> T profile(String query, Supplier<T> call) {
+        if (listeners.isEmpty() || null != ACTIVE.get()) {
+            return call.get();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = allocatedBytes(threadId);
+        Active active = new Active(ticker);
+        ACTIVE.set(active);
+        T result = null;
+        boolean failed = true;
+        try {
+            result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            ACTIVE.remove();
+            long end = ticker.read();
+            active.phaseNanos[active.phase.ordinal()] += end - active.phaseStart;
+            long allocatedAfter = allocatedBytes(threadId);
+            long allocated = allocatedBefore == MiningProfile.UNKNOWN || allocatedAfter == MiningProfile.UNKNOWN
+                    ? MiningProfile.UNKNOWN : allocatedAfter - allocatedBefore;
+            MiningProfile profile = new MiningProfile(query, end - active.start, active.phaseNanos, allocated,
+                    rowsOf(result), failed);
+            listeners.forEach(listener -> listener.queried(profile));
+        }
+    }
+
+    /**
+     * Marks the query running on this thread, if it is profiled, as being in the phase from now on.
+     */
+    static void enter(MiningPhase phase) {
+        Active active = ACTIVE.get();
+        if (null == active || active.phase == phase) {
+            return;
+        }
+        long now = active.ticker.read();
+        active.phaseNanos[active.phase.ordinal()] += now - active.phaseStart;
+        active.phase = phase;
+        active.phaseStart = now;
+    }
+
+    private static int rowsOf(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        }
+        return 0;
+    }
+
+    private static long allocatedBytes(long threadId) {
+        return null == ALLOCATIONS ? MiningProfile.UNKNOWN : ALLOCATIONS.getThreadAllocatedBytes(threadId);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationsBean() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+            if (allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled()) {
+                return allocations;
+            }
+        }
+        return null;
+    }
+
+    private static final class Active {
+        private final Ticker ticker;
+        private final long start;
+        private final long[] phaseNanos = new long[MiningPhase.values().length];
+        private MiningPhase phase = MiningPhase.COMPUTE;
+        private long phaseStart;
+
+        private Active(Ticker ticker) {
+            this.ticker = ticker;
+            this.start = ticker.read();
+            this.phaseStart = start;
+        }
+    }
+}
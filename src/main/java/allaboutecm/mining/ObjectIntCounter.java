@@ -0,0 +1,177 @@
+package allaboutecm.mining;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Counts per key in an open-addressing table with int values, so updating a count is a single
+ * probe sequence and never boxes. Keys are compared with equals and hashCode, as in a HashMap,
+ * and null is a valid key. As with {@link IntIntCounter}, add only counts up; put sets a count
+ * outright.
+ */
+public class ObjectIntCounter<K> {
+    private static final Object NULL_KEY = new Object();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] keys;
+    private int[] counts;
+    private int size;
+
+    public ObjectIntCounter() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param expectedKeys the number of keys the counter can hold before it has to grow.
+     */
+    public ObjectIntCounter(int expectedKeys) {
+        if (expectedKeys < 0) {
+            throw new IllegalArgumentException("Expected keys cannot be negative");
+        }
+        int capacity = Integer.highestOneBit(Math.max(INITIAL_CAPACITY, expectedKeys) * 2 - 1) << 1;
+        keys = new Object[capacity];
+        counts = new int[capacity];
+    }
+
+    public void increment(K key) {
+        add(key, 1);
+    }
+
+    /**
+     * Adds delta to the count of the key.
+     */
+    public void add(K key, int delta) {
+        if (delta < 1) {
+            throw new IllegalArgumentException("Delta cannot be less than 1");
+        }
+        int slot = slotOf(mask(key));
+        counts[slot] += delta;
+    }
+
+    /**
+     * Sets the count of the key, replacing any earlier count.
+     */
+    public void put(K key, int count) {
+        int slot = slotOf(mask(key));
+        counts[slot] = count;
+    }
+
+    /**
+     * Returns the count of the key, or 0 if it was never counted.
+     */
+    public int get(K key) {
+        int slot = find(mask(key));
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    public boolean containsKey(K key) {
+        return find(mask(key)) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjIntConsumer<? super K> action) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (null != keys[slot]) {
+                action.accept((K) unmask(keys[slot]), counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * The k keys with the highest counts, best first, ties ordered by tieBreak.
+     */
+    public List<K> top(int k, Comparator<? super K> tieBreak) {
+        IntTopK<K> topK = new IntTopK<>(k, tieBreak);
+        forEach(topK::offer);
+        return topK.toList();
+    }
+
+    private int find(Object masked) {
+        for (int slot = indexOf(masked); ; slot = next(slot)) {
+            Object current = keys[slot];
+            if (null == current) {
+                return -1;
+            }
+            if (current.equals(masked)) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Returns the slot of the key, claiming an empty one if the key is new.
+     */
+    private int slotOf(Object masked) {
+        int slot = indexOf(masked);
+        while (true) {
+            Object current = keys[slot];
+            if (null == current) {
+                break;
+            }
+            if (current.equals(masked)) {
+                return slot;
+            }
+            slot = next(slot);
+        }
+
+        // Keep the table at most half full, so probe sequences stay short.
+        if (size + 1 > keys.length >> 1) {
+            grow();
+            return slotOf(masked);
+        }
+        keys[slot] = masked;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        Object[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new Object[oldKeys.length << 1];
+        counts = new int[oldKeys.length << 1];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (null != oldKeys[i]) {
+                int slot = indexOf(oldKeys[i]);
+                while (null != keys[slot]) {
+                    slot = next(slot);
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private int indexOf(Object masked) {
+        return mix(masked.hashCode()) & (keys.length - 1);
+    }
+
+    private int next(int slot) {
+        return (slot + 1) & (keys.length - 1);
+    }
+
+    /**
+     * Spreads the hash code over the table, as hash codes of small values often differ only in
+     * their low bits.
+     */
+    static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static Object mask(Object key) {
+        return null == key ? NULL_KEY : key;
+    }
+
+    private static Object unmask(Object key) {
+        return key == NULL_KEY ? null : key;
+    }
+}
@@ -0,0 +1,30 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+
+import java.util.Comparator;
+
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsLast;
+
+/**
+ * The tie-breaks the miners rank with, so that the in-memory and the database rankings agree on
+ * equal scores: musicians and albums by name and years in ascending order.
+ */
+final class Rankings {
+    static final Comparator<Musician> MUSICIANS_BY_NAME = Comparator.comparing(Musician::getName, nullsLast(naturalOrder()));
+    static final Comparator<Album> ALBUMS_BY_NAME = Comparator.comparing(Album::getAlbumName, nullsLast(naturalOrder()));
+    static final Comparator<Integer> YEARS_ASCENDING = naturalOrder();
+
+    /**
+     * Orders the numbers of a {@link CatalogueSnapshot} by the names at those numbers, as the
+     * comparators above order the entities.
+     */
+    static Comparator<Integer> byName(String[] names) {
+        return Comparator.comparing(number -> names[number], nullsLast(naturalOrder()));
+    }
+
+    private Rankings() {
+    }
+}
@@ -0,0 +1,203 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Computes the rankings over a {@link CatalogueSnapshot} of the DAO, scanning its int columns
+ * instead of the entities. The snapshot is read on first use and read again by the first query
+ * after it is older than the refresh period; queries running meanwhile use the snapshot before,
+ * so only one query pays for the read. Rankings may therefore be up to a period behind the
+ * catalogue. Ties are broken as by the other backends: musicians and rated albums by name, years
+ * ascending, and albums with the same sales in the order they were read.
+ */
+public class SnapshotMiningBackend implements MiningBackend {
+    public static final long DEFAULT_REFRESH_SECONDS = 60;
+
+    private final DAO dao;
+    private final long refreshAfterNanos;
+    private final Ticker ticker;
+    private final ReentrantLock reading = new ReentrantLock();
+    private volatile CatalogueSnapshot snapshot;
+    private volatile long readAtNanos;
+
+    public SnapshotMiningBackend(DAO dao) {
+        this(dao, DEFAULT_REFRESH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param refreshAfter how old the snapshot may get before the next query reads it again.
+     */
+    public SnapshotMiningBackend(DAO dao, long refreshAfter, TimeUnit unit) {
+        this(dao, refreshAfter, unit, Ticker.systemTicker());
+    }
+
+    SnapshotMiningBackend(DAO dao, long refreshAfter, TimeUnit unit, Ticker ticker) {
+        notNull(dao);
+        notNull(unit);
+        notNull(ticker);
+        if (refreshAfter < 1) {
+            throw new IllegalArgumentException("Refresh after cannot be less than 1");
+        }
+        this.dao = dao;
+        this.refreshAfterNanos = unit.toNanos(refreshAfter);
+        this.ticker = ticker;
+    }
+
+    @Override
+    public List<Musician> mostProlificMusicians(int k, int startYear, int endYear) {
+        // No album is in the period when both years are 0, as in the other backends.
+        if (startYear == 0 && endYear == 0) {
+            return Lists.newArrayList();
+        }
+        CatalogueSnapshot snapshot = getSnapshot();
+        IntTopK<Integer> mostProlific = new IntTopK<>(k, Rankings.byName(snapshot.musicianNames));
+        for (int m = 0; m < snapshot.musicianCount; m++) {
+            int albums = 0;
+            for (int i = snapshot.albumYearOffsets[m]; i < snapshot.albumYearOffsets[m + 1]; i++) {
+                int year = snapshot.albumYears[i];
+                if ((startYear <= 0 || year >= startYear) && (endYear <= 0 || year <= endYear))
+                    albums++;
+            }
+            if (albums > 0)
+                mostProlific.offer(m, albums);
+        }
+        return resolve(mostProlific, snapshot::musician);
+    }
+
+    @Override
+    public List<Musician> mostTalentedMusicians(int k) {
+        CatalogueSnapshot snapshot = getSnapshot();
+        IntTopK<Integer> mostTalented = new IntTopK<>(k, Rankings.byName(snapshot.musicianNames));
+        for (int m = 0; m < snapshot.musicianCount; m++) {
+            if (snapshot.instrumentCounts[m] > 0)
+                mostTalented.offer(m, snapshot.instrumentCounts[m]);
+        }
+        return resolve(mostTalented, snapshot::musician);
+    }
+
+    @Override
+    public List<Musician> mostSocialMusicians(int k) {
+        CatalogueSnapshot snapshot = getSnapshot();
+        int[] albums = new int[snapshot.musicianCount];
+        for (int musician : snapshot.featuredMusicians) {
+            albums[musician]++;
+        }
+        IntTopK<Integer> mostSocial = new IntTopK<>(k, Rankings.byName(snapshot.musicianNames));
+        for (int m = 0; m < albums.length; m++) {
+            if (albums[m] > 0)
+                mostSocial.offer(m, albums[m]);
+        }
+        return resolve(mostSocial, snapshot::musician);
+    }
+
+    @Override
+    public List<Integer> busiestYears(int k) {
+        CatalogueSnapshot snapshot = getSnapshot();
+        YearCounter years = new YearCounter();
+        for (int year : snapshot.releaseYears) {
+            if (year != 0)
+                years.increment(year);
+        }
+        MiningProfiler.enter(MiningPhase.RANK);
+        return years.top(k);
+    }
+
+    @Override
+    public List<Album> bestSellingAlbums(int k) {
+        CatalogueSnapshot snapshot = getSnapshot();
+        // No tie-break, so albums with the same sales are in the order offered.
+        IntTopK<Integer> bestSelling = new IntTopK<>(k);
+        for (int a = 0; a < snapshot.albumCount; a++) {
+            if (snapshot.unitsSold[a] > 0)
+                bestSelling.offer(a, snapshot.unitsSold[a]);
+        }
+        return resolve(bestSelling, snapshot::album);
+    }
+
+    @Override
+    public List<Album> highestRatedAlbums(int k) {
+        CatalogueSnapshot snapshot = getSnapshot();
+        DoubleTopK<Integer> highestRated = new DoubleTopK<>(k, Rankings.byName(snapshot.albumNames));
+        for (int a = 0; a < snapshot.albumCount; a++) {
+            int from = snapshot.ratingOffsets[a];
+            int to = snapshot.ratingOffsets[a + 1];
+            if (from == to)
+                continue;
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += snapshot.ratingScores[i];
+            }
+            highestRated.offer(a, (double) sum / (to - from));
+        }
+        return resolve(highestRated, snapshot::album);
+    }
+
+    /**
+     * Returns the snapshot the rankings are computed over, reading it first if there is none or
+     * it is older than the refresh period.
+     */
+    public CatalogueSnapshot getSnapshot() {
+        CatalogueSnapshot current = snapshot;
+        if (null == current) {
+            reading.lock();
+            try {
+                if (null == snapshot) {
+                    read();
+                }
+                return snapshot;
+            } finally {
+                reading.unlock();
+            }
+        }
+        // Another query already reading a new snapshot leaves this one to use the current.
+        if (ticker.read() - readAtNanos >= refreshAfterNanos && reading.tryLock()) {
+            try {
+                if (ticker.read() - readAtNanos >= refreshAfterNanos) {
+                    read();
+                }
+                return snapshot;
+            } finally {
+                reading.unlock();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Reads the snapshot again now, so the next queries see every write made so far.
+     */
+    public void refresh() {
+        reading.lock();
+        try {
+            read();
+        } finally {
+            reading.unlock();
+        }
+    }
+
+    private void read() {
+        long now = ticker.read();
+        snapshot = CatalogueSnapshot.of(dao);
+        readAtNanos = now;
+    }
+
+    private static <T> List<T> resolve(AbstractTopK<Integer> ranked, IntFunction<T> entities) {
+        MiningProfiler.enter(MiningPhase.RANK);
+        List<Integer> numbers = ranked.toList();
+        MiningProfiler.enter(MiningPhase.FETCH);
+        List<T> result = Lists.newArrayListWithCapacity(numbers.size());
+        numbers.forEach(number -> result.add(entities.apply(number)));
+        return result;
+    }
+}
@@ -0,0 +1,52 @@
+package allaboutecm.mining;
+
+import java.util.Comparator;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+/**
+ * Selects the k highest ranked items under a comparator, for rankings whose score is the item
+ * itself (e.g. albums by unitsSold). Use {@link IntTopK} or {@link DoubleTopK} when the score is
+ * computed separately.
+ */
+public class TopK<T> extends AbstractTopK<T> {
+    private final Comparator<? super T> order;
+
+    /**
+     * @param order ranks the items, the highest ranked first (i.e. a negative result means the first
+     *              item ranks above the second); items it cannot tell apart keep the order they are
+     *              offered in.
+     */
+    public TopK(int k, Comparator<? super T> order) {
+        super(k, null);
+        notNull(order);
+        this.order = order;
+    }
+
+    /**
+     * Offers an item. Returns whether it is among the k best so far.
+     */
+    public boolean offer(T item) {
+        if (isFull() && order.compare(item, itemAt(0)) >= 0) {
+            skip();
+            return false;
+        }
+        restore(insert(item));
+        return true;
+    }
+
+    @Override
+    int compareScores(int a, int b) {
+        return order.compare(itemAt(b), itemAt(a));
+    }
+
+    @Override
+    void swapScores(int a, int b) {
+        // The item is its own score.
+    }
+
+    @Override
+    void growScores(int capacity) {
+        // The item is its own score.
+    }
+}
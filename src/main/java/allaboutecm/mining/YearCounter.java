@@ -0,0 +1,63 @@
+package allaboutecm.mining;
+
+import java.time.Year;
+import java.util.List;
+
+/**
+ * Counts per release year. Years from 1969, the year ECM released its first album, to the current
+ * year are counted in a dense array indexed by year; any other year falls back to an
+ * {@link IntIntCounter}, as an album constructed with such a year is still valid.
+ */
+public class YearCounter {
+    static final int FIRST_YEAR = 1969;
+
+    private final int[] counts;
+    private IntIntCounter otherYears;
+
+    public YearCounter() {
+        this(Year.now().getValue());
+    }
+
+    YearCounter(int lastYear) {
+        counts = new int[Math.max(0, lastYear - FIRST_YEAR + 1)];
+    }
+
+    public void increment(int year) {
+        int index = year - FIRST_YEAR;
+        if (index >= 0 && index < counts.length) {
+            counts[index]++;
+        } else {
+            if (null == otherYears) {
+                otherYears = new IntIntCounter();
+            }
+            otherYears.increment(year);
+        }
+    }
+
+    /**
+     * Returns the number of times the year was counted.
+     */
+    public int get(int year) {
+        int index = year - FIRST_YEAR;
+        if (index >= 0 && index < counts.length) {
+            return counts[index];
+        }
+        return null == otherYears ? 0 : otherYears.get(year);
+    }
+
+    /**
+     * The k years counted most often, best first, earlier years first on ties.
+     */
+    public List<Integer> top(int k) {
+        IntIntTopK topK = new IntIntTopK(k, Integer::compare);
+        for (int index = 0; index < counts.length; index++) {
+            if (counts[index] > 0) {
+                topK.offer(FIRST_YEAR + index, counts[index]);
+            }
+        }
+        if (null != otherYears) {
+            otherYears.forEach(topK::offer);
+        }
+        return topK.toList();
+    }
+}
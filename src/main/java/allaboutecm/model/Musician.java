@@ -48,6 +48,9 @@ public class Musician extends Entity {
     private Set<Concert> concerts;
 
 
+    public Musician(){
+    }
+
     public Musician(String name) {
         notNull(name);
         notBlank(name);
@@ -0,0 +1,224 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.Album;
+import allaboutecm.model.Entity;
+import allaboutecm.model.MusicalInstrument;
+import allaboutecm.model.Musician;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.neo4j.driver.v1.exceptions.NoSuchRecordException;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingDAOTest {
+    private static Session session;
+    private static SessionFactory sessionFactory;
+    private static Neo4jDAO neo4jDAO;
+
+    private FakeTicker ticker;
+    private CachingDAO dao;
+
+    @BeforeAll
+    public static void setUpAll() {
+        // Impermanent embedded store
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        session = sessionFactory.openSession();
+        neo4jDAO = new Neo4jDAO(session);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        ticker = new FakeTicker();
+        dao = new CachingDAO(neo4jDAO, 2, 10, TimeUnit.MINUTES, ticker);
+    }
+
+    @AfterEach
+    public void tearDownEach() {
+        session.purgeDatabase();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        session.purgeDatabase();
+        session.clear();
+        sessionFactory.close();
+    }
+
+    @Test
+    public void shouldThrowNullPointerExceptionIfDelegateIsNull() {
+        assertThrows(NullPointerException.class, () -> new CachingDAO(null));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {-1, 0})
+    public void shouldThrowIllegalArgumentExceptionIfSizeOrExpiryLessThanOne(long arg) {
+        assertThrows(IllegalArgumentException.class, () -> new CachingDAO(neo4jDAO, arg, 10, TimeUnit.MINUTES));
+        assertThrows(IllegalArgumentException.class, () -> new CachingDAO(neo4jDAO, 10, arg, TimeUnit.MINUTES));
+    }
+
+    @Test
+    @DisplayName("Repeated loads should be served from the cache")
+    public void repeatedLoadsShouldHitTheCache() {
+        Album album = dao.createOrUpdate(new Album(1975, "ECM 1064/65", "The Köln Concert"));
+
+        Album loaded = dao.load(Album.class, album.getId());
+        assertSame(loaded, dao.load(Album.class, album.getId()));
+        assertSame(loaded, dao.load(Album.class, album.getId()));
+
+        assertEquals(1, dao.getStats(Album.class).missCount());
+        assertEquals(2, dao.getStats(Album.class).hitCount());
+        assertEquals(0, dao.getStats(Musician.class).requestCount());
+    }
+
+    @Test
+    public void entitiesOfDifferentClassesShouldBeCachedSeparately() {
+        Album album = dao.createOrUpdate(new Album(1975, "ECM 1064/65", "The Köln Concert"));
+        Musician musician = dao.createOrUpdate(new Musician("Keith Jarrett"));
+
+        dao.load(Album.class, album.getId());
+        dao.load(Musician.class, musician.getId());
+        dao.load(Musician.class, musician.getId());
+
+        assertEquals(1, dao.size(Album.class));
+        assertEquals(1, dao.size(Musician.class));
+        assertEquals(1, dao.getStats().hitCount());
+        assertEquals(2, dao.getStats().missCount());
+    }
+
+    @Test
+    @DisplayName("Saving or deleting an entity should invalidate its cached copy")
+    public void writesShouldInvalidateTheEntity() {
+        Album album = dao.createOrUpdate(new Album(1975, "ECM 1064/65", "The Köln Concert"));
+        dao.load(Album.class, album.getId());
+
+        album.setUnitsSold(1000);
+        dao.createOrUpdate(album);
+        assertEquals(0, dao.size(Album.class));
+        assertEquals(1000, dao.load(Album.class, album.getId()).getUnitsSold());
+
+        dao.createOrUpdateAll(Lists.newArrayList(album));
+        assertEquals(0, dao.size(Album.class));
+
+        dao.load(Album.class, album.getId());
+        dao.delete(album);
+        assertEquals(0, dao.size(Album.class));
+        assertThrows(NoSuchRecordException.class, () -> dao.load(Album.class, album.getId()));
+    }
+
+    @Test
+    @DisplayName("Saving an entity should invalidate the cached entities it is embedded in, and no others")
+    public void writesShouldInvalidateRelatedEntities() {
+        Musician musician = new Musician("Keith Jarrett");
+        Album album = new Album(1975, "ECM 1064/65", "The Köln Concert");
+        album.setFeaturedMusicians(Lists.newArrayList(musician));
+        dao.createOrUpdate(album);
+        Album other = dao.createOrUpdate(new Album(1974, "ECM 1050", "Belonging"));
+        dao.load(Album.class, album.getId());
+        dao.load(Album.class, other.getId());
+        dao.load(Musician.class, musician.getId());
+
+        dao.createOrUpdate(new MusicalInstrument("Piano"));
+        assertEquals(2, dao.size(Album.class));
+        assertEquals(1, dao.size(Musician.class));
+
+        musician.setName("Keith Jarrett Trio");
+        dao.createOrUpdate(musician);
+        assertEquals(1, dao.size(Album.class));
+        assertEquals(0, dao.size(Musician.class));
+        assertSame(dao.load(Album.class, other.getId()), dao.load(Album.class, other.getId()));
+
+        dao.load(Album.class, album.getId());
+        dao.load(Musician.class, musician.getId());
+        album.setUnitsSold(1000);
+        dao.createOrUpdate(album);
+        assertEquals(1, dao.size(Album.class));
+        assertEquals(0, dao.size(Musician.class));
+    }
+
+    @Test
+    @DisplayName("An entity loaded while it is being saved should not be cached")
+    public void entitiesLoadedDuringAWriteShouldNotBeCached() {
+        Album album = dao.createOrUpdate(new Album(1975, "ECM 1064/65", "The Köln Concert"));
+        // Saves the album through the caching DAO after the delegate has read it, before it is cached.
+        DAO writingDuringLoad = new Neo4jDAO(session) {
+            @Override
+            public <T extends Entity> T load(Class<T> clazz, Long id) {
+                T loaded = super.load(clazz, id);
+                dao.createOrUpdate(album);
+                return loaded;
+            }
+        };
+        dao = new CachingDAO(writingDuringLoad, 2, 10, TimeUnit.MINUTES, ticker);
+
+        dao.load(Album.class, album.getId());
+
+        assertEquals(0, dao.size(Album.class));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntitiesShouldBeEvicted() {
+        Album album1 = dao.createOrUpdate(new Album(1975, "ECM 1064/65", "The Köln Concert"));
+        Album album2 = dao.createOrUpdate(new Album(1974, "ECM 1050", "Belonging"));
+        Album album3 = dao.createOrUpdate(new Album(1990, "ECM 1420/21", "Tribute"));
+
+        dao.load(Album.class, album1.getId());
+        dao.load(Album.class, album2.getId());
+        dao.load(Album.class, album1.getId());
+        dao.load(Album.class, album3.getId());
+
+        assertEquals(1, dao.getStats(Album.class).evictionCount());
+        assertEquals(2, dao.size(Album.class));
+        dao.load(Album.class, album1.getId());
+        assertEquals(2, dao.getStats(Album.class).hitCount());
+    }
+
+    @Test
+    public void entriesShouldExpireAfterTheConfiguredTime() {
+        Album album = dao.createOrUpdate(new Album(1975, "ECM 1064/65", "The Köln Concert"));
+        dao.load(Album.class, album.getId());
+
+        ticker.advance(9, TimeUnit.MINUTES);
+        dao.load(Album.class, album.getId());
+        ticker.advance(2, TimeUnit.MINUTES);
+        dao.load(Album.class, album.getId());
+
+        assertEquals(1, dao.getStats(Album.class).hitCount());
+        assertEquals(2, dao.getStats(Album.class).missCount());
+    }
+
+    @Test
+    public void missingEntitiesShouldNotBeCached() {
+        assertThrows(NoSuchRecordException.class, () -> dao.load(Album.class, 12345L));
+        assertEquals(0, dao.size(Album.class));
+    }
+
+    @Test
+    public void loadAllShouldGoToTheDelegate() {
+        dao.createOrUpdate(new Album(1975, "ECM 1064/65", "The Köln Concert"));
+        assertEquals(1, dao.loadAll(Album.class).size());
+        assertEquals(0, dao.getStats().requestCount());
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package allaboutecm.dataaccess;
+
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.metrics.InProcessMetricsRegistry;
+import allaboutecm.metrics.MetricsRegistry;
+import allaboutecm.metrics.OperationStats;
+import allaboutecm.mining.MiningBackend;
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.*;
+import org.neo4j.driver.v1.exceptions.NoSuchRecordException;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsDAOTest {
+    private static Session session;
+    private static SessionFactory sessionFactory;
+    private static Neo4jDAO neo4jDAO;
+
+    private InProcessMetricsRegistry metrics;
+    private MetricsDAO dao;
+
+    @BeforeAll
+    public static void setUpAll() {
+        // Impermanent embedded store
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        session = sessionFactory.openSession();
+        neo4jDAO = new Neo4jDAO(session);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        metrics = new InProcessMetricsRegistry();
+        neo4jDAO.setMetrics(metrics);
+        dao = new MetricsDAO(neo4jDAO, metrics);
+    }
+
+    @AfterEach
+    public void tearDownEach() {
+        neo4jDAO.setMetrics(MetricsRegistry.noop());
+        session.purgeDatabase();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        session.purgeDatabase();
+        session.clear();
+        sessionFactory.close();
+    }
+
+    @Test
+    public void shouldThrowNullPointerExceptionIfDelegateOrMetricsIsNull() {
+        assertThrows(NullPointerException.class, () -> new MetricsDAO(null, metrics));
+        assertThrows(NullPointerException.class, () -> new MetricsDAO(neo4jDAO, null));
+    }
+
+    @Test
+    @DisplayName("Writes should be recorded with the lookup, save and commit within them")
+    public void writesShouldBeRecordedWithTheirPhases() {
+        dao.createOrUpdate(new Album(1975, "ECM 1064/65", "The Köln Concert"));
+        dao.createOrUpdateAll(Lists.newArrayList(new Album(1970, "ECM 1001", "Free At Last"),
+                new Album(1971, "ECM 1014", "Afric Pepperbird")), 1);
+
+        assertEquals(1, metrics.getOperation("createOrUpdate", Album.class).getCount());
+        assertEquals(1, metrics.getOperation("createOrUpdateAll", Album.class).getCount());
+        assertEquals(2, metrics.getOperation("createOrUpdateAll", Album.class).getRows());
+        // One per createOrUpdate and one per batch.
+        assertEquals(3, metrics.getOperation(Neo4jDAO.FIND_EXISTING_OPERATION, Album.class).getCount());
+        assertEquals(3, metrics.getOperation(Neo4jDAO.SAVE_OPERATION, Album.class).getCount());
+        OperationStats commits = metrics.getOperation(Neo4jDAO.COMMIT_OPERATION, Album.class);
+        assertEquals(3, commits.getCount());
+        assertEquals(3, commits.getRows());
+        assertEquals(0, metrics.getErrorCount());
+    }
+
+    @Test
+    @DisplayName("Reads should be recorded with the rows they returned")
+    public void readsShouldBeRecordedWithRows() {
+        Album album = dao.createOrUpdate(new Album(1975, "ECM 1064/65", "The Köln Concert"));
+        dao.createOrUpdate(new Album(1970, "ECM 1001", "Free At Last"));
+
+        assertEquals(2, dao.loadAll(Album.class).size());
+        dao.load(Album.class, album.getId());
+        List<Album> paged = Lists.newArrayList();
+        dao.forEachPage(Album.class, 1, paged::addAll);
+        dao.forEachAlbumStats(stats -> {
+        });
+        try (Stream<Album> albums = dao.stream(Album.class)) {
+            assertEquals(2, albums.count());
+        }
+
+        assertEquals(2, metrics.getOperation("loadAll", Album.class).getRows());
+        assertEquals(1, metrics.getOperation("load", Album.class).getRows());
+        assertEquals(2, metrics.getOperation("forEachPage", Album.class).getRows());
+        assertEquals(2, metrics.getOperation("forEachAlbumStats", Album.class).getRows());
+        assertEquals(2, metrics.getOperation("stream", Album.class).getRows());
+        // Once for loadAll, once per page of one for forEachPage, and once for the single page of stream.
+        OperationStats hydrations = metrics.getOperation(Neo4jDAO.HYDRATE_OPERATION, Album.class);
+        assertEquals(4, hydrations.getCount());
+        assertEquals(6, hydrations.getRows());
+    }
+
+    @Test
+    @DisplayName("Failed calls should be counted as errors and rethrown")
+    public void failuresShouldBeCountedAndRethrown() {
+        assertThrows(NoSuchRecordException.class, () -> dao.load(Album.class, 12345L));
+
+        OperationStats loads = metrics.getOperation("load", Album.class);
+        assertEquals(1, loads.getCount());
+        assertEquals(1, loads.getErrorCount());
+        assertEquals(0, loads.getRows());
+    }
+
+    @Test
+    @DisplayName("Miners over a MetricsDAO should still query the Neo4jDAO behind it")
+    public void minersShouldLookThroughMetricsDAO() {
+        assertSame(neo4jDAO, MiningBackend.neo4jDAOOf(dao));
+        assertSame(neo4jDAO, MiningBackend.neo4jDAOOf(new CachingDAO(dao)));
+    }
+}
@@ -0,0 +1,76 @@
+package allaboutecm.dataaccess.neo4j;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyFilterTest {
+
+    @ParameterizedTest
+    @ValueSource(doubles = {-0.1, 0, 1, 1.5})
+    public void shouldThrowIllegalArgumentExceptionIfFppIsNotAProbability(double fpp) {
+        assertThrows(IllegalArgumentException.class, () -> new KeyFilter(10, fpp));
+    }
+
+    @Test
+    public void shouldContainEveryKeyPut() {
+        KeyFilter filter = new KeyFilter(10, 0.01);
+        filter.put(new Object[]{"The Köln Concert", "ECM 1064/65", 1975});
+
+        assertTrue(filter.mightContain(new Object[]{"The Köln Concert", "ECM 1064/65", 1975}));
+        assertFalse(filter.mightContain(new Object[]{"Belonging", "ECM 1050", 1974}));
+    }
+
+    @Test
+    public void numbersShouldMatchWhateverTheirType() {
+        KeyFilter filter = new KeyFilter(10, 0.01);
+        filter.put(new Object[]{"Part I", 1560L});
+
+        assertTrue(filter.mightContain(new Object[]{"Part I", 1560}));
+    }
+
+    @Test
+    public void keysShouldNotRunTogether() {
+        KeyFilter filter = new KeyFilter(10, 0.01);
+        filter.put(new Object[]{"ab", "c"});
+
+        assertFalse(filter.mightContain(new Object[]{"a", "bc"}));
+    }
+
+    @Test
+    public void shouldKeepTheFalsePositiveRateBoundedWhenGrowing() {
+        KeyFilter filter = new KeyFilter(KeyFilter.MIN_EXPECTED_KEYS, 0.01);
+        int keys = (int) KeyFilter.MIN_EXPECTED_KEYS * 10;
+        for (int i = 0; i < keys; i++) {
+            filter.put(new Object[]{"Album " + i});
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < keys; i++) {
+            assertTrue(filter.mightContain(new Object[]{"Album " + i}));
+            if (filter.mightContain(new Object[]{"Other " + i}))
+                falsePositives++;
+        }
+        assertTrue(falsePositives < keys * 0.02, "false positives: " + falsePositives);
+        assertTrue(filter.getExpectedFpp() < 0.02);
+        assertEquals(keys, filter.getApproximateKeyCount(), keys * 0.05);
+    }
+
+    @Test
+    public void shouldReportSkippedLookupsAndFalsePositiveRate() {
+        KeyFilter filter = new KeyFilter(10, 0.01);
+        assertEquals(0, filter.getFalsePositiveRate());
+
+        filter.recordSkippedLookup();
+        filter.recordSkippedLookup();
+        filter.recordSkippedLookup();
+        filter.recordLookups(5, 4);
+
+        assertEquals(3, filter.getSkippedLookups());
+        assertEquals(5, filter.getLookups());
+        assertEquals(1, filter.getFalsePositives());
+        assertEquals(0.25, filter.getFalsePositiveRate());
+    }
+}
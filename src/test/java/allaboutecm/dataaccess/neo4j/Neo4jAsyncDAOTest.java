@@ -0,0 +1,172 @@
+package allaboutecm.dataaccess.neo4j;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.*;
+import org.neo4j.driver.v1.exceptions.NoSuchRecordException;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Neo4jAsyncDAOTest {
+    private static SessionFactory sessionFactory;
+    private static Session session;
+
+    private Neo4jAsyncDAO asyncDAO;
+
+    @BeforeAll
+    public static void setUpAll() {
+        // Impermanent embedded store
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        session = sessionFactory.openSession();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        asyncDAO = new Neo4jAsyncDAO(sessionFactory, 4, 16);
+    }
+
+    @AfterEach
+    public void tearDownEach() throws InterruptedException {
+        asyncDAO.close();
+        asyncDAO.awaitTermination(10, TimeUnit.SECONDS);
+        session.purgeDatabase();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        session.purgeDatabase();
+        session.clear();
+        sessionFactory.close();
+    }
+
+    @Test
+    public void shouldThrowIllegalArgumentExceptionIfThreadsOrQueueCapacityLessThanOne() {
+        assertThrows(IllegalArgumentException.class, () -> new Neo4jAsyncDAO(sessionFactory, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new Neo4jAsyncDAO(sessionFactory, 1, 0));
+        assertThrows(NullPointerException.class, () -> new Neo4jAsyncDAO(null, 1, 1));
+    }
+
+    @Test
+    @DisplayName("Entities saved asynchronously should be loadable asynchronously")
+    public void shouldSaveAndLoadAsynchronously() throws Exception {
+        Album album = asyncDAO.createOrUpdateAsync(new Album(1975, "ECM 1064/65", "The Köln Concert")).get();
+
+        Album loaded = asyncDAO.loadAsync(Album.class, album.getId()).get();
+        assertEquals(album, loaded);
+        assertEquals(1, asyncDAO.loadAllAsync(Album.class).get().size());
+
+        asyncDAO.deleteAsync(loaded).get();
+        assertEquals(0, asyncDAO.loadAllAsync(Album.class).get().size());
+    }
+
+    @Test
+    @DisplayName("Sessions should only be opened on the worker threads")
+    public void sessionsShouldBeOpenedOnWorkers() throws Exception {
+        List<String> openedOn = new CopyOnWriteArrayList<>();
+        SessionFactory counting = new SessionFactory(new Configuration.Builder().build(), Musician.class.getPackage().getName()) {
+            @Override
+            public Session openSession() {
+                openedOn.add(Thread.currentThread().getName());
+                return super.openSession();
+            }
+        };
+        try (Neo4jAsyncDAO workers = new Neo4jAsyncDAO(counting, 1, 1)) {
+            workers.loadAllAsync(Album.class).get();
+
+            assertEquals(1, openedOn.size());
+            assertTrue(openedOn.get(0).startsWith("neo4j-async-dao-"));
+        } finally {
+            counting.close();
+        }
+    }
+
+    @Test
+    @DisplayName("A worker should read what another session wrote after its previous read")
+    public void workersShouldSeeWritesOfOtherSessions() throws Exception {
+        asyncDAO.close();
+        asyncDAO = new Neo4jAsyncDAO(sessionFactory, 1, 1);
+        Album album = asyncDAO.createOrUpdateAsync(new Album(1975, "ECM 1064/65", "The Köln Concert")).get();
+        asyncDAO.loadAsync(Album.class, album.getId()).get();
+
+        Neo4jDAO other = new Neo4jDAO(sessionFactory.openSession());
+        Album elsewhere = other.load(Album.class, album.getId());
+        elsewhere.setUnitsSold(1000);
+        other.createOrUpdate(elsewhere);
+
+        assertEquals(1000, asyncDAO.loadAsync(Album.class, album.getId()).get().getUnitsSold());
+    }
+
+    @Test
+    public void independentLoadsShouldRunConcurrently() throws Exception {
+        List<Album> albums = Lists.newArrayList();
+        for (int i = 0; i < 20; i++) {
+            albums.add(asyncDAO.createOrUpdateAsync(new Album(1970 + i, "ECM " + (1000 + i), "Album " + i)).get());
+        }
+
+        List<CompletableFuture<Album>> loads = Lists.newArrayList();
+        for (Album album : albums) {
+            loads.add(asyncDAO.loadAsync(Album.class, album.getId()));
+        }
+        CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        for (int i = 0; i < albums.size(); i++) {
+            assertEquals(albums.get(i), loads.get(i).get());
+        }
+    }
+
+    @Test
+    public void failuresShouldCompleteTheFutureExceptionally() {
+        CompletableFuture<Album> load = asyncDAO.loadAsync(Album.class, 12345L);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, load::get);
+        assertTrue(exception.getCause() instanceof NoSuchRecordException);
+    }
+
+    @Test
+    @DisplayName("Callers should block while the queue is full")
+    public void callersShouldBlockWhileTheQueueIsFull() throws Exception {
+        Neo4jAsyncDAO smallDAO = new Neo4jAsyncDAO(sessionFactory, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Boolean> running = smallDAO.submit(dao -> await(release));
+            CompletableFuture<Boolean> queued = smallDAO.submit(dao -> await(release));
+
+            CompletableFuture<CompletableFuture<Boolean>> blocked = CompletableFuture.supplyAsync(
+                    () -> smallDAO.submit(dao -> true));
+            assertThrows(TimeoutException.class, () -> blocked.get(500, TimeUnit.MILLISECONDS));
+
+            release.countDown();
+            assertTrue(blocked.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS));
+            assertTrue(running.get() && queued.get());
+        } finally {
+            release.countDown();
+            smallDAO.close();
+        }
+    }
+
+    @Test
+    public void closedDAOShouldRejectOperations() {
+        asyncDAO.close();
+        CompletableFuture<?> rejected = asyncDAO.loadAllAsync(Album.class);
+
+        assertTrue(rejected.isCompletedExceptionally());
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
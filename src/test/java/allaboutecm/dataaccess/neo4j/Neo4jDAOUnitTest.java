@@ -1,12 +1,20 @@
 package allaboutecm.dataaccess.neo4j;
 
 
+import allaboutecm.dataaccess.AlbumStats;
 import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.dataaccess.MusicianStats;
 import allaboutecm.model.*;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.neo4j.driver.v1.exceptions.NoSuchRecordException;
 import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Neo4jSession;
 import org.neo4j.ogm.session.Session;
 import org.neo4j.ogm.session.SessionFactory;
 
@@ -16,6 +24,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -725,4 +734,277 @@ class Neo4jDAOUnitTest {
         assertEquals(dao.load(Album.class, album.getId()).getUnitsSold(), 1000);
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("createOrUpdateAll should throw null pointer exception if passed a null")
+    public void createOrUpdateAllShouldThrowNullPointerExceptionIfInputIsNull() {
+        assertThrows(NullPointerException.class, () -> dao.createOrUpdateAll(null));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0})
+    @DisplayName("createOrUpdateAll should throw illegal argument exception if batch size is less than 1")
+    public void createOrUpdateAllShouldThrowIllegalArgumentExceptionIfBatchSizeLessThanOne(int batchSize) {
+        Album album = new Album(1975, "ECM 1064/65", "The Köln Concert");
+        assertThrows(IllegalArgumentException.class, () -> dao.createOrUpdateAll(Lists.newArrayList(album), batchSize));
+    }
+
+    @Test
+    @DisplayName("createOrUpdateAll should save every entity across batches")
+    public void createOrUpdateAllShouldSaveAllEntitiesAcrossBatches() {
+        List<Album> albums = newAlbums(25);
+        dao.createOrUpdateAll(albums, 10);
+
+        assertEquals(25, dao.loadAll(Album.class).size());
+        albums.forEach(album -> assertNotNull(album.getId()));
+    }
+
+    @Test
+    @DisplayName("createOrUpdateAll should re-use the id of entities that already exist")
+    public void createOrUpdateAllShouldReuseIdsOfExistingEntities() {
+        Album album = new Album(1975, "ECM 1064/65", "The Köln Concert");
+        Musician musician = new Musician("Keith Jarrett");
+        dao.createOrUpdate(album);
+        dao.createOrUpdate(musician);
+
+        Album album2 = new Album(1975, "ECM 1064/65", "The Köln Concert");
+        album2.setUnitsSold(1000);
+        Musician musician2 = new Musician("Keith Jarrett");
+        dao.createOrUpdateAll(Lists.newArrayList(album2, musician2, new Musician("Gary Peacock")));
+
+        assertEquals(album.getId(), album2.getId());
+        assertEquals(musician.getId(), musician2.getId());
+        assertEquals(1, dao.loadAll(Album.class).size());
+        assertEquals(2, dao.loadAll(Musician.class).size());
+        assertEquals(1000, dao.load(Album.class, album.getId()).getUnitsSold());
+    }
+
+    @Test
+    @DisplayName("createOrUpdateAll should save entities repeated within a batch as one node")
+    public void createOrUpdateAllShouldMergeDuplicatesWithinABatch() {
+        Album album = new Album(1975, "ECM 1064/65", "The Köln Concert");
+        Album album2 = new Album(1975, "ECM 1064/65", "The Köln Concert");
+        album2.setUnitsSold(1000);
+        dao.createOrUpdateAll(Lists.newArrayList(album, album2));
+
+        assertEquals(album.getId(), album2.getId());
+        assertEquals(1, dao.loadAll(Album.class).size());
+        assertEquals(1000, dao.load(Album.class, album.getId()).getUnitsSold());
+    }
+
+    @Test
+    @DisplayName("createOrUpdateAll should fall back to single lookups for entities without a natural key")
+    public void createOrUpdateAllShouldSaveEntitiesWithoutNaturalKey() {
+        dao.createOrUpdateAll(Lists.newArrayList(new Concert(), new MusicianInstrument()));
+
+        assertEquals(1, dao.loadAll(Concert.class).size());
+        assertEquals(1, dao.loadAll(MusicianInstrument.class).size());
+    }
+
+    @Test
+    @DisplayName("Constructing the DAO should create an index over every natural key")
+    public void constructorShouldCreateNaturalKeyIndexes() {
+        Set<String> indexes = Sets.newHashSet();
+        session.query("CALL db.indexes()", Collections.emptyMap())
+                .queryResults()
+                .forEach(index -> indexes.add((String) index.get("description")));
+
+        assertTrue(indexes.contains("INDEX ON :Album(albumName, recordNumber, releaseYear)"));
+        assertTrue(indexes.contains("INDEX ON :Musician(name)"));
+        assertTrue(indexes.contains("INDEX ON :MusicalInstrument(name)"));
+        assertTrue(indexes.contains("INDEX ON :MusicianGroup(groupName)"));
+        assertTrue(indexes.contains("INDEX ON :Track(title, duration)"));
+        assertTrue(indexes.contains("INDEX ON :Rating(score, comment, source)"));
+    }
+
+    @Test
+    public void constructorShouldCreateRankingIndexes() {
+        Set<String> indexes = Sets.newHashSet();
+        session.query("CALL db.indexes()", Collections.emptyMap())
+                .queryResults()
+                .forEach(index -> indexes.add((String) index.get("description")));
+
+        assertTrue(indexes.contains("INDEX ON :Album(unitsSold)"));
+    }
+
+    @Test
+    @DisplayName("Constructing a second DAO over the same database should not fail on the existing indexes")
+    public void constructorShouldNotFailIfIndexesAlreadyExist() {
+        assertDoesNotThrow(() -> new Neo4jDAO(session));
+    }
+
+    @Test
+    @DisplayName("Listeners should be notified of every entity saved or deleted through the DAO")
+    public void listenersShouldBeNotifiedOfSavesAndDeletes() {
+        List<Entity> saved = Lists.newArrayList();
+        List<Entity> deleted = Lists.newArrayList();
+        DAOListener listener = new DAOListener() {
+            @Override
+            public void saved(Entity entity) {
+                assertNotNull(entity.getId());
+                saved.add(entity);
+            }
+
+            @Override
+            public void deleted(Entity entity) {
+                deleted.add(entity);
+            }
+        };
+        Neo4jDAO neo4jDAO = (Neo4jDAO) dao;
+        neo4jDAO.addListener(listener);
+        try {
+            Album album = new Album(1975, "ECM 1064/65", "The Köln Concert");
+            Musician musician = new Musician("Keith Jarrett");
+            List<Album> albums = newAlbums(3);
+            dao.createOrUpdate(album);
+            dao.createOrUpdate(musician);
+            dao.createOrUpdateAll(albums, 2);
+            dao.delete(musician);
+
+            List<Entity> expected = Lists.newArrayList(album, musician);
+            expected.addAll(albums);
+            assertEquals(expected, saved);
+            assertEquals(Lists.newArrayList(musician), deleted);
+        } finally {
+            neo4jDAO.removeListener(listener);
+        }
+    }
+
+    @Test
+    @DisplayName("Key filters should skip looking up new entities but still find existing ones")
+    public void keyFiltersShouldSkipLookupsOfNewEntities() {
+        Album existing = new Album(1975, "ECM 1064/65", "The Köln Concert");
+        dao.createOrUpdate(existing);
+        Neo4jDAO filteredDAO = new Neo4jDAO(session, true);
+        KeyFilter albumFilter = filteredDAO.getKeyFilter(Album.class);
+        assertNull(filteredDAO.getKeyFilter(Concert.class));
+        assertNull(((Neo4jDAO) dao).getKeyFilter(Album.class));
+
+        filteredDAO.createOrUpdateAll(newAlbums(20), 5);
+        assertEquals(20, albumFilter.getSkippedLookups());
+        assertEquals(0, albumFilter.getLookups());
+
+        Album again = new Album(1975, "ECM 1064/65", "The Köln Concert");
+        filteredDAO.createOrUpdate(again);
+        assertEquals(existing.getId(), again.getId());
+        filteredDAO.createOrUpdate(newAlbums(1).get(0));
+        assertEquals(21, dao.loadAll(Album.class).size());
+        assertEquals(2, albumFilter.getLookups());
+        assertEquals(0, albumFilter.getFalsePositives());
+    }
+
+    @Test
+    @DisplayName("Key filters should hold the keys of entities saved along with another entity")
+    public void keyFiltersShouldHoldEntitiesSavedAtDepthOne() {
+        Neo4jDAO filteredDAO = new Neo4jDAO(session, true);
+        Album album = new Album(1975, "ECM 1064/65", "The Köln Concert");
+        album.setFeaturedMusicians(Lists.newArrayList(new Musician("Keith Jarrett")));
+        filteredDAO.createOrUpdate(album);
+
+        Musician musician = new Musician("Keith Jarrett");
+        filteredDAO.createOrUpdate(musician);
+
+        assertEquals(1, dao.loadAll(Musician.class).size());
+        assertEquals(album.getFeaturedMusicians().get(0).getId(), musician.getId());
+    }
+
+    @Test
+    @DisplayName("Pages should hold every entity once, in id order")
+    public void forEachPageShouldPassEveryEntityOnceInIdOrder() {
+        dao.createOrUpdateAll(newAlbums(25));
+
+        List<Integer> pageSizes = Lists.newArrayList();
+        List<Long> ids = Lists.newArrayList();
+        dao.forEachPage(Album.class, 10, page -> {
+            pageSizes.add(page.size());
+            page.forEach(album -> ids.add(album.getId()));
+        });
+
+        assertEquals(Arrays.asList(10, 10, 5), pageSizes);
+        List<Long> sorted = Lists.newArrayList(ids);
+        Collections.sort(sorted);
+        assertEquals(sorted, ids);
+        assertEquals(25, Sets.newHashSet(ids).size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1})
+    public void forEachPageShouldThrowIllegalArgumentExceptionIfPageSizeLessThanOne(int pageSize) {
+        assertThrows(IllegalArgumentException.class, () -> dao.forEachPage(Album.class, pageSize, page -> {}));
+    }
+
+    @Test
+    @DisplayName("Entities read only by a scan should not stay in the session")
+    public void forEachPageShouldNotKeepScannedEntitiesInTheSession() {
+        Session writer = sessionFactory.openSession();
+        new Neo4jDAO(writer).createOrUpdateAll(newAlbums(30));
+        Album saved = dao.createOrUpdate(new Album(2019, "ECM 2600", "Lost in Dreams"));
+
+        Session reader = sessionFactory.openSession();
+        Neo4jDAO readerDAO = new Neo4jDAO(reader);
+        Album loaded = readerDAO.load(Album.class, saved.getId());
+        List<Album> scanned = Lists.newArrayList();
+        readerDAO.forEachPage(Album.class, 7, scanned::addAll);
+
+        assertEquals(31, scanned.size());
+        assertTrue(scanned.stream().anyMatch(album -> album == loaded));
+        assertNotNull(((Neo4jSession) reader).context().getNodeEntity(loaded.getId()));
+        assertNull(((Neo4jSession) reader).context().getNodeEntity(scanned.get(0).getId()));
+    }
+
+    @Test
+    public void streamShouldReturnEveryEntityInIdOrder() {
+        dao.createOrUpdateAll(newAlbums(2500));
+
+        List<Long> paged = Lists.newArrayList();
+        dao.forEachPage(Album.class, Neo4jDAO.DEFAULT_PAGE_SIZE, page -> page.forEach(album -> paged.add(album.getId())));
+
+        assertEquals(paged.get(0), dao.stream(Album.class).findFirst().get().getId());
+        assertEquals(paged, dao.stream(Album.class).map(Album::getId).collect(Collectors.toList()));
+        assertEquals(2500, paged.size());
+    }
+
+    @Test
+    @DisplayName("Album stats should be read as rows matching the stats of the albums")
+    public void albumStatsShouldMatchTheAlbums() {
+        List<Album> albums = newAlbums(1200);
+        albums.get(0).setUnitsSold(500);
+        albums.get(0).setRatings(Sets.newHashSet(new Rating(9, "Great", "A"), new Rating(6, "Good", "B")));
+        albums.get(1199).setRatings(Sets.newHashSet(new Rating(3, "Poor", "C")));
+        dao.createOrUpdateAll(albums);
+
+        Map<Long, AlbumStats> stats = Maps.newHashMap();
+        dao.forEachAlbumStats(row -> stats.put(row.getId(), row));
+
+        assertEquals(1200, stats.size());
+        for (Album album : albums) {
+            assertEquals(AlbumStats.of(album), stats.get(album.getId()));
+        }
+        assertEquals(7.5, stats.get(albums.get(0).getId()).getAverageRating());
+        assertEquals(0, stats.get(albums.get(1).getId()).getAverageRating());
+    }
+
+    @Test
+    @DisplayName("Musician stats should count the different instruments of every musician")
+    public void musicianStatsShouldCountDifferentInstruments() {
+        Musician keith = new Musician("Keith Jarrett");
+        MusicalInstrument piano = new MusicalInstrument("Piano");
+        dao.createOrUpdate(new MusicianInstrument(keith, Sets.newHashSet(piano, new MusicalInstrument("Flute"))));
+        dao.createOrUpdate(new MusicianInstrument(keith, Sets.newHashSet(piano, new MusicalInstrument("Organ"))));
+        Musician ralph = dao.createOrUpdate(new Musician("Ralph Towner"));
+
+        List<MusicianStats> stats = Lists.newArrayList();
+        dao.forEachMusicianStats(stats::add);
+
+        assertEquals(2, stats.size());
+        assertTrue(stats.contains(new MusicianStats(keith.getId(), "Keith Jarrett", 3)));
+        assertTrue(stats.contains(new MusicianStats(ralph.getId(), "Ralph Towner", 0)));
+    }
+
+    private static List<Album> newAlbums(int count) {
+        List<Album> albums = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            albums.add(new Album(1970 + i % 50, "ECM " + (1000 + i), "Album " + i));
+        }
+        return albums;
+    }
+}
\ No newline at end of file
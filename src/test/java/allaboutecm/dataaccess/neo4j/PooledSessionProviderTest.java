@@ -0,0 +1,212 @@
+package allaboutecm.dataaccess.neo4j;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.*;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledSessionProviderTest {
+    private static SessionFactory sessionFactory;
+    private static Session session;
+
+    private FakeTicker ticker;
+    private PooledSessionProvider pool;
+
+    @BeforeAll
+    public static void setUpAll() {
+        // Impermanent embedded store
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        session = sessionFactory.openSession();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        ticker = new FakeTicker();
+        pool = new PooledSessionProvider(sessionFactory, 2, 5, 30, TimeUnit.SECONDS, ticker);
+    }
+
+    @AfterEach
+    public void tearDownEach() {
+        pool.close();
+        session.purgeDatabase();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        session.purgeDatabase();
+        session.clear();
+        sessionFactory.close();
+    }
+
+    @Test
+    public void shouldThrowIllegalArgumentExceptionIfSizesOrTimesLessThanOne() {
+        assertThrows(IllegalArgumentException.class, () -> new PooledSessionProvider(sessionFactory, 0, 1, 1, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> new PooledSessionProvider(sessionFactory, 1, 0, 1, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> new PooledSessionProvider(sessionFactory, 1, 1, 0, TimeUnit.SECONDS));
+        assertThrows(NullPointerException.class, () -> new PooledSessionProvider(null));
+    }
+
+    @Test
+    @DisplayName("A released session should be lent again, most recently released first")
+    public void releasedSessionsShouldBeReused() {
+        Session first = pool.acquire();
+        Session second = pool.acquire();
+        assertNotSame(first, second);
+        pool.release(first);
+        pool.release(second);
+
+        assertSame(second, pool.acquire());
+        assertEquals(2, pool.getOpenedSessions());
+        assertEquals(1, pool.getIdleSessions());
+        assertEquals(1, pool.getLeasedSessions());
+    }
+
+    @Test
+    public void releasingASessionNotLeasedFromThePoolShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> pool.release(sessionFactory.openSession()));
+
+        Session leased = pool.acquire();
+        pool.release(leased);
+        assertThrows(IllegalArgumentException.class, () -> pool.release(leased));
+    }
+
+    @Test
+    @DisplayName("Acquiring while every session is leased should wait for a release")
+    public void acquireShouldWaitWhileEverySessionIsLeased() throws Exception {
+        Session first = pool.acquire();
+        pool.acquire();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Session> waiting = executor.submit(pool::acquire);
+            assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+
+            pool.release(first);
+            assertSame(first, waiting.get(10, TimeUnit.SECONDS));
+            assertEquals(2, pool.getOpenedSessions());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("A session should read what was written through another lease after its own")
+    public void releasedSessionsShouldNotServeStaleEntities() {
+        Neo4jDAO dao = new Neo4jDAO(pool);
+        Album album = dao.createOrUpdate(new Album(1975, "ECM 1064/65", "The Köln Concert"));
+        Session first = pool.acquire();
+        Session second = pool.acquire();
+        first.load(Album.class, album.getId());
+
+        Album elsewhere = second.load(Album.class, album.getId());
+        elsewhere.setUnitsSold(1000);
+        second.save(elsewhere);
+        pool.release(second);
+        pool.release(first);
+
+        assertEquals(1000, dao.load(Album.class, album.getId()).getUnitsSold());
+    }
+
+    @Test
+    public void sessionsIdleLongerThanTheIdleTimeoutShouldBeEvicted() {
+        Session first = pool.acquire();
+        Session second = pool.acquire();
+        pool.release(first);
+        ticker.advance(3, TimeUnit.SECONDS);
+        pool.release(second);
+
+        ticker.advance(3, TimeUnit.SECONDS);
+        assertEquals(1, pool.evictIdleSessions());
+        assertEquals(1, pool.getIdleSessions());
+        assertSame(second, pool.acquire());
+
+        ticker.advance(5, TimeUnit.SECONDS);
+        assertNotSame(first, pool.acquire());
+        assertEquals(1, pool.getEvictedSessions());
+        assertEquals(3, pool.getOpenedSessions());
+    }
+
+    @Test
+    @DisplayName("A session leased longer than the leak threshold should be reported once")
+    public void leakedSessionsShouldBeReportedOnce() {
+        Session leaked = pool.acquire();
+        ticker.advance(29, TimeUnit.SECONDS);
+        assertEquals(0, pool.detectLeaks());
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertEquals(1, pool.detectLeaks());
+        assertEquals(0, pool.detectLeaks());
+        assertEquals(1, pool.getLeaks());
+
+        pool.release(leaked);
+        assertEquals(0, pool.getLeasedSessions());
+    }
+
+    @Test
+    public void tracedLeaksShouldBeReportedOnce() {
+        assertFalse(pool.isTraceLeaks());
+        pool.setTraceLeaks(true);
+        Session leaked = pool.acquire();
+        ticker.advance(30, TimeUnit.SECONDS);
+
+        assertEquals(1, pool.detectLeaks());
+        assertEquals(0, pool.detectLeaks());
+        pool.release(leaked);
+    }
+
+    @Test
+    public void aClosedPoolShouldNotLendSessions() {
+        Session leased = pool.acquire();
+        pool.close();
+
+        assertThrows(IllegalStateException.class, pool::acquire);
+        pool.release(leased);
+        assertEquals(0, pool.getIdleSessions());
+    }
+
+    @Test
+    @DisplayName("One DAO over the pool should be shareable by many threads")
+    public void oneDAOShouldServeManyThreads() throws Exception {
+        Neo4jDAO dao = new Neo4jDAO(pool);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Album>> saves = Lists.newArrayList();
+            for (int i = 0; i < 40; i++) {
+                Album album = new Album(1970 + i, "ECM " + (1000 + i), "Album " + i);
+                saves.add(executor.submit(() -> dao.load(Album.class, dao.createOrUpdate(album).getId())));
+            }
+            for (Future<Album> save : saves) {
+                assertNotNull(save.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(40, dao.loadAll(Album.class).size());
+        assertEquals(0, pool.getLeasedSessions());
+        assertTrue(pool.getOpenedSessions() <= 2);
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package allaboutecm.dataaccess.neo4j;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Concert;
+import allaboutecm.model.Musician;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.*;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowQueryLogTest {
+    private static Session session;
+    private static SessionFactory sessionFactory;
+    private static Neo4jDAO dao;
+
+    private List<String> lines;
+
+    @BeforeAll
+    public static void setUpAll() {
+        // Impermanent embedded store
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        session = sessionFactory.openSession();
+        dao = new Neo4jDAO(session);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        lines = Lists.newArrayList();
+    }
+
+    @AfterEach
+    public void tearDownEach() {
+        dao.setSlowQueryLog(null);
+        session.purgeDatabase();
+        session.clear();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        session.purgeDatabase();
+        session.clear();
+        sessionFactory.close();
+    }
+
+    @Test
+    public void shouldThrowIllegalArgumentExceptionIfThresholdOrRateInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new SlowQueryLog(-1, TimeUnit.SECONDS));
+        assertThrows(IllegalArgumentException.class, () -> new SlowQueryLog(1, TimeUnit.SECONDS, 0, null));
+        assertThrows(NullPointerException.class, () -> new SlowQueryLog(1, null));
+    }
+
+    @Test
+    @DisplayName("Operations faster than the threshold should not be logged")
+    public void fastOperationsShouldNotBeLogged() {
+        FakeTicker ticker = new FakeTicker();
+        SlowQueryLog log = new SlowQueryLog(100, TimeUnit.MILLISECONDS, 10, null, ticker, lines::add);
+
+        log.time("query", null, "RETURN 1", Collections.emptyMap(), () -> {
+            ticker.advance(99, TimeUnit.MILLISECONDS);
+            return Lists.newArrayList(1);
+        }, List::size);
+        assertTrue(lines.isEmpty());
+
+        log.time("query", Album.class, "RETURN 1", Collections.singletonMap("k", 5), () -> {
+            ticker.advance(100, TimeUnit.MILLISECONDS);
+            return Lists.newArrayList(1, 2);
+        }, List::size);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("Slow query on Album: 100.000ms, 2 rows"));
+        assertTrue(lines.get(0).contains("cypher: RETURN 1"));
+        assertTrue(lines.get(0).contains("parameters: {k=5}"));
+    }
+
+    @Test
+    @DisplayName("Operations over the rate should be counted and reported with the next line")
+    public void operationsOverTheRateShouldBeSuppressed() {
+        FakeTicker ticker = new FakeTicker();
+        SlowQueryLog log = new SlowQueryLog(0, TimeUnit.MILLISECONDS, 2, null, ticker, lines::add);
+        for (int i = 0; i < 5; i++) {
+            log.time("commit", Album.class, null, null, () -> 1, one -> 1);
+        }
+        assertEquals(2, lines.size());
+        assertEquals(5, log.getSlowCount());
+        assertEquals(2, log.getLoggedCount());
+        assertEquals(3, log.getSuppressedCount());
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        log.time("commit", Album.class, null, null, () -> 1, one -> 1);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(2).contains("(3 more slow operations not logged)"));
+        assertTrue(lines.get(2).endsWith("generated by the OGM"));
+    }
+
+    @Test
+    @DisplayName("The DAO should log its lookups and commits with their Cypher or filters")
+    public void daoShouldLogLookupsAndCommits() {
+        dao.setSlowQueryLog(new SlowQueryLog(0, TimeUnit.MILLISECONDS, 100, null, Ticker.systemTicker(), lines::add));
+        dao.createOrUpdate(new Album(1975, "ECM 1064/65", "The Köln Concert"));
+        dao.createOrUpdate(concert());
+
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("Slow findExistingEntity on Album")
+                && line.contains("cypher: ") && line.contains("The Köln Concert")));
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("Slow findExistingEntity on Concert")
+                && line.contains("generated by the OGM, filtered by {concertDate=")
+                && line.contains("concertVenue=Jazzhus Montmartre")));
+        assertTrue(lines.stream().anyMatch(line -> line.startsWith("Slow commit on Album: ")));
+
+        lines.clear();
+        dao.setSlowQueryLog(null);
+        dao.loadAll(Album.class);
+        assertTrue(lines.isEmpty());
+    }
+
+    @Test
+    @DisplayName("The plan of a slow Cypher query should be logged with it")
+    public void planShouldBeLoggedWithQuery() {
+        dao.setSlowQueryLog(new SlowQueryLog(0, TimeUnit.MILLISECONDS, 100, QueryPlanner.explaining(sessionFactory),
+                Ticker.systemTicker(), lines::add));
+        dao.createOrUpdate(new Album(1975, "ECM 1064/65", "The Köln Concert"));
+        lines.clear();
+
+        dao.query("MATCH (a:Album) WHERE a.releaseYear = $year RETURN a.albumName AS name",
+                Collections.singletonMap("year", 1975));
+
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).contains("\n  plan:\n"));
+        assertTrue(lines.get(0).contains("ProduceResults"));
+    }
+
+    @Test
+    @DisplayName("Explaining a query that writes should leave the database unchanged")
+    public void explainingShouldNotWrite() {
+        QueryPlanner planner = QueryPlanner.explaining(sessionFactory);
+        assertTrue(planner.plan("CREATE (n:Album {albumName: 'Profiled'}) RETURN n", Collections.emptyMap())
+                .contains("Create"));
+
+        Iterable<Map<String, Object>> count = dao.query("MATCH (n:Album) RETURN count(n) AS albums", Collections.emptyMap());
+        assertEquals(0L, ((Number) count.iterator().next().get("albums")).longValue());
+    }
+
+    @Test
+    public void describeShouldShortenEntitiesAndCollections() {
+        Musician musician = new Musician("Keith Jarrett");
+        musician.setId(7L);
+        List<Integer> numbers = Lists.newArrayList();
+        for (int i = 0; i < 12; i++) {
+            numbers.add(i);
+        }
+
+        assertEquals("Musician#7", SlowQueryLog.describe(musician));
+        assertEquals("Album#new", SlowQueryLog.describe(new Album(1975, "ECM 1064/65", "The Köln Concert")));
+        assertEquals("[0, 1, 2, 3, 4, 5, 6, 7, 8, 9, ... 12 in all]", SlowQueryLog.describe(numbers));
+        assertEquals(203, SlowQueryLog.describe(new String(new char[500]).replace('\0', 'x')).length());
+    }
+
+    private static Concert concert() {
+        Concert concert = new Concert();
+        concert.setConcertDate(java.sql.Date.valueOf("2100-04-18"));
+        concert.setVenue("Jazzhus Montmartre");
+        concert.setCity("Copenhagen");
+        concert.setCountry("Denmark");
+        return concert;
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package allaboutecm.ingest;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.*;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogueGeneratorTest {
+
+    @Test
+    public void shouldThrowIllegalArgumentExceptionForInvalidSizesOrExponents() {
+        assertThrows(IllegalArgumentException.class, () -> new CatalogueGenerator(-1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CatalogueGenerator(10, 0, 1, 2.5, 2));
+        assertThrows(IllegalArgumentException.class, () -> new CatalogueGenerator(10, 5, 1, 1, 2));
+        assertThrows(IllegalArgumentException.class, () -> new CatalogueGenerator(10, 5, 1, 2.5, 0));
+        assertThrows(IllegalArgumentException.class, () -> new CatalogueGenerator(10, 5, 1, Double.NaN, 2));
+        assertThrows(NullPointerException.class, () -> new CatalogueGenerator(10, 1).generate(null));
+    }
+
+    @Test
+    @DisplayName("The same seed should give the same catalogue, another seed another one")
+    public void sameSeedShouldGiveSameCatalogue() {
+        assertEquals(describe(new CatalogueGenerator(200, 42)), describe(new CatalogueGenerator(200, 42)));
+        assertNotEquals(describe(new CatalogueGenerator(200, 42)), describe(new CatalogueGenerator(200, 43)));
+    }
+
+    @Test
+    @DisplayName("Musician names should be unique and already formatted as the model formats them")
+    public void musicianNamesShouldBeUniqueAndFormatted() {
+        Set<String> names = Sets.newHashSet();
+        for (int i = 0; i < 100000; i += 7) {
+            String name = CatalogueGenerator.musicianName(i);
+            assertTrue(names.add(name), name);
+            assertEquals(name, new Musician(name).getName());
+        }
+    }
+
+    @Test
+    @DisplayName("Albums per musician and ratings per album should be heavy-tailed")
+    public void albumsPerMusicianAndRatingsPerAlbumShouldFollowPowerLaws() {
+        Map<Musician, Integer> albumsPerMusician = new HashMap<>();
+        int[] ratingsPerAlbum = new int[CatalogueGenerator.MAXIMUM_RATINGS_PER_ALBUM + 1];
+        new CatalogueGenerator(30000, 42).generate(entity -> {
+            if (entity instanceof Album) {
+                Album album = (Album) entity;
+                album.getFeaturedMusicians().forEach(musician -> albumsPerMusician.merge(musician, 1, Integer::sum));
+                ratingsPerAlbum[album.getRatings().size()]++;
+            }
+        });
+
+        List<Integer> counts = Lists.newArrayList(albumsPerMusician.values());
+        Collections.sort(counts);
+        int median = counts.get(counts.size() / 2);
+        int most = counts.get(counts.size() - 1);
+        assertTrue(most > 100 * median, "most " + most + ", median " + median);
+        // P(0 ratings) is 1 / zeta(2), about 0.6, yet some albums have tens of ratings.
+        assertTrue(ratingsPerAlbum[0] > 15000 && ratingsPerAlbum[0] < 21000);
+        assertTrue(ratingsPerAlbum[1] > ratingsPerAlbum[2] && ratingsPerAlbum[2] > ratingsPerAlbum[4]);
+        assertTrue(Arrays.stream(ratingsPerAlbum, 20, ratingsPerAlbum.length).sum() > 0);
+    }
+
+    @Test
+    @DisplayName("The CSV files should be read back through the model without rejected rows")
+    public void csvFilesShouldReadBackThroughTheModel() throws IOException {
+        Path directory = Files.createTempDirectory("generated-catalogue");
+        try {
+            CatalogueGenerator generator = new CatalogueGenerator(300, 42);
+            List<Album> albums = Lists.newArrayList();
+            generator.generate(entity -> {
+                if (entity instanceof Album)
+                    albums.add((Album) entity);
+            });
+
+            generator.writeCsv(directory);
+
+            List<Album> read = Lists.newArrayList();
+            for (CSVRecord record : records(directory, CatalogueFile.ALBUMS)) {
+                read.add((Album) CatalogueFile.ALBUMS.toEntity(record));
+            }
+            assertEquals(albums, read);
+            assertEquals(100, records(directory, CatalogueFile.MUSICIANS).size());
+            for (CatalogueFile file : Arrays.asList(CatalogueFile.MUSICIANS, CatalogueFile.TRACKS, CatalogueFile.RATINGS)) {
+                for (CSVRecord record : records(directory, file)) {
+                    assertNotNull(file.toEntity(record));
+                }
+            }
+            int featured = albums.stream().mapToInt(album -> album.getFeaturedMusicians().size()).sum();
+            assertEquals(featured, records(directory, CatalogueLinkFile.ALBUM_MUSICIANS).size());
+            for (CSVRecord record : records(directory, CatalogueLinkFile.ALBUM_RATINGS)) {
+                assertTrue(albums.contains(CatalogueLinkFile.ALBUM_RATINGS.toStart(record)));
+                assertNotNull(CatalogueLinkFile.ALBUM_RATINGS.toEnd(record));
+            }
+        } finally {
+            MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+        }
+    }
+
+    @Test
+    public void saveToShouldSaveEveryEntityThroughTheDAO() {
+        Configuration configuration = new Configuration.Builder().build();
+        SessionFactory sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        Session session = sessionFactory.openSession();
+        try {
+            DAO dao = new Neo4jDAO(session);
+
+            new CatalogueGenerator(40, 20, 42, 2.5, 2).saveTo(dao, 16);
+
+            assertEquals(40, dao.loadAll(Album.class).size());
+            assertEquals(20, dao.loadAll(Musician.class).size());
+            assertEquals(20, dao.loadAll(MusicianInstrument.class).size());
+            assertEquals(2, dao.loadAll(Concert.class).size());
+            assertFalse(dao.loadAll(Track.class).isEmpty());
+        } finally {
+            session.purgeDatabase();
+            session.clear();
+            sessionFactory.close();
+        }
+    }
+
+    private static List<String> describe(CatalogueGenerator generator) {
+        List<String> description = Lists.newArrayList();
+        generator.generate(entity -> {
+            if (entity instanceof Album) {
+                Album album = (Album) entity;
+                description.add(album.getRecordNumber() + "|" + album.getAlbumName() + "|" + album.getReleaseYear() + "|"
+                        + album.getUnitsSold() + "|" + names(album.getFeaturedMusicians()) + "|"
+                        + album.getRatings().size() + "|" + album.getTracks().size());
+            } else if (entity instanceof Musician) {
+                description.add(((Musician) entity).getName());
+            } else if (entity instanceof MusicianInstrument) {
+                MusicianInstrument musicianInstrument = (MusicianInstrument) entity;
+                SortedSet<String> instruments = new TreeSet<>();
+                musicianInstrument.getMusicalInstruments().forEach(instrument -> instruments.add(instrument.getName()));
+                description.add(musicianInstrument.getMusician().getName() + "|" + instruments);
+            } else if (entity instanceof Concert) {
+                Concert concert = (Concert) entity;
+                description.add(concert.getConcertDate() + "|" + concert.getVenue() + "|"
+                        + new TreeSet<>(names(concert.getConcertPerformers())));
+            }
+        });
+        return description;
+    }
+
+    private static List<String> names(Collection<Musician> musicians) {
+        List<String> names = Lists.newArrayList();
+        musicians.forEach(musician -> names.add(musician.getName()));
+        return names;
+    }
+
+    private static List<CSVRecord> records(Path directory, Enum<?> file) throws IOException {
+        String fileName = file.name().toLowerCase(Locale.ROOT) + ".csv";
+        try (Reader reader = Files.newBufferedReader(directory.resolve(fileName), StandardCharsets.UTF_8);
+             CSVParser parser = (file instanceof CatalogueFile ? ((CatalogueFile) file).getFormat()
+                     : ((CatalogueLinkFile) file).getFormat()).parse(reader)) {
+            return parser.getRecords();
+        }
+    }
+}
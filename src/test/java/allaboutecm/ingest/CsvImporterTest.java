@@ -0,0 +1,222 @@
+package allaboutecm.ingest;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.*;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.io.StringReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvImporterTest {
+    private static DAO dao;
+    private static Session session;
+    private static SessionFactory sessionFactory;
+
+    private CsvImporter importer;
+
+    @BeforeAll
+    public static void setUp() {
+        // Impermanent embedded store
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        session = sessionFactory.openSession();
+        dao = new Neo4jDAO(session);
+    }
+
+    @BeforeEach
+    public void setUpEach() {
+        importer = new CsvImporter(dao, 2, 1);
+    }
+
+    @AfterEach
+    public void tearDownEach() {
+        session.purgeDatabase();
+        session.clear();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        session.purgeDatabase();
+        session.clear();
+        sessionFactory.close();
+    }
+
+    @Test
+    @DisplayName("Importer should not accept a null DAO")
+    public void shouldThrowNullPointerExceptionIfDaoIsNull() {
+        assertThrows(NullPointerException.class, () -> new CsvImporter(null));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0})
+    @DisplayName("Batch size and pipeline depth should not be less than 1")
+    public void shouldThrowIllegalArgumentExceptionIfBatchSizeOrPipelineDepthLessThanOne(int arg) {
+        assertThrows(IllegalArgumentException.class, () -> new CsvImporter(dao, arg, 1));
+        assertThrows(IllegalArgumentException.class, () -> new CsvImporter(dao, 1, arg));
+    }
+
+    @Test
+    public void shouldImportAlbumsThroughModelSetters() throws MalformedURLException {
+        String csv = "recordNumber,albumName,releaseYear,genre,format,unitsSold,albumURL\n"
+                + "ECM 1064,The Koln Concert,1975,Jazz,CD,3500000,https://www.ecmrecords.com/catalogue/143038750696\n"
+                + "ECM 2287,Trios,2013,,,,\n"
+                + "ECM 2487,Andando El Tiempo,2016,Jazz,LP,100,\n";
+
+        ImportReport report = importer.importFile(CatalogueFile.ALBUMS, new StringReader(csv));
+
+        assertEquals(3, report.getRowsRead());
+        assertEquals(3, report.getRowsImported());
+        assertEquals(0, report.getRowsRejected());
+        assertEquals(3, dao.loadAll(Album.class).size());
+
+        Album album = dao.loadAll(Album.class).stream()
+                .filter(a -> a.getRecordNumber().equals("ECM 1064"))
+                .findFirst()
+                .get();
+        assertEquals(3500000, album.getUnitsSold());
+        assertEquals("CD", album.getFormat());
+        assertEquals(new URL("https://www.ecmrecords.com/catalogue/143038750696"), album.getAlbumURL());
+    }
+
+    @Test
+    public void shouldRejectRowsTheModelDoesNotAccept() {
+        String csv = "recordNumber,albumName,releaseYear,genre,format,unitsSold,albumURL\n"
+                + "ECM 1064,The Koln Concert,1975,Jazz,CD,10,\n"
+                + "ECM-1064,Bad Record Number,1975,,,,\n"
+                + "ECM 2287,Too Early,1950,,,,\n"
+                + "ECM 2288,Unknown Format,2013,,CASSETTE,,\n"
+                + "ECM 2289,Negative Sales,2013,,,-1,\n"
+                + "ECM 2290,Bad Year,twenty,,,,\n";
+
+        ImportReport report = importer.importFile(CatalogueFile.ALBUMS, new StringReader(csv));
+
+        assertEquals(6, report.getRowsRead());
+        assertEquals(1, report.getRowsImported());
+        assertEquals(5, report.getRowsRejected());
+        assertEquals(1, dao.loadAll(Album.class).size());
+    }
+
+    @Test
+    public void shouldImportMusiciansWithFormattedNames() {
+        String csv = "name,musicianURL,musicianWikipediaURL,biography\n"
+                + "keith jarrett,https://www.keithjarrett.org/,,Pianist\n"
+                + "CARLA BLEY,,https://en.wikipedia.org/wiki/Carla_Bley,\n"
+                + "Madonna,,,\n";
+
+        ImportReport report = importer.importFile(CatalogueFile.MUSICIANS, new StringReader(csv));
+
+        assertEquals(2, report.getRowsImported());
+        assertEquals(1, report.getRowsRejected());
+        assertTrue(dao.loadAll(Musician.class).contains(new Musician("Keith Jarrett")));
+        assertTrue(dao.loadAll(Musician.class).contains(new Musician("Carla Bley")));
+    }
+
+    @Test
+    public void shouldImportTracksWithComposers() {
+        String csv = "trackNumber,title,duration,composers\n"
+                + "1,Part I,1574,Keith Jarrett\n"
+                + "2,Part II,2050,Keith Jarrett;Gary Peacock\n"
+                + "0,No Number,100,\n";
+
+        ImportReport report = importer.importFile(CatalogueFile.TRACKS, new StringReader(csv));
+
+        assertEquals(2, report.getRowsImported());
+        assertEquals(1, report.getRowsRejected());
+        Track track = dao.loadAll(Track.class).stream()
+                .filter(t -> t.getTrackNumber() == 2)
+                .findFirst()
+                .get();
+        assertArrayEquals(new String[]{"Keith Jarrett", "Gary Peacock"}, track.getComposers());
+    }
+
+    @Test
+    public void shouldImportRatingsAndMergeDuplicates() {
+        String csv = "score,comment,source\n"
+                + "9,Timeless,Rolling Stone\n"
+                + "9,Timeless,Rolling Stone\n"
+                + "11,Off the scale,Somewhere\n";
+
+        ImportReport report = importer.importFile(CatalogueFile.RATINGS, new StringReader(csv));
+
+        assertEquals(2, report.getRowsImported());
+        assertEquals(1, report.getRowsRejected());
+        assertEquals(1, dao.loadAll(Rating.class).size());
+    }
+
+    @Test
+    public void shouldImportMoreRowsThanThePipelineHolds() {
+        StringBuilder csv = new StringBuilder("score,comment,source\n");
+        for (int i = 0; i < 25; i++) {
+            csv.append(i % 11).append(",Comment ").append(i).append(",Source\n");
+        }
+
+        ImportReport report = importer.importFile(CatalogueFile.RATINGS, new StringReader(csv.toString()));
+
+        assertEquals(25, report.getRowsImported());
+        assertEquals(25, dao.loadAll(Rating.class).size());
+        assertTrue(report.getRowsPerSecond() > 0);
+    }
+
+    @Test
+    public void shouldLinkStoredAlbumsToStoredEnds() {
+        importer.importFile(CatalogueFile.ALBUMS, new StringReader("recordNumber,albumName,releaseYear,genre,format,unitsSold,albumURL\n"
+                + "ECM 1064,The Koln Concert,1975,Jazz,CD,10,\n"
+                + "ECM 2287,Trios,2013,,,,\n"));
+        importer.importFile(CatalogueFile.MUSICIANS, new StringReader("name,musicianURL,musicianWikipediaURL,biography\n"
+                + "Keith Jarrett,,,\n"
+                + "Carla Bley,,,\n"));
+        importer.importFile(CatalogueFile.TRACKS, new StringReader("trackNumber,title,duration,composers\n"
+                + "1,Part I,1574,Keith Jarrett\n"));
+
+        ImportReport musicians = importer.importLinks(CatalogueLinkFile.ALBUM_MUSICIANS, new StringReader("recordNumber,albumName,releaseYear,musician\n"
+                + "ECM 1064,The Koln Concert,1975,keith jarrett\n"
+                + "ECM 2287,Trios,2013,Carla Bley\n"
+                + "ECM 2287,Trios,2013,Keith Jarrett\n"
+                + "ECM 9999,Never Imported,2013,Carla Bley\n"
+                + "ECM 1064,The Koln Concert,1975,Gary Peacock\n"));
+        ImportReport tracks = importer.importLinks(CatalogueLinkFile.ALBUM_TRACKS, new StringReader("recordNumber,albumName,releaseYear,title,duration\n"
+                + "ECM 1064,The Koln Concert,1975,Part I,1574\n"));
+
+        assertEquals(5, musicians.getRowsRead());
+        assertEquals(2, musicians.getRowsRejected());
+        assertEquals(1, tracks.getRowsImported());
+        assertEquals(2, dao.loadAll(Album.class).size());
+        assertEquals(2, dao.loadAll(Musician.class).size());
+        assertEquals(1, dao.loadAll(Track.class).size());
+
+        session.clear();
+        Album koln = albumNumbered("ECM 1064");
+        assertEquals(10, koln.getUnitsSold());
+        assertEquals(Collections.singletonList(new Musician("Keith Jarrett")), koln.getFeaturedMusicians());
+        assertEquals(1, koln.getTracks().size());
+        assertEquals(Sets.newHashSet(new Musician("Carla Bley"), new Musician("Keith Jarrett")),
+                Sets.newHashSet(albumNumbered("ECM 2287").getFeaturedMusicians()));
+    }
+
+    @Test
+    public void shouldReportEmptyFile() {
+        ImportReport report = importer.importFile(CatalogueFile.RATINGS, new StringReader("score,comment,source\n"));
+
+        assertEquals(0, report.getRowsRead());
+        assertEquals(0, dao.loadAll(Rating.class).size());
+    }
+
+    private Album albumNumbered(String recordNumber) {
+        Album album = dao.loadAll(Album.class).stream()
+                .filter(a -> a.getRecordNumber().equals(recordNumber))
+                .findFirst()
+                .get();
+        return dao.load(Album.class, album.getId());
+    }
+}
@@ -0,0 +1,135 @@
+package allaboutecm.ingest;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.*;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OfflineStoreImporterTest {
+    private static final String ALBUMS = "recordNumber,albumName,releaseYear,genre,format,unitsSold,albumURL\n"
+            + "ECM 1064,The Koln Concert,1975,Jazz,CD,3500000,https://www.ecmrecords.com/catalogue/143038750696\n"
+            + "ECM 1064,The Koln Concert,1975,Jazz,LP,1,\n"
+            + "ECM 2287,Trios,2013,,,,\n"
+            + "ECM 2288,Too Early,1950,,,,\n";
+    private static final String MUSICIANS = "name,musicianURL,musicianWikipediaURL,biography\n"
+            + "keith jarrett,https://www.keithjarrett.org/,,\"Pianist, \"\"composer\"\"\nand improviser\"\n"
+            + "Carla Bley,,,\n";
+    private static final String TRACKS = "trackNumber,title,duration,composers\n"
+            + "1,Part I,1574,Keith Jarrett\n"
+            + "2,Utviklingssang,470,Carla Bley;Steve Swallow\n";
+    private static final String RATINGS = "score,comment,source\n"
+            + "10,Timeless,Rolling Stone\n";
+
+    private Path stagingDirectory;
+    private Path storeDirectory;
+    private SessionFactory sessionFactory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        stagingDirectory = Files.createTempDirectory("catalogue-staging");
+        storeDirectory = Files.createTempDirectory("catalogue-store").resolve("graph.db");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (null != sessionFactory) {
+            sessionFactory.close();
+        }
+        MoreFiles.deleteRecursively(stagingDirectory, RecursiveDeleteOption.ALLOW_INSECURE);
+        MoreFiles.deleteRecursively(storeDirectory.getParent(), RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+
+    @Test
+    @DisplayName("Importer should not accept null directories")
+    public void shouldThrowNullPointerExceptionIfDirectoryIsNull() {
+        assertThrows(NullPointerException.class, () -> new OfflineStoreImporter(null, storeDirectory));
+        assertThrows(NullPointerException.class, () -> new OfflineStoreImporter(stagingDirectory, null));
+    }
+
+    @Test
+    @DisplayName("Importer should not overwrite an existing store")
+    public void shouldThrowIllegalArgumentExceptionIfStoreExists() {
+        assertThrows(IllegalArgumentException.class, () -> new OfflineStoreImporter(stagingDirectory, stagingDirectory));
+    }
+
+    @Test
+    public void shouldRejectRowsTheModelDoesNotAccept() {
+        OfflineStoreImporter importer = new OfflineStoreImporter(stagingDirectory, storeDirectory);
+
+        ImportReport albums = importer.stageNodes(CatalogueFile.ALBUMS, new StringReader(ALBUMS));
+        ImportReport links = importer.stageLinks(CatalogueLinkFile.ALBUM_RATINGS, new StringReader(
+                "recordNumber,albumName,releaseYear,score,comment,source\n"
+                        + "ECM 1064,The Koln Concert,1975,10,Timeless,Rolling Stone\n"
+                        + "ECM 1064,The Koln Concert,1975,11,Off the scale,Somewhere\n"));
+
+        assertEquals(4, albums.getRowsRead());
+        assertEquals(1, albums.getRowsRejected());
+        assertEquals(1, links.getRowsRejected());
+    }
+
+    @Test
+    public void shouldCreateStoreTheDaoCanLoad() {
+        OfflineStoreImporter importer = new OfflineStoreImporter(stagingDirectory, storeDirectory);
+        importer.stageNodes(CatalogueFile.ALBUMS, new StringReader(ALBUMS));
+        importer.stageNodes(CatalogueFile.MUSICIANS, new StringReader(MUSICIANS));
+        importer.stageNodes(CatalogueFile.TRACKS, new StringReader(TRACKS));
+        importer.stageNodes(CatalogueFile.RATINGS, new StringReader(RATINGS));
+        importer.stageLinks(CatalogueLinkFile.ALBUM_MUSICIANS, new StringReader(
+                "recordNumber,albumName,releaseYear,musician\n"
+                        + "ECM 1064,The Koln Concert,1975,KEITH JARRETT\n"
+                        + "ECM 2287,Trios,2013,Carla Bley\n"
+                        + "ECM 9999,Not Staged,2000,Carla Bley\n"));
+        importer.stageLinks(CatalogueLinkFile.ALBUM_TRACKS, new StringReader(
+                "recordNumber,albumName,releaseYear,title,duration\n"
+                        + "ECM 1064,The Koln Concert,1975,Part I,1574\n"
+                        + "ECM 2287,Trios,2013,Utviklingssang,470\n"));
+        importer.stageLinks(CatalogueLinkFile.ALBUM_RATINGS, new StringReader(
+                "recordNumber,albumName,releaseYear,score,comment,source\n"
+                        + "ECM 1064,The Koln Concert,1975,10,Timeless,Rolling Stone\n"));
+
+        importer.createStore();
+
+        Configuration configuration = new Configuration.Builder().uri(storeDirectory.toUri().toString()).build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        Session session = sessionFactory.openSession();
+        DAO dao = new Neo4jDAO(session);
+
+        Collection<Album> albums = session.loadAll(Album.class, 1);
+        assertEquals(2, albums.size());
+        Album koln = albums.stream().filter(a -> a.getRecordNumber().equals("ECM 1064")).findFirst().get();
+        assertEquals("CD", koln.getFormat());
+        assertEquals(3500000, koln.getUnitsSold());
+        assertEquals(1, koln.getFeaturedMusicians().size());
+        assertEquals("Keith Jarrett", koln.getFeaturedMusicians().get(0).getName());
+        assertEquals("Pianist, \"composer\"\nand improviser", koln.getFeaturedMusicians().get(0).getMusicianBiography());
+        assertEquals(1, koln.getTracks().size());
+        assertEquals(1, koln.getRatings().size());
+
+        Track track = dao.loadAll(Track.class).stream().filter(t -> t.getTrackNumber() == 2).findFirst().get();
+        assertArrayEquals(new String[]{"Carla Bley", "Steve Swallow"}, track.getComposers());
+
+        // The natural keys written by the importer are the ones the DAO matches on.
+        Album trios = new Album(2013, "ECM 2287", "Trios");
+        dao.createOrUpdate(trios);
+        assertEquals(2, dao.loadAll(Album.class).size());
+        Musician carla = new Musician("Carla Bley");
+        dao.createOrUpdate(carla);
+        assertEquals(2, dao.loadAll(Musician.class).size());
+    }
+}
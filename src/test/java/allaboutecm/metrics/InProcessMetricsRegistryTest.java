@@ -0,0 +1,142 @@
+package allaboutecm.metrics;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InProcessMetricsRegistryTest {
+    private static final String MBEAN_NAME = "InProcessMetricsRegistryTest";
+
+    @AfterEach
+    public void tearDown() {
+        InProcessMetricsRegistry.unregisterMBean(MBEAN_NAME);
+    }
+
+    @Test
+    public void shouldThrowNullPointerExceptionIfTickerIsNull() {
+        assertThrows(NullPointerException.class, () -> new InProcessMetricsRegistry(null));
+    }
+
+    @Test
+    @DisplayName("Calls should be recorded per operation and entity class")
+    public void callsShouldBeRecordedPerOperationAndClass() {
+        FakeTicker ticker = new FakeTicker();
+        InProcessMetricsRegistry registry = new InProcessMetricsRegistry(ticker);
+        registry.record("load", Album.class, TimeUnit.MILLISECONDS.toNanos(2), 1, false);
+        registry.record("load", Album.class, TimeUnit.MILLISECONDS.toNanos(4), 0, true);
+        registry.record("load", Musician.class, TimeUnit.MILLISECONDS.toNanos(1), 1, false);
+        registry.record("query", null, TimeUnit.MILLISECONDS.toNanos(1), 7, false);
+        ticker.advance(2, TimeUnit.SECONDS);
+
+        OperationStats albums = registry.getOperation("load", Album.class);
+        assertEquals(2, albums.getCount());
+        assertEquals(1, albums.getErrorCount());
+        assertEquals(1, albums.getRows());
+        assertEquals(1.0, albums.getThroughput(), 1e-9);
+        assertEquals(3.0, albums.getMeanMillis(), 1e-9);
+        assertEquals(4.0, albums.getMaxMillis(), 1e-9);
+        assertEquals(2.0, albums.getP50Millis(), 2.0 / 64);
+        assertEquals(4.0, albums.getP99Millis(), 4.0 / 64);
+
+        assertEquals(7, registry.getOperation("query", null).getRows());
+        assertEquals("*", registry.getOperation("query", null).getEntityClass());
+        assertNull(registry.getOperation("delete", Album.class));
+        assertEquals(1, registry.getErrorCount());
+
+        List<String> order = Lists.newArrayList();
+        registry.getOperations().forEach(stats -> order.add(stats.getOperation() + " " + stats.getEntityClass()));
+        assertEquals(Lists.newArrayList("load Album", "load Musician", "query *"), order);
+    }
+
+    @Test
+    @DisplayName("Reset should forget every operation and restart the throughput window")
+    public void resetShouldForgetOperations() {
+        FakeTicker ticker = new FakeTicker();
+        InProcessMetricsRegistry registry = new InProcessMetricsRegistry(ticker);
+        registry.record("load", Album.class, 1000, 1, true);
+        ticker.advance(10, TimeUnit.SECONDS);
+        registry.reset();
+
+        assertTrue(registry.getOperations().isEmpty());
+        assertEquals(0, registry.getErrorCount());
+
+        registry.record("load", Album.class, 1000, 1, false);
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertEquals(1.0, registry.getOperation("load", Album.class).getThroughput(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Time should record the rows of the result, or a failure if the call throws")
+    public void timeShouldRecordRowsAndFailures() {
+        InProcessMetricsRegistry registry = new InProcessMetricsRegistry();
+        List<String> result = registry.time("loadAll", Album.class, () -> Lists.newArrayList("a", "b"), List::size);
+        assertEquals(2, result.size());
+        assertThrows(IllegalStateException.class, () -> registry.time("loadAll", Album.class, () -> {
+            throw new IllegalStateException();
+        }, ignored -> 1));
+
+        OperationStats stats = registry.getOperation("loadAll", Album.class);
+        assertEquals(2, stats.getCount());
+        assertEquals(1, stats.getErrorCount());
+        assertEquals(2, stats.getRows());
+    }
+
+    @Test
+    @DisplayName("The registry should be readable over JMX once registered")
+    public void registryShouldBeReadableOverJmx() {
+        InProcessMetricsRegistry registry = new InProcessMetricsRegistry();
+        ObjectName name = registry.registerMBean(MBEAN_NAME);
+        registry.record("load", Album.class, 1000, 1, true);
+
+        MetricsMXBean proxy = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(), name, MetricsMXBean.class);
+        assertEquals(1, proxy.getErrorCount());
+        assertEquals(1, proxy.getOperations().size());
+        assertEquals("load", proxy.getOperations().get(0).getOperation());
+        assertEquals("Album", proxy.getOperations().get(0).getEntityClass());
+
+        proxy.reset();
+        assertTrue(registry.getOperations().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> registry.registerMBean(MBEAN_NAME));
+    }
+
+    @Test
+    @DisplayName("The no-op registry should record nothing and still run the call")
+    public void noopShouldOnlyRunTheCall() {
+        assertEquals("a", MetricsRegistry.noop().time("load", Album.class, () -> "a", ignored -> 1));
+        MetricsRegistry.noop().record("load", Album.class, 1, 1, false);
+    }
+
+    @Test
+    public void classOfShouldBeNullForMixedClasses() {
+        assertEquals(Album.class, MetricsRegistry.classOf(Lists.newArrayList(
+                new Album(1975, "ECM 1064/65", "The Köln Concert"), new Album(1970, "ECM 1001", "Free At Last"))));
+        assertNull(MetricsRegistry.classOf(Lists.newArrayList(
+                new Album(1975, "ECM 1064/65", "The Köln Concert"), new Musician("Keith Jarrett"))));
+        assertNull(MetricsRegistry.classOf(Lists.newArrayList()));
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package allaboutecm.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+    @Test
+    @DisplayName("An empty histogram should have no count, mean, max or percentiles")
+    public void emptyHistogramShouldBeZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {-1, 100.1})
+    public void shouldThrowIllegalArgumentExceptionIfPercentileOutOfRange(double arg) {
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram().getValueAtPercentile(arg));
+    }
+
+    @Test
+    @DisplayName("Buckets should be contiguous, each value falling in the bucket whose range holds it")
+    public void bucketsShouldBeContiguous() {
+        for (int index = 1; index <= LatencyHistogram.indexOf(LatencyHistogram.MAXIMUM_VALUE); index++) {
+            long lowest = LatencyHistogram.highestValueOf(index - 1) + 1;
+            assertEquals(index, LatencyHistogram.indexOf(lowest));
+            assertEquals(index, LatencyHistogram.indexOf(LatencyHistogram.highestValueOf(index)));
+        }
+        assertEquals(LatencyHistogram.MAXIMUM_VALUE,
+                LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(LatencyHistogram.MAXIMUM_VALUE)));
+    }
+
+    @Test
+    @DisplayName("Percentiles should be within the precision of the buckets")
+    public void percentilesShouldBeWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_500, histogram.getMean(), 1);
+        assertEquals(5_000_000, histogram.getValueAtPercentile(50), 5_000_000 / 64.0);
+        assertEquals(9_900_000, histogram.getValueAtPercentile(99), 9_900_000 / 64.0);
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    @DisplayName("Percentiles should never be below the value they rank")
+    public void percentilesShouldNotUnderstate() {
+        Random random = new Random(42);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) (Math.exp(random.nextDouble() * 20));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        long p90 = histogram.getValueAtPercentile(90);
+        assertTrue(p90 >= values[899]);
+        assertTrue(p90 <= values[899] + values[899] / 64);
+    }
+
+    @Test
+    @DisplayName("Values out of range should be clamped rather than rejected")
+    public void valuesOutOfRangeShouldBeClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(LatencyHistogram.MAXIMUM_VALUE, histogram.getMax());
+    }
+
+    @Test
+    public void resetShouldForgetEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+}
@@ -0,0 +1,128 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import allaboutecm.model.MusicianGroup;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlbumSimilarityIndexTest {
+    private Musician keith;
+    private Musician jan;
+    private Musician gary;
+    private Album kolnConcert;
+    private Album belonging;
+    private Album tribute;
+    private Album concerts;
+
+    @BeforeEach
+    public void setUp() {
+        keith = new Musician("Keith Jarrett");
+        jan = new Musician("Jan Garbarek");
+        gary = new Musician("Gary Peacock");
+
+        kolnConcert = new Album(1975, "ECM 1064/65", "The Köln Concert");
+        kolnConcert.setFeaturedMusicians(Lists.newArrayList(keith));
+        belonging = new Album(1974, "ECM 1050", "Belonging");
+        belonging.setFeaturedMusicians(Lists.newArrayList(keith, jan));
+        tribute = new Album(1990, "ECM 1420/21", "Tribute");
+        tribute.setFeaturedMusicians(Lists.newArrayList(keith, gary));
+        tribute.setMusicianGroup(new MusicianGroup("Standards Trio"));
+        concerts = new Album(1982, "ECM 1227/29", "Concerts");
+    }
+
+    @Test
+    public void wordsShouldBeLowerCaseWithoutPunctuationAndStopWords() {
+        assertEquals(Sets.newHashSet("köln", "concert"), AlbumSimilarityIndex.words("The Köln Concert"));
+        assertEquals(Sets.newHashSet("free", "last", "extended", "edition"),
+                AlbumSimilarityIndex.words("FREE AT LAST (EXTENDED EDITION)"));
+        assertTrue(AlbumSimilarityIndex.words(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Albums sharing more weighted features should rank higher")
+    public void shouldRankByWeightedOverlap() {
+        AlbumSimilarityIndex index = AlbumSimilarityIndex.of(Arrays.asList(kolnConcert, belonging, tribute, concerts));
+
+        Album query = new Album(1976, "ECM 1090", "Staircase Concert");
+        query.setFeaturedMusicians(Lists.newArrayList(keith, jan));
+
+        // belonging shares two musicians, the Köln Concert a musician and a word, tribute a musician.
+        assertEquals(Arrays.asList(belonging, kolnConcert, tribute), index.mostSimilar(query, 3));
+        assertEquals(Collections.singletonList(belonging), index.mostSimilar(query, 1));
+    }
+
+    @Test
+    public void shouldNotReturnAlbumsSharingNothingNorTheAlbumItself() {
+        AlbumSimilarityIndex index = AlbumSimilarityIndex.of(Arrays.asList(kolnConcert, belonging, tribute, concerts));
+
+        List<Album> results = index.mostSimilar(kolnConcert, 10);
+
+        assertEquals(Arrays.asList(belonging, tribute), results);
+    }
+
+    @Test
+    public void shouldMatchMusicianGroupWords() {
+        AlbumSimilarityIndex index = AlbumSimilarityIndex.of(Arrays.asList(kolnConcert, belonging, tribute));
+        Album query = new Album(1983, "ECM 1255", "Standards, Vol. 1");
+        query.setMusicianGroup(new MusicianGroup("Keith Jarrett Trio"));
+
+        assertEquals(Collections.singletonList(tribute), index.mostSimilar(query, 5));
+    }
+
+    @Test
+    public void addShouldReplaceTheAlbumWithTheSameId() {
+        kolnConcert.setId(1L);
+        AlbumSimilarityIndex index = AlbumSimilarityIndex.of(Arrays.asList(kolnConcert, belonging));
+
+        kolnConcert.setAlbumName("Sun Bear Concerts");
+        kolnConcert.setFeaturedMusicians(Lists.newArrayList(gary));
+        index.add(kolnConcert);
+
+        assertEquals(2, index.size());
+        assertTrue(index.mostSimilar(belonging, 5).isEmpty());
+        Album query = new Album(1978, "ECM 1100", "Sun Bear");
+        assertEquals(Collections.singletonList(kolnConcert), index.mostSimilar(query, 5));
+    }
+
+    @Test
+    public void removeShouldDropTheAlbumFromThePostings() {
+        AlbumSimilarityIndex index = AlbumSimilarityIndex.of(Arrays.asList(kolnConcert, belonging, tribute));
+
+        index.remove(new Album(1974, "ECM 1050", "Belonging"));
+
+        assertEquals(2, index.size());
+        assertEquals(Collections.singletonList(tribute), index.mostSimilar(kolnConcert, 5));
+    }
+
+    @Test
+    public void deletingAMusicianShouldStopAlbumsMatchingOnIt() {
+        AlbumSimilarityIndex index = AlbumSimilarityIndex.of(Arrays.asList(kolnConcert, belonging, tribute));
+
+        index.deleted(keith);
+
+        Album query = new Album(1976, "ECM 1090", "Staircase");
+        query.setFeaturedMusicians(Lists.newArrayList(keith, jan));
+        assertEquals(Collections.singletonList(belonging), index.mostSimilar(query, 5));
+    }
+
+    @Test
+    public void savedShouldIndexAlbumsAndIgnoreOtherEntities() {
+        AlbumSimilarityIndex index = new AlbumSimilarityIndex();
+
+        index.saved(belonging);
+        index.saved(keith);
+
+        assertEquals(1, index.size());
+        assertEquals(Collections.singletonList(belonging), index.mostSimilar(kolnConcert, 5));
+    }
+}
@@ -0,0 +1,256 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import allaboutecm.model.Rating;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.*;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingMiningBackendTest {
+    private static Neo4jDAO dao;
+    private static Session session;
+    private static SessionFactory sessionFactory;
+
+    private CountingBackend counting;
+    private CachingMiningBackend backend;
+
+    @BeforeAll
+    public static void setUp() {
+        // Impermanent embedded store
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        session = sessionFactory.openSession();
+        dao = new Neo4jDAO(session);
+    }
+
+    @BeforeEach
+    public void setUpEach() {
+        counting = new CountingBackend();
+        backend = new CachingMiningBackend(counting, 2);
+    }
+
+    @AfterEach
+    public void tearDownEach() {
+        session.purgeDatabase();
+        session.clear();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        session.purgeDatabase();
+        session.clear();
+        sessionFactory.close();
+    }
+
+    @Test
+    public void shouldThrowIllegalArgumentExceptionIfMaximumSizeLessThanOne() {
+        assertThrows(IllegalArgumentException.class, () -> new CachingMiningBackend(counting, 0));
+        assertThrows(NullPointerException.class, () -> new CachingMiningBackend(null));
+    }
+
+    @Test
+    @DisplayName("Repeated rankings with the same arguments should be computed once")
+    public void repeatedRankingsShouldBeComputedOnce() {
+        assertEquals(Arrays.asList(1, 2011, 2012), backend.busiestYears(1));
+        assertEquals(Arrays.asList(1, 2011, 2012), backend.busiestYears(1));
+        assertEquals(Arrays.asList(2, 2011, 2012), backend.busiestYears(2));
+
+        assertEquals(2, counting.queries.get());
+        assertEquals(2, backend.getMissCount());
+        assertEquals(1, backend.getHitCount());
+        assertEquals(1.0 / 3, backend.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void changingAReturnedListShouldNotChangeTheCachedResult() {
+        backend.busiestYears(1).clear();
+
+        assertEquals(Arrays.asList(1, 2011, 2012), backend.busiestYears(1));
+    }
+
+    @Test
+    @DisplayName("A write should only invalidate the rankings reading its entity class")
+    public void writesShouldInvalidateRankingsReadingTheirClass() {
+        backend.busiestYears(1);
+        backend.mostTalentedMusicians(1);
+
+        backend.saved(new Rating(8, "Fine", "A"));
+        backend.busiestYears(1);
+        backend.mostTalentedMusicians(1);
+        assertEquals(2, counting.queries.get());
+
+        backend.deleted(new Album(1975, "ECM 1064/65", "The Köln Concert"));
+        backend.busiestYears(1);
+        backend.mostTalentedMusicians(1);
+        assertEquals(3, counting.queries.get());
+        assertEquals(1, backend.getStaleCount());
+
+        backend.invalidateAll();
+        backend.mostTalentedMusicians(1);
+        assertEquals(4, counting.queries.get());
+    }
+
+    @Test
+    public void leastRecentlyUsedResultsShouldBeEvicted() {
+        backend.busiestYears(1);
+        backend.busiestYears(2);
+        backend.busiestYears(3);
+
+        assertEquals(2, backend.size());
+        assertEquals(1, backend.getEvictionCount());
+    }
+
+    @Test
+    public void failedQueriesShouldNotBeCached() {
+        counting.failures.set(1);
+        assertThrows(IllegalStateException.class, () -> backend.bestSellingAlbums(1));
+
+        assertTrue(backend.bestSellingAlbums(1).isEmpty());
+        assertEquals(2, counting.queries.get());
+    }
+
+    @Test
+    @DisplayName("Concurrent identical requests should share one query")
+    public void concurrentIdenticalRequestsShouldShareOneQuery() throws Exception {
+        counting.release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Integer>>> requests = Lists.newArrayList();
+            for (int i = 0; i < 8; i++) {
+                requests.add(executor.submit(() -> backend.busiestYears(3)));
+            }
+            while (backend.getMissCount() + backend.getDeduplicatedCount() < 8) {
+                Thread.sleep(10);
+            }
+            counting.release.countDown();
+
+            for (Future<List<Integer>> request : requests) {
+                assertEquals(Arrays.asList(3, 2011, 2012), request.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, counting.queries.get());
+        assertEquals(7, backend.getDeduplicatedCount());
+    }
+
+    @Test
+    @DisplayName("Rankings should follow the writes through the DAO")
+    public void rankingsShouldFollowWritesThroughTheDAO() {
+        try (CachingMiningBackend cached = CachingMiningBackend.listeningTo(dao, new CypherMiningBackend(dao))) {
+            Album kolnConcert = new Album(1975, "ECM 1064/65", "The Köln Concert");
+            kolnConcert.setUnitsSold(3500000);
+            dao.createOrUpdate(kolnConcert);
+            assertEquals(Collections.singletonList(kolnConcert), cached.bestSellingAlbums(5));
+            assertEquals(Collections.singletonList(kolnConcert), cached.bestSellingAlbums(5));
+
+            Album belonging = new Album(1974, "ECM 1050", "Belonging");
+            belonging.setUnitsSold(5000000);
+            dao.createOrUpdate(belonging);
+
+            assertEquals(Arrays.asList(belonging, kolnConcert), cached.bestSellingAlbums(5));
+            assertEquals(2, cached.getMissCount());
+            assertEquals(1, cached.getHitCount());
+        }
+    }
+
+    @Test
+    @DisplayName("A cache should listen to the DAO until closed")
+    public void closingTheCacheShouldStopItListening() {
+        List<DAOListener> listeners = Lists.newArrayList();
+        Neo4jDAO listened = new Neo4jDAO(session) {
+            @Override
+            public void addListener(DAOListener listener) {
+                listeners.add(listener);
+                super.addListener(listener);
+            }
+
+            @Override
+            public void removeListener(DAOListener listener) {
+                listeners.remove(listener);
+                super.removeListener(listener);
+            }
+        };
+        MiningBackend cached = MiningBackend.cachedForDao(listened);
+        assertEquals(1, listeners.size());
+        cached.busiestYears(5);
+        assertEquals(1, ((CachingMiningBackend) cached).size());
+
+        cached.close();
+        assertTrue(listeners.isEmpty());
+        assertEquals(0, ((CachingMiningBackend) cached).size());
+    }
+
+    /**
+     * Returns k followed by two years, counting the queries, optionally failing or waiting first.
+     */
+    private static class CountingBackend implements MiningBackend {
+        private final AtomicInteger queries = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile CountDownLatch release;
+
+        @Override
+        public List<Musician> mostProlificMusicians(int k, int startYear, int endYear) {
+            query();
+            return Lists.newArrayList();
+        }
+
+        @Override
+        public List<Musician> mostTalentedMusicians(int k) {
+            query();
+            return Lists.newArrayList();
+        }
+
+        @Override
+        public List<Musician> mostSocialMusicians(int k) {
+            query();
+            return Lists.newArrayList();
+        }
+
+        @Override
+        public List<Integer> busiestYears(int k) {
+            query();
+            return Lists.newArrayList(k, 2011, 2012);
+        }
+
+        @Override
+        public List<Album> bestSellingAlbums(int k) {
+            query();
+            return Lists.newArrayList();
+        }
+
+        @Override
+        public List<Album> highestRatedAlbums(int k) {
+            query();
+            return Lists.newArrayList();
+        }
+
+        private void query() {
+            queries.incrementAndGet();
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Query failed");
+            }
+            if (null != release) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.dataaccess.neo4j.ThreadSessionProvider;
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import org.junit.jupiter.api.*;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Thousands of miner requests at once against one shared DAO and one pair of miners. Runs them on
+ * a virtual thread per request where the JVM has virtual threads, otherwise on a fixed pool.
+ */
+class ConcurrentMinersLoadTest {
+    private static final int REQUESTS = 2000;
+    private static final int POOL_THREADS = 32;
+    private static final String[] MUSICIANS = {"Keith Jarrett", "Jan Garbarek", "Charlie Haden",
+            "Pat Metheny", "Ralph Towner", "Egberto Gismonti"};
+
+    private static SessionFactory sessionFactory;
+    private static Session session;
+
+    private ThreadSessionProvider sessions;
+    private Neo4jDAO dao;
+
+    @BeforeAll
+    public static void setUpAll() {
+        // Impermanent embedded store
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        session = sessionFactory.openSession();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        sessions = new ThreadSessionProvider(sessionFactory);
+        dao = new Neo4jDAO(sessions);
+
+        List<Musician> musicians = Lists.newArrayList();
+        for (String name : MUSICIANS) {
+            musicians.add(new Musician(name));
+        }
+        List<Album> albums = Lists.newArrayList();
+        for (int i = 0; i < 60; i++) {
+            Album album = new Album(1970 + i % 12, "ECM " + (1000 + i), "Album " + i);
+            album.setUnitsSold(1000 * (i + 1));
+            album.setFeaturedMusicians(Lists.newArrayList(musicians.get(i % musicians.size()),
+                    musicians.get((i + 1) % musicians.size())));
+            albums.add(album);
+        }
+        dao.createOrUpdateAll(albums);
+    }
+
+    @AfterEach
+    public void tearDownEach() {
+        session.purgeDatabase();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        session.purgeDatabase();
+        session.clear();
+        sessionFactory.close();
+    }
+
+    @Test
+    @DisplayName("Miners shared by thousands of concurrent requests should answer every one as a single request would")
+    public void sharedMinersShouldServeThousandsOfConcurrentRequests() throws Exception {
+        try (ECMAlbumMiner albumMiner = new ECMAlbumMiner(dao)) {
+            ECMMusicianMiner musicianMiner = new ECMMusicianMiner(dao);
+            Album query = Lists.newArrayList(dao.loadAll(Album.class)).get(0);
+
+            List<Album> bestSelling = albumMiner.bestSellingAlbums(5);
+            List<Album> similar = albumMiner.mostSimilarAlbums(3, query);
+            List<Integer> busiest = musicianMiner.busiestYears(3);
+            assertEquals(5, bestSelling.size());
+            assertEquals(3, similar.size());
+            assertEquals(3, busiest.size());
+
+            ExecutorService executor = virtualThreadPerTaskExecutor();
+            boolean pooled = null == executor;
+            if (pooled) {
+                executor = Executors.newFixedThreadPool(POOL_THREADS);
+            }
+
+            List<Future<Object>> results = Lists.newArrayListWithCapacity(REQUESTS);
+            CountDownLatch start = new CountDownLatch(1);
+            try {
+                for (int i = 0; i < REQUESTS; i++) {
+                    int request = i;
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        switch (request % 3) {
+                            case 0:
+                                return albumMiner.bestSellingAlbums(5);
+                            case 1:
+                                return albumMiner.mostSimilarAlbums(3, query);
+                            default:
+                                return musicianMiner.busiestYears(3);
+                        }
+                    }));
+                }
+                start.countDown();
+
+                for (int i = 0; i < REQUESTS; i++) {
+                    Object expected = i % 3 == 0 ? bestSelling : i % 3 == 1 ? similar : busiest;
+                    assertEquals(expected, results.get(i).get(60, TimeUnit.SECONDS));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            if (pooled) {
+                // One session per pool thread, plus the one of the test thread.
+                assertTrue(sessions.getOpenedSessions() <= POOL_THREADS + 1);
+            }
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor(), or null if the JVM has no virtual threads.
+     */
+    private static ExecutorService virtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
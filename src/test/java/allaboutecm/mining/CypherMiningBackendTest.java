@@ -0,0 +1,226 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.CachingDAO;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.*;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CypherMiningBackendTest {
+    private static Neo4jDAO dao;
+    private static Session session;
+    private static SessionFactory sessionFactory;
+
+    private CypherMiningBackend cypherBackend;
+    private InMemoryMiningBackend inMemoryBackend;
+
+    @BeforeAll
+    public static void setUp() {
+        // Impermanent embedded store
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        session = sessionFactory.openSession();
+        dao = new Neo4jDAO(session);
+    }
+
+    @BeforeEach
+    public void setUpEach() {
+        cypherBackend = new CypherMiningBackend(dao);
+        inMemoryBackend = new InMemoryMiningBackend(dao);
+    }
+
+    @AfterEach
+    public void tearDownEach() {
+        session.purgeDatabase();
+        session.clear();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        session.purgeDatabase();
+        session.clear();
+        sessionFactory.close();
+    }
+
+    @Test
+    @DisplayName("Backend should not accept a null DAO")
+    public void shouldThrowNullPointerExceptionIfDaoIsNull() {
+        assertThrows(NullPointerException.class, () -> new CypherMiningBackend(null));
+    }
+
+    @Test
+    public void minersShouldQueryTheDatabaseForAnyNeo4jDAO() {
+        assertTrue(MiningBackend.forDao(dao) instanceof CypherMiningBackend);
+        assertTrue(MiningBackend.forDao(new Neo4jDAO(session) {}) instanceof CypherMiningBackend);
+        assertTrue(MiningBackend.forDao(new CachingDAO(dao)) instanceof CypherMiningBackend);
+        assertTrue(MiningBackend.forDao(new CachingDAO(new Neo4jDAO(session) {})) instanceof CypherMiningBackend);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1, -1, -1", "2, -1, -1", "4, -1, -1", "5, 2010, 2011", "5, 2011, -1", "5, -1, 2010", "5, 0, 0", "5, 2019, -1"})
+    public void mostProlificMusiciansShouldMatchInMemoryRanking(int k, int startYear, int endYear) {
+        saveMusicians();
+
+        List<Musician> expected = inMemoryBackend.mostProlificMusicians(k, startYear, endYear);
+        List<Musician> actual = cypherBackend.mostProlificMusicians(k, startYear, endYear);
+
+        assertEquals(expected.size(), actual.size());
+        assertTrue(actual.containsAll(expected));
+    }
+
+    @Test
+    public void mostProlificMusiciansShouldBreakTiesByName() {
+        saveMusicians();
+
+        List<Musician> musicians = cypherBackend.mostProlificMusicians(5, -1, -1);
+
+        assertEquals(Arrays.asList(new Musician("Philip Wilson"), new Musician("Julia Andrews"),
+                new Musician("Ayu Ko"), new Musician("Jean Den"), new Musician("Katy Moore")), musicians);
+    }
+
+    @Test
+    public void mostSocialMusiciansShouldCountFeaturedAlbums() {
+        saveAlbums();
+
+        List<Musician> musicians = cypherBackend.mostSocialMusicians(3);
+
+        assertEquals(Arrays.asList(new Musician("Philip Wilson"), new Musician("Julia Andrews"),
+                new Musician("Ayu Ko")), musicians);
+        assertEquals(inMemoryBackend.mostSocialMusicians(1), cypherBackend.mostSocialMusicians(1));
+    }
+
+    @Test
+    public void busiestYearsShouldBreakTiesByYearAndSkipYearZero() {
+        saveAlbums();
+        dao.createOrUpdate(new Album());
+
+        assertEquals(Arrays.asList(2011, 2010, 2016, 2018), cypherBackend.busiestYears(5));
+        assertEquals(Arrays.asList(2011), cypherBackend.busiestYears(1));
+    }
+
+    @Test
+    public void bestSellingAlbumsShouldSkipAlbumsWithoutSales() {
+        Album[] albums = albums();
+        int[] unitsSold = {500, 0, 20, 3000, 0, 20, 1};
+        for (int i = 0; i < albums.length; i++) {
+            albums[i].setUnitsSold(unitsSold[i]);
+            dao.createOrUpdate(albums[i]);
+        }
+
+        List<Album> bestSelling = cypherBackend.bestSellingAlbums(10);
+
+        assertEquals(5, bestSelling.size());
+        assertEquals(albums[3], bestSelling.get(0));
+        assertEquals(albums[0], bestSelling.get(1));
+        assertEquals(albums[6], bestSelling.get(4));
+        assertEquals(inMemoryBackend.bestSellingAlbums(2), cypherBackend.bestSellingAlbums(2));
+    }
+
+    @Test
+    public void highestRatedAlbumsShouldAverageRatingsAndBreakTiesByName() {
+        Album[] albums = albums();
+        albums[0].setRatings(Sets.newHashSet(new Rating(10, "Great", "A"), new Rating(6, "Good", "B")));
+        albums[1].setRatings(Sets.newHashSet(new Rating(9, "Great", "A")));
+        albums[2].setRatings(Sets.newHashSet(new Rating(8, "Great", "A")));
+        albums[3].setRatings(Sets.newHashSet(new Rating(8, "Fine", "C"), new Rating(8, "Fine", "D")));
+        for (Album album : albums) {
+            dao.createOrUpdate(album);
+        }
+
+        List<Album> highestRated = cypherBackend.highestRatedAlbums(10);
+
+        // Morning 9, then Guitar, Happy and Home all at 8, by name; unrated albums are left out.
+        assertEquals(Arrays.asList(albums[1], albums[3], albums[2], albums[0]), highestRated);
+        assertEquals(inMemoryBackend.highestRatedAlbums(1), cypherBackend.highestRatedAlbums(1));
+    }
+
+    @Test
+    @DisplayName("Most talented musicians should count the different instruments played on any album")
+    public void mostTalentedMusiciansShouldCountDifferentInstrumentsOnAnyAlbum() {
+        Musician keith = new Musician("Keith Jarrett");
+        Musician jan = new Musician("Jan Garbarek");
+        Musician charlie = new Musician("Charlie Haden");
+        MusicalInstrument piano = new MusicalInstrument("Piano");
+        MusicalInstrument saxophone = new MusicalInstrument("Saxophone");
+        MusicalInstrument flute = new MusicalInstrument("Flute");
+        MusicalInstrument bass = new MusicalInstrument("Bass");
+        // Piano and saxophone on one album, piano again and flute on another: three instruments.
+        dao.createOrUpdate(new MusicianInstrument(keith, Sets.newHashSet(piano, saxophone)));
+        dao.createOrUpdate(new MusicianInstrument(keith, Sets.newHashSet(piano, flute)));
+        dao.createOrUpdate(new MusicianInstrument(jan, Sets.newHashSet(saxophone, flute)));
+        dao.createOrUpdate(new MusicianInstrument(charlie, Sets.newHashSet(bass, piano)));
+        dao.createOrUpdate(new Musician("Ralph Towner"));
+
+        List<Musician> musicians = cypherBackend.mostTalentedMusicians(5);
+
+        assertEquals(Arrays.asList(keith, charlie, jan), musicians);
+        assertEquals(inMemoryBackend.mostTalentedMusicians(5), musicians);
+    }
+
+    @Test
+    public void shouldReturnEmptyListsForEmptyDatabase() {
+        assertEquals(0, cypherBackend.mostProlificMusicians(5, -1, -1).size());
+        assertEquals(0, cypherBackend.mostTalentedMusicians(5).size());
+        assertEquals(0, cypherBackend.mostSocialMusicians(5).size());
+        assertEquals(0, cypherBackend.busiestYears(5).size());
+        assertEquals(0, cypherBackend.bestSellingAlbums(5).size());
+        assertEquals(0, cypherBackend.highestRatedAlbums(5).size());
+    }
+
+    private static void saveMusicians() {
+        Album[] albums = albums();
+        Musician musician1 = new Musician("Jean Den");
+        Musician musician2 = new Musician("Ayu Ko");
+        Musician musician3 = new Musician("Julia Andrews");
+        Musician musician4 = new Musician("Philip Wilson");
+        Musician musician5 = new Musician("Katy Moore");
+        musician1.setAlbums(Sets.newHashSet(albums[0], albums[1], albums[4]));
+        musician2.setAlbums(Sets.newHashSet(albums[3], albums[4], albums[5]));
+        musician3.setAlbums(Sets.newHashSet(albums[2], albums[4], albums[6], albums[0]));
+        musician4.setAlbums(Sets.newHashSet(albums[6], albums[4], albums[3], albums[1], albums[5]));
+        musician5.setAlbums(Sets.newHashSet(albums[5]));
+        for (Musician musician : Arrays.asList(musician1, musician2, musician3, musician4, musician5)) {
+            dao.createOrUpdate(musician);
+        }
+    }
+
+    private static void saveAlbums() {
+        Album[] albums = albums();
+        Musician musician1 = new Musician("Jean Den");
+        Musician musician2 = new Musician("Ayu Ko");
+        Musician musician3 = new Musician("Julia Andrews");
+        Musician musician4 = new Musician("Philip Wilson");
+        Musician musician5 = new Musician("Katy Moore");
+        albums[0].setFeaturedMusicians(Arrays.asList(musician1, musician3));
+        albums[1].setFeaturedMusicians(Arrays.asList(musician1, musician4));
+        albums[2].setFeaturedMusicians(Arrays.asList(musician3));
+        albums[3].setFeaturedMusicians(Arrays.asList(musician2, musician4));
+        albums[4].setFeaturedMusicians(Arrays.asList(musician1, musician2, musician3, musician4));
+        albums[5].setFeaturedMusicians(Arrays.asList(musician2, musician5, musician4));
+        albums[6].setFeaturedMusicians(Arrays.asList(musician3, musician4));
+        for (Album album : albums) {
+            dao.createOrUpdate(album);
+        }
+    }
+
+    private static Album[] albums() {
+        return new Album[]{
+                new Album(2010, "ECM 1234", "Home"),
+                new Album(2016, "ECM 4567", "Morning"),
+                new Album(2018, "ECM 3567", "Happy"),
+                new Album(2011, "ECM 9897", "Guitar"),
+                new Album(2010, "ECM 5345", "Rose"),
+                new Album(2011, "ECM 5447", "Orange"),
+                new Album(2011, "ECM 5677", "Kitaro")};
+    }
+}
@@ -1,7 +1,6 @@
 package allaboutecm.mining;
 
 import allaboutecm.dataaccess.DAO;
-import allaboutecm.dataaccess.neo4j.Neo4jDAO;
 import allaboutecm.model.*;
 import com.google.common.collect.Sets;
 import org.junit.jupiter.api.*;
@@ -31,8 +30,8 @@ class ECMAlbumMinerTest {
 
     @BeforeEach
     public void setUp() {
-        dao = mock(Neo4jDAO.class);
-        ecmMiner = new ECMAlbumMiner(dao);
+        dao = mock(DAO.class);
+        ecmMiner = new ECMAlbumMiner(dao, new InMemoryMiningBackend(dao));
     }
 
     private static void prepareObjects() {
@@ -138,6 +137,14 @@ class ECMAlbumMinerTest {
         assertThrows(IllegalArgumentException.class, () -> this.ecmMiner.bestSellingAlbums(arg));
     }
 
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0})
+    @DisplayName("LSH bands and rows should not be less than 1")
+    public void throwIllegalArgExceptionIfBandsOrRowsLessThanOne(int arg) {
+        assertThrows(IllegalArgumentException.class, () -> new ECMAlbumMiner(dao, new InMemoryMiningBackend(dao), arg, 4));
+        assertThrows(IllegalArgumentException.class, () -> new ECMAlbumMiner(dao, new InMemoryMiningBackend(dao), 16, arg));
+    }
+
     @ParameterizedTest
     @ValueSource(ints = {1,2,9})
     @DisplayName("should Not Throw Illegal Argument Exception When K is valid")
@@ -331,4 +338,4 @@ class ECMAlbumMinerTest {
         musicians.clear();
         musicianInstruments.clear();
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
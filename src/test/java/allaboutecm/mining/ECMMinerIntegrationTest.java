@@ -1,6 +1,7 @@
 package allaboutecm.mining;
 
 import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.DAOListener;
 import allaboutecm.dataaccess.neo4j.Neo4jDAO;
 import allaboutecm.model.*;
 import com.google.common.collect.Lists;
@@ -14,6 +15,7 @@ import org.neo4j.ogm.session.SessionFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -52,6 +54,7 @@ class ECMMinerIntegrationTest {
 
     @AfterEach
     public void tearDownEach() {
+        ecmAlbumMiner.close();
         session.purgeDatabase();
     }
 
@@ -713,6 +716,112 @@ class ECMMinerIntegrationTest {
         }
     }
 
+    @Test
+    public void similarAlbumsShouldFollowAlbumsSavedAndDeletedAfterTheFirstQuery() {
+        Album album = new Album(2019, "ECM 3523", "Orange Lemon");
+        prepareObjects("Album");
+        albums.forEach(a -> { dao.createOrUpdate(a); });
+        assertEquals(1, ecmAlbumMiner.mostSimilarAlbums(4, album).size());
+
+        Album lemon = new Album(2020, "ECM 3524", "Lemon");
+        dao.createOrUpdate(lemon);
+        List<Album> results = ecmAlbumMiner.mostSimilarAlbums(4, album);
+        assertEquals(2, results.size());
+        assertTrue(results.contains(lemon));
+
+        dao.delete(lemon);
+        results = ecmAlbumMiner.mostSimilarAlbums(4, album);
+        assertEquals(1, results.size());
+        assertEquals("Orange", results.get(0).getAlbumName());
+    }
+
+    @Test
+    @DisplayName("Albums saved through another session should be indexed with their musicians")
+    public void similarAlbumsShouldMatchMusiciansOfAlbumsSavedThroughAnotherSession() {
+        prepareObjects("Album");
+        albums.forEach(a -> { dao.createOrUpdate(a); });
+        Album album = new Album(2019, "ECM 3523", "Theory");
+        album.setFeaturedMusicians(Arrays.asList(new Musician("Jean Den")));
+
+        try (ECMAlbumMiner miner = new ECMAlbumMiner(new Neo4jDAO(sessionFactory.openSession()))) {
+            List<Album> results = miner.mostSimilarAlbums(4, album);
+
+            assertEquals(Sets.newHashSet("Home", "Morning", "Rose"),
+                    results.stream().map(Album::getAlbumName).collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    @DisplayName("A miner should only listen to the DAO once asked for similar albums, and until closed")
+    public void closingTheMinerShouldStopItsIndexesListening() {
+        List<DAOListener> listeners = Lists.newArrayList();
+        Neo4jDAO listened = new Neo4jDAO(session) {
+            @Override
+            public void addListener(DAOListener listener) {
+                listeners.add(listener);
+                super.addListener(listener);
+            }
+
+            @Override
+            public void removeListener(DAOListener listener) {
+                listeners.remove(listener);
+                super.removeListener(listener);
+            }
+        };
+        Album album = new Album(2019, "ECM 3523", "Orange Lemon");
+        ECMAlbumMiner miner = new ECMAlbumMiner(listened);
+
+        miner.bestSellingAlbums(1);
+        assertTrue(listeners.isEmpty());
+        miner.mostSimilarAlbums(1, album);
+        miner.approximateMostSimilarAlbums(1, album);
+        miner.mostSimilarAlbums(1, album);
+        assertEquals(2, listeners.size());
+
+        miner.close();
+        assertTrue(listeners.isEmpty());
+        assertThrows(IllegalStateException.class, () -> miner.mostSimilarAlbums(1, album));
+    }
+
+    @Test
+    public void approximateSimilarAlbumsShouldFindAlbumsSharingMostFeatures() {
+        prepareObjects("Album");
+        albums.forEach(a -> { dao.createOrUpdate(a); });
+        Album rose = albums.stream().filter(a -> a.getAlbumName().equals("Rose")).findFirst().get();
+
+        Album roses = new Album(2012, "ECM 5346", "Roses");
+        roses.setFeaturedMusicians(Lists.newArrayList(rose.getFeaturedMusicians()));
+        roses.setInstruments(Sets.newHashSet(rose.getInstruments()));
+        dao.createOrUpdate(roses);
+
+        List<Album> results = ecmAlbumMiner.approximateMostSimilarAlbums(1, rose);
+        assertEquals(Lists.newArrayList(roses), results);
+
+        Map<Album, List<Album>> related = ecmAlbumMiner.relatedAlbums(1);
+        assertEquals(albums.size() + 1, related.size());
+        assertEquals(Lists.newArrayList(rose), related.get(roses));
+    }
+
+    @Test
+    @DisplayName("Albums saved through another session should be signed with their musicians and instruments")
+    public void approximateSimilarAlbumsShouldMatchFeaturesOfAlbumsSavedThroughAnotherSession() {
+        prepareObjects("Album");
+        albums.forEach(a -> { dao.createOrUpdate(a); });
+        musicianInstruments.forEach(musicianInstrument -> { dao.createOrUpdate(musicianInstrument); });
+        Album rose = albums.stream().filter(a -> a.getAlbumName().equals("Rose")).findFirst().get();
+        // Shares no name shingle with Rose, only its musicians and instruments.
+        Album petals = new Album(2012, "ECM 5346", "Petals");
+        petals.setFeaturedMusicians(Lists.newArrayList(rose.getFeaturedMusicians()));
+        petals.setInstruments(Sets.newHashSet(rose.getInstruments()));
+        dao.createOrUpdate(petals);
+
+        try (ECMAlbumMiner miner = new ECMAlbumMiner(new Neo4jDAO(sessionFactory.openSession()))) {
+            List<Album> results = miner.approximateMostSimilarAlbums(1, rose);
+
+            assertEquals(Lists.newArrayList(petals), results);
+        }
+    }
+
     @Test
     public void shouldReturnEmptyListWhenDatabaseReturnsAlbumWithEmptyInformation() {
         Album album = new Album(2019, "ECM 3523", "Theory");
@@ -802,4 +911,4 @@ class ECMMinerIntegrationTest {
 
         assertEquals(0, results.size());
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,7 +1,6 @@
 package allaboutecm.mining;
 
 import allaboutecm.dataaccess.DAO;
-import allaboutecm.dataaccess.neo4j.Neo4jDAO;
 import allaboutecm.model.*;
 import com.google.common.collect.Sets;
 import org.junit.jupiter.api.*;
@@ -32,8 +31,8 @@ class ECMMusicianMinerUnitTest {
 
     @BeforeEach
     public void setUp() {
-        dao = mock(Neo4jDAO.class);
-        ecmMusicianMiner = new ECMMusicianMiner(dao);
+        dao = mock(DAO.class);
+        ecmMusicianMiner = new ECMMusicianMiner(dao, new InMemoryMiningBackend(dao));
     }
 
     private static void prepareObjects() {
@@ -403,4 +402,4 @@ class ECMMusicianMinerUnitTest {
         musicians.clear();
         musicianInstruments.clear();
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+package allaboutecm.mining;
+
+import com.google.common.collect.Maps;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntIntCounterTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0})
+    public void shouldThrowIllegalArgumentExceptionIfDeltaLessThanOne(int delta) {
+        assertThrows(IllegalArgumentException.class, () -> new IntIntCounter().add(2010, delta));
+    }
+
+    @Test
+    public void shouldCountZeroAndNegativeKeys() {
+        IntIntCounter counter = new IntIntCounter();
+        counter.increment(0);
+        counter.increment(-1);
+        counter.add(-1, 2);
+
+        assertEquals(1, counter.get(0));
+        assertEquals(3, counter.get(-1));
+        assertEquals(0, counter.get(1));
+        assertEquals(2, counter.size());
+    }
+
+    @Test
+    public void shouldMatchAHashMapWhileGrowing() {
+        Random random = new Random(7);
+        IntIntCounter counter = new IntIntCounter();
+        Map<Integer, Integer> expected = Maps.newHashMap();
+        for (int i = 0; i < 10000; i++) {
+            int key = random.nextInt(2000) << 16;
+            counter.increment(key);
+            expected.merge(key, 1, Integer::sum);
+        }
+
+        Map<Integer, Integer> actual = Maps.newHashMap();
+        counter.forEach(actual::put);
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), counter.size());
+    }
+
+    @Test
+    public void topShouldReturnKeysWithHighestCounts() {
+        IntIntCounter counter = new IntIntCounter();
+        for (int year : new int[]{2016, 2011, 2010, 2011, 2018, 2010, 2011}) {
+            counter.increment(year);
+        }
+
+        assertEquals(Arrays.asList(2011, 2010, 2016), counter.top(3, Integer::compare));
+    }
+}
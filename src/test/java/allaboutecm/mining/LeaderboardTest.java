@@ -0,0 +1,69 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Album;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaderboardTest {
+
+    @Test
+    public void topShouldRankByScoreThenTieBreak() {
+        Leaderboard<Integer> leaderboard = new Leaderboard<>(Rankings.YEARS_ASCENDING, false);
+        leaderboard.put(2011, 3);
+        leaderboard.put(2016, 1);
+        leaderboard.put(2010, 3);
+        leaderboard.put(2018, 5);
+
+        assertEquals(Arrays.asList(2018, 2010, 2011, 2016), leaderboard.top(10));
+        assertEquals(Arrays.asList(2018, 2010), leaderboard.top(2));
+    }
+
+    @Test
+    @DisplayName("Without a tie-break, equal scores should stay in the order first put")
+    public void equalScoresShouldKeepTheOrderFirstPut() {
+        Leaderboard<String> leaderboard = new Leaderboard<>(null, false);
+        leaderboard.put("ECM 1064", 2);
+        leaderboard.put("ECM 1050", 2);
+        leaderboard.put("ECM 1420", 2);
+        leaderboard.put("ECM 1064", 1);
+        leaderboard.put("ECM 1064", 2);
+
+        assertEquals(Arrays.asList("ECM 1064", "ECM 1050", "ECM 1420"), leaderboard.top(3));
+    }
+
+    @Test
+    public void addShouldCountAndDropItemsReachingZero() {
+        Leaderboard<Integer> leaderboard = new Leaderboard<>(Rankings.YEARS_ASCENDING, false);
+        leaderboard.add(1975, 1);
+        leaderboard.add(1975, 1);
+        leaderboard.add(1990, 1);
+        assertEquals(2, leaderboard.score(1975));
+
+        leaderboard.add(1990, -1);
+
+        assertFalse(leaderboard.contains(1990));
+        assertEquals(0, leaderboard.score(1990));
+        assertEquals(1, leaderboard.size());
+        assertEquals(Collections.singletonList(1975), leaderboard.top(5));
+    }
+
+    @Test
+    @DisplayName("Items ranked by identity should be found after they change in place")
+    public void itemsByIdentityShouldBeFoundAfterChangingInPlace() {
+        Leaderboard<Album> leaderboard = new Leaderboard<>(Rankings.ALBUMS_BY_NAME, true);
+        Album album = new Album(1975, "ECM 1064/65", "The Köln Concert");
+        leaderboard.put(album, 3000);
+
+        album.setAlbumName("Sun Bear Concerts");
+        leaderboard.put(album, 10);
+        assertEquals(1, leaderboard.size());
+
+        leaderboard.remove(album);
+        assertTrue(leaderboard.top(5).isEmpty());
+    }
+}
@@ -0,0 +1,73 @@
+package allaboutecm.mining;
+
+import com.google.common.base.Ticker;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoggingMiningListenerTest {
+    @Test
+    public void shouldThrowIllegalArgumentExceptionIfPeriodLessThanOne() {
+        assertThrows(IllegalArgumentException.class, () -> new LoggingMiningListener(0, TimeUnit.SECONDS));
+        assertThrows(NullPointerException.class, () -> new LoggingMiningListener(1, null));
+    }
+
+    @Test
+    @DisplayName("The summary should have a line per query with its latency, phase shares and allocations")
+    public void summaryShouldHaveALinePerQuery() {
+        LoggingMiningListener listener = new LoggingMiningListener(1, TimeUnit.MINUTES, new FakeTicker());
+        listener.queried(profile("busiestYears", 6, 3, 1, 1 << 20, false));
+        listener.queried(profile("busiestYears", 6, 3, 1, 3 << 20, true));
+        listener.queried(profile("bestSellingAlbums", 1, 0, 0, MiningProfile.UNKNOWN, false));
+
+        List<String> lines = listener.summary();
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("bestSellingAlbums: 1 queries, 0 failed"));
+        assertTrue(lines.get(0).endsWith("allocations unknown"));
+        assertTrue(lines.get(1).startsWith("busiestYears: 2 queries, 1 failed"));
+        assertTrue(lines.get(1).contains("fetch 60%, compute 30%, rank 10%;"));
+        assertTrue(lines.get(1).endsWith("2.0 MB per query"));
+    }
+
+    @Test
+    @DisplayName("The first query after the period should write the summary and start a new period")
+    public void firstQueryAfterPeriodShouldStartANewPeriod() {
+        FakeTicker ticker = new FakeTicker();
+        LoggingMiningListener listener = new LoggingMiningListener(1, TimeUnit.MINUTES, ticker);
+        listener.queried(profile("busiestYears", 1, 1, 1, 0, false));
+        ticker.advance(30, TimeUnit.SECONDS);
+        listener.queried(profile("busiestYears", 1, 1, 1, 0, false));
+        assertTrue(listener.summary().get(0).startsWith("busiestYears: 2 queries"));
+
+        ticker.advance(30, TimeUnit.SECONDS);
+        listener.queried(profile("busiestYears", 1, 1, 1, 0, false));
+        assertTrue(listener.summary().isEmpty());
+
+        listener.queried(profile("busiestYears", 1, 1, 1, 0, false));
+        assertTrue(listener.summary().get(0).startsWith("busiestYears: 1 queries"));
+    }
+
+    private static MiningProfile profile(String query, long fetchMillis, long computeMillis, long rankMillis,
+                                         long allocatedBytes, boolean failed) {
+        long[] nanos = {TimeUnit.MILLISECONDS.toNanos(fetchMillis), TimeUnit.MILLISECONDS.toNanos(computeMillis),
+                TimeUnit.MILLISECONDS.toNanos(rankMillis)};
+        return new MiningProfile(query, nanos[0] + nanos[1] + nanos[2], nanos, allocatedBytes, 1, failed);
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+    }
+}
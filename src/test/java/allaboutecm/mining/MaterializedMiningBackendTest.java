@@ -0,0 +1,202 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.CachingDAO;
+import allaboutecm.dataaccess.DAOListener;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import allaboutecm.model.Rating;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.*;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaterializedMiningBackendTest {
+    private static Neo4jDAO dao;
+    private static Session session;
+    private static SessionFactory sessionFactory;
+
+    private Musician keith;
+    private Musician jan;
+    private Musician gary;
+    private Album kolnConcert;
+    private Album belonging;
+    private Album tribute;
+    private Album concerts;
+
+    @BeforeAll
+    public static void setUp() {
+        // Impermanent embedded store
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        session = sessionFactory.openSession();
+        dao = new Neo4jDAO(session);
+    }
+
+    @BeforeEach
+    public void setUpEach() {
+        keith = new Musician("Keith Jarrett");
+        jan = new Musician("Jan Garbarek");
+        gary = new Musician("Gary Peacock");
+
+        kolnConcert = new Album(1975, "ECM 1064/65", "The Köln Concert");
+        kolnConcert.setFeaturedMusicians(Lists.newArrayList(keith));
+        kolnConcert.setUnitsSold(3500000);
+        kolnConcert.setRatings(Sets.newHashSet(new Rating(10, "Great", "A"), new Rating(8, "Good", "B")));
+        belonging = new Album(1974, "ECM 1050", "Belonging");
+        belonging.setFeaturedMusicians(Lists.newArrayList(keith, jan));
+        belonging.setUnitsSold(20000);
+        belonging.setRatings(Sets.newHashSet(new Rating(9, "Great", "A")));
+        tribute = new Album(1990, "ECM 1420/21", "Tribute");
+        tribute.setFeaturedMusicians(Lists.newArrayList(keith, gary));
+        tribute.setUnitsSold(20000);
+        concerts = new Album(1974, "ECM 1227/29", "Concerts");
+    }
+
+    @AfterEach
+    public void tearDownEach() {
+        session.purgeDatabase();
+        session.clear();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        session.purgeDatabase();
+        session.clear();
+        sessionFactory.close();
+    }
+
+    @Test
+    public void materializedBackendShouldOnlyListenToNeo4jDAO() {
+        for (Neo4jDAO listened : Arrays.asList(dao, new Neo4jDAO(session) {})) {
+            try (MiningBackend backend = MiningBackend.materializedForDao(listened);
+                 MiningBackend cachedBackend = MiningBackend.materializedForDao(new CachingDAO(listened))) {
+                assertTrue(backend instanceof MaterializedMiningBackend);
+                assertTrue(cachedBackend instanceof MaterializedMiningBackend);
+            }
+        }
+        assertThrows(NullPointerException.class, () -> new MaterializedMiningBackend(null));
+    }
+
+    @Test
+    @DisplayName("A backend should follow the writes through the DAO until closed")
+    public void closingTheBackendShouldStopItListening() {
+        List<DAOListener> listeners = Lists.newArrayList();
+        Neo4jDAO listened = new Neo4jDAO(session) {
+            @Override
+            public void addListener(DAOListener listener) {
+                listeners.add(listener);
+                super.addListener(listener);
+            }
+
+            @Override
+            public void removeListener(DAOListener listener) {
+                listeners.remove(listener);
+                super.removeListener(listener);
+            }
+        };
+        listened.createOrUpdate(kolnConcert);
+        MiningBackend backend = MiningBackend.materializedForDao(listened);
+        assertEquals(1, listeners.size());
+        assertEquals(Collections.singletonList(1975), backend.busiestYears(5));
+
+        backend.close();
+        assertTrue(listeners.isEmpty());
+        listened.createOrUpdate(belonging);
+        assertEquals(Collections.singletonList(1975), backend.busiestYears(5));
+        backend.close();
+    }
+
+    @Test
+    @DisplayName("Rankings should match the in-memory backend over the albums saved before first use")
+    public void rankingsShouldMatchInMemoryBackend() {
+        for (Album album : Arrays.asList(kolnConcert, belonging, tribute, concerts)) {
+            dao.createOrUpdate(album);
+        }
+        InMemoryMiningBackend inMemoryBackend = new InMemoryMiningBackend(dao);
+        try (MaterializedMiningBackend backend = MaterializedMiningBackend.listeningTo(dao)) {
+            assertEquals(4, backend.size());
+            assertEquals(Arrays.asList(1974, 1975, 1990), backend.busiestYears(5));
+            assertEquals(inMemoryBackend.busiestYears(5), backend.busiestYears(5));
+            assertEquals(inMemoryBackend.bestSellingAlbums(5), backend.bestSellingAlbums(5));
+            assertEquals(inMemoryBackend.highestRatedAlbums(5), backend.highestRatedAlbums(5));
+            assertEquals(Arrays.asList(keith, gary, jan), backend.mostSocialMusicians(5));
+        }
+    }
+
+    @Test
+    @DisplayName("Rankings should count the musicians and ratings of albums saved through another session")
+    public void rankingsShouldMatchInMemoryBackendOverAnotherSession() {
+        for (Album album : Arrays.asList(kolnConcert, belonging, tribute, concerts)) {
+            dao.createOrUpdate(album);
+        }
+        InMemoryMiningBackend inMemoryBackend = new InMemoryMiningBackend(dao);
+        try (MaterializedMiningBackend backend = MaterializedMiningBackend.listeningTo(new Neo4jDAO(sessionFactory.openSession()))) {
+
+            assertEquals(inMemoryBackend.busiestYears(5), backend.busiestYears(5));
+            assertEquals(inMemoryBackend.bestSellingAlbums(5), backend.bestSellingAlbums(5));
+            assertEquals(Arrays.asList(belonging, kolnConcert), backend.highestRatedAlbums(5));
+            assertEquals(inMemoryBackend.highestRatedAlbums(5), backend.highestRatedAlbums(5));
+            assertEquals(Arrays.asList(keith, gary, jan), backend.mostSocialMusicians(5));
+        }
+    }
+
+    @Test
+    @DisplayName("Albums saved and deleted after the first use should update the rankings")
+    public void savesAndDeletesShouldUpdateTheRankings() {
+        dao.createOrUpdate(kolnConcert);
+        dao.createOrUpdate(belonging);
+        try (MaterializedMiningBackend backend = MaterializedMiningBackend.listeningTo(dao)) {
+            assertEquals(Arrays.asList(kolnConcert, belonging), backend.bestSellingAlbums(5));
+
+            dao.createOrUpdate(tribute);
+            belonging.setUnitsSold(5000000);
+            belonging.setReleaseYear(1990);
+            dao.createOrUpdate(belonging);
+
+            assertEquals(Arrays.asList(belonging, kolnConcert, tribute), backend.bestSellingAlbums(5));
+            assertEquals(Arrays.asList(1990, 1975), backend.busiestYears(5));
+
+            dao.delete(kolnConcert);
+
+            assertEquals(2, backend.size());
+            assertEquals(Collections.singletonList(belonging), backend.highestRatedAlbums(5));
+            assertEquals(Collections.singletonList(1990), backend.busiestYears(5));
+            assertEquals(Arrays.asList(keith, gary, jan), backend.mostSocialMusicians(5));
+        }
+    }
+
+    @Test
+    public void deletingAMusicianShouldDropItFromTheSocialRanking() {
+        MaterializedMiningBackend backend = new MaterializedMiningBackend(new InMemoryMiningBackend(dao));
+        backend.add(kolnConcert);
+        backend.add(belonging);
+        backend.add(tribute);
+
+        backend.deleted(keith);
+        backend.remove(tribute);
+
+        // Removing tribute takes back gary but not the deleted keith.
+        assertEquals(Collections.singletonList(jan), backend.mostSocialMusicians(5));
+    }
+
+    @Test
+    public void shouldReturnEmptyListsWithoutAlbums() {
+        try (MaterializedMiningBackend backend = MaterializedMiningBackend.listeningTo(dao)) {
+
+            assertTrue(backend.busiestYears(5).isEmpty());
+            assertTrue(backend.bestSellingAlbums(5).isEmpty());
+            assertTrue(backend.highestRatedAlbums(5).isEmpty());
+            assertTrue(backend.mostSocialMusicians(5).isEmpty());
+            assertTrue(backend.mostTalentedMusicians(5).isEmpty());
+        }
+    }
+}
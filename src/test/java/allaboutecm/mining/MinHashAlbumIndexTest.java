@@ -0,0 +1,118 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.*;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinHashAlbumIndexTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0})
+    @DisplayName("Bands and rows should not be less than 1")
+    public void shouldThrowIllegalArgumentExceptionIfBandsOrRowsLessThanOne(int arg) {
+        assertThrows(IllegalArgumentException.class, () -> new MinHashAlbumIndex(arg, 4, 1));
+        assertThrows(IllegalArgumentException.class, () -> new MinHashAlbumIndex(16, arg, 1));
+    }
+
+    @Test
+    public void featuresShouldCoverMusiciansInstrumentsComposersAndNameShingles() {
+        Album album = new Album(1975, "ECM 1064/65", "Köln Part");
+        Musician keith = new Musician("Keith Jarrett");
+        album.setFeaturedMusicians(Lists.newArrayList(keith));
+        album.setInstruments(Sets.newHashSet(new MusicianInstrument(keith, Sets.newHashSet(new MusicalInstrument("Piano")))));
+        Track track = new Track(1, "Part I", 1560);
+        track.setComposers(new String[]{"Keith Jarrett"});
+        album.setTracks(Sets.newHashSet(track));
+
+        assertEquals(Sets.newHashSet("musician:Keith Jarrett", "instrument:Piano", "composer:Keith Jarrett",
+                "name:köl", "name:öln", "name:ln ", "name:n p", "name: pa", "name:par", "name:art"),
+                MinHashAlbumIndex.features(album));
+    }
+
+    @Test
+    public void shortNamesShouldBeASingleShingle() {
+        assertEquals(Sets.newHashSet("name:ab"), MinHashAlbumIndex.features(new Album(1990, "ECM 1", "AB")));
+    }
+
+    @Test
+    public void similarityShouldEstimateJaccardSimilarity() {
+        MinHashAlbumIndex index = new MinHashAlbumIndex(64, 4, 7);
+        Album album = albumWithMusicians("ECM 1", 0, 100);
+        Album other = albumWithMusicians("ECM 2", 50, 150);
+        Album disjoint = albumWithMusicians("ECM 3", 200, 300);
+
+        assertEquals(1.0, index.similarity(album, albumWithMusicians("ECM 1", 0, 100)));
+        assertEquals(1.0 / 3, index.similarity(album, other), 0.1);
+        assertEquals(0.0, index.similarity(album, disjoint), 0.05);
+        assertEquals(0.0, index.similarity(album, new Album()));
+    }
+
+    @Test
+    public void signaturesShouldBeReproducibleFromTheSeed() {
+        Album album = albumWithMusicians("ECM 1", 0, 20);
+        assertArrayEquals(new MinHashAlbumIndex(8, 2, 42).signature(album), new MinHashAlbumIndex(8, 2, 42).signature(album));
+        assertFalse(Arrays.equals(new MinHashAlbumIndex(8, 2, 42).signature(album), new MinHashAlbumIndex(8, 2, 43).signature(album)));
+    }
+
+    @Test
+    public void mostSimilarShouldFindNearDuplicatesButNotTheAlbumItself() {
+        List<Album> albums = Lists.newArrayList();
+        for (int i = 0; i < 50; i++) {
+            albums.add(albumWithMusicians("ECM " + i, i * 20, i * 20 + 20));
+        }
+        Album nearDuplicate = albumWithMusicians("ECM 1000", 100, 119);
+        albums.add(nearDuplicate);
+        MinHashAlbumIndex index = MinHashAlbumIndex.of(albums, MinHashAlbumIndex.DEFAULT_BANDS,
+                MinHashAlbumIndex.DEFAULT_ROWS, MinHashAlbumIndex.DEFAULT_SEED);
+
+        List<Album> results = index.mostSimilar(albums.get(5), 3);
+
+        assertEquals(nearDuplicate, results.get(0));
+        assertFalse(results.contains(albums.get(5)));
+    }
+
+    @Test
+    public void neighboursShouldListTheMostSimilarAlbumsOfEveryAlbum() {
+        Album album = albumWithMusicians("ECM 1", 0, 20);
+        Album similar = albumWithMusicians("ECM 2", 0, 19);
+        Album unrelated = albumWithMusicians("ECM 3", 100, 120);
+        MinHashAlbumIndex index = MinHashAlbumIndex.of(Arrays.asList(album, similar, unrelated), 16, 4, 1);
+
+        Map<Album, List<Album>> neighbours = index.neighbours(5);
+
+        assertEquals(3, neighbours.size());
+        assertEquals(Collections.singletonList(similar), neighbours.get(album));
+        assertEquals(Collections.singletonList(album), neighbours.get(similar));
+        assertTrue(neighbours.get(unrelated).isEmpty());
+    }
+
+    @Test
+    public void removedAlbumsShouldNotBeReturned() {
+        Album album = albumWithMusicians("ECM 1", 0, 20);
+        Album similar = albumWithMusicians("ECM 2", 0, 19);
+        MinHashAlbumIndex index = MinHashAlbumIndex.of(Arrays.asList(album, similar), 16, 4, 1);
+
+        index.deleted(albumWithMusicians("ECM 2", 0, 19));
+
+        assertEquals(1, index.size());
+        assertTrue(index.mostSimilar(album, 5).isEmpty());
+    }
+
+    private static Album albumWithMusicians(String recordNumber, int from, int to) {
+        Album album = new Album(2000, recordNumber, "Album");
+        List<Musician> musicians = Lists.newArrayList();
+        for (int i = from; i < to; i++) {
+            musicians.add(new Musician("Musician " + (char) ('A' + i % 26) + (char) ('a' + i / 26 % 26) + (char) ('a' + i / 676)));
+        }
+        album.setFeaturedMusicians(musicians);
+        return album;
+    }
+}
@@ -0,0 +1,199 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.metrics.InProcessMetricsRegistry;
+import allaboutecm.model.Album;
+import allaboutecm.model.Musician;
+import allaboutecm.model.Rating;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.*;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MiningProfilerTest {
+    private static Neo4jDAO dao;
+    private static Session session;
+    private static SessionFactory sessionFactory;
+
+    private FakeTicker ticker;
+    private MiningProfiler profiler;
+    private List<MiningProfile> profiles;
+
+    @BeforeAll
+    public static void setUp() {
+        // Impermanent embedded store
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        session = sessionFactory.openSession();
+        dao = new Neo4jDAO(session);
+    }
+
+    @BeforeEach
+    public void setUpEach() {
+        ticker = new FakeTicker();
+        profiler = new MiningProfiler(ticker);
+        profiles = Lists.newArrayList();
+        profiler.addListener(profiles::add);
+    }
+
+    @AfterEach
+    public void tearDownEach() {
+        session.purgeDatabase();
+        session.clear();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        session.purgeDatabase();
+        session.clear();
+        sessionFactory.close();
+    }
+
+    @Test
+    @DisplayName("Time between marks should be counted to the phase marked, starting in compute")
+    public void timeShouldBeCountedToPhases() {
+        List<Integer> result = profiler.profile("busiestYears", () -> {
+            ticker.advance(3, TimeUnit.MILLISECONDS);
+            MiningProfiler.enter(MiningPhase.FETCH);
+            ticker.advance(5, TimeUnit.MILLISECONDS);
+            MiningProfiler.enter(MiningPhase.RANK);
+            ticker.advance(2, TimeUnit.MILLISECONDS);
+            return Lists.newArrayList(2011, 2012);
+        });
+
+        assertEquals(Lists.newArrayList(2011, 2012), result);
+        assertEquals(1, profiles.size());
+        MiningProfile profile = profiles.get(0);
+        assertEquals("busiestYears", profile.getQuery());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), profile.getElapsedNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(5), profile.getNanos(MiningPhase.FETCH));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(3), profile.getNanos(MiningPhase.COMPUTE));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(2), profile.getNanos(MiningPhase.RANK));
+        assertEquals(2, profile.getRows());
+        assertFalse(profile.isFailed());
+    }
+
+    @Test
+    @DisplayName("A failed query should be profiled as failed and its exception rethrown")
+    public void failedQueryShouldBeProfiled() {
+        assertThrows(IllegalStateException.class, () -> profiler.profile("busiestYears", () -> {
+            ticker.advance(1, TimeUnit.MILLISECONDS);
+            throw new IllegalStateException();
+        }));
+
+        assertEquals(1, profiles.size());
+        assertTrue(profiles.get(0).isFailed());
+        assertEquals(0, profiles.get(0).getRows());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), profiles.get(0).getElapsedNanos());
+    }
+
+    @Test
+    @DisplayName("A query run within another should count towards the outer one")
+    public void nestedQueriesShouldCountTowardsTheOuter() {
+        profiler.profile("mostSimilarAlbums", () -> profiler.profile("busiestYears", Lists::newArrayList));
+
+        assertEquals(1, profiles.size());
+        assertEquals("mostSimilarAlbums", profiles.get(0).getQuery());
+    }
+
+    @Test
+    @DisplayName("Marks outside a profiled query, or after it, should be ignored")
+    public void marksOutsideQueriesShouldBeIgnored() {
+        MiningProfiler.enter(MiningPhase.FETCH);
+        profiler.profile("busiestYears", Lists::newArrayList);
+        MiningProfiler.enter(MiningPhase.RANK);
+
+        assertEquals(0, profiles.get(0).getNanos(MiningPhase.FETCH));
+        assertEquals(1, profiles.size());
+    }
+
+    @Test
+    @DisplayName("The bytes allocated by a query should be measured where the JVM supports it")
+    public void allocatedBytesShouldBeMeasured() {
+        profiler.profile("relatedAlbums", () -> new long[1 << 20]);
+
+        long allocated = profiles.get(0).getAllocatedBytes();
+        assertTrue(allocated == MiningProfile.UNKNOWN || allocated >= 8L << 20);
+    }
+
+    @Test
+    @DisplayName("Queries should not be profiled once the listener is removed")
+    public void removedListenerShouldNotBeNotified() {
+        ECMMusicianMiner miner = new ECMMusicianMiner(dao);
+        MiningListener listener = profiles::add;
+        miner.addListener(listener);
+        miner.busiestYears(3);
+        miner.removeListener(listener);
+        miner.busiestYears(3);
+
+        assertEquals(1, profiles.size());
+        assertEquals("busiestYears", profiles.get(0).getQuery());
+    }
+
+    @Test
+    @DisplayName("The miners should mark the phases of the backends they query")
+    public void minersShouldMarkPhases() {
+        Album album = new Album(1975, "ECM 1064/65", "The Köln Concert");
+        album.setRatings(Sets.newHashSet(new Rating(5, "Fine", "Rolling Stone")));
+        dao.createOrUpdate(album);
+        dao.createOrUpdate(new Album(1970, "ECM 1001", "Free At Last"));
+
+        ECMAlbumMiner cypher = new ECMAlbumMiner(dao);
+        ECMAlbumMiner inMemory = new ECMAlbumMiner(dao, new InMemoryMiningBackend(dao));
+        cypher.addListener(profiles::add);
+        inMemory.addListener(profiles::add);
+
+        assertEquals(1, cypher.highestRatedAlbums(5).size());
+        assertEquals(1, inMemory.highestRatedAlbums(5).size());
+
+        // The database ranks, so the Cypher query is all fetching.
+        MiningProfile database = profiles.get(0);
+        assertTrue(database.getNanos(MiningPhase.FETCH) > 0);
+        assertEquals(0, database.getNanos(MiningPhase.RANK));
+        MiningProfile jvm = profiles.get(1);
+        assertTrue(jvm.getNanos(MiningPhase.FETCH) > 0);
+        assertTrue(jvm.getNanos(MiningPhase.RANK) > 0);
+        for (MiningProfile profile : profiles) {
+            assertEquals(1, profile.getRows());
+            assertEquals(profile.getElapsedNanos(), profile.getNanos(MiningPhase.FETCH)
+                    + profile.getNanos(MiningPhase.COMPUTE) + profile.getNanos(MiningPhase.RANK));
+        }
+    }
+
+    @Test
+    @DisplayName("A listener recording to a registry should record the query and its phases")
+    public void recordingListenerShouldRecordQueryAndPhases() {
+        InProcessMetricsRegistry metrics = new InProcessMetricsRegistry();
+        profiler.addListener(MiningListener.recordingTo(metrics));
+        profiler.profile("busiestYears", () -> {
+            MiningProfiler.enter(MiningPhase.FETCH);
+            ticker.advance(5, TimeUnit.MILLISECONDS);
+            return Lists.newArrayList(2011);
+        });
+
+        assertEquals(1, metrics.getOperation("mining.busiestYears", null).getRows());
+        assertEquals(5.0, metrics.getOperation("mining.busiestYears.fetch", null).getMaxMillis(), 0.1);
+        assertNull(metrics.getOperation("mining.busiestYears.rank", null));
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+    }
+}
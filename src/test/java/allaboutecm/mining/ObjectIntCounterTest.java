@@ -0,0 +1,97 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Musician;
+import com.google.common.collect.Maps;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObjectIntCounterTest {
+
+    @Test
+    @DisplayName("Expected keys should not be negative")
+    public void shouldThrowIllegalArgumentExceptionIfExpectedKeysIsNegative() {
+        assertThrows(IllegalArgumentException.class, () -> new ObjectIntCounter<String>(-1));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0})
+    public void shouldThrowIllegalArgumentExceptionIfDeltaLessThanOne(int delta) {
+        assertThrows(IllegalArgumentException.class, () -> new ObjectIntCounter<String>().add("ECM 1064", delta));
+    }
+
+    @Test
+    public void shouldReturnZeroForKeysNeverCounted() {
+        ObjectIntCounter<String> counter = new ObjectIntCounter<>();
+        assertEquals(0, counter.get("Keith Jarrett"));
+        assertFalse(counter.containsKey("Keith Jarrett"));
+        assertTrue(counter.isEmpty());
+    }
+
+    @Test
+    public void shouldCountEqualKeysTogether() {
+        ObjectIntCounter<Musician> counter = new ObjectIntCounter<>();
+        counter.increment(new Musician("Keith Jarrett"));
+        counter.increment(new Musician("Keith Jarrett"));
+        counter.increment(new Musician("Jan Garbarek"));
+
+        assertEquals(2, counter.get(new Musician("Keith Jarrett")));
+        assertEquals(1, counter.get(new Musician("Jan Garbarek")));
+        assertEquals(2, counter.size());
+    }
+
+    @Test
+    public void shouldCountNullAsAKey() {
+        ObjectIntCounter<String> counter = new ObjectIntCounter<>();
+        counter.increment(null);
+        counter.add(null, 2);
+
+        assertTrue(counter.containsKey(null));
+        assertEquals(3, counter.get(null));
+        counter.forEach((key, count) -> assertNull(key));
+    }
+
+    @Test
+    public void putShouldReplaceTheCount() {
+        ObjectIntCounter<String> counter = new ObjectIntCounter<>();
+        counter.put("ECM 1064", 3);
+        counter.put("ECM 1064", 1);
+
+        assertEquals(1, counter.get("ECM 1064"));
+        assertEquals(1, counter.size());
+    }
+
+    @Test
+    public void shouldMatchAHashMapWhileGrowing() {
+        Random random = new Random(42);
+        ObjectIntCounter<Integer> counter = new ObjectIntCounter<>();
+        Map<Integer, Integer> expected = Maps.newHashMap();
+        for (int i = 0; i < 10000; i++) {
+            int key = random.nextInt(3000) * 1024;
+            counter.increment(key);
+            expected.merge(key, 1, Integer::sum);
+        }
+
+        assertEquals(expected.size(), counter.size());
+        Map<Integer, Integer> actual = Maps.newHashMap();
+        counter.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void topShouldReturnKeysWithHighestCounts() {
+        ObjectIntCounter<String> counter = new ObjectIntCounter<>();
+        for (String name : Arrays.asList("Gary Peacock", "Carla Bley", "Keith Jarrett", "Carla Bley", "Keith Jarrett")) {
+            counter.increment(name);
+        }
+
+        assertEquals(Arrays.asList("Carla Bley", "Keith Jarrett"), counter.top(2, String::compareTo));
+    }
+}
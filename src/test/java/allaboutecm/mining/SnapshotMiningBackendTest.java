@@ -0,0 +1,268 @@
+package allaboutecm.mining;
+
+import allaboutecm.dataaccess.DAO;
+import allaboutecm.dataaccess.neo4j.Neo4jDAO;
+import allaboutecm.model.*;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.neo4j.ogm.config.Configuration;
+import org.neo4j.ogm.session.Session;
+import org.neo4j.ogm.session.SessionFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotMiningBackendTest {
+    private static Neo4jDAO dao;
+    private static Session session;
+    private static SessionFactory sessionFactory;
+
+    private CypherMiningBackend cypherBackend;
+    // Read from the rows of the Neo4jDAO.
+    private SnapshotMiningBackend rowsBackend;
+    // Read from the entities of a DAO that is not a Neo4jDAO.
+    private SnapshotMiningBackend entitiesBackend;
+
+    @BeforeAll
+    public static void setUp() {
+        // Impermanent embedded store
+        Configuration configuration = new Configuration.Builder().build();
+        sessionFactory = new SessionFactory(configuration, Musician.class.getPackage().getName());
+        session = sessionFactory.openSession();
+        dao = new Neo4jDAO(session);
+    }
+
+    @BeforeEach
+    public void setUpEach() {
+        cypherBackend = new CypherMiningBackend(dao);
+        rowsBackend = new SnapshotMiningBackend(dao);
+        entitiesBackend = new SnapshotMiningBackend(notNeo4jDAO(dao));
+    }
+
+    @AfterEach
+    public void tearDownEach() {
+        session.purgeDatabase();
+        session.clear();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        session.purgeDatabase();
+        session.clear();
+        sessionFactory.close();
+    }
+
+    @Test
+    public void shouldThrowIfDaoIsNullOrRefreshLessThanOne() {
+        assertThrows(NullPointerException.class, () -> new SnapshotMiningBackend(null));
+        assertThrows(IllegalArgumentException.class, () -> new SnapshotMiningBackend(dao, 0, TimeUnit.SECONDS));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1, -1, -1", "2, -1, -1", "5, -1, -1", "5, 2010, 2011", "5, 2011, -1", "5, -1, 2010", "5, 0, 0", "5, 2019, -1"})
+    public void mostProlificMusiciansShouldMatchCypherRanking(int k, int startYear, int endYear) {
+        saveMusicians();
+
+        assertEquals(cypherBackend.mostProlificMusicians(k, startYear, endYear),
+                rowsBackend.mostProlificMusicians(k, startYear, endYear));
+        assertEquals(cypherBackend.mostProlificMusicians(k, startYear, endYear),
+                entitiesBackend.mostProlificMusicians(k, startYear, endYear));
+    }
+
+    @Test
+    public void mostSocialMusiciansAndBusiestYearsShouldMatchCypherRanking() {
+        saveAlbums();
+        dao.createOrUpdate(new Album());
+
+        assertEquals(Arrays.asList(new Musician("Philip Wilson"), new Musician("Julia Andrews"),
+                new Musician("Ayu Ko")), rowsBackend.mostSocialMusicians(3));
+        for (SnapshotMiningBackend backend : Arrays.asList(rowsBackend, entitiesBackend)) {
+            assertEquals(cypherBackend.mostSocialMusicians(5), backend.mostSocialMusicians(5));
+            assertEquals(Arrays.asList(2011, 2010, 2016, 2018), backend.busiestYears(5));
+            assertEquals(Arrays.asList(2011), backend.busiestYears(1));
+        }
+    }
+
+    @Test
+    public void bestSellingAlbumsShouldSkipAlbumsWithoutSales() {
+        Album[] albums = albums();
+        int[] unitsSold = {500, 0, 20, 3000, 0, 20, 1};
+        for (int i = 0; i < albums.length; i++) {
+            albums[i].setUnitsSold(unitsSold[i]);
+            dao.createOrUpdate(albums[i]);
+        }
+
+        for (SnapshotMiningBackend backend : Arrays.asList(rowsBackend, entitiesBackend)) {
+            // Albums 2 and 5 sold the same, and are in the order saved.
+            assertEquals(Arrays.asList(albums[3], albums[0], albums[2], albums[5], albums[6]), backend.bestSellingAlbums(10));
+            assertEquals(cypherBackend.bestSellingAlbums(2), backend.bestSellingAlbums(2));
+        }
+    }
+
+    @Test
+    public void highestRatedAlbumsShouldAverageRatingsAndBreakTiesByName() {
+        Album[] albums = albums();
+        albums[0].setRatings(Sets.newHashSet(new Rating(10, "Great", "A"), new Rating(6, "Good", "B")));
+        albums[1].setRatings(Sets.newHashSet(new Rating(9, "Great", "A")));
+        albums[2].setRatings(Sets.newHashSet(new Rating(8, "Great", "A")));
+        albums[3].setRatings(Sets.newHashSet(new Rating(8, "Fine", "C"), new Rating(8, "Fine", "D")));
+        for (Album album : albums) {
+            dao.createOrUpdate(album);
+        }
+
+        for (SnapshotMiningBackend backend : Arrays.asList(rowsBackend, entitiesBackend)) {
+            assertEquals(Arrays.asList(albums[1], albums[3], albums[2], albums[0]), backend.highestRatedAlbums(10));
+        }
+    }
+
+    @Test
+    public void mostTalentedMusiciansShouldCountDifferentInstrumentsOnAnyAlbum() {
+        Musician keith = new Musician("Keith Jarrett");
+        Musician jan = new Musician("Jan Garbarek");
+        Musician charlie = new Musician("Charlie Haden");
+        MusicalInstrument piano = new MusicalInstrument("Piano");
+        MusicalInstrument saxophone = new MusicalInstrument("Saxophone");
+        MusicalInstrument flute = new MusicalInstrument("Flute");
+        MusicalInstrument bass = new MusicalInstrument("Bass");
+        dao.createOrUpdate(new MusicianInstrument(keith, Sets.newHashSet(piano, saxophone)));
+        dao.createOrUpdate(new MusicianInstrument(keith, Sets.newHashSet(piano, flute)));
+        dao.createOrUpdate(new MusicianInstrument(jan, Sets.newHashSet(saxophone, flute)));
+        dao.createOrUpdate(new MusicianInstrument(charlie, Sets.newHashSet(bass, piano)));
+        dao.createOrUpdate(new Musician("Ralph Towner"));
+
+        for (SnapshotMiningBackend backend : Arrays.asList(rowsBackend, entitiesBackend)) {
+            assertEquals(Arrays.asList(keith, charlie, jan), backend.mostTalentedMusicians(5));
+        }
+    }
+
+    @Test
+    public void shouldReturnEmptyListsForEmptyDatabase() {
+        assertEquals(0, rowsBackend.getSnapshot().getAlbumCount());
+        assertEquals(0, rowsBackend.getSnapshot().getMusicianCount());
+        assertEquals(0, rowsBackend.mostProlificMusicians(5, -1, -1).size());
+        assertEquals(0, rowsBackend.mostTalentedMusicians(5).size());
+        assertEquals(0, rowsBackend.mostSocialMusicians(5).size());
+        assertEquals(0, rowsBackend.busiestYears(5).size());
+        assertEquals(0, rowsBackend.bestSellingAlbums(5).size());
+        assertEquals(0, rowsBackend.highestRatedAlbums(5).size());
+    }
+
+    @Test
+    @DisplayName("The snapshot should be read again by the first query after the refresh period")
+    public void snapshotShouldBeRefreshedAfterThePeriod() {
+        FakeTicker ticker = new FakeTicker();
+        SnapshotMiningBackend backend = new SnapshotMiningBackend(dao, 1, TimeUnit.MINUTES, ticker);
+        dao.createOrUpdate(new Album(2010, "ECM 1234", "Home"));
+        assertEquals(Arrays.asList(2010), backend.busiestYears(5));
+        CatalogueSnapshot first = backend.getSnapshot();
+
+        dao.createOrUpdate(new Album(2011, "ECM 9897", "Guitar"));
+        ticker.advance(59, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(2010), backend.busiestYears(5));
+        assertSame(first, backend.getSnapshot());
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(2010, 2011), backend.busiestYears(5));
+        assertNotSame(first, backend.getSnapshot());
+
+        dao.createOrUpdate(new Album(2011, "ECM 5447", "Orange"));
+        backend.refresh();
+        assertEquals(Arrays.asList(2011, 2010), backend.busiestYears(5));
+    }
+
+    @Test
+    @DisplayName("Reading the snapshot should count as fetching and the scans as computing")
+    public void snapshotQueriesShouldMarkPhases() {
+        saveAlbums();
+        ECMMusicianMiner miner = new ECMMusicianMiner(dao, rowsBackend);
+        MiningProfile[] profile = new MiningProfile[1];
+        miner.addListener(queried -> profile[0] = queried);
+
+        miner.mostSocialMusicians(3);
+
+        assertTrue(profile[0].getNanos(MiningPhase.FETCH) > 0);
+        assertTrue(profile[0].getNanos(MiningPhase.COMPUTE) > 0);
+        assertTrue(profile[0].getNanos(MiningPhase.RANK) > 0);
+    }
+
+    /**
+     * A DAO passing every call on to the given one, which the backend cannot tell is a Neo4jDAO.
+     */
+    private static DAO notNeo4jDAO(DAO dao) {
+        return (DAO) Proxy.newProxyInstance(DAO.class.getClassLoader(), new Class<?>[]{DAO.class},
+                (proxy, method, args) -> {
+                    try {
+                        return method.invoke(dao, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static void saveMusicians() {
+        Album[] albums = albums();
+        Musician musician1 = new Musician("Jean Den");
+        Musician musician2 = new Musician("Ayu Ko");
+        Musician musician3 = new Musician("Julia Andrews");
+        Musician musician4 = new Musician("Philip Wilson");
+        Musician musician5 = new Musician("Katy Moore");
+        musician1.setAlbums(Sets.newHashSet(albums[0], albums[1], albums[4]));
+        musician2.setAlbums(Sets.newHashSet(albums[3], albums[4], albums[5]));
+        musician3.setAlbums(Sets.newHashSet(albums[2], albums[4], albums[6], albums[0]));
+        musician4.setAlbums(Sets.newHashSet(albums[6], albums[4], albums[3], albums[1], albums[5]));
+        musician5.setAlbums(Sets.newHashSet(albums[5]));
+        for (Musician musician : Arrays.asList(musician1, musician2, musician3, musician4, musician5)) {
+            dao.createOrUpdate(musician);
+        }
+    }
+
+    private static void saveAlbums() {
+        Album[] albums = albums();
+        Musician musician1 = new Musician("Jean Den");
+        Musician musician2 = new Musician("Ayu Ko");
+        Musician musician3 = new Musician("Julia Andrews");
+        Musician musician4 = new Musician("Philip Wilson");
+        Musician musician5 = new Musician("Katy Moore");
+        albums[0].setFeaturedMusicians(Arrays.asList(musician1, musician3));
+        albums[1].setFeaturedMusicians(Arrays.asList(musician1, musician4));
+        albums[2].setFeaturedMusicians(Arrays.asList(musician3));
+        albums[3].setFeaturedMusicians(Arrays.asList(musician2, musician4));
+        albums[4].setFeaturedMusicians(Arrays.asList(musician1, musician2, musician3, musician4));
+        albums[5].setFeaturedMusicians(Arrays.asList(musician2, musician5, musician4));
+        albums[6].setFeaturedMusicians(Arrays.asList(musician3, musician4));
+        for (Album album : albums) {
+            dao.createOrUpdate(album);
+        }
+    }
+
+    private static Album[] albums() {
+        return new Album[]{
+                new Album(2010, "ECM 1234", "Home"),
+                new Album(2016, "ECM 4567", "Morning"),
+                new Album(2018, "ECM 3567", "Happy"),
+                new Album(2011, "ECM 9897", "Guitar"),
+                new Album(2010, "ECM 5345", "Rose"),
+                new Album(2011, "ECM 5447", "Orange"),
+                new Album(2011, "ECM 5677", "Kitaro")};
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package allaboutecm.mining;
+
+import allaboutecm.model.Musician;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0})
+    @DisplayName("k should not be less than 1")
+    public void shouldThrowIllegalArgumentExceptionIfKLessThanOne(int k) {
+        assertThrows(IllegalArgumentException.class, () -> new IntTopK<String>(k));
+        assertThrows(IllegalArgumentException.class, () -> new DoubleTopK<String>(k));
+        assertThrows(IllegalArgumentException.class, () -> new IntIntTopK(k));
+        assertThrows(IllegalArgumentException.class, () -> new TopK<String>(k, Comparator.naturalOrder()));
+    }
+
+    @Test
+    public void shouldThrowNullPointerExceptionIfOrderIsNull() {
+        assertThrows(NullPointerException.class, () -> new TopK<String>(1, null));
+    }
+
+    @Test
+    public void shouldReturnEmptyArrayListWhenNothingIsOffered() {
+        assertEquals(ArrayList.class, new IntTopK<String>(3).toList().getClass());
+        assertEquals(0, new DoubleTopK<String>(3).toList().size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 10, 99, 100, 1000})
+    public void intTopKShouldMatchAFullSort(int k) {
+        Random random = new Random(k);
+        List<Integer> values = Lists.newArrayList();
+        IntTopK<Integer> topK = new IntTopK<>(k, Comparator.naturalOrder());
+        for (int i = 0; i < 500; i++) {
+            int value = random.nextInt(50);
+            values.add(value);
+            topK.offer(i, value);
+        }
+
+        List<Integer> expected = Lists.newArrayList();
+        for (int i = 0; i < values.size(); i++) {
+            expected.add(i);
+        }
+        expected.sort(Comparator.<Integer>comparingInt(values::get).reversed().thenComparing(Comparator.naturalOrder()));
+
+        assertEquals(expected.subList(0, Math.min(k, expected.size())), topK.toList());
+        assertEquals(Math.min(k, 500), topK.size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 10, 99, 100, 1000})
+    public void intIntTopKShouldMatchIntTopK(int k) {
+        Random random = new Random(k);
+        IntTopK<Integer> expected = new IntTopK<>(k, Comparator.reverseOrder());
+        IntIntTopK topK = new IntIntTopK(k, (a, b) -> Integer.compare(b, a));
+        for (int i = 0; i < 500; i++) {
+            int key = random.nextInt(200) - 100;
+            int value = random.nextInt(50);
+            expected.offer(key, value);
+            topK.offer(key, value);
+        }
+
+        assertEquals(expected.toList(), topK.toList());
+        assertEquals(expected.size(), topK.size());
+    }
+
+    @Test
+    public void intIntTopKShouldBreakTiesWithoutTieBreakByOfferOrder() {
+        IntIntTopK topK = new IntIntTopK(3);
+        for (int key : new int[]{4, 3, 2, 1, 5}) {
+            topK.offer(key, key == 5 ? 2 : 1);
+        }
+
+        assertEquals(Arrays.asList(5, 4, 3), topK.toList());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 64})
+    public void doubleTopKShouldMatchAFullSort(int k) {
+        Random random = new Random(k);
+        Map<String, Double> scores = Maps.newHashMap();
+        DoubleTopK<String> topK = new DoubleTopK<>(k, Comparator.naturalOrder());
+        for (int i = 0; i < 300; i++) {
+            String key = "item" + i;
+            double score = random.nextInt(20) / 4.0;
+            scores.put(key, score);
+            topK.offer(key, score);
+        }
+
+        List<String> expected = scores.keySet().stream()
+                .sorted(Comparator.<String>comparingDouble(scores::get).reversed().thenComparing(Comparator.naturalOrder()))
+                .limit(k)
+                .collect(Collectors.toList());
+
+        assertEquals(expected, topK.toList());
+    }
+
+    @Test
+    public void shouldBreakTiesWithoutTieBreakByOfferOrder() {
+        IntTopK<String> topK = new IntTopK<>(3);
+        for (String item : Arrays.asList("d", "c", "b", "a", "e")) {
+            topK.offer(item, item.equals("e") ? 2 : 1);
+        }
+
+        assertEquals(Arrays.asList("e", "d", "c"), topK.toList());
+    }
+
+    @Test
+    public void tieBreakShouldMakeSelectionIndependentOfOfferOrder() {
+        List<Musician> musicians = Lists.newArrayList(new Musician("Keith Jarrett"), new Musician("Carla Bley"),
+                new Musician("Jan Garbarek"), new Musician("Arvo Part"), new Musician("Gary Peacock"));
+        List<Musician> expected = Arrays.asList(new Musician("Arvo Part"), new Musician("Carla Bley"));
+
+        for (int round = 0; round < 10; round++) {
+            Collections.shuffle(musicians, new Random(round));
+            IntTopK<Musician> topK = new IntTopK<>(2, Rankings.MUSICIANS_BY_NAME);
+            musicians.forEach(musician -> topK.offer(musician, 1));
+            assertEquals(expected, topK.toList());
+        }
+    }
+
+    @Test
+    public void topKShouldKeepOfferOrderForItemsTheOrderCannotTellApart() {
+        TopK<String> topK = new TopK<>(3, Comparator.comparing(String::length).reversed());
+        for (String item : Arrays.asList("bb", "a", "cc", "ddd", "ee", "f")) {
+            topK.offer(item);
+        }
+
+        assertEquals(Arrays.asList("ddd", "bb", "cc"), topK.toList());
+    }
+}
@@ -0,0 +1,42 @@
+package allaboutecm.mining;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YearCounterTest {
+
+    @Test
+    public void shouldCountYearsInsideAndOutsideTheDenseRange() {
+        YearCounter counter = new YearCounter(2020);
+        counter.increment(1969);
+        counter.increment(2020);
+        counter.increment(2020);
+        counter.increment(1950);
+        counter.increment(2025);
+
+        assertEquals(1, counter.get(1969));
+        assertEquals(2, counter.get(2020));
+        assertEquals(1, counter.get(1950));
+        assertEquals(1, counter.get(2025));
+        assertEquals(0, counter.get(2000));
+    }
+
+    @Test
+    public void topShouldRankEarlierYearsFirstOnTies() {
+        YearCounter counter = new YearCounter(2020);
+        for (int year : new int[]{2025, 2016, 1950, 2011, 2016, 2011}) {
+            counter.increment(year);
+        }
+
+        assertEquals(Arrays.asList(2011, 2016, 1950, 2025), counter.top(4));
+        assertEquals(Arrays.asList(2011), counter.top(1));
+    }
+
+    @Test
+    public void topShouldBeEmptyWhenNothingIsCounted() {
+        assertTrue(new YearCounter().top(3).isEmpty());
+    }
+}